@@ -47,6 +47,7 @@ import org.openstreetmap.josm.tools.Platform;
 import org.openstreetmap.josm.tools.PlatformHook;
 import org.openstreetmap.josm.tools.PlatformHookOsx;
 import org.openstreetmap.josm.tools.PlatformHookWindows;
+import org.openstreetmap.josm.tools.StartupProfile;
 import org.openstreetmap.josm.tools.Utils;
 import org.openstreetmap.josm.tools.bugreport.BugReport;
 
@@ -153,18 +154,37 @@ public abstract class Main {
      */
     public void initialize() {
         // Initializes tasks that must be run before parallel tasks
-        runInitializationTasks(beforeInitializationTasks());
+        StartupProfile.run(tr("Initialization tasks before the parallel ones"), () -> runInitializationTasks(beforeInitializationTasks()));
 
         // Initializes tasks to be executed (in parallel) by a ExecutorService
         try {
             ExecutorService service = Executors.newFixedThreadPool(
                     Runtime.getRuntime().availableProcessors(), Utils.newThreadFactory("main-init-%d", Thread.NORM_PRIORITY));
+            long start = System.currentTimeMillis();
             for (Future<Void> i : service.invokeAll(parallelInitializationTasks())) {
                 i.get();
             }
+            StartupProfile.record(tr("Parallel initialization tasks"), start, System.currentTimeMillis());
             // asynchronous initializations to be completed eventually
-            asynchronousRunnableTasks().forEach(service::submit);
-            asynchronousCallableTasks().forEach(service::submit);
+            List<Runnable> runnables = asynchronousRunnableTasks();
+            for (int i = 0; i < runnables.size(); i++) {
+                String name = tr("Asynchronous initialization task {0}", i + 1);
+                Runnable task = runnables.get(i);
+                service.submit(() -> StartupProfile.run(name, task));
+            }
+            List<Callable<?>> callables = asynchronousCallableTasks();
+            for (int i = 0; i < callables.size(); i++) {
+                String name = tr("Asynchronous initialization task {0}", runnables.size() + i + 1);
+                Callable<?> task = callables.get(i);
+                service.submit(() -> {
+                    long taskStart = System.currentTimeMillis();
+                    try {
+                        return task.call();
+                    } finally {
+                        StartupProfile.record(name, taskStart, System.currentTimeMillis());
+                    }
+                });
+            }
             try {
                 service.shutdown();
             } catch (SecurityException e) {
@@ -175,7 +195,7 @@ public abstract class Main {
         }
 
         // Initializes tasks that must be run after parallel tasks
-        runInitializationTasks(afterInitializationTasks());
+        StartupProfile.run(tr("Initialization tasks after the parallel ones"), () -> runInitializationTasks(afterInitializationTasks()));
     }
 
     private static void runInitializationTasks(List<InitializationTask> tasks) {
@@ -255,7 +275,7 @@ public abstract class Main {
             if (initListener != null) {
                 status = initListener.updateStatus(name);
             }
-            task.run();
+            StartupProfile.run(name, task);
             if (initListener != null) {
                 initListener.finish(status);
             }
@@ -191,6 +191,7 @@ public final class ShowStatusReportAction extends JosmAction {
         }
         text.append('\n');
         appendCollection(text, "Plugins", Utils.transform(PluginHandler.getBugReportInformation(), i -> "+ " + i));
+        appendCollection(text, "Plugin loading times", Utils.transform(PluginHandler.getLoadingTimesInformation(), i -> "+ " + i));
         appendCollection(text, "Tagging presets", getCustomUrls(PresetPrefHelper.INSTANCE));
         appendCollection(text, "Map paint styles", getCustomUrls(MapPaintPrefHelper.INSTANCE));
         appendCollection(text, "Validator rules", getCustomUrls(ValidatorPrefHelper.INSTANCE));
@@ -84,8 +84,9 @@ public class PurgeCommand extends Command {
     @Override
     public boolean executeCommand() {
         getAffectedDataSet().beginUpdate();
+        getAffectedDataSet().getConflicts().beginUpdate();
         try {
-            purgedConflicts.get().clear();
+            purgedConflicts.clear();
             // unselect primitives in advance to not fire a selection change for every one of them
             getAffectedDataSet().clearSelection(toPurge);
             // Loop from back to front to keep referential integrity.
@@ -116,6 +117,7 @@ public class PurgeCommand extends Command {
             }
             getAffectedDataSet().clearMappaintCache();
         } finally {
+            getAffectedDataSet().getConflicts().endUpdate();
             getAffectedDataSet().endUpdate();
         }
         return true;
@@ -127,6 +129,7 @@ public class PurgeCommand extends Command {
             return;
 
         getAffectedDataSet().beginUpdate();
+        getAffectedDataSet().getConflicts().beginUpdate();
         try {
             for (OsmPrimitive osm : toPurge) {
                 PrimitiveData data = makeIncompleteDataByPrimId.get(osm);
@@ -147,6 +150,7 @@ public class PurgeCommand extends Command {
             }
             getAffectedDataSet().clearMappaintCache();
         } finally {
+            getAffectedDataSet().getConflicts().endUpdate();
             getAffectedDataSet().endUpdate();
         }
     }
@@ -50,10 +50,15 @@ public abstract class ConflictResolveCommand extends Command {
      */
     protected void reconstituteConflicts() {
         DataSet ds = getAffectedDataSet();
-        for (Conflict<?> c : resolvedConflicts) {
-            if (!ds.getConflicts().hasConflictForMy(c.getMy())) {
-                ds.getConflicts().add(c);
+        ds.getConflicts().beginUpdate();
+        try {
+            for (Conflict<?> c : resolvedConflicts) {
+                if (!ds.getConflicts().hasConflictForMy(c.getMy())) {
+                    ds.getConflicts().add(c);
+                }
             }
+        } finally {
+            ds.getConflicts().endUpdate();
         }
     }
 
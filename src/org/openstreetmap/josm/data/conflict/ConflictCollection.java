@@ -5,9 +5,14 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -36,10 +41,28 @@ import org.openstreetmap.josm.tools.SubclassFilteredCollection;
  *   <li>{@link #addConflictListener(IConflictListener)}</li>
  *   <li>{@link #removeConflictListener(IConflictListener)}</li>
  * </ul>
+ * Several changes can be grouped between {@link #beginUpdate()} and {@link #endUpdate()},
+ * the listeners are then notified once at the end.
  */
 public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimitive>> {
+    /** the conflicts in insertion order, removed conflicts leave a null slot until the list is {@link #compact() compacted} */
     private final List<Conflict<? extends OsmPrimitive>> conflicts;
     private final CopyOnWriteArrayList<IConflictListener> listeners;
+    /** the position of each conflict in {@link #conflicts}, by "my" primitive */
+    private final Map<OsmPrimitive, Integer> positions = new IdentityHashMap<>();
+    /** the first conflict of each "their" primitive */
+    private final Map<OsmPrimitive, Conflict<?>> conflictsByTheir = new IdentityHashMap<>();
+    /** the other conflicts of the "their" primitives having several conflicts */
+    private final Map<OsmPrimitive, Set<Conflict<?>>> theirDuplicates = new IdentityHashMap<>();
+    /** number of null slots in {@link #conflicts} */
+    private int removedCount;
+    /** number of compactions, to detect them while iterating */
+    private int compactions;
+
+    // Number of open calls to beginUpdate
+    private int updateCount;
+    private boolean conflictsAdded;
+    private boolean conflictsRemoved;
 
     /**
      * Constructs a new {@code ConflictCollection}.
@@ -68,17 +91,107 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
     }
 
     protected void fireConflictAdded() {
+        if (updateCount > 0) {
+            conflictsAdded = true;
+            return;
+        }
         for (IConflictListener listener : listeners) {
             listener.onConflictsAdded(this);
         }
     }
 
     protected void fireConflictRemoved() {
+        if (updateCount > 0) {
+            conflictsRemoved = true;
+            return;
+        }
         for (IConflictListener listener : listeners) {
             listener.onConflictsRemoved(this);
         }
     }
 
+    /**
+     * Starts a group of changes. The listeners are not notified until the matching {@link #endUpdate()}.
+     * Calls can be nested.
+     */
+    public void beginUpdate() {
+        updateCount++;
+    }
+
+    /**
+     * Ends a group of changes started by {@link #beginUpdate()}.
+     * The listeners are notified once if conflicts have been added or removed in the meantime.
+     * @throws IllegalStateException if there is no matching {@link #beginUpdate()}
+     */
+    public void endUpdate() {
+        if (updateCount <= 0)
+            throw new IllegalStateException("endUpdate() called without beginUpdate()");
+        if (--updateCount == 0) {
+            if (conflictsAdded) {
+                conflictsAdded = false;
+                fireConflictAdded();
+            }
+            if (conflictsRemoved) {
+                conflictsRemoved = false;
+                fireConflictRemoved();
+            }
+        }
+    }
+
+    private void index(Conflict<?> conflict) {
+        positions.put(conflict.getMy(), conflicts.size() - 1);
+        if (conflictsByTheir.putIfAbsent(conflict.getTheir(), conflict) != null) {
+            theirDuplicates.computeIfAbsent(conflict.getTheir(), k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(conflict);
+        }
+    }
+
+    /**
+     * Removes a conflict from the "their" indexes. If it was the first conflict of its "their" primitive,
+     * the earliest remaining conflict of this primitive replaces it.
+     * @param conflict the removed conflict
+     */
+    private void unindexTheir(Conflict<?> conflict) {
+        OsmPrimitive their = conflict.getTheir();
+        Set<Conflict<?>> duplicates = theirDuplicates.get(their);
+        if (conflictsByTheir.get(their) != conflict) {
+            duplicates.remove(conflict);
+        } else if (duplicates == null) {
+            conflictsByTheir.remove(their);
+        } else {
+            Conflict<?> first = null;
+            for (Conflict<?> c : duplicates) {
+                if (first == null || positions.get(c.getMy()) < positions.get(first.getMy())) {
+                    first = c;
+                }
+            }
+            duplicates.remove(first);
+            conflictsByTheir.put(their, first);
+        }
+        if (duplicates != null && duplicates.isEmpty()) {
+            theirDuplicates.remove(their);
+        }
+    }
+
+    private void removeConflict(Conflict<?> conflict) {
+        unindexTheir(conflict);
+        conflicts.set(positions.remove(conflict.getMy()), null);
+        removedCount++;
+    }
+
+    /**
+     * Removes the null slots left by removed conflicts, so that the conflicts can be accessed by index.
+     */
+    private void compact() {
+        if (removedCount > 0) {
+            conflicts.removeIf(Objects::isNull);
+            removedCount = 0;
+            compactions++;
+            for (int i = 0; i < conflicts.size(); i++) {
+                positions.put(conflicts.get(i).getMy(), i);
+            }
+        }
+    }
+
     /**
      * Adds a conflict to the collection
      *
@@ -88,9 +201,11 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
     protected void addConflict(Conflict<?> conflict) {
         if (hasConflictForMy(conflict.getMy()))
             throw new IllegalStateException(tr("Already registered a conflict for primitive ''{0}''.", conflict.getMy().toString()));
-        if (!conflicts.contains(conflict)) {
-            conflicts.add(conflict);
+        if (removedCount > conflicts.size() / 2) {
+            compact();
         }
+        conflicts.add(conflict);
+        index(conflict);
     }
 
     /**
@@ -137,7 +252,10 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
      * @param conflict the conflict
      */
     public void remove(Conflict<?> conflict) {
-        conflicts.remove(conflict);
+        Conflict<?> c = getConflictForMy(conflict.getMy());
+        if (conflict.equals(c)) {
+            removeConflict(c);
+        }
         fireConflictRemoved();
     }
 
@@ -147,12 +265,7 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
      * @param my  the primitive
      */
     public void remove(OsmPrimitive my) {
-        Iterator<Conflict<?>> it = iterator();
-        while (it.hasNext()) {
-            if (it.next().isMatchingMy(my)) {
-                it.remove();
-            }
-        }
+        removeForMy(my);
         fireConflictRemoved();
     }
 
@@ -165,11 +278,8 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
      * if no such conflict exists.
      */
     public Conflict<?> getConflictForMy(OsmPrimitive my) {
-        for (Conflict<?> c : conflicts) {
-            if (c.isMatchingMy(my))
-                return c;
-        }
-        return null;
+        Integer position = my == null ? null : positions.get(my);
+        return position == null ? null : conflicts.get(position);
     }
 
     /**
@@ -181,11 +291,7 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
      * if no such conflict exists.
      */
     public Conflict<?> getConflictForTheir(OsmPrimitive their) {
-        for (Conflict<?> c : conflicts) {
-            if (c.isMatchingTheir(their))
-                return c;
-        }
-        return null;
+        return their == null ? null : conflictsByTheir.get(their);
     }
 
     /**
@@ -224,11 +330,9 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
      * @param my the primitive
      */
     public void removeForMy(OsmPrimitive my) {
-        Iterator<Conflict<?>> it = iterator();
-        while (it.hasNext()) {
-            if (it.next().isMatchingMy(my)) {
-                it.remove();
-            }
+        Conflict<?> c = getConflictForMy(my);
+        if (c != null) {
+            removeConflict(c);
         }
     }
 
@@ -238,21 +342,35 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
      * @param their the primitive
      */
     public void removeForTheir(OsmPrimitive their) {
-        Iterator<Conflict<?>> it = iterator();
-        while (it.hasNext()) {
-            if (it.next().isMatchingTheir(their)) {
-                it.remove();
-            }
+        Conflict<?> c;
+        while ((c = getConflictForTheir(their)) != null) {
+            removeConflict(c);
+        }
+    }
+
+    /**
+     * Removes all conflicts.
+     */
+    public void clear() {
+        if (!isEmpty()) {
+            conflicts.clear();
+            positions.clear();
+            conflictsByTheir.clear();
+            theirDuplicates.clear();
+            removedCount = 0;
+            compactions++;
+            fireConflictRemoved();
         }
     }
 
     /**
      * Replies the conflicts as list.
      *
-     * @return the list of conflicts
+     * @return the unmodifiable list of conflicts
      */
     public List<Conflict<?>> get() {
-        return conflicts;
+        compact();
+        return Collections.unmodifiableList(conflicts);
     }
 
     /**
@@ -261,7 +379,7 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
      * @return the size of the collection
      */
     public int size() {
-        return conflicts.size();
+        return conflicts.size() - removedCount;
     }
 
     /**
@@ -271,6 +389,7 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
      * @return the conflict at position <code>idx</code>
      */
     public Conflict<?> get(int idx) {
+        compact();
         return conflicts.get(idx);
     }
 
@@ -281,16 +400,56 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
      */
     @Override
     public Iterator<Conflict<?>> iterator() {
-        return conflicts.iterator();
+        return new Iterator<Conflict<?>>() {
+            private final int expectedCompactions = compactions;
+            private int next = skipRemoved(0);
+            private Conflict<?> current;
+
+            private int skipRemoved(int index) {
+                int i = index;
+                while (i < conflicts.size() && conflicts.get(i) == null) {
+                    i++;
+                }
+                return i;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < conflicts.size();
+            }
+
+            @Override
+            public Conflict<?> next() {
+                if (compactions != expectedCompactions)
+                    throw new ConcurrentModificationException();
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                current = conflicts.get(next);
+                next = skipRemoved(next + 1);
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                if (current == null || getConflictForMy(current.getMy()) != current)
+                    throw new IllegalStateException();
+                removeConflict(current);
+            }
+        };
     }
 
     /**
-     * Adds all conflicts from another collection.
+     * Adds all conflicts from another collection. The listeners are notified once.
      * @param other The other collection of conflicts to add
      */
     public void add(ConflictCollection other) {
-        for (Conflict<?> c : other) {
-            add(c);
+        beginUpdate();
+        try {
+            for (Conflict<?> c : other) {
+                add(c);
+            }
+        } finally {
+            endUpdate();
         }
     }
 
@@ -303,7 +462,7 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
      */
     public Set<OsmPrimitive> getMyConflictParties() {
         Set<OsmPrimitive> ret = new HashSet<>();
-        for (Conflict<?> c: conflicts) {
+        for (Conflict<?> c: this) {
             ret.add(c.getMy());
         }
         return ret;
@@ -318,7 +477,7 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
      */
     public Set<OsmPrimitive> getTheirConflictParties() {
         Set<OsmPrimitive> ret = new HashSet<>();
-        for (Conflict<?> c: conflicts) {
+        for (Conflict<?> c: this) {
             ret.add(c.getTheir());
         }
         return ret;
@@ -335,6 +494,7 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
 
     @Override
     public String toString() {
+        compact();
         return conflicts.toString();
     }
 
@@ -367,6 +527,7 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
 
     @Override
     public int hashCode() {
+        compact();
         return Objects.hash(conflicts, listeners);
     }
 
@@ -375,6 +536,8 @@ public class ConflictCollection implements Iterable<Conflict<? extends OsmPrimit
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         ConflictCollection conflicts1 = (ConflictCollection) obj;
+        compact();
+        conflicts1.compact();
         return Objects.equals(conflicts, conflicts1.conflicts) &&
                Objects.equals(listeners, conflicts1.listeners);
     }
@@ -17,6 +17,8 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.openstreetmap.josm.Main;
@@ -467,14 +469,26 @@ public class GpxData extends WithAttributes implements Data {
      */
     public static Date[] getMinMaxTimeForTrack(GpxTrack trk) {
         final DoubleSummaryStatistics statistics = trk.getSegments().stream()
-                .flatMap(seg -> seg.getWayPoints().stream())
-                .mapToDouble(pnt -> pnt.time)
+                .flatMapToDouble(GpxData::getTimes)
                 .summaryStatistics();
         return statistics.getCount() == 0
                 ? null
                 : new Date[]{new Date((long) (statistics.getMin() * 1000)), new Date((long) (statistics.getMax() * 1000))};
     }
 
+    /**
+     * Returns the times of the points of a track segment, without creating waypoints for columnar segments.
+     * @param seg track segment
+     * @return the times of the points, in seconds since 1970-01-01 00:00 UTC
+     */
+    private static DoubleStream getTimes(GpxTrackSegment seg) {
+        if (seg instanceof ImmutableGpxTrackSegment) {
+            WayPointColumns columns = ((ImmutableGpxTrackSegment) seg).getColumns();
+            return IntStream.range(0, columns.size()).mapToDouble(columns::getTime);
+        }
+        return seg.getWayPoints().stream().mapToDouble(pnt -> pnt.time);
+    }
+
     /**
     * Returns minimum and maximum timestamps for all tracks
     * Warning: there are lot of track with broken timestamps,
@@ -486,8 +500,7 @@ public class GpxData extends WithAttributes implements Data {
         double now = System.currentTimeMillis() / 1000.0;
         final DoubleSummaryStatistics statistics = tracks.stream()
                 .flatMap(trk -> trk.getSegments().stream())
-                .flatMap(seg -> seg.getWayPoints().stream())
-                .mapToDouble(pnt -> pnt.time)
+                .flatMapToDouble(GpxData::getTimes)
                 .filter(t -> t > 0 && t <= now)
                 .summaryStatistics();
         return statistics.getCount() == 0
@@ -536,11 +549,12 @@ public class GpxData extends WithAttributes implements Data {
         double rx = 0.0, ry = 0.0, sx, sy, x, y;
         for (GpxTrack track : privateTracks) {
             for (GpxTrackSegment seg : track.getSegments()) {
-                WayPoint r = null;
-                for (WayPoint wpSeg : seg.getWayPoints()) {
-                    EastNorth en = wpSeg.getEastNorth(Main.getProjection());
-                    if (r == null) {
-                        r = wpSeg;
+                WayPointColumns points = WayPointColumns.of(seg);
+                int r = -1;
+                for (int i = 0; i < points.size(); i++) {
+                    EastNorth en = points.getEastNorth(i, Main.getProjection());
+                    if (r < 0) {
+                        r = i;
                         rx = en.east();
                         ry = en.north();
                         x = px - rx;
@@ -549,7 +563,7 @@ public class GpxData extends WithAttributes implements Data {
                         if (pRsq < pnminsq) {
                             pnminsq = pRsq;
                             bestEN = en;
-                            bestTime = r.time;
+                            bestTime = points.getTime(r);
                         }
                     } else {
                         sx = en.east();
@@ -575,17 +589,17 @@ public class GpxData extends WithAttributes implements Data {
                                 double nx = rx - rnoverRS * b;
                                 double ny = ry + rnoverRS * a;
                                 bestEN = new EastNorth(nx, ny);
-                                bestTime = r.time + rnoverRS * (wpSeg.time - r.time);
+                                bestTime = points.getTime(r) + rnoverRS * (points.getTime(i) - points.getTime(r));
                                 pnminsq = pnsq;
                             }
                         }
-                        r = wpSeg;
+                        r = i;
                         rx = sx;
                         ry = sy;
                     }
                 }
-                if (r != null) {
-                    EastNorth c = r.getEastNorth(Main.getProjection());
+                if (r >= 0) {
+                    EastNorth c = points.getEastNorth(r, Main.getProjection());
                     /* if there is only one point in the seg, it will do this twice, but no matter */
                     rx = c.east();
                     ry = c.north();
@@ -595,7 +609,7 @@ public class GpxData extends WithAttributes implements Data {
                     if (prsq < pnminsq) {
                         pnminsq = prsq;
                         bestEN = c;
-                        bestTime = r.time;
+                        bestTime = points.getTime(r);
                     }
                 }
             }
@@ -624,7 +638,15 @@ public class GpxData extends WithAttributes implements Data {
      */
     public synchronized void resetEastNorthCache() {
         privateWaypoints.forEach(WayPoint::invalidateEastNorthCache);
-        getTrackPoints().forEach(WayPoint::invalidateEastNorthCache);
+        for (GpxTrack track : getTracks()) {
+            for (GpxTrackSegment seg : track.getSegments()) {
+                if (seg instanceof ImmutableGpxTrackSegment) {
+                    ((ImmutableGpxTrackSegment) seg).getColumns().invalidateEastNorthCache();
+                } else {
+                    seg.getWayPoints().forEach(WayPoint::invalidateEastNorthCache);
+                }
+            }
+        }
         for (GpxRoute route: getRoutes()) {
             if (route.routePoints == null) {
                 continue;
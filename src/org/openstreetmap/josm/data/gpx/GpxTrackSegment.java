@@ -19,6 +19,9 @@ public interface GpxTrackSegment {
 
     /**
      * Returns the segment waypoints.
+     * <p>
+     * Implementations may create the waypoints on demand, see {@link ImmutableGpxTrackSegment#getWayPoints()}:
+     * the returned waypoints are then copies, which must not be modified.
      * @return the segment waypoints
      */
     Collection<WayPoint> getWayPoints();
@@ -1,19 +1,21 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.gpx;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
+import java.util.Objects;
 
 import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
 
 /**
  * A gpx track segment consisting of multiple waypoints, that cannot be changed.
+ * <p>
+ * Waypoints are stored in columns, see {@link WayPointColumns}. The waypoints returned by {@link #getWayPoints()}
+ * are created on demand: loops over many points should read the {@link #getColumns() columns} instead.
  */
 public class ImmutableGpxTrackSegment implements GpxTrackSegment {
 
-    private final List<WayPoint> wayPoints;
+    private final WayPointColumns columns;
     private final Bounds bounds;
     private final double length;
 
@@ -22,18 +24,26 @@ public class ImmutableGpxTrackSegment implements GpxTrackSegment {
      * @param wayPoints list of waypoints
      */
     public ImmutableGpxTrackSegment(Collection<WayPoint> wayPoints) {
-        this.wayPoints = Collections.unmodifiableList(new ArrayList<>(wayPoints));
+        this(new WayPointColumns(wayPoints));
+    }
+
+    /**
+     * Constructs a new {@code ImmutableGpxTrackSegment}.
+     * @param columns waypoint columns
+     */
+    public ImmutableGpxTrackSegment(WayPointColumns columns) {
+        this.columns = Objects.requireNonNull(columns);
         this.bounds = calculateBounds();
         this.length = calculateLength();
     }
 
     private Bounds calculateBounds() {
         Bounds result = null;
-        for (WayPoint wpt: wayPoints) {
+        for (int i = 0; i < columns.size(); i++) {
             if (result == null) {
-                result = new Bounds(wpt.getCoor());
+                result = new Bounds(columns.lat(i), columns.lon(i), true);
             } else {
-                result.extend(wpt.getCoor());
+                result.extend(columns.lat(i), columns.lon(i));
             }
         }
         return result;
@@ -41,27 +51,44 @@ public class ImmutableGpxTrackSegment implements GpxTrackSegment {
 
     private double calculateLength() {
         double result = 0.0; // in meters
-        WayPoint last = null;
-        for (WayPoint tpt : wayPoints) {
+        LatLon last = null;
+        for (int i = 0; i < columns.size(); i++) {
+            LatLon coor = columns.getCoor(i);
             if (last != null) {
-                Double d = last.getCoor().greatCircleDistance(tpt.getCoor());
+                Double d = last.greatCircleDistance(coor);
                 if (!d.isNaN() && !d.isInfinite()) {
                     result += d;
                 }
             }
-            last = tpt;
+            last = coor;
         }
         return result;
     }
 
+    /**
+     * Returns the waypoint columns.
+     * @return the waypoint columns
+     */
+    public WayPointColumns getColumns() {
+        return columns;
+    }
+
     @Override
     public Bounds getBounds() {
         return bounds == null ? null : new Bounds(bounds);
     }
 
+    /**
+     * Returns an unmodifiable list view of the segment waypoints.
+     * <p>
+     * The waypoints are not stored, a new {@link WayPoint} is created each time a point is accessed. Waypoints returned
+     * for the same point are {@linkplain WayPoint#equals equal} but not identical, and changes made to them are not
+     * reflected in the segment. Use {@link #getColumns()} to read the points without creating waypoints.
+     * @return an unmodifiable list view of the segment waypoints
+     */
     @Override
     public Collection<WayPoint> getWayPoints() {
-        return Collections.unmodifiableList(wayPoints);
+        return columns.asList();
     }
 
     @Override
@@ -76,7 +103,7 @@ public class ImmutableGpxTrackSegment implements GpxTrackSegment {
 
     @Override
     public int hashCode() {
-        return 31 + ((wayPoints == null) ? 0 : wayPoints.hashCode());
+        return 31 + Objects.hashCode(columns);
     }
 
     @Override
@@ -88,11 +115,6 @@ public class ImmutableGpxTrackSegment implements GpxTrackSegment {
         if (getClass() != obj.getClass())
             return false;
         ImmutableGpxTrackSegment other = (ImmutableGpxTrackSegment) obj;
-        if (wayPoints == null) {
-            if (other.wayPoints != null)
-                return false;
-        } else if (!wayPoints.equals(other.wayPoints))
-            return false;
-        return true;
+        return Objects.equals(columns, other.columns);
     }
 }
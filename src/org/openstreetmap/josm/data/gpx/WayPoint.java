@@ -63,8 +63,17 @@ public class WayPoint extends WithAttributes implements Comparable<WayPoint>, Te
      * @param ll lat/lon coordinates
      */
     public WayPoint(LatLon ll) {
-        lat = ll.lat();
-        lon = ll.lon();
+        this(ll.lat(), ll.lon());
+    }
+
+    /**
+     * Constructs a new {@code WayPoint} from lat/lon coordinates.
+     * @param lat latitude
+     * @param lon longitude
+     */
+    WayPoint(double lat, double lon) {
+        this.lat = lat;
+        this.lon = lon;
     }
 
     /*
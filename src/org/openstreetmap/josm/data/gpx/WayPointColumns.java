@@ -0,0 +1,648 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import java.awt.Color;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projecting;
+
+/**
+ * Compact, column-oriented storage of a sequence of GPX points.
+ * <p>
+ * Coordinates, time, elevation, speed and HDOP are stored in primitive arrays. The other attributes are only
+ * stored for the points which have some. Elevation, speed and time attributes are stored as numbers when their
+ * textual value can be restored exactly, as strings otherwise.
+ * <p>
+ * {@link WayPoint} objects are created on demand by {@link #getWayPoint(int)}. They are copies: changes made to them
+ * are not reflected in the columns. The drawing state of the points (see {@link WayPoint#customColoring},
+ * {@link WayPoint#drawLine} and {@link WayPoint#dir}) and their projected coordinates are cached in the columns instead,
+ * so that large tracks can be drawn without creating any {@code WayPoint}.
+ */
+public final class WayPointColumns {
+
+    /** Key of the speed attribute, as set by NMEA reader */
+    private static final String SPEED = "speed";
+    /** Keys of the attributes which can be stored as numbers */
+    private static final String[] COLUMN_KEYS = {GpxConstants.PT_TIME, GpxConstants.PT_ELE, SPEED, GpxConstants.PT_HDOP};
+
+    /** Number written with {@link Double#toString(double)} */
+    private static final byte NUMBER_DOUBLE = -2;
+    /** Number written without decimal separator */
+    private static final byte NUMBER_INTEGER = -1;
+    /** Number which cannot be restored exactly */
+    private static final byte NUMBER_UNKNOWN = Byte.MIN_VALUE;
+    /** Maximum number of decimals of numbers written with a fixed number of decimals */
+    private static final int MAX_DECIMALS = 9;
+    private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9};
+
+    /** No time attribute */
+    private static final byte TIME_NONE = 0;
+    /** Time attribute written as {@code yyyy-MM-ddTHH:mm:ssZ} */
+    private static final byte TIME_SECONDS = 1;
+    /** Time attribute written as {@code yyyy-MM-ddTHH:mm:ss.SSSZ} */
+    private static final byte TIME_MILLIS = 2;
+    /** Time attribute written as {@code yyyy-MM-ddTHH:mm:ss[.S[S[S]]]Z}, without trailing zeros, as done by ISO formatter */
+    private static final byte TIME_ISO = 3;
+    /** Time which cannot be restored exactly */
+    private static final byte TIME_UNKNOWN = -1;
+
+    private static final byte DRAW_LINE = 0x08;
+    private static final byte DIR_MASK = 0x07;
+
+    private final int size;
+    private final double[] lat;
+    private final double[] lon;
+    private final double[] time;
+    /** Format of time attributes, {@code null} if no point has a time attribute stored as number */
+    private final byte[] timeFormat;
+    /** Elevations, {@code NaN} when missing, {@code null} if no point has an elevation stored as number */
+    private final double[] ele;
+    private final byte[] eleFormat;
+    /** Speeds, {@code NaN} when missing, {@code null} if no point has a speed stored as number */
+    private final double[] speed;
+    private final byte[] speedFormat;
+    /** HDOP values, {@code NaN} when missing, {@code null} if no point has a HDOP value */
+    private final float[] hdop;
+    /** Other attributes, {@code null} if no point has other attributes */
+    private final List<Map<String, Object>> attributes;
+
+    // drawing state, allocated on demand
+    private Color[] customColoring;
+    private byte[] lineState;
+    private volatile Projected projected;
+
+    /**
+     * Projected coordinates, for a given projection.
+     */
+    private static final class Projected {
+        private final Object cacheKey;
+        private final double[] eastNorth;
+
+        Projected(Object cacheKey, int size) {
+            this.cacheKey = cacheKey;
+            this.eastNorth = new double[2 * size];
+            Arrays.fill(eastNorth, Double.NaN);
+        }
+    }
+
+    /**
+     * Constructs a new {@code WayPointColumns} from waypoints. The drawing state of the waypoints is kept.
+     * @param wayPoints the waypoints
+     */
+    @SuppressWarnings("unchecked")
+    public WayPointColumns(Collection<WayPoint> wayPoints) {
+        size = wayPoints.size();
+        lat = new double[size];
+        lon = new double[size];
+        time = new double[size];
+        byte[] timeFormats = null;
+        double[] eles = null;
+        byte[] eleFormats = null;
+        double[] speeds = null;
+        byte[] speedFormats = null;
+        float[] hdops = null;
+        List<Map<String, Object>> others = null;
+        Color[] colors = null;
+        byte[] states = null;
+        int i = 0;
+        for (WayPoint wpt : wayPoints) {
+            lat[i] = wpt.lat();
+            lon[i] = wpt.lon();
+            time[i] = wpt.time;
+            Map<String, Object> rest = null;
+            for (Map.Entry<String, Object> e : wpt.attr.entrySet()) {
+                String key = e.getKey();
+                Object value = e.getValue();
+                boolean stored = false;
+                if (GpxConstants.PT_TIME.equals(key)) {
+                    byte format = getTimeFormat(value, wpt.time);
+                    if (format != TIME_UNKNOWN) {
+                        if (timeFormats == null) {
+                            timeFormats = new byte[size];
+                        }
+                        timeFormats[i] = format;
+                        stored = true;
+                    }
+                } else if (GpxConstants.PT_ELE.equals(key) || SPEED.equals(key)) {
+                    double number = parseNumber(value);
+                    byte format = getNumberFormat(value, number);
+                    if (format != NUMBER_UNKNOWN) {
+                        if (GpxConstants.PT_ELE.equals(key)) {
+                            if (eles == null) {
+                                eles = newNaNArray(size);
+                                eleFormats = new byte[size];
+                            }
+                            eles[i] = number;
+                            eleFormats[i] = format;
+                        } else {
+                            if (speeds == null) {
+                                speeds = newNaNArray(size);
+                                speedFormats = new byte[size];
+                            }
+                            speeds[i] = number;
+                            speedFormats[i] = format;
+                        }
+                        stored = true;
+                    }
+                } else if (GpxConstants.PT_HDOP.equals(key) && value instanceof Float && !((Float) value).isNaN()) {
+                    if (hdops == null) {
+                        hdops = new float[size];
+                        Arrays.fill(hdops, Float.NaN);
+                    }
+                    hdops[i] = (Float) value;
+                    stored = true;
+                }
+                if (!stored) {
+                    if (rest == null) {
+                        rest = new HashMap<>();
+                    }
+                    rest.put(key, value);
+                }
+            }
+            if (rest != null) {
+                if (others == null) {
+                    others = new ArrayList<>(Collections.nCopies(size, null));
+                }
+                others.set(i, rest);
+            }
+            if (wpt.customColoring != null) {
+                if (colors == null) {
+                    colors = new Color[size];
+                }
+                colors[i] = wpt.customColoring;
+            }
+            if (wpt.drawLine || wpt.dir != 0) {
+                if (states == null) {
+                    states = new byte[size];
+                }
+                states[i] = toLineState(wpt.drawLine, wpt.dir);
+            }
+            i++;
+        }
+        timeFormat = timeFormats;
+        ele = eles;
+        eleFormat = eleFormats;
+        speed = speeds;
+        speedFormat = speedFormats;
+        hdop = hdops;
+        attributes = others;
+        customColoring = colors;
+        lineState = states;
+    }
+
+    private static double[] newNaNArray(int size) {
+        double[] result = new double[size];
+        Arrays.fill(result, Double.NaN);
+        return result;
+    }
+
+    private static double parseNumber(Object value) {
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static byte getNumberFormat(Object value, double number) {
+        if (!(value instanceof String) || Double.isNaN(number) || Double.isInfinite(number)) {
+            return NUMBER_UNKNOWN;
+        }
+        String s = (String) value;
+        int dot = s.indexOf('.');
+        int decimals = dot < 0 ? NUMBER_INTEGER : s.length() - dot - 1;
+        if (decimals <= MAX_DECIMALS && s.equals(formatNumber(number, (byte) decimals))) {
+            return (byte) decimals;
+        } else if (s.equals(Double.toString(number))) {
+            return NUMBER_DOUBLE;
+        }
+        return NUMBER_UNKNOWN;
+    }
+
+    private static String formatNumber(double number, byte format) {
+        if (format == NUMBER_DOUBLE) {
+            return Double.toString(number);
+        }
+        int decimals = Math.max(0, format);
+        double scaled = number * POW10[decimals];
+        if (Math.abs(scaled) >= 1e15) {
+            return Double.toString(number);
+        }
+        long n = Math.round(scaled);
+        String digits = Long.toString(Math.abs(n));
+        StringBuilder sb = new StringBuilder(digits.length() + 3);
+        if (n < 0) {
+            sb.append('-');
+        }
+        if (format == NUMBER_INTEGER) {
+            return sb.append(digits).toString();
+        }
+        for (int i = digits.length(); i <= decimals; i++) {
+            sb.append('0');
+        }
+        sb.append(digits);
+        return sb.insert(sb.length() - decimals, '.').toString();
+    }
+
+    private static byte getTimeFormat(Object value, double time) {
+        if (value instanceof String) {
+            String s = (String) value;
+            byte format = s.length() == 20 ? TIME_SECONDS : s.length() == 24 ? TIME_MILLIS : TIME_ISO;
+            if (s.equals(formatTime(time, format))) {
+                return format;
+            }
+        }
+        return TIME_UNKNOWN;
+    }
+
+    private static String formatTime(double time, byte format) {
+        long millis = Math.round(time * 1000);
+        int fraction = (int) Math.floorMod(millis, 1000L);
+        if (format == TIME_SECONDS && fraction != 0) {
+            return null;
+        }
+        LocalDateTime t = LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L), 0, ZoneOffset.UTC);
+        if (t.getYear() < 0 || t.getYear() > 9999) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(24);
+        appendPadded(sb, t.getYear(), 4).append('-');
+        appendPadded(sb, t.getMonthValue(), 2).append('-');
+        appendPadded(sb, t.getDayOfMonth(), 2).append('T');
+        appendPadded(sb, t.getHour(), 2).append(':');
+        appendPadded(sb, t.getMinute(), 2).append(':');
+        appendPadded(sb, t.getSecond(), 2);
+        if (format == TIME_MILLIS) {
+            appendPadded(sb.append('.'), fraction, 3);
+        } else if (format == TIME_ISO && fraction != 0) {
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+            }
+            appendPadded(sb.append('.'), fraction, fraction < 10 ? 1 : fraction < 100 ? 2 : 3);
+        }
+        return sb.append('Z').toString();
+    }
+
+    private static StringBuilder appendPadded(StringBuilder sb, int value, int length) {
+        String s = Integer.toString(value);
+        for (int i = s.length(); i < length; i++) {
+            sb.append('0');
+        }
+        return sb.append(s);
+    }
+
+    private static byte toLineState(boolean drawLine, int dir) {
+        return (byte) ((drawLine ? DRAW_LINE : 0) | (dir & DIR_MASK));
+    }
+
+    /**
+     * Returns the points of a track segment as columns, without creating waypoints for columnar segments.
+     * @param segment track segment
+     * @return the columns of an {@link ImmutableGpxTrackSegment}, or new columns holding the waypoints of any other segment
+     */
+    public static WayPointColumns of(GpxTrackSegment segment) {
+        if (segment instanceof ImmutableGpxTrackSegment) {
+            return ((ImmutableGpxTrackSegment) segment).getColumns();
+        }
+        return new WayPointColumns(segment.getWayPoints());
+    }
+
+    /**
+     * Returns the number of points.
+     * @return the number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the latitude of a point.
+     * @param index the point index
+     * @return the latitude
+     */
+    public double lat(int index) {
+        return lat[index];
+    }
+
+    /**
+     * Returns the longitude of a point.
+     * @param index the point index
+     * @return the longitude
+     */
+    public double lon(int index) {
+        return lon[index];
+    }
+
+    /**
+     * Returns the coordinates of a point.
+     * @param index the point index
+     * @return the coordinates
+     */
+    public LatLon getCoor(int index) {
+        return new LatLon(lat[index], lon[index]);
+    }
+
+    /**
+     * Determines if the coordinates of a point are known.
+     * @param index the point index
+     * @return {@code true} if the coordinates of the point are known
+     */
+    public boolean isLatLonKnown(int index) {
+        return !Double.isNaN(lat[index]) && !Double.isNaN(lon[index]);
+    }
+
+    /**
+     * Returns the time of a point.
+     * @param index the point index
+     * @return the seconds (not milliseconds!) since 1970-01-01 00:00 UTC
+     * @see WayPoint#time
+     */
+    public double getTime(int index) {
+        return time[index];
+    }
+
+    /**
+     * Returns the elevation of a point.
+     * @param index the point index
+     * @return the elevation, or {@code NaN}
+     */
+    public double getElevation(int index) {
+        if (ele != null && !Double.isNaN(ele[index])) {
+            return ele[index];
+        }
+        return parseNumber(getAttribute(index, GpxConstants.PT_ELE));
+    }
+
+    /**
+     * Returns the speed of a point.
+     * @param index the point index
+     * @return the speed in m/s, or {@code NaN}
+     */
+    public double getSpeed(int index) {
+        if (speed != null && !Double.isNaN(speed[index])) {
+            return speed[index];
+        }
+        return parseNumber(getAttribute(index, SPEED));
+    }
+
+    /**
+     * Returns the HDOP value of a point.
+     * @param index the point index
+     * @return the HDOP value, or {@code NaN}
+     */
+    public float getHdop(int index) {
+        if (hdop != null && !Float.isNaN(hdop[index])) {
+            return hdop[index];
+        }
+        Object value = getAttribute(index, GpxConstants.PT_HDOP);
+        return value instanceof Float ? (Float) value : Float.NaN;
+    }
+
+    private Object getAttribute(int index, String key) {
+        Map<String, Object> rest = attributes != null ? attributes.get(index) : null;
+        return rest != null ? rest.get(key) : null;
+    }
+
+    /**
+     * Returns an attribute of a point, as it would be returned by {@link WayPoint#get(String)}.
+     * @param index the point index
+     * @param key the attribute key
+     * @return the attribute value, or {@code null}
+     */
+    public Object get(int index, String key) {
+        switch (key) {
+        case GpxConstants.PT_TIME:
+            if (timeFormat != null && timeFormat[index] != TIME_NONE) {
+                return formatTime(time[index], timeFormat[index]);
+            }
+            break;
+        case GpxConstants.PT_ELE:
+            if (ele != null && !Double.isNaN(ele[index])) {
+                return formatNumber(ele[index], eleFormat[index]);
+            }
+            break;
+        case SPEED:
+            if (speed != null && !Double.isNaN(speed[index])) {
+                return formatNumber(speed[index], speedFormat[index]);
+            }
+            break;
+        case GpxConstants.PT_HDOP:
+            if (hdop != null && !Float.isNaN(hdop[index])) {
+                return hdop[index];
+            }
+            break;
+        default: // Other attributes
+        }
+        return getAttribute(index, key);
+    }
+
+    /**
+     * Determines if a point has attributes.
+     * @param index the point index
+     * @return {@code true} if the point has attributes
+     */
+    public boolean hasAttributes(int index) {
+        return (attributes != null && attributes.get(index) != null)
+            || (timeFormat != null && timeFormat[index] != TIME_NONE)
+            || (ele != null && !Double.isNaN(ele[index]))
+            || (speed != null && !Double.isNaN(speed[index]))
+            || (hdop != null && !Float.isNaN(hdop[index]));
+    }
+
+    /**
+     * Creates a waypoint from a point, including its drawing state.
+     * @param index the point index
+     * @return a new waypoint, changes made to it are not reflected in the columns
+     */
+    public WayPoint getWayPoint(int index) {
+        WayPoint wpt = new WayPoint(lat[index], lon[index]);
+        Map<String, Object> rest = attributes != null ? attributes.get(index) : null;
+        if (rest != null) {
+            wpt.attr.putAll(rest);
+        }
+        for (String key : COLUMN_KEYS) {
+            Object value = get(index, key);
+            if (value != null) {
+                wpt.attr.put(key, value);
+            }
+        }
+        wpt.time = time[index];
+        wpt.customColoring = getCustomColoring(index);
+        wpt.drawLine = isDrawLine(index);
+        wpt.dir = getDir(index);
+        return wpt;
+    }
+
+    /**
+     * Returns an unmodifiable list view of the points. Waypoints are created on each access.
+     * @return an unmodifiable list view of the points
+     * @see #getWayPoint(int)
+     */
+    public List<WayPoint> asList() {
+        return new WayPointList();
+    }
+
+    private final class WayPointList extends AbstractList<WayPoint> implements RandomAccess {
+        @Override
+        public WayPoint get(int index) {
+            return getWayPoint(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Returns the projected coordinates of a point. They are cached, for the last used projection.
+     * @param index the point index
+     * @param projecting the projection
+     * @return the projected coordinates, or {@code null} if the coordinates of the point are unknown
+     * @see WayPoint#getEastNorth(Projecting)
+     */
+    public EastNorth getEastNorth(int index, Projecting projecting) {
+        if (!isLatLonKnown(index)) {
+            return null;
+        }
+        Object cacheKey = projecting.getCacheKey();
+        Projected p = projected;
+        if (p == null || !Objects.equals(cacheKey, p.cacheKey)) {
+            p = new Projected(cacheKey, size);
+            projected = p;
+        }
+        double east = p.eastNorth[2 * index];
+        double north = p.eastNorth[2 * index + 1];
+        if (Double.isNaN(east) || Double.isNaN(north)) {
+            EastNorth en = projecting.latlon2eastNorth(getCoor(index));
+            p.eastNorth[2 * index] = en.east();
+            p.eastNorth[2 * index + 1] = en.north();
+            return en;
+        }
+        return new EastNorth(east, north);
+    }
+
+    /**
+     * Invalidates the cache of projected coordinates.
+     */
+    public void invalidateEastNorthCache() {
+        projected = null;
+    }
+
+    /**
+     * Returns the color used to draw the line before a point.
+     * @param index the point index
+     * @return the color, can be {@code null}
+     * @see WayPoint#customColoring
+     */
+    public Color getCustomColoring(int index) {
+        return customColoring != null ? customColoring[index] : null;
+    }
+
+    /**
+     * Sets the color used to draw the line before a point.
+     * @param index the point index
+     * @param color the color, can be {@code null}
+     * @see WayPoint#customColoring
+     */
+    public void setCustomColoring(int index, Color color) {
+        if (customColoring == null) {
+            if (color == null) {
+                return;
+            }
+            customColoring = new Color[size];
+        }
+        customColoring[index] = color;
+    }
+
+    /**
+     * Determines if the line before a point should be drawn.
+     * @param index the point index
+     * @return {@code true} if the line before the point should be drawn
+     * @see WayPoint#drawLine
+     */
+    public boolean isDrawLine(int index) {
+        return lineState != null && (lineState[index] & DRAW_LINE) != 0;
+    }
+
+    /**
+     * Sets if the line before a point should be drawn.
+     * @param index the point index
+     * @param drawLine {@code true} if the line before the point should be drawn
+     * @see WayPoint#drawLine
+     */
+    public void setDrawLine(int index, boolean drawLine) {
+        if (lineState == null) {
+            if (!drawLine) {
+                return;
+            }
+            lineState = new byte[size];
+        }
+        lineState[index] = toLineState(drawLine, lineState[index]);
+    }
+
+    /**
+     * Returns the direction of the line before a point.
+     * @param index the point index
+     * @return the direction, between 0 and 7
+     * @see WayPoint#dir
+     */
+    public int getDir(int index) {
+        return lineState != null ? lineState[index] & DIR_MASK : 0;
+    }
+
+    /**
+     * Sets the direction of the line before a point.
+     * @param index the point index
+     * @param dir the direction, between 0 and 7
+     * @see WayPoint#dir
+     */
+    public void setDir(int index, int dir) {
+        if (lineState == null) {
+            lineState = new byte[size];
+        }
+        lineState[index] = toLineState(isDrawLine(index), dir);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, Arrays.hashCode(lat), Arrays.hashCode(lon), Arrays.hashCode(time), Arrays.hashCode(ele),
+                Arrays.hashCode(speed), Arrays.hashCode(hdop), Objects.hashCode(attributes));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null || getClass() != obj.getClass())
+            return false;
+        WayPointColumns other = (WayPointColumns) obj;
+        return size == other.size
+            && Arrays.equals(lat, other.lat)
+            && Arrays.equals(lon, other.lon)
+            && Arrays.equals(time, other.time)
+            && Arrays.equals(timeFormat, other.timeFormat)
+            && Arrays.equals(ele, other.ele)
+            && Arrays.equals(eleFormat, other.eleFormat)
+            && Arrays.equals(speed, other.speed)
+            && Arrays.equals(speedFormat, other.speedFormat)
+            && Arrays.equals(hdop, other.hdop)
+            && Objects.equals(attributes, other.attributes);
+    }
+}
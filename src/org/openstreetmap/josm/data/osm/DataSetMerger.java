@@ -13,13 +13,18 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.openstreetmap.josm.data.DataSource;
 import org.openstreetmap.josm.data.conflict.Conflict;
 import org.openstreetmap.josm.data.conflict.ConflictCollection;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * A dataset merger which takes a target and a source dataset and merges the source data set
@@ -28,6 +33,22 @@ import org.openstreetmap.josm.tools.JosmRuntimeException;
  */
 public class DataSetMerger {
 
+    /**
+     * Minimum number of primitives of a type in the source dataset to find their merge targets concurrently.
+     */
+    public static final IntegerProperty PROP_PARALLEL_THRESHOLD = new IntegerProperty("merge.parallel-threshold", 10_000);
+
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool("merge.numberOfThreads", "dataset-merger-%d", Thread.NORM_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
     /** the collection of conflicts created during merging */
     private final ConflictCollection conflicts;
 
@@ -81,11 +102,23 @@ public class DataSetMerger {
      * @param candidates a set of possible candidates for a new primitive
      */
     protected void mergePrimitive(OsmPrimitive source, Collection<? extends OsmPrimitive> candidates) {
+        mergePrimitive(source, findMergeTarget(source, candidates));
+    }
+
+    /**
+     * Merges a primitive onto the merge target found by {@link #findMergeTarget}.
+     *
+     * @param source the primitive to merge
+     * @param target the primitive with the same id, or the semantically equal new primitive, or {@code null}
+     */
+    private void mergePrimitive(OsmPrimitive source, OsmPrimitive target) {
         if (!source.isNew()) {
             // try to merge onto a matching primitive with the same defined id
             //
-            if (mergeById(source))
+            if (target != null) {
+                mergeById(source, target);
                 return;
+            }
         } else {
             // ignore deleted primitives from source
             if (source.isDeleted()) return;
@@ -93,39 +126,124 @@ public class DataSetMerger {
             // try to merge onto a primitive  which has no id assigned
             // yet but which is equal in its semantic attributes
             //
-            for (OsmPrimitive target : candidates) {
-                if (!target.isNew() || target.isDeleted()) {
-                    continue;
-                }
-                if (target.hasEqualSemanticAttributes(source)) {
-                    mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
-                    // copy the technical attributes from other version
-                    target.setVisible(source.isVisible());
-                    target.setUser(source.getUser());
-                    target.setRawTimestamp(source.getRawTimestamp());
-                    target.setModified(source.isModified());
-                    objectsWithChildrenToMerge.add(source.getPrimitiveId());
-                    return;
-                }
+            if (target != null) {
+                mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
+                // copy the technical attributes from other version
+                target.setVisible(source.isVisible());
+                target.setUser(source.getUser());
+                target.setRawTimestamp(source.getRawTimestamp());
+                target.setModified(source.isModified());
+                objectsWithChildrenToMerge.add(source.getPrimitiveId());
+                return;
             }
         }
 
         // If we get here we didn't find a suitable primitive in
         // the target dataset. Create a clone and add it to the target dataset.
         //
-        OsmPrimitive target;
+        OsmPrimitive clone;
         switch(source.getType()) {
-        case NODE: target = source.isNew() ? new Node() : new Node(source.getId()); break;
-        case WAY: target = source.isNew() ? new Way() : new Way(source.getId()); break;
-        case RELATION: target = source.isNew() ? new Relation() : new Relation(source.getId()); break;
+        case NODE: clone = source.isNew() ? new Node() : new Node(source.getId()); break;
+        case WAY: clone = source.isNew() ? new Way() : new Way(source.getId()); break;
+        case RELATION: clone = source.isNew() ? new Relation() : new Relation(source.getId()); break;
         default: throw new AssertionError();
         }
-        target.mergeFrom(source);
-        targetDataSet.addPrimitive(target);
-        mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
+        clone.mergeFrom(source);
+        targetDataSet.addPrimitive(clone);
+        mergedMap.put(source.getPrimitiveId(), clone.getPrimitiveId());
         objectsWithChildrenToMerge.add(source.getPrimitiveId());
     }
 
+    /**
+     * Finds the primitive of the target dataset a source primitive is merged onto.
+     * <p>
+     * This method only reads the datasets, so that it can be called concurrently.
+     *
+     * @param source the primitive to merge
+     * @param candidates a set of possible candidates for a new primitive
+     * @return the primitive with the same id if the source primitive is not new, the first new and not deleted
+     * candidate which is semantically equal if it is new and not deleted, or {@code null}
+     */
+    private OsmPrimitive findMergeTarget(OsmPrimitive source, Collection<? extends OsmPrimitive> candidates) {
+        if (!source.isNew())
+            return targetDataSet.getPrimitiveById(source.getId(), source.getType());
+        if (source.isDeleted())
+            return null;
+        for (OsmPrimitive target : candidates) {
+            if (target.isNew() && !target.isDeleted() && target.hasEqualSemanticAttributes(source))
+                return target;
+        }
+        return null;
+    }
+
+    /**
+     * Finds the merge targets of the given source primitives, see {@link #findMergeTarget}.
+     * <p>
+     * The lookups only read the datasets, so for large datasets the source primitives are partitioned by
+     * the hash of their id and the partitions are looked up concurrently. The hash spreads the new primitives,
+     * which are compared to all candidates, evenly over the partitions. The merge targets are then applied
+     * sequentially, in the order of the source primitives, so that the merge result and the conflicts are the
+     * same as with a sequential merge.
+     *
+     * @param sources the primitives to merge
+     * @param candidates the new and not deleted primitives of the target dataset
+     * @return the merge target of each source primitive, or {@code null}
+     */
+    private OsmPrimitive[] findMergeTargets(List<? extends OsmPrimitive> sources, List<? extends OsmPrimitive> candidates) {
+        final OsmPrimitive[] targets = new OsmPrimitive[sources.size()];
+        if (THREAD_POOL == null || sources.size() < PROP_PARALLEL_THRESHOLD.get()) {
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = findMergeTarget(sources.get(i), candidates);
+            }
+            return targets;
+        }
+        final int partitions = 4 * THREAD_POOL.getParallelism();
+        int[] partition = new int[targets.length];
+        int[] sizes = new int[partitions];
+        for (int i = 0; i < targets.length; i++) {
+            partition[i] = Math.floorMod(Long.hashCode(sources.get(i).getUniqueId()), partitions);
+            sizes[partition[i]]++;
+        }
+        int[][] indices = new int[partitions][];
+        for (int p = 0; p < partitions; p++) {
+            indices[p] = new int[sizes[p]];
+            sizes[p] = 0;
+        }
+        for (int i = 0; i < targets.length; i++) {
+            indices[partition[i]][sizes[partition[i]]++] = i;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(partitions);
+        for (final int[] partitionIndices : indices) {
+            tasks.add(THREAD_POOL.submit(() -> {
+                for (int i : partitionIndices) {
+                    targets[i] = findMergeTarget(sources.get(i), candidates);
+                }
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        return targets;
+    }
+
+    private <T extends OsmPrimitive> void mergePrimitives(Collection<T> sources, Collection<T> targets,
+            ProgressMonitor progressMonitor) {
+        List<T> sourceList = new ArrayList<>(sources);
+        List<T> candidates = new ArrayList<>();
+        for (T target : targets) {
+            if (target.isNew() && !target.isDeleted()) {
+                candidates.add(target);
+            }
+        }
+        OsmPrimitive[] mergeTargets = findMergeTargets(sourceList, candidates);
+        for (int i = 0; i < mergeTargets.length; i++) {
+            mergePrimitive(sourceList.get(i), mergeTargets[i]);
+            if (progressMonitor != null) {
+                progressMonitor.worked(1);
+            }
+        }
+    }
+
     protected OsmPrimitive getMergeTarget(OsmPrimitive mergeSource) {
         PrimitiveId targetId = mergedMap.get(mergeSource.getPrimitiveId());
         if (targetId == null)
@@ -284,23 +402,18 @@ public class DataSetMerger {
     }
 
     /**
-     * Tries to merge a primitive <code>source</code> into an existing primitive with the same id.
+     * Merges a primitive <code>source</code> into an existing primitive with the same id.
      *
      * @param source  the source primitive which is to be merged into a target primitive
-     * @return true, if this method was able to merge <code>source</code> into a target object; false, otherwise
+     * @param target  the primitive of the target dataset with the same id
      */
-    private boolean mergeById(OsmPrimitive source) {
-        OsmPrimitive target = targetDataSet.getPrimitiveById(source.getId(), source.getType());
-        // merge other into an existing primitive with the same id, if possible
-        //
-        if (target == null)
-            return false;
+    private void mergeById(OsmPrimitive source, OsmPrimitive target) {
         // found a corresponding target, remember it
         mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
 
         if (target.getVersion() > source.getVersion())
             // target.version > source.version => keep target version
-            return true;
+            return;
 
         if (target.isIncomplete() && !source.isIncomplete()) {
             // target is incomplete, source completes it
@@ -380,7 +493,6 @@ public class DataSetMerger {
             target.mergeFrom(source);
             objectsWithChildrenToMerge.add(source.getPrimitiveId());
         }
-        return true;
     }
 
     /**
@@ -408,30 +520,9 @@ public class DataSetMerger {
         }
         targetDataSet.beginUpdate();
         try {
-            List<? extends OsmPrimitive> candidates = new ArrayList<>(targetDataSet.getNodes());
-            for (Node node: sourceDataSet.getNodes()) {
-                mergePrimitive(node, candidates);
-                if (progressMonitor != null) {
-                    progressMonitor.worked(1);
-                }
-            }
-            candidates.clear();
-            candidates = new ArrayList<>(targetDataSet.getWays());
-            for (Way way: sourceDataSet.getWays()) {
-                mergePrimitive(way, candidates);
-                if (progressMonitor != null) {
-                    progressMonitor.worked(1);
-                }
-            }
-            candidates.clear();
-            candidates = new ArrayList<>(targetDataSet.getRelations());
-            for (Relation relation: sourceDataSet.getRelations()) {
-                mergePrimitive(relation, candidates);
-                if (progressMonitor != null) {
-                    progressMonitor.worked(1);
-                }
-            }
-            candidates.clear();
+            mergePrimitives(sourceDataSet.getNodes(), targetDataSet.getNodes(), progressMonitor);
+            mergePrimitives(sourceDataSet.getWays(), targetDataSet.getWays(), progressMonitor);
+            mergePrimitives(sourceDataSet.getRelations(), targetDataSet.getRelations(), progressMonitor);
             fixReferences();
 
             Area a = targetDataSet.getDataSourceArea();
@@ -91,6 +91,35 @@ public final class Node extends OsmPrimitive implements INode {
     public EastNorth getEastNorth(Projecting projection) {
         if (!isLatLonKnown()) return null;
 
+        fillEastNorthCache(projection);
+        return new EastNorth(east, north);
+    }
+
+    /**
+     * Replies the projected east coordinate of this node, without creating an {@link EastNorth} like {@link #getEastNorth(Projecting)}.
+     * @param projection the projection to use
+     * @return the east coordinate, or {@code NaN} unless {@link #isLatLonKnown()}
+     */
+    public double getEast(Projecting projection) {
+        if (!isLatLonKnown()) return Double.NaN;
+
+        fillEastNorthCache(projection);
+        return east;
+    }
+
+    /**
+     * Replies the projected north coordinate of this node, without creating an {@link EastNorth} like {@link #getEastNorth(Projecting)}.
+     * @param projection the projection to use
+     * @return the north coordinate, or {@code NaN} unless {@link #isLatLonKnown()}
+     */
+    public double getNorth(Projecting projection) {
+        if (!isLatLonKnown()) return Double.NaN;
+
+        fillEastNorthCache(projection);
+        return north;
+    }
+
+    private void fillEastNorthCache(Projecting projection) {
         if (Double.isNaN(east) || Double.isNaN(north) || !Objects.equals(projection.getCacheKey(), eastNorthCacheKey)) {
             // projected coordinates haven't been calculated yet,
             // so fill the cache of the projected node coordinates
@@ -99,7 +128,6 @@ public final class Node extends OsmPrimitive implements INode {
             this.north = en.north();
             this.eastNorthCacheKey = projection.getCacheKey();
         }
-        return new EastNorth(east, north);
     }
 
     /**
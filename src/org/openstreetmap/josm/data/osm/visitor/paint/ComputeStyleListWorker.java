@@ -3,16 +3,25 @@ package org.openstreetmap.josm.data.osm.visitor.paint;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.RecursiveTask;
 
+import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.INode;
 import org.openstreetmap.josm.data.osm.IPrimitive;
 import org.openstreetmap.josm.data.osm.IRelation;
 import org.openstreetmap.josm.data.osm.IWay;
 import org.openstreetmap.josm.data.osm.visitor.PrimitiveVisitor;
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer.StyleRecord;
+import org.openstreetmap.josm.data.preferences.AbstractProperty;
+import org.openstreetmap.josm.data.preferences.DoubleProperty;
+import org.openstreetmap.josm.gui.MapViewState;
+import org.openstreetmap.josm.gui.MapViewState.MapViewPoint;
 import org.openstreetmap.josm.gui.NavigatableComponent;
 import org.openstreetmap.josm.gui.mappaint.ElemStyles;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
@@ -21,6 +30,7 @@ import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
 import org.openstreetmap.josm.gui.mappaint.styleelement.AreaElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.AreaIconElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.NodeElement;
+import org.openstreetmap.josm.gui.mappaint.styleelement.SmallAreaElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.StyleElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.TextElement;
 import org.openstreetmap.josm.spi.preferences.Config;
@@ -35,6 +45,12 @@ public class ComputeStyleListWorker extends RecursiveTask<List<StyleRecord>> imp
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The minimum size, in pixels, of the areas drawn with their style. Only one of the smaller areas is drawn at each
+     * pixel, with its fill drawn as a small rectangle. A value of 0, the default, disables the level of detail.
+     */
+    public static final AbstractProperty<Double> PROP_LOD_MIN_SIZE = new DoubleProperty("mappaint.lod.min-size", 0.0).cached();
+
     private final transient List<? extends IPrimitive> input;
     private final transient List<StyleRecord> output;
 
@@ -47,6 +63,127 @@ public class ComputeStyleListWorker extends RecursiveTask<List<StyleRecord>> imp
     private final boolean drawMultipolygon;
     private final boolean drawRestriction;
 
+    private final transient LevelOfDetail levelOfDetail;
+
+    /**
+     * The level of detail of a render pass, shared by the workers: culls the areas smaller than {@link #PROP_LOD_MIN_SIZE}.
+     * <p>
+     * The small areas are collected by {@link #addAreas} before the styles are computed. Only one of the areas whose center
+     * falls in the same pixel is drawn, the first one in primitive order. Its fill is drawn as a small rectangle.
+     * The styles of the other ones are not computed at all. The choice does not depend on the order in which the workers
+     * run, so that the map does not flicker between repaints.
+     */
+    public static final class LevelOfDetail {
+        private static final Comparator<IPrimitive> PRIMITIVE_ORDER =
+                Comparator.comparing(IPrimitive::getType).thenComparingLong(IPrimitive::getUniqueId);
+
+        private final MapViewState state;
+        private final double minSize;
+        /** The small areas, mapped to their pixel */
+        private final Map<IPrimitive, Long> smallAreas = new IdentityHashMap<>();
+        /** The small area drawn at each pixel */
+        private final Map<Long, IPrimitive> pixels = new HashMap<>();
+
+        /**
+         * Constructs a new {@code LevelOfDetail} with the minimum size set in the preferences.
+         * @param state the map view state
+         */
+        public LevelOfDetail(MapViewState state) {
+            this(state, PROP_LOD_MIN_SIZE.get());
+        }
+
+        /**
+         * Constructs a new {@code LevelOfDetail}.
+         * @param state the map view state
+         * @param minSize the minimum size of the areas drawn with their style, in pixels
+         */
+        public LevelOfDetail(MapViewState state, double minSize) {
+            this.state = state;
+            this.minSize = minSize;
+        }
+
+        /**
+         * Collects the small areas among the given primitives. Must be called before the styles are computed.
+         * <p>
+         * Only closed ways and multipolygons drawn without any highlighting are culled, and only if their fill is drawn
+         * at this scale, as the other areas are not drawn as a fill.
+         * @param circum distance on the map in meters that 100 screen pixels represent
+         * @param primitives the primitives to be drawn
+         */
+        public void addAreas(double circum, Collection<? extends IPrimitive> primitives) {
+            if (minSize <= 0 || circum > Config.getPref().getInt("mappaint.fillareas", 10_000_000)) {
+                return;
+            }
+            boolean multipolygons = Config.getPref().getBoolean("mappaint.multipolygon", true);
+            for (IPrimitive osm : primitives) {
+                if (osm.isDrawable() && !osm.isHighlighted() && isArea(osm, multipolygons)
+                        && StyledMapRenderer.computeFlags(osm, true) == StyledMapRenderer.FLAG_NORMAL && isSmall(osm)) {
+                    Long pixel = getPixel(osm);
+                    smallAreas.put(osm, pixel);
+                    pixels.merge(pixel, osm, (a, b) -> PRIMITIVE_ORDER.compare(a, b) <= 0 ? a : b);
+                }
+            }
+        }
+
+        private static boolean isArea(IPrimitive osm, boolean multipolygons) {
+            if (osm instanceof IWay) {
+                return ((IWay<?>) osm).isClosed();
+            }
+            return multipolygons && osm instanceof IRelation && osm.isMultipolygon();
+        }
+
+        private boolean isSmall(IPrimitive osm) {
+            BBox bbox = osm.getBBox();
+            if (bbox == null || !bbox.isValid()) {
+                return false;
+            }
+            MapViewPoint p1 = state.getPointFor(bbox.getTopLeft());
+            MapViewPoint p2 = state.getPointFor(bbox.getBottomRight());
+            return Math.abs(p2.getInViewX() - p1.getInViewX()) < minSize && Math.abs(p2.getInViewY() - p1.getInViewY()) < minSize;
+        }
+
+        private long getPixel(IPrimitive osm) {
+            MapViewPoint center = state.getPointFor(osm.getBBox().getCenter());
+            return ((long) Math.floor(center.getInViewX()) << 32) | ((long) Math.floor(center.getInViewY()) & 0xffffffffL);
+        }
+
+        /**
+         * Determines if the style of a primitive is not computed, as another small area is drawn at its pixel.
+         * @param osm the primitive
+         * @return {@code true} if the primitive is culled
+         */
+        boolean isCulled(IPrimitive osm) {
+            Long pixel = smallAreas.get(osm);
+            return pixel != null && pixels.get(pixel) != osm;
+        }
+
+        /**
+         * Determines if the fill of a primitive is drawn as a small rectangle.
+         * @param osm the primitive
+         * @return {@code true} if the primitive is the small area drawn at its pixel
+         */
+        boolean isDrawnSmall(IPrimitive osm) {
+            Long pixel = smallAreas.get(osm);
+            return pixel != null && pixels.get(pixel) == osm;
+        }
+
+        /**
+         * Gets the number of small areas whose style was not computed.
+         * @return the number of culled areas
+         */
+        public long getSkipped() {
+            return (long) smallAreas.size() - pixels.size();
+        }
+
+        /**
+         * Gets the number of small areas drawn, one for each pixel.
+         * @return the number of small areas drawn
+         */
+        public long getDrawn() {
+            return pixels.size();
+        }
+    }
+
     /**
      * Constructs a new {@code ComputeStyleListWorker}.
      * @param circum distance on the map in meters that 100 screen pixels represent
@@ -75,12 +212,29 @@ public class ComputeStyleListWorker extends RecursiveTask<List<StyleRecord>> imp
     ComputeStyleListWorker(double circum, NavigatableComponent nc,
             final List<? extends IPrimitive> input, List<StyleRecord> output, int directExecutionTaskSize,
             ElemStyles styles) {
+        this(circum, nc, input, output, directExecutionTaskSize, styles, null);
+    }
+
+    /**
+     * Constructs a new {@code ComputeStyleListWorker}.
+     * @param circum distance on the map in meters that 100 screen pixels represent
+     * @param nc navigatable component
+     * @param input the primitives to process
+     * @param output the list of styles to which styles will be added
+     * @param directExecutionTaskSize the threshold deciding whether to subdivide the tasks
+     * @param styles the {@link ElemStyles} instance used to generate primitive {@link StyleElement}s.
+     * @param levelOfDetail the level of detail, {@code null} to draw all areas with their style
+     */
+    ComputeStyleListWorker(double circum, NavigatableComponent nc,
+            final List<? extends IPrimitive> input, List<StyleRecord> output, int directExecutionTaskSize,
+            ElemStyles styles, LevelOfDetail levelOfDetail) {
         this.circum = circum;
         this.nc = nc;
         this.input = input;
         this.output = output;
         this.directExecutionTaskSize = directExecutionTaskSize;
         this.styles = styles;
+        this.levelOfDetail = levelOfDetail;
         this.drawArea = circum <= Config.getPref().getInt("mappaint.fillareas", 10_000_000);
         this.drawMultipolygon = drawArea && Config.getPref().getBoolean("mappaint.multipolygon", true);
         this.drawRestriction = Config.getPref().getBoolean("mappaint.restriction", true);
@@ -96,7 +250,7 @@ public class ComputeStyleListWorker extends RecursiveTask<List<StyleRecord>> imp
             for (int fromIndex = 0; fromIndex < input.size(); fromIndex += directExecutionTaskSize) {
                 final int toIndex = Math.min(fromIndex + directExecutionTaskSize, input.size());
                 tasks.add(new ComputeStyleListWorker(circum, nc, input.subList(fromIndex, toIndex),
-                        new ArrayList<>(directExecutionTaskSize), directExecutionTaskSize, styles).fork());
+                        new ArrayList<>(directExecutionTaskSize), directExecutionTaskSize, styles, levelOfDetail).fork());
             }
             for (ForkJoinTask<List<StyleRecord>> task : tasks) {
                 output.addAll(task.join());
@@ -140,12 +294,16 @@ public class ComputeStyleListWorker extends RecursiveTask<List<StyleRecord>> imp
 
     @Override
     public void visit(IWay<?> w) {
-        add(w, StyledMapRenderer.computeFlags(w, true));
+        if (levelOfDetail == null || !levelOfDetail.isCulled(w)) {
+            add(w, StyledMapRenderer.computeFlags(w, true));
+        }
     }
 
     @Override
     public void visit(IRelation<?> r) {
-        add(r, StyledMapRenderer.computeFlags(r, true));
+        if (levelOfDetail == null || !levelOfDetail.isCulled(r)) {
+            add(r, StyledMapRenderer.computeFlags(r, true));
+        }
     }
 
     /**
@@ -171,7 +329,7 @@ public class ComputeStyleListWorker extends RecursiveTask<List<StyleRecord>> imp
         StyleElementList sl = styles.get(osm, circum, nc);
         for (StyleElement s : sl) {
             if ((drawArea && (flags & StyledMapRenderer.FLAG_DISABLED) == 0) || !(s instanceof AreaElement)) {
-                output.add(new StyleRecord(s, osm, flags));
+                addStyleRecord(s, osm, flags);
             }
         }
     }
@@ -188,11 +346,25 @@ public class ComputeStyleListWorker extends RecursiveTask<List<StyleRecord>> imp
             if (drawAreaElement(flags, s) ||
                (drawMultipolygon && drawArea && s instanceof TextElement) ||
                (drawRestriction && s instanceof NodeElement)) {
-                output.add(new StyleRecord(s, osm, flags));
+                addStyleRecord(s, osm, flags);
             }
         }
     }
 
+    /**
+     * Adds a style record. The fill of the area drawn at a pixel for the level of detail is replaced by a small rectangle.
+     * @param s the style element
+     * @param osm the primitive
+     * @param flags flags
+     */
+    private void addStyleRecord(StyleElement s, IPrimitive osm, int flags) {
+        if (s instanceof AreaElement && levelOfDetail != null && levelOfDetail.isDrawnSmall(osm)) {
+            output.add(new StyleRecord(new SmallAreaElement((AreaElement) s), osm, flags));
+        } else {
+            output.add(new StyleRecord(s, osm, flags));
+        }
+    }
+
     private boolean drawAreaElement(int flags, StyleElement s) {
         return drawMultipolygon && drawArea && (s instanceof AreaElement || s instanceof AreaIconElement)
                 && (flags & StyledMapRenderer.FLAG_DISABLED) == 0;
@@ -0,0 +1,323 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.preferences.AbstractProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.MapViewState;
+import org.openstreetmap.josm.gui.draw.MapViewPath;
+import org.openstreetmap.josm.gui.draw.MapViewPositionAndRotation;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerAddEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerChangeListener;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerOrderChangeEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.mappaint.styleelement.placement.PositionForAreaStrategy;
+
+/**
+ * A memory cache of the positions of the labels and icons placed inside areas, so that the renderer does not need
+ * to search the area polygons for a free place on every repaint.
+ * <p>
+ * The positions are stored in east/north space, for a scale band of {@link #BANDS_PER_ZOOM_LEVEL} bands per zoom level:
+ * moving the view reuses them, zooming out of the band searches them again. Since the size of the area changes within a
+ * band, a cached position is checked against the area at the current scale before it is reused.
+ * Only the strategies which are {@linkplain PositionForAreaStrategy#isPlacementCacheable() cacheable} are cached,
+ * for the primitives of the datasets given to {@link #register(DataSet)}. The positions of a primitive are dropped
+ * when its geometry changes, and all positions when the projection changes. The least recently used primitives are
+ * dropped when a dataset has more than {@link #PROP_MAX_SIZE} cached primitives.
+ */
+public final class LabelPositionCache implements DataSetListener, LayerChangeListener, ProjectionChangeListener {
+
+    /**
+     * The number of scale bands per zoom level (halving of the scale).
+     */
+    public static final int BANDS_PER_ZOOM_LEVEL = 8;
+
+    /**
+     * The maximum number of primitives per dataset whose label positions are cached
+     */
+    public static final AbstractProperty<Integer> PROP_MAX_SIZE = new IntegerProperty("mappaint.label-position-cache.size", 20_000).cached();
+
+    private static final LabelPositionCache INSTANCE = new LabelPositionCache();
+
+    /** the cached value when no position was found */
+    private static final Object NONE = new Object();
+
+    private final Map<DataSet, Map<OsmPrimitive, Positions>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * The label positions of a primitive in a scale band.
+     */
+    private static final class Positions {
+        private final long band;
+        private final Map<Key, Object> positions = new ConcurrentHashMap<>();
+
+        Positions(long band) {
+            this.band = band;
+        }
+    }
+
+    /**
+     * A label or icon to place in a polygon of an area.
+     */
+    private static final class Key {
+        private final PositionForAreaStrategy strategy;
+        private final int polygon;
+        private final double width;
+        private final double height;
+
+        Key(PositionForAreaStrategy strategy, int polygon, Rectangle2D nb) {
+            this.strategy = strategy;
+            this.polygon = polygon;
+            this.width = nb.getWidth();
+            this.height = nb.getHeight();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(strategy, polygon, width, height);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return polygon == other.polygon
+                    && Double.compare(width, other.width) == 0
+                    && Double.compare(height, other.height) == 0
+                    && strategy.equals(other.strategy);
+        }
+    }
+
+    private LabelPositionCache() {
+        Main.addProjectionChangeListener(this);
+        MainApplication.getLayerManager().addAndFireLayerChangeListener(this);
+    }
+
+    /**
+     * Replies the unique instance.
+     * @return the unique instance
+     */
+    public static LabelPositionCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts caching the label positions of the primitives of the given dataset.
+     * The datasets of the data layers are registered when the layers are added to the layer manager, and the cache of
+     * the dataset is dropped when its layer is removed.
+     * @param ds the data set
+     */
+    public void register(DataSet ds) {
+        if (cache.putIfAbsent(ds, newLruMap()) == null) {
+            ds.addDataSetListener(this);
+        }
+    }
+
+    private static Map<OsmPrimitive, Positions> newLruMap() {
+        return Collections.synchronizedMap(new LinkedHashMap<OsmPrimitive, Positions>(256, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<OsmPrimitive, Positions> eldest) {
+                return size() > PROP_MAX_SIZE.get();
+            }
+        });
+    }
+
+    /**
+     * Stops caching the label positions of the primitives of the given dataset.
+     * @param ds the data set
+     */
+    public void unregister(DataSet ds) {
+        if (cache.remove(ds) != null) {
+            ds.removeDataSetListener(this);
+        }
+    }
+
+    /**
+     * Determines if the given dataset is registered.
+     * @param ds the data set
+     * @return {@code true} if the dataset is registered
+     */
+    boolean isRegistered(DataSet ds) {
+        return cache.containsKey(ds);
+    }
+
+    /**
+     * Clears the whole cache. The datasets stay registered.
+     */
+    public void clear() {
+        for (Map<OsmPrimitive, Positions> map : cache.values()) {
+            map.clear();
+        }
+    }
+
+    /**
+     * Finds the position of a label or icon in a polygon of an area, using the cached position if there is one.
+     * @param osm the area, a way or a multipolygon relation
+     * @param polygon the index of the polygon in the area
+     * @param path the polygon
+     * @param strategy the placement strategy
+     * @param nb the bounding box of the label or icon
+     * @return the position, <code>null</code> if none was found
+     * @see PositionForAreaStrategy#findLabelPlacement(MapViewPath, Rectangle2D)
+     */
+    public MapViewPositionAndRotation findLabelPlacement(IPrimitive osm, int polygon, MapViewPath path,
+            PositionForAreaStrategy strategy, Rectangle2D nb) {
+        Map<OsmPrimitive, Positions> map = strategy.isPlacementCacheable() && osm instanceof OsmPrimitive
+                && osm.getDataSet() != null ? cache.get(osm.getDataSet()) : null;
+        if (map == null) {
+            return strategy.findLabelPlacement(path, nb);
+        }
+        MapViewState state = path.getMapViewState();
+        long band = Math.round(Math.log(state.getScale()) / Math.log(2) * BANDS_PER_ZOOM_LEVEL);
+        Positions positions = map.get(osm);
+        if (positions == null || positions.band != band) {
+            positions = new Positions(band);
+            map.put((OsmPrimitive) osm, positions);
+        }
+        Key key = new Key(strategy, polygon, nb);
+        Object cached = positions.positions.get(key);
+        if (cached == NONE) {
+            return null;
+        } else if (cached != null) {
+            MapViewPositionAndRotation placement = new MapViewPositionAndRotation(state.getPointFor((EastNorth) cached), 0);
+            if (strategy.isPlacementValid(path, nb, placement)) {
+                return placement;
+            }
+            // the area is too small for the label at this scale of the band, search it again
+        }
+        MapViewPositionAndRotation placement = strategy.findLabelPlacement(path, nb);
+        if (placement == null) {
+            positions.positions.put(key, NONE);
+        } else if (Math.abs(placement.getRotation()) < 1e-10) {
+            positions.positions.put(key, placement.getPoint().getEastNorth());
+        }
+        return placement;
+    }
+
+    private void remove(DataSet ds, OsmPrimitive p) {
+        Map<OsmPrimitive, Positions> map = cache.get(ds);
+        if (map != null && !map.isEmpty()) {
+            map.remove(p);
+            for (OsmPrimitive ref : p.getReferrers()) {
+                if (ref instanceof Relation) {
+                    map.remove(ref);
+                }
+            }
+        }
+    }
+
+    private void removeWaysOf(AbstractDatasetChangedEvent event) {
+        for (OsmPrimitive p : event.getPrimitives()) {
+            if (p instanceof Way) {
+                remove(event.getDataset(), p);
+            }
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        for (OsmPrimitive p : event.getPrimitives()) {
+            remove(event.getDataset(), p);
+        }
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        // Do nothing, the style of the label is part of the key
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        for (OsmPrimitive p : event.getNode().getReferrers()) {
+            if (p instanceof Way) {
+                remove(event.getDataset(), p);
+            }
+        }
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        removeWaysOf(event);
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        remove(event.getDataset(), event.getRelation());
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        // sent instead of the individual events when many primitives changed
+        Map<OsmPrimitive, Positions> map = cache.get(event.getDataset());
+        if (map != null) {
+            map.clear();
+        }
+    }
+
+    @Override
+    public void layerAdded(LayerAddEvent e) {
+        if (e.getAddedLayer() instanceof OsmDataLayer) {
+            register(((OsmDataLayer) e.getAddedLayer()).data);
+        }
+    }
+
+    @Override
+    public void layerOrderChanged(LayerOrderChangeEvent e) {
+        // Do nothing
+    }
+
+    @Override
+    public void layerRemoving(LayerRemoveEvent e) {
+        if (e.getRemovedLayer() instanceof OsmDataLayer) {
+            unregister(((OsmDataLayer) e.getRemovedLayer()).data);
+        }
+    }
+
+    @Override
+    public void projectionChanged(Projection oldValue, Projection newValue) {
+        clear();
+    }
+}
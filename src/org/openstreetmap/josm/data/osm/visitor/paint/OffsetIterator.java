@@ -4,11 +4,11 @@ package org.openstreetmap.josm.data.osm.visitor.paint;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.gui.MapViewState;
 import org.openstreetmap.josm.gui.MapViewState.MapViewPoint;
+import org.openstreetmap.josm.gui.MapViewState.MutableMapViewPoint;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -22,17 +22,26 @@ import org.openstreetmap.josm.tools.Utils;
  */
 public class OffsetIterator implements Iterator<MapViewPoint> {
     private final MapViewState mapState;
-    private final List<MapViewPoint> nodes;
+    /** the points of the original line, if given, which are returned when there is no offset */
+    private final List<MapViewPoint> points;
+    /** the view coordinates of the original line, x and y alternately */
+    private final double[] coordinates;
+    private final int size;
     private final double offset;
     private int idx;
 
-    private MapViewPoint prev;
+    private boolean hasPrev;
+    private double xPrev;
+    private double yPrev;
     /* 'prev0' is a point that has distance 'offset' from 'prev' and the
      * line from 'prev' to 'prev0' is perpendicular to the way segment from
      * 'prev' to the current point.
      */
     private double xPrev0;
     private double yPrev0;
+    /* the view coordinates of the point computed by advance() */
+    private double xResult;
+    private double yResult;
 
     /**
      * Creates a new offset iterator
@@ -44,7 +53,13 @@ public class OffsetIterator implements Iterator<MapViewPoint> {
             throw new IllegalArgumentException("There must be at least 2 nodes.");
         }
         this.mapState = nodes.get(0).getMapViewState();
-        this.nodes = nodes;
+        this.points = nodes;
+        this.size = nodes.size();
+        this.coordinates = new double[2 * size];
+        for (int i = 0; i < size; i++) {
+            coordinates[2 * i] = nodes.get(i).getInViewX();
+            coordinates[2 * i + 1] = nodes.get(i).getInViewY();
+        }
         this.offset = offset;
     }
 
@@ -56,13 +71,23 @@ public class OffsetIterator implements Iterator<MapViewPoint> {
      */
     public OffsetIterator(MapViewState mapState, List<Node> nodes, double offset) {
         this.mapState = mapState;
-        this.nodes = nodes.stream().filter(Node::isLatLonKnown).map(mapState::getPointFor).collect(Collectors.toList());
+        this.points = null;
+        this.coordinates = new double[2 * nodes.size()];
+        int known = 0;
+        for (Node node : nodes) {
+            if (node.isLatLonKnown()) {
+                coordinates[2 * known] = mapState.getInViewX(node.getEast(mapState.getProjection()));
+                coordinates[2 * known + 1] = mapState.getInViewY(node.getNorth(mapState.getProjection()));
+                known++;
+            }
+        }
+        this.size = known;
         this.offset = offset;
     }
 
     @Override
     public boolean hasNext() {
-        return idx < nodes.size();
+        return idx < size;
     }
 
     @Override
@@ -70,28 +95,52 @@ public class OffsetIterator implements Iterator<MapViewPoint> {
         if (!hasNext())
             throw new NoSuchElementException();
 
-        MapViewPoint current = getForIndex(idx);
+        if (points != null && Math.abs(offset) < 0.1d) {
+            return points.get(idx++);
+        }
+        advance();
+        return mapState.getForView(xResult, yResult);
+    }
+
+    /**
+     * Moves the given point to the next position of the offset line, instead of creating a new point like {@link #next()}.
+     * @param point The point to move
+     * @return The point
+     * @throws NoSuchElementException if the iteration has no more elements
+     */
+    public MutableMapViewPoint next(MutableMapViewPoint point) {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        advance();
+        return point.setInView(xResult, yResult);
+    }
+
+    /**
+     * Computes the next position of the offset line into {@code xResult} and {@code yResult}.
+     */
+    private void advance() {
+        double xCurrent = coordinates[2 * idx];
+        double yCurrent = coordinates[2 * idx + 1];
 
         if (Math.abs(offset) < 0.1d) {
             idx++;
-            return current;
+            setResult(xCurrent, yCurrent);
+            return;
         }
 
-        double xCurrent = current.getInViewX();
-        double yCurrent = current.getInViewY();
-        if (idx == nodes.size() - 1) {
+        if (idx == size - 1) {
             ++idx;
-            if (prev != null) {
-                return mapState.getForView(xPrev0 + xCurrent - prev.getInViewX(),
-                                           yPrev0 + yCurrent - prev.getInViewY());
+            if (hasPrev) {
+                setResult(xPrev0 + xCurrent - xPrev, yPrev0 + yCurrent - yPrev);
             } else {
-                return current;
+                setResult(xCurrent, yCurrent);
             }
+            return;
         }
 
-        MapViewPoint next = getForIndex(idx + 1);
-        double dxNext = next.getInViewX() - xCurrent;
-        double dyNext = next.getInViewY() - yCurrent;
+        double dxNext = coordinates[2 * idx + 2] - xCurrent;
+        double dyNext = coordinates[2 * idx + 3] - yCurrent;
         double lenNext = Math.sqrt(dxNext*dxNext + dyNext*dyNext);
 
         if (lenNext < 1e-11) {
@@ -104,33 +153,26 @@ public class OffsetIterator implements Iterator<MapViewPoint> {
         double yCurrent0 = yCurrent - om * dxNext;
 
         if (idx == 0) {
-            ++idx;
-            prev = current;
-            xPrev0 = xCurrent0;
-            yPrev0 = yCurrent0;
-            return mapState.getForView(xCurrent0, yCurrent0);
+            setPrev(xCurrent, yCurrent, xCurrent0, yCurrent0);
+            setResult(xCurrent0, yCurrent0);
         } else {
-            double dxPrev = xCurrent - prev.getInViewX();
-            double dyPrev = yCurrent - prev.getInViewY();
+            double dxPrev = xCurrent - xPrev;
+            double dyPrev = yCurrent - yPrev;
             // determine intersection of the lines parallel to the two segments
             double det = dxNext*dyPrev - dxPrev*dyNext;
             double m = dxNext*(yCurrent0 - yPrev0) - dyNext*(xCurrent0 - xPrev0);
 
             if (Utils.equalsEpsilon(det, 0) || Math.signum(det) != Math.signum(m)) {
-                ++idx;
-                prev = current;
-                xPrev0 = xCurrent0;
-                yPrev0 = yCurrent0;
-                return mapState.getForView(xCurrent0, yCurrent0);
+                setPrev(xCurrent, yCurrent, xCurrent0, yCurrent0);
+                setResult(xCurrent0, yCurrent0);
+                return;
             }
 
             double f = m / det;
             if (f < 0) {
-                ++idx;
-                prev = current;
-                xPrev0 = xCurrent0;
-                yPrev0 = yCurrent0;
-                return mapState.getForView(xCurrent0, yCurrent0);
+                setPrev(xCurrent, yCurrent, xCurrent0, yCurrent0);
+                setResult(xCurrent0, yCurrent0);
+                return;
             }
             // the position of the intersection or intermittent point
             double cx = xPrev0 + f * dxPrev;
@@ -156,23 +198,33 @@ public class OffsetIterator implements Iterator<MapViewPoint> {
                     // is perpendicular to the line that goes through current and the intersection
                     // so that the next capping point is calculated with it.
                     double lenI = Math.sqrt(lenISq);
-                    double xv = xCurrent + dyI / lenI;
-                    double yv = yCurrent - dxI / lenI;
+                    xPrev = xCurrent + dyI / lenI;
+                    yPrev = yCurrent - dxI / lenI;
 
-                    prev = mapState.getForView(xv, yv);
-                    return mapState.getForView(cxCap, cyCap);
+                    setResult(cxCap, cyCap);
+                    return;
                 }
             }
-            ++idx;
-            prev = current;
-            xPrev0 = xCurrent0;
-            yPrev0 = yCurrent0;
-            return mapState.getForView(cx, cy);
+            setPrev(xCurrent, yCurrent, xCurrent0, yCurrent0);
+            setResult(cx, cy);
         }
     }
 
-    private MapViewPoint getForIndex(int i) {
-        return nodes.get(i);
+    /**
+     * Moves to the next point of the original line.
+     */
+    private void setPrev(double x, double y, double x0, double y0) {
+        ++idx;
+        hasPrev = true;
+        xPrev = x;
+        yPrev = y;
+        xPrev0 = x0;
+        yPrev0 = y0;
+    }
+
+    private void setResult(double x, double y) {
+        xResult = x;
+        yResult = y;
     }
 
     @Override
@@ -26,6 +26,15 @@ public class RenderBenchmarkCollector {
         // nop
     }
 
+    /**
+     * Notified of the areas which were smaller than the level of detail, after the styles are computed.
+     * @param skipped the number of areas whose style was not computed
+     * @param drawn the number of areas drawn in place of them, one for each pixel
+     */
+    public void renderLevelOfDetail(long skipped, long drawn) {
+        // nop
+    }
+
     /**
      * Notified when the renderer method starts sorting the styles
      * @return <code>true</code> if the renderer should continue to render
@@ -45,6 +54,16 @@ public class RenderBenchmarkCollector {
         return true;
     }
 
+    /**
+     * Notified of the lookups of laid out label texts in the {@link TextLayoutCache} during the draw phase,
+     * before {@link #renderDone()}.
+     * @param hits the number of texts found in the cache
+     * @param misses the number of texts laid out
+     */
+    public void renderTextLayoutCache(long hits, long misses) {
+        // nop
+    }
+
     /**
      * Notified when the render method is done.
      */
@@ -61,6 +80,10 @@ public class RenderBenchmarkCollector {
         protected long timeGenerateDone;
         protected long timeSortingDone;
         protected long timeFinished;
+        protected long smallAreasSkipped;
+        protected long smallAreasDrawn;
+        protected long textLayoutCacheHits;
+        protected long textLayoutCacheMisses;
 
         @Override
         public void renderStart(double circum) {
@@ -68,6 +91,13 @@ public class RenderBenchmarkCollector {
             super.renderStart(circum);
         }
 
+        @Override
+        public void renderLevelOfDetail(long skipped, long drawn) {
+            smallAreasSkipped = skipped;
+            smallAreasDrawn = drawn;
+            super.renderLevelOfDetail(skipped, drawn);
+        }
+
         @Override
         public boolean renderSort() {
             timeGenerateDone = System.currentTimeMillis();
@@ -96,12 +126,60 @@ public class RenderBenchmarkCollector {
             return timeSortingDone - timeGenerateDone;
         }
 
+        @Override
+        public void renderTextLayoutCache(long hits, long misses) {
+            textLayoutCacheHits = hits;
+            textLayoutCacheMisses = misses;
+            super.renderTextLayoutCache(hits, misses);
+        }
+
         @Override
         public void renderDone() {
             timeFinished = System.currentTimeMillis();
             super.renderDone();
         }
 
+        /**
+         * Get the number of areas which were smaller than the level of detail and were not drawn
+         * @return The number of areas whose style was not computed
+         */
+        public long getSmallAreasSkipped() {
+            return smallAreasSkipped;
+        }
+
+        /**
+         * Get the number of areas smaller than the level of detail which were drawn, one for each pixel
+         * @return The number of small areas drawn
+         */
+        public long getSmallAreasDrawn() {
+            return smallAreasDrawn;
+        }
+
+        /**
+         * Get the number of label texts found in the text layout cache
+         * @return The number of hits
+         */
+        public long getTextLayoutCacheHits() {
+            return textLayoutCacheHits;
+        }
+
+        /**
+         * Get the number of label texts which were not found in the text layout cache
+         * @return The number of misses
+         */
+        public long getTextLayoutCacheMisses() {
+            return textLayoutCacheMisses;
+        }
+
+        /**
+         * Get the hit rate of the text layout cache
+         * @return The ratio of hits to lookups, between 0 and 1, or 0 if no text was drawn
+         */
+        public double getTextLayoutCacheHitRate() {
+            long lookups = textLayoutCacheHits + textLayoutCacheMisses;
+            return lookups > 0 ? (double) textLayoutCacheHits / lookups : 0;
+        }
+
         /**
          * Get the draw time
          * @return The time in ms
@@ -129,7 +207,8 @@ public class RenderBenchmarkCollector {
         @Override
         public boolean renderDraw(List<StyleRecord> allStyleElems) {
             boolean res = super.renderDraw(allStyleElems);
-            outStream.print("phase 1 (calculate styles): " + Utils.getDurationString(timeSortingDone - timeStart));
+            outStream.print("phase 1 (calculate styles): " + Utils.getDurationString(timeSortingDone - timeStart) +
+                    "; small areas: " + smallAreasSkipped + " skipped, " + smallAreasDrawn + " drawn");
             return res;
         }
 
@@ -137,6 +216,7 @@ public class RenderBenchmarkCollector {
         public void renderDone() {
             super.renderDone();
             outStream.println("; phase 2 (draw): " + Utils.getDurationString(timeFinished - timeGenerateDone) +
+                    "; text cache hit rate: " + Math.round(100 * getTextLayoutCacheHitRate()) + '%' +
                     "; total: " + Utils.getDurationString(timeFinished - timeStart) +
                     " (scale: " + circum + " zoom level: " + Selector.GeneralSelector.scale2level(circum) + ')');
         }
@@ -0,0 +1,296 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.data.osm.OsmData;
+import org.openstreetmap.josm.data.preferences.AbstractProperty;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerAddEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerChangeListener;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerOrderChangeEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.mappaint.ElemStyles;
+import org.openstreetmap.josm.gui.mappaint.StyleCache;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Computes in the background the styles of the primitives around the rendered area for the scales of the adjacent
+ * zoom levels, so that zooming in or out by one level finds the styles in the {@link StyleCache} of the primitives
+ * instead of evaluating the style sources for the whole view again.
+ * <p>
+ * Only the datasets given to {@link #register(DataSet)} are prefetched, after each render. The styles are computed
+ * in small chunks by a low priority thread, which gives way to the renderers: a new render stops the running
+ * prefetch, and a chunk is never computed while a renderer computes styles.
+ */
+public final class StylePrefetcher implements LayerChangeListener {
+
+    /**
+     * Whether the styles of the adjacent zoom levels are computed in the background
+     */
+    public static final AbstractProperty<Boolean> PROP_ENABLED = new BooleanProperty("mappaint.style-prefetch", true).cached();
+
+    /** the number of primitives whose styles are computed without giving way to the renderers */
+    private static final int CHUNK_SIZE = 200;
+
+    private static final StylePrefetcher INSTANCE = new StylePrefetcher();
+
+    private final Set<DataSet> datasets = ConcurrentHashMap.newKeySet();
+    /** shared by the renderers while they compute styles, exclusive for the prefetcher while it computes a chunk */
+    private final ReentrantReadWriteLock styleLock = new ReentrantReadWriteLock();
+    /** incremented by each render, so that the running prefetch stops */
+    private final AtomicLong generation = new AtomicLong();
+    private final ExecutorService executor = newExecutor();
+    /** the last completed prefetch */
+    private volatile Request done;
+
+    /**
+     * The area and scale of a render.
+     */
+    private static final class Request {
+        private final DataSet data;
+        private final short mappaintCacheIdx;
+        private final BBox bbox;
+        private final double circum;
+        private final ElemStyles styles;
+
+        Request(DataSet data, BBox bbox, double circum, ElemStyles styles) {
+            this.data = data;
+            this.mappaintCacheIdx = data.getMappaintCacheIndex();
+            this.bbox = bbox;
+            this.circum = circum;
+            this.styles = styles;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(data, mappaintCacheIdx, bbox, circum, styles);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Request other = (Request) obj;
+            return data == other.data && mappaintCacheIdx == other.mappaintCacheIdx && styles == other.styles
+                    && Double.compare(circum, other.circum) == 0 && bbox.equals(other.bbox);
+        }
+    }
+
+    private StylePrefetcher() {
+        MainApplication.getLayerManager().addAndFireLayerChangeListener(this);
+    }
+
+    private static ExecutorService newExecutor() {
+        ThreadFactory factory = Utils.newThreadFactory("style-prefetch-%d", Thread.MIN_PRIORITY);
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = factory.newThread(runnable);
+            // a running prefetch must not prevent the application from exiting
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Replies the unique instance.
+     * @return the unique instance
+     */
+    public static StylePrefetcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts prefetching the styles of the primitives of the given dataset.
+     * The datasets of the data layers are registered when the layers are added to the layer manager, and unregistered
+     * when they are removed.
+     * @param ds the data set
+     */
+    public void register(DataSet ds) {
+        datasets.add(ds);
+    }
+
+    /**
+     * Stops prefetching the styles of the primitives of the given dataset.
+     * @param ds the data set
+     */
+    public void unregister(DataSet ds) {
+        if (datasets.remove(ds)) {
+            generation.incrementAndGet();
+            done = null;
+        }
+    }
+
+    /**
+     * Determines if the given dataset is registered.
+     * @param ds the data set
+     * @return {@code true} if the dataset is registered
+     */
+    boolean isRegistered(DataSet ds) {
+        return datasets.contains(ds);
+    }
+
+    /**
+     * Stops the running prefetch, and waits for the chunk being computed. Must be called by the renderers before
+     * they compute styles, followed by {@link #unlockStyles()}.
+     */
+    public void lockStyles() {
+        generation.incrementAndGet();
+        styleLock.readLock().lock();
+    }
+
+    /**
+     * Allows the prefetch to compute styles again.
+     */
+    public void unlockStyles() {
+        styleLock.readLock().unlock();
+    }
+
+    /**
+     * Prefetches the styles of the adjacent zoom levels after a render, if the dataset is registered.
+     * The primitives around the rendered area are prefetched for the zoom level below, so that the area covered by
+     * the view after zooming out is complete.
+     * @param data the rendered data
+     * @param bbox the rendered area
+     * @param circum the rendered scale, the distance on the map in meters that 100 screen pixels represent
+     * @param nc the map viewport
+     * @param styles the styles used to render
+     * @return the prefetch, or {@code null} if there is nothing to prefetch
+     */
+    public Future<?> prefetch(OsmData<?, ?, ?, ?> data, BBox bbox, double circum, NavigatableComponent nc, ElemStyles styles) {
+        if (!PROP_ENABLED.get() || !datasets.contains(data) || !bbox.isValid() || circum <= 0) {
+            return null;
+        }
+        Request request = new Request((DataSet) data, new BBox(bbox), circum, styles);
+        if (request.equals(done)) {
+            return null;
+        }
+        long gen = generation.incrementAndGet();
+        return executor.submit(() -> {
+            try {
+                if (prefetch(request, request.bbox, circum / 2, nc, gen)
+                        && prefetch(request, grow(request.bbox), circum * 2, nc, gen)) {
+                    done = request;
+                }
+            } catch (JosmRuntimeException | IllegalArgumentException | IllegalStateException e) {
+                Logging.warn(e);
+            }
+        });
+    }
+
+    private static BBox grow(BBox bbox) {
+        double width = bbox.width() / 2;
+        double height = bbox.height() / 2;
+        return new BBox(bbox.getTopLeftLon() - width, bbox.getBottomRightLat() - height,
+                bbox.getBottomRightLon() + width, bbox.getTopLeftLat() + height);
+    }
+
+    /**
+     * Computes the styles of the primitives of an area for a scale.
+     * @return {@code false} if the prefetch has been stopped
+     */
+    private boolean prefetch(Request request, BBox bbox, double circum, NavigatableComponent nc, long gen) {
+        // the renderers set whether multipolygons are drawn for the scale, the styles of other scales would be wrong
+        int fillAreas = Config.getPref().getInt("mappaint.fillareas", 10_000_000);
+        if ((circum <= fillAreas) != (request.circum <= fillAreas)) {
+            return true;
+        }
+        List<IPrimitive> primitives = new ArrayList<>();
+        if (!runLocked(request, gen, () -> {
+            // relations first, like the renderers, since the styles of the ways depend on their multipolygons
+            primitives.addAll(request.data.searchRelations(bbox));
+            primitives.addAll(request.data.searchNodes(bbox));
+            primitives.addAll(request.data.searchWays(bbox));
+        })) {
+            return false;
+        }
+        for (int from = 0; from < primitives.size(); from += CHUNK_SIZE) {
+            List<IPrimitive> chunk = primitives.subList(from, Math.min(from + CHUNK_SIZE, primitives.size()));
+            if (!runLocked(request, gen, () -> {
+                for (IPrimitive osm : chunk) {
+                    if (osm.getDataSet() == request.data && osm.isDrawable()) {
+                        request.styles.get(osm, circum, nc);
+                    }
+                }
+            })) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs a task with the locks of the styles and of the data, unless a render started since the prefetch was requested.
+     * @return {@code false} if the task has not been run
+     */
+    private boolean runLocked(Request request, long gen, Runnable task) {
+        if (generation.get() != gen || !styleLock.writeLock().tryLock()) {
+            return false;
+        }
+        try {
+            Lock dataLock = request.data.getReadLock();
+            if (generation.get() != gen || !dataLock.tryLock()) {
+                return false;
+            }
+            try {
+                Lock styleSourceLock = MapCSSStyleSource.STYLE_SOURCE_LOCK.readLock();
+                if (!styleSourceLock.tryLock()) {
+                    return false;
+                }
+                try {
+                    task.run();
+                    return true;
+                } finally {
+                    styleSourceLock.unlock();
+                }
+            } finally {
+                dataLock.unlock();
+            }
+        } finally {
+            styleLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void layerAdded(LayerAddEvent e) {
+        if (e.getAddedLayer() instanceof OsmDataLayer) {
+            register(((OsmDataLayer) e.getAddedLayer()).data);
+        }
+    }
+
+    @Override
+    public void layerOrderChanged(LayerOrderChangeEvent e) {
+        // Do nothing
+    }
+
+    @Override
+    public void layerRemoving(LayerRemoveEvent e) {
+        if (e.getRemovedLayer() instanceof OsmDataLayer) {
+            unregister(((OsmDataLayer) e.getRemovedLayer()).data);
+        }
+    }
+}
@@ -7,18 +7,17 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Shape;
+import java.awt.Stroke;
 import java.awt.TexturePaint;
 import java.awt.font.FontRenderContext;
 import java.awt.font.GlyphVector;
 import java.awt.font.LineMetrics;
-import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
@@ -28,22 +27,25 @@ import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
-import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import javax.swing.AbstractButton;
 import javax.swing.FocusManager;
 
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.INode;
 import org.openstreetmap.josm.data.osm.IPrimitive;
@@ -57,6 +59,8 @@ import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.data.osm.visitor.paint.ComputeStyleListWorker.LevelOfDetail;
+import org.openstreetmap.josm.data.osm.visitor.paint.TextLayoutCache.LaidOutText;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon.PolyData;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
@@ -65,11 +69,13 @@ import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.data.preferences.StringProperty;
 import org.openstreetmap.josm.gui.MapViewState.MapViewPoint;
+import org.openstreetmap.josm.gui.MapViewState.MutableMapViewPoint;
 import org.openstreetmap.josm.gui.NavigatableComponent;
 import org.openstreetmap.josm.gui.draw.MapViewPath;
 import org.openstreetmap.josm.gui.draw.MapViewPositionAndRotation;
 import org.openstreetmap.josm.gui.mappaint.ElemStyles;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.gui.mappaint.styleelement.AreaIconElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement.HorizontalTextAlignment;
 import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement.VerticalTextAlignment;
@@ -78,11 +84,11 @@ import org.openstreetmap.josm.gui.mappaint.styleelement.NodeElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.RepeatImageElement.LineImageAlignment;
 import org.openstreetmap.josm.gui.mappaint.styleelement.StyleElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.Symbol;
+import org.openstreetmap.josm.gui.mappaint.styleelement.TextElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.TextLabel;
 import org.openstreetmap.josm.gui.mappaint.styleelement.placement.PositionForAreaStrategy;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.CompositeList;
-import org.openstreetmap.josm.tools.Geometry;
 import org.openstreetmap.josm.tools.Geometry.AreaAndPerimeter;
 import org.openstreetmap.josm.tools.HiDPISupport;
 import org.openstreetmap.josm.tools.ImageProvider;
@@ -221,7 +227,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
-    private static final Map<Font, Boolean> IS_GLYPH_VECTOR_DOUBLE_TRANSLATION_BUG = new HashMap<>();
+    private static final Map<Font, Boolean> IS_GLYPH_VECTOR_DOUBLE_TRANSLATION_BUG = new ConcurrentHashMap<>();
 
     /**
      * Check, if this System has the GlyphVector double translation bug.
@@ -322,6 +328,31 @@ public class StyledMapRenderer extends AbstractMapRenderer {
      */
     public static final AbstractProperty<String> PREFERENCE_TEXT_ANTIALIASING
             = new StringProperty("mappaint.text-antialiasing", "default").cached();
+    /**
+     * Indicates that the renderer should draw the map in horizontal bands, in parallel
+     */
+    public static final AbstractProperty<Boolean> PREFERENCE_PARALLEL_DRAW
+            = new BooleanProperty("mappaint.parallel-draw", false).cached();
+    /**
+     * The distance in pixels around a primitive in which its styles may draw (wide lines, casings, repeated images).
+     * Primitives are drawn in all the bands closer than this distance. Labels and icons are not drawn in bands.
+     */
+    private static final AbstractProperty<Integer> PARALLEL_DRAW_MARGIN
+            = new IntegerProperty("mappaint.parallel-draw.margin", 100).cached();
+    /**
+     * The number of bands drawn in parallel, 0 to use one band per thread
+     */
+    private static final AbstractProperty<Integer> PARALLEL_DRAW_BANDS
+            = new IntegerProperty("mappaint.parallel-draw.bands", 0).cached();
+    /**
+     * Runs with fewer records are drawn directly, since compositing the bands costs more than drawing them.
+     */
+    private static final int PARALLEL_DRAW_MIN_RECORDS = 100;
+    /**
+     * The band images of the last parallel paint. A paint takes them, so concurrent paints never share them,
+     * and puts them back when it is done.
+     */
+    private static final AtomicReference<BufferedImage[]> BAND_BUFFERS = new AtomicReference<>();
 
     /**
      * The line with to use for highlighting
@@ -346,6 +377,9 @@ public class StyledMapRenderer extends AbstractMapRenderer {
 
     private Supplier<RenderBenchmarkCollector> benchmarkFactory = RenderBenchmarkCollector.defaultBenchmarkSupplier();
 
+    /** the lookups of the text layout cache in the current render pass, shared with the renderers of the bands */
+    private TextLayoutCache.Statistics textLayoutStatistics = new TextLayoutCache.Statistics();
+
     /**
      * Constructs a new {@code StyledMapRenderer}.
      *
@@ -363,6 +397,38 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         this.styles = MapPaintStyles.getStyles();
     }
 
+    /**
+     * Constructs a renderer drawing to another graphics context with the state and settings of the given renderer.
+     * @param parent the renderer to copy
+     * @param g the graphics context
+     */
+    private StyledMapRenderer(StyledMapRenderer parent, Graphics2D g) {
+        super(g, parent.nc, parent.mapState, parent.isInactiveMode);
+        backgroundColor = parent.backgroundColor;
+        inactiveColor = parent.inactiveColor;
+        selectedColor = parent.selectedColor;
+        relationSelectedColor = parent.relationSelectedColor;
+        nodeColor = parent.nodeColor;
+        highlightColor = parent.highlightColor;
+        virtualNodeSize = parent.virtualNodeSize;
+        virtualNodeSpace = parent.virtualNodeSpace;
+        segmentNumberSpace = parent.segmentNumberSpace;
+        circum = parent.circum;
+        scale = parent.scale;
+        paintSettings = parent.paintSettings;
+        styles = parent.styles;
+        highlightColorTransparent = parent.highlightColorTransparent;
+        highlightWaySegments = parent.highlightWaySegments;
+        useWiderHighlight = parent.useWiderHighlight;
+        useStrokes = parent.useStrokes;
+        showNames = parent.showNames;
+        showIcons = parent.showIcons;
+        isOutlineOnly = parent.isOutlineOnly;
+        leftHandTraffic = parent.leftHandTraffic;
+        antialiasing = parent.antialiasing;
+        textLayoutStatistics = parent.textLayoutStatistics;
+    }
+
     /**
      * Set the {@link ElemStyles} instance to use for this renderer.
      * @param styles the {@code ElemStyles} instance to use
@@ -528,7 +594,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
     public void drawArea(Way w, Color color, MapImage fillImage, Float extent, Float extentThreshold, boolean disabled) {
         Path2D.Double pfClip = null;
         if (extent != null) {
-            if (!usePartialFill(Geometry.getAreaAndPerimeter(w.getNodes()), extent, extentThreshold)) {
+            if (!usePartialFill(WayGeometryCache.getInstance().getAreaAndPerimeter(w), extent, extentThreshold)) {
                 extent = null;
             } else if (!w.isClosed()) {
                 pfClip = getPFClip(w, extent * scale);
@@ -573,7 +639,8 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         g.setFont(text.font);
 
         FontRenderContext frc = g.getFontRenderContext();
-        Rectangle2D bounds = text.font.getStringBounds(s, frc);
+        LaidOutText laidOut = TextLayoutCache.getInstance().get(s, text.font, frc, textLayoutStatistics);
+        Rectangle2D bounds = laidOut.getBounds();
 
         double x = Math.round(p.getInViewX()) + bs.xOffset + bounds.getCenterX();
         double y = Math.round(p.getInViewY()) + bs.yOffset + bounds.getCenterY();
@@ -615,7 +682,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             } else throw new AssertionError();
         }
 
-        displayText(n, text, s, bounds, new MapViewPositionAndRotation(mapState.getForView(x, y), 0));
+        displayText(n, text, laidOut, new MapViewPositionAndRotation(mapState.getForView(x, y), 0));
         g.setFont(defaultFont);
     }
 
@@ -641,11 +708,12 @@ public class StyledMapRenderer extends AbstractMapRenderer {
 
         OffsetIterator it = new OffsetIterator(mapState, way.getNodes(), offset);
         MapViewPath path = new MapViewPath(mapState);
+        MutableMapViewPoint point = mapState.createMutablePoint();
         if (it.hasNext()) {
-            path.moveTo(it.next());
+            path.moveTo(it.next(point));
         }
         while (it.hasNext()) {
-            path.lineTo(it.next());
+            path.lineTo(it.next(point));
         }
 
         double startOffset = computeStartOffset(phase, repeat);
@@ -761,8 +829,9 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             PositionForAreaStrategy iconPosition) {
         Rectangle2D.Double iconRect = new Rectangle2D.Double(-img.getWidth() / 2.0, -img.getHeight() / 2.0, img.getWidth(), img.getHeight());
 
-        forEachPolygon(osm, path -> {
-            MapViewPositionAndRotation placement = iconPosition.findLabelPlacement(path, iconRect);
+        forEachPolygon(osm, (path, polygon) -> {
+            MapViewPositionAndRotation placement = LabelPositionCache.getInstance().findLabelPlacement(
+                    osm, polygon, path, iconPosition, iconRect);
             if (placement == null) {
                 return;
             }
@@ -1112,18 +1181,18 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             return;
         }
 
-        FontMetrics fontMetrics = g.getFontMetrics(text.font); // if slow, use cache
-        Rectangle2D nb = fontMetrics.getStringBounds(name, g); // if slow, approximate by strlen()*maxcharbounds(font)
+        LaidOutText laidOut = TextLayoutCache.getInstance().get(name, text.font, g.getFontRenderContext(), textLayoutStatistics);
+        Rectangle2D nb = laidOut.getBounds();
 
         Font defaultFont = g.getFont();
-        forEachPolygon(osm, path -> {
+        forEachPolygon(osm, (path, polygon) -> {
             //TODO: Ignore areas that are out of bounds.
             PositionForAreaStrategy position = labelPositionStrategy;
-            MapViewPositionAndRotation center = position.findLabelPlacement(path, nb);
+            MapViewPositionAndRotation center = LabelPositionCache.getInstance().findLabelPlacement(osm, polygon, path, position, nb);
             if (center != null) {
-                displayText(osm, text, name, nb, center);
+                displayText(osm, text, laidOut, center);
             } else if (position.supportsGlyphVector()) {
-                List<GlyphVector> gvs = Utils.getGlyphVectorsBidi(name, text.font, g.getFontRenderContext());
+                List<GlyphVector> gvs = laidOut.createGlyphVectors();
 
                 List<GlyphVector> translatedGvs = position.generateGlyphVectors(path, nb, gvs, isGlyphVectorDoubleTranslationBug(text.font));
                 displayText(() -> translatedGvs.forEach(gv -> g.drawGlyphVector(gv, 0, 0)),
@@ -1139,8 +1208,8 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         g.setFont(defaultFont);
     }
 
-    private void displayText(IPrimitive osm, TextLabel text, String name, Rectangle2D nb,
-            MapViewPositionAndRotation center) {
+    private void displayText(IPrimitive osm, TextLabel text, LaidOutText laidOut, MapViewPositionAndRotation center) {
+        Rectangle2D nb = laidOut.getBounds();
         AffineTransform at = new AffineTransform();
         if (Math.abs(center.getRotation()) < .01) {
             // Explicitly no rotation: move to full pixels.
@@ -1154,14 +1223,9 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         displayText(() -> {
             AffineTransform defaultTransform = g.getTransform();
             g.transform(at);
-            g.setFont(text.font);
-            g.drawString(name, 0, 0);
+            laidOut.getLayout().draw(g, 0, 0);
             g.setTransform(defaultTransform);
-        }, () -> {
-            FontRenderContext frc = g.getFontRenderContext();
-            TextLayout tl = new TextLayout(name, text.font, frc);
-            return tl.getOutline(at);
-        }, osm.isDisabled(), text);
+        }, () -> at.createTransformedShape(laidOut.getOutline()), osm.isDisabled(), text);
     }
 
     /**
@@ -1190,22 +1254,40 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
+    /**
+     * Draws the fill of an area which is smaller than the level of detail as a small rectangle covering its bounding box.
+     * @param osm the area
+     * @param color the fill color of the area
+     */
+    public void drawSmallArea(IPrimitive osm, Color color) {
+        BBox bbox = osm.getBBox();
+        MapViewPoint p1 = mapState.getPointFor(bbox.getTopLeft());
+        MapViewPoint p2 = mapState.getPointFor(bbox.getBottomRight());
+        int x = (int) Math.floor(Math.min(p1.getInViewX(), p2.getInViewX()));
+        int y = (int) Math.floor(Math.min(p1.getInViewY(), p2.getInViewY()));
+        int width = Math.max(1, (int) Math.ceil(Math.max(p1.getInViewX(), p2.getInViewX())) - x);
+        int height = Math.max(1, (int) Math.ceil(Math.max(p1.getInViewY(), p2.getInViewY())) - y);
+        g.setColor(isInactiveMode || osm.isDisabled() ? inactiveColor : color);
+        g.fillRect(x, y, width, height);
+    }
+
     /**
      * Calls a consumer for each path of the area shape-
      * @param osm A way or a multipolygon
-     * @param consumer The consumer to call.
+     * @param consumer The consumer to call, with the path and its index in the area.
      */
-    private void forEachPolygon(IPrimitive osm, Consumer<MapViewPath> consumer) {
+    private void forEachPolygon(IPrimitive osm, ObjIntConsumer<MapViewPath> consumer) {
         if (osm instanceof Way) {
-            consumer.accept(getPath((Way) osm));
+            consumer.accept(getPath((Way) osm), 0);
         } else if (osm instanceof Relation) {
             Multipolygon multipolygon = MultipolygonCache.getInstance().get((Relation) osm);
             if (!multipolygon.getOuterWays().isEmpty()) {
+                int index = 0;
                 for (PolyData pd : multipolygon.getCombinedPolygons()) {
                     MapViewPath path = new MapViewPath(mapState);
                     path.appendFromEastNorth(pd.get());
                     path.setWindingRule(MapViewPath.WIND_EVEN_ODD);
-                    consumer.accept(path);
+                    consumer.accept(path, index++);
                 }
             }
         }
@@ -1261,15 +1343,18 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             drawPathHighlight(highlightSegs, line);
         }
 
-        MapViewPoint lastPoint = null;
-        Iterator<MapViewPoint> it = new OffsetIterator(mapState, wayNodes, offset);
+        // two points reused for all the nodes, the arrows are appended to the path right away
+        MutableMapViewPoint lastPoint = null;
+        MutableMapViewPoint p = mapState.createMutablePoint();
+        MutableMapViewPoint spare = mapState.createMutablePoint();
+        OffsetIterator it = new OffsetIterator(mapState, wayNodes, offset);
         boolean initialMoveToNeeded = true;
         ArrowPaintHelper drawArrowHelper = null;
         if (showOrientation) {
             drawArrowHelper = new ArrowPaintHelper(PHI, 10 + line.getLineWidth());
         }
         while (it.hasNext()) {
-            MapViewPoint p = it.next();
+            it.next(p);
             if (lastPoint != null) {
                 MapViewPoint p1 = lastPoint;
                 MapViewPoint p2 = p;
@@ -1294,7 +1379,9 @@ public class StyledMapRenderer extends AbstractMapRenderer {
                     }
                 }
             }
+            MutableMapViewPoint next = lastPoint != null ? lastPoint : spare;
             lastPoint = p;
+            p = next;
         }
         if (showOneway) {
             onewayArrows = new MapViewPath(mapState);
@@ -1411,7 +1498,10 @@ public class StyledMapRenderer extends AbstractMapRenderer {
 
     private MapViewPath getPath(Way w) {
         MapViewPath path = new MapViewPath(mapState);
-        if (w.isClosed()) {
+        double[] eastNorth = WayGeometryCache.getInstance().getEastNorth(w, mapState.getProjecting());
+        if (eastNorth != null) {
+            path.appendEastNorth(eastNorth, false, w.isClosed());
+        } else if (w.isClosed()) {
             path.appendClosed(w.getNodes(), false);
         } else {
             path.append(w.getNodes(), false);
@@ -1623,16 +1713,27 @@ public class StyledMapRenderer extends AbstractMapRenderer {
 
             // Need to process all relations first.
             // Reason: Make sure, ElemStyles.getStyleCacheWithRange is not called for the same primitive in parallel threads.
-            // (Could be synchronized, but try to avoid this for performance reasons.)
-            if (THREAD_POOL != null) {
-                THREAD_POOL.invoke(new ComputeStyleListWorker(circum, nc, relations, allStyleElems,
-                        Math.max(20, relations.size() / THREAD_POOL.getParallelism() / 3), styles));
-                THREAD_POOL.invoke(new ComputeStyleListWorker(circum, nc, new CompositeList<>(nodes, ways), allStyleElems,
-                        Math.max(100, (nodes.size() + ways.size()) / THREAD_POOL.getParallelism() / 3), styles));
-            } else {
-                new ComputeStyleListWorker(circum, nc, relations, allStyleElems, 0, styles).computeDirectly();
-                new ComputeStyleListWorker(circum, nc, new CompositeList<>(nodes, ways), allStyleElems, 0, styles).computeDirectly();
+            // (The cache update is synchronized, but computing the same styles in parallel threads would be wasted.)
+            LevelOfDetail levelOfDetail = new LevelOfDetail(mapState);
+            levelOfDetail.addAreas(circum, ways);
+            levelOfDetail.addAreas(circum, relations);
+            StylePrefetcher prefetcher = StylePrefetcher.getInstance();
+            prefetcher.lockStyles();
+            try {
+                if (THREAD_POOL != null) {
+                    THREAD_POOL.invoke(new ComputeStyleListWorker(circum, nc, relations, allStyleElems,
+                            Math.max(20, relations.size() / THREAD_POOL.getParallelism() / 3), styles, levelOfDetail));
+                    THREAD_POOL.invoke(new ComputeStyleListWorker(circum, nc, new CompositeList<>(nodes, ways), allStyleElems,
+                            Math.max(100, (nodes.size() + ways.size()) / THREAD_POOL.getParallelism() / 3), styles, levelOfDetail));
+                } else {
+                    new ComputeStyleListWorker(circum, nc, relations, allStyleElems, 0, styles, levelOfDetail).computeDirectly();
+                    new ComputeStyleListWorker(circum, nc, new CompositeList<>(nodes, ways), allStyleElems, 0, styles, levelOfDetail)
+                            .computeDirectly();
+                }
+            } finally {
+                prefetcher.unlockStyles();
             }
+            benchmark.renderLevelOfDetail(levelOfDetail.getSkipped(), levelOfDetail.getDrawn());
 
             if (!benchmark.renderSort()) {
                 return;
@@ -1646,12 +1747,17 @@ public class StyledMapRenderer extends AbstractMapRenderer {
                 return;
             }
 
-            for (StyleRecord record : sorted) {
-                paintRecord(record);
+            textLayoutStatistics = new TextLayoutCache.Statistics();
+            if (!paintInBands(sorted)) {
+                for (StyleRecord record : sorted) {
+                    paintRecord(record);
+                }
             }
 
             drawVirtualNodes(data, bbox);
+            StylePrefetcher.getInstance().prefetch(data, bbox, circum, nc, styles);
 
+            benchmark.renderTextLayoutCache(textLayoutStatistics.getHits(), textLayoutStatistics.getMisses());
             benchmark.renderDone();
         } catch (JosmRuntimeException | IllegalArgumentException | IllegalStateException e) {
             throw BugReport.intercept(e)
@@ -1663,6 +1769,185 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
+    /**
+     * Draws the records in horizontal bands of the view, in parallel. Each band is drawn in its own image
+     * by a copy of this renderer, then the images are drawn to the graphics context.
+     * <p>
+     * A record is drawn in all the bands that its primitive, extended by {@link #PARALLEL_DRAW_MARGIN}, overlaps.
+     * Each band draws its records in the given order, so the z-order is respected. Labels and icons may extend
+     * arbitrarily far from their primitive, so they are not drawn in bands: the records are split into runs of
+     * labels and runs of other styles, and the runs of labels are drawn directly over the whole view, in between
+     * the banded runs. Since the records are sorted by major z-index first, there are usually only a few runs.
+     * <p>
+     * The band images are kept for the next paint, see {@link #BAND_BUFFERS}.
+     * @param records the records, sorted
+     * @return {@code false} if parallel drawing is disabled or not supported by the graphics context,
+     * in which case the records have to be drawn directly
+     */
+    private boolean paintInBands(StyleRecord[] records) {
+        int maxBands = PARALLEL_DRAW_BANDS.get() > 0 ? PARALLEL_DRAW_BANDS.get()
+                : THREAD_POOL != null ? THREAD_POOL.getParallelism() : 1;
+        if (THREAD_POOL == null || maxBands < 2 || !PREFERENCE_PARALLEL_DRAW.get()
+                || (g.getTransform().getType() & ~AffineTransform.TYPE_TRANSLATION) != 0
+                || !AlphaComposite.SrcOver.equals(g.getComposite())) {
+            return false;
+        }
+        Rectangle area = new Rectangle(0, 0, (int) Math.ceil(mapState.getViewWidth()), (int) Math.ceil(mapState.getViewHeight()));
+        Rectangle clip = g.getClipBounds();
+        if (clip != null) {
+            area = area.intersection(clip);
+        }
+        if (area.isEmpty()) {
+            return true;
+        }
+        int bandHeight = (area.height + maxBands - 1) / maxBands;
+        int bands = (area.height + bandHeight - 1) / bandHeight;
+
+        BufferedImage[] buffers = BAND_BUFFERS.getAndSet(null);
+        if (buffers == null || buffers.length != bands) {
+            buffers = new BufferedImage[bands];
+        }
+        for (int band = 0; band < bands; band++) {
+            if (buffers[band] == null || buffers[band].getWidth() < area.width || buffers[band].getHeight() < bandHeight) {
+                buffers[band] = new BufferedImage(area.width, bandHeight, BufferedImage.TYPE_INT_ARGB);
+            }
+        }
+        try {
+            BandTemplate template = new BandTemplate(g);
+            int start = 0;
+            while (start < records.length) {
+                boolean labels = isLabel(records[start]);
+                int end = start + 1;
+                while (end < records.length && isLabel(records[end]) == labels) {
+                    end++;
+                }
+                if (labels || end - start < PARALLEL_DRAW_MIN_RECORDS) {
+                    for (int i = start; i < end; i++) {
+                        paintRecord(records[i]);
+                    }
+                } else {
+                    paintRunInBands(records, start, end, area, bandHeight, buffers, template);
+                }
+                start = end;
+            }
+        } finally {
+            BAND_BUFFERS.set(buffers);
+        }
+        return true;
+    }
+
+    /**
+     * Determines if the record is drawn directly instead of in bands.
+     * @param record the record
+     * @return {@code true} for texts and icons, which are not bound to the extent of their primitive
+     */
+    private static boolean isLabel(StyleRecord record) {
+        return record.style instanceof TextElement || record.style instanceof BoxTextElement
+                || record.style instanceof AreaIconElement || record.style instanceof NodeElement;
+    }
+
+    private void paintRunInBands(StyleRecord[] records, int start, int end, Rectangle area, int bandHeight, BufferedImage[] buffers,
+            BandTemplate template) {
+        int bands = (area.height + bandHeight - 1) / bandHeight;
+        // the range of bands of each record
+        int[] firstBand = new int[end - start];
+        int[] lastBand = new int[end - start];
+        int top = area.y;
+        int margin = PARALLEL_DRAW_MARGIN.get();
+        THREAD_POOL.submit(() -> IntStream.range(start, end).parallel().forEach(i -> {
+            double[] range = getViewYRange(records[i].osm);
+            if (range == null) {
+                firstBand[i - start] = 0;
+                lastBand[i - start] = bands - 1;
+            } else {
+                firstBand[i - start] = (int) Math.max(0, Math.floor((range[0] - margin - top) / bandHeight));
+                lastBand[i - start] = (int) Math.min(bands - 1, Math.floor((range[1] + margin - top) / bandHeight));
+            }
+        })).join();
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(bands);
+        List<Rectangle> bounds = new ArrayList<>(bands);
+        for (int band = 0; band < bands; band++) {
+            int y = area.y + band * bandHeight;
+            Rectangle b = new Rectangle(area.x, y, area.width, Math.min(bandHeight, area.y + area.height - y));
+            BufferedImage image = buffers[band];
+            int index = band;
+            bounds.add(b);
+            tasks.add(THREAD_POOL.submit(() -> paintBand(records, start, firstBand, lastBand, index, b, template, image)));
+        }
+        for (int band = 0; band < bands; band++) {
+            tasks.get(band).join();
+            Rectangle b = bounds.get(band);
+            g.drawImage(buffers[band], b.x, b.y, b.x + b.width, b.y + b.height, 0, 0, b.width, b.height, null);
+        }
+    }
+
+    /**
+     * The state of the graphics context that the band images inherit.
+     */
+    private static final class BandTemplate {
+        private final RenderingHints hints;
+        private final Font font;
+        private final Color color;
+        private final Stroke stroke;
+
+        BandTemplate(Graphics2D g) {
+            hints = (RenderingHints) g.getRenderingHints().clone();
+            font = g.getFont();
+            color = g.getColor();
+            stroke = g.getStroke();
+        }
+
+        void apply(Graphics2D g) {
+            g.setRenderingHints(hints);
+            g.setFont(font);
+            g.setColor(color);
+            g.setStroke(stroke);
+        }
+    }
+
+    private void paintBand(StyleRecord[] records, int start, int[] firstBand, int[] lastBand, int band, Rectangle bounds,
+            BandTemplate template, BufferedImage image) {
+        Graphics2D bandGraphics = image.createGraphics();
+        try {
+            bandGraphics.setComposite(AlphaComposite.Clear);
+            bandGraphics.fillRect(0, 0, bounds.width, bounds.height);
+            bandGraphics.setComposite(AlphaComposite.SrcOver);
+            template.apply(bandGraphics);
+            bandGraphics.translate(-bounds.x, -bounds.y);
+            bandGraphics.clip(bounds);
+            StyledMapRenderer renderer = new StyledMapRenderer(this, bandGraphics);
+            for (int i = 0; i < firstBand.length; i++) {
+                if (firstBand[i] <= band && band <= lastBand[i]) {
+                    renderer.paintRecord(records[start + i]);
+                }
+            }
+        } finally {
+            bandGraphics.dispose();
+        }
+    }
+
+    /**
+     * Computes the vertical extent of a primitive in the view.
+     * @param osm the primitive
+     * @return the minimal and maximal y coordinates, or {@code null} if unknown
+     */
+    private double[] getViewYRange(IPrimitive osm) {
+        BBox bbox = osm.getBBox();
+        if (bbox == null || !bbox.isValid()) {
+            return null;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (LatLon corner : new LatLon[] {bbox.getTopLeft(), bbox.getBottomRight(),
+                new LatLon(bbox.getTopLeftLat(), bbox.getBottomRightLon()), new LatLon(bbox.getBottomRightLat(), bbox.getTopLeftLon())}) {
+            double y = mapState.getPointFor(corner).getInViewY();
+            min = Math.min(min, y);
+            max = Math.max(max, y);
+        }
+        return Double.isNaN(min) || Double.isNaN(max) ? null : new double[] {min, max};
+    }
+
     private void paintRecord(StyleRecord record) {
         try {
             record.paintPrimitive(paintSettings, this);
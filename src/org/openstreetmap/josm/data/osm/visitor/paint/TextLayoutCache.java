@@ -0,0 +1,243 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextLayout;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A bounded memory cache of the laid out label texts, shared by the repaints of the map, so that the renderer does
+ * not need to lay out the glyphs of the same street names and house numbers again and again.
+ * <p>
+ * The texts are laid out unrotated, at the origin: the rotation of a label is applied when it is drawn.
+ * The least recently used texts are dropped when the cache holds more than {@link #PROP_SIZE} texts.
+ */
+public final class TextLayoutCache {
+
+    /**
+     * The maximum number of texts in the cache
+     */
+    public static final IntegerProperty PROP_SIZE = new IntegerProperty("mappaint.text-layout-cache.size", 10_000);
+
+    private static final TextLayoutCache INSTANCE = new TextLayoutCache();
+
+    private final Map<Key, LaidOutText> cache = new LinkedHashMap<Key, LaidOutText>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, LaidOutText> eldest) {
+            return size() > PROP_SIZE.get();
+        }
+    };
+
+    /**
+     * The counters of the lookups of a render pass.
+     */
+    public static final class Statistics {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        /**
+         * Gets the number of texts found in the cache.
+         * @return the number of hits
+         */
+        public long getHits() {
+            return hits.sum();
+        }
+
+        /**
+         * Gets the number of texts laid out.
+         * @return the number of misses
+         */
+        public long getMisses() {
+            return misses.sum();
+        }
+    }
+
+    private static final class Key {
+        private final String text;
+        private final Font font;
+        private final FontRenderContext frc;
+
+        Key(String text, Font font, FontRenderContext frc) {
+            this.text = text;
+            this.font = font;
+            this.frc = frc;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(text, font, frc);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return text.equals(other.text) && font.equals(other.font) && frc.equals(other.frc);
+        }
+    }
+
+    /**
+     * A text laid out in a font. The layout and the outline are computed when they are first needed.
+     */
+    public static final class LaidOutText {
+        private final String text;
+        private final Font font;
+        private final FontRenderContext frc;
+        private final Rectangle2D bounds;
+        private volatile TextLayout layout;
+        private volatile Shape outline;
+        /** the glyph codes and positions of the bidi runs */
+        private volatile int[][] glyphCodes;
+        private volatile float[][] glyphPositions;
+
+        LaidOutText(String text, Font font, FontRenderContext frc) {
+            this.text = text;
+            this.font = font;
+            this.frc = frc;
+            this.bounds = font.getStringBounds(text, frc);
+        }
+
+        /**
+         * Gets the logical bounds of the text, see {@link Font#getStringBounds(String, FontRenderContext)}.
+         * @return the bounds, which must not be modified
+         */
+        public Rectangle2D getBounds() {
+            return bounds;
+        }
+
+        /**
+         * Gets the layout of the text, which can be drawn at the origin.
+         * @return the layout
+         */
+        public TextLayout getLayout() {
+            TextLayout tl = layout;
+            if (tl == null) {
+                tl = new TextLayout(text, font, frc);
+                layout = tl;
+            }
+            return tl;
+        }
+
+        /**
+         * Gets the outline of the text at the origin.
+         * @return the outline, which must not be modified
+         */
+        public Shape getOutline() {
+            Shape s = outline;
+            if (s == null) {
+                s = getLayout().getOutline(null);
+                outline = s;
+            }
+            return s;
+        }
+
+        /**
+         * Creates the glyph vectors of the text, as {@link Utils#getGlyphVectorsBidi} does.
+         * The glyph vectors are new, so that they can be modified.
+         * @return the glyph vectors, one for each run of the text in visual order
+         */
+        public List<GlyphVector> createGlyphVectors() {
+            if (glyphCodes == null) {
+                List<GlyphVector> gvs = Utils.getGlyphVectorsBidi(text, font, frc);
+                int[][] codes = new int[gvs.size()][];
+                float[][] positions = new float[gvs.size()][];
+                for (int i = 0; i < gvs.size(); i++) {
+                    GlyphVector gv = gvs.get(i);
+                    codes[i] = gv.getGlyphCodes(0, gv.getNumGlyphs(), null);
+                    positions[i] = gv.getGlyphPositions(0, gv.getNumGlyphs() + 1, null);
+                }
+                glyphPositions = positions;
+                glyphCodes = codes;
+                return gvs;
+            }
+            int[][] codes = glyphCodes;
+            float[][] positions = glyphPositions;
+            List<GlyphVector> gvs = new ArrayList<>(codes.length);
+            for (int i = 0; i < codes.length; i++) {
+                GlyphVector gv = font.createGlyphVector(frc, codes[i]);
+                for (int j = 0; j <= codes[i].length; j++) {
+                    gv.setGlyphPosition(j, new Point2D.Float(positions[i][2 * j], positions[i][2 * j + 1]));
+                }
+                gvs.add(gv);
+            }
+            return gvs;
+        }
+    }
+
+    private TextLayoutCache() {
+        // Hide default constructor
+    }
+
+    /**
+     * Replies the unique instance.
+     * @return the unique instance
+     */
+    public static TextLayoutCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets a laid out text, from the cache if possible.
+     * @param text the text
+     * @param font the font
+     * @param frc the font render context of the graphics context
+     * @param statistics the counters to update
+     * @return the laid out text
+     */
+    public LaidOutText get(String text, Font font, FontRenderContext frc, Statistics statistics) {
+        Key key = new Key(text, font, frc);
+        LaidOutText laidOut;
+        synchronized (cache) {
+            laidOut = cache.get(key);
+        }
+        if (laidOut != null) {
+            statistics.hits.increment();
+            return laidOut;
+        }
+        statistics.misses.increment();
+        laidOut = new LaidOutText(text, font, frc);
+        synchronized (cache) {
+            cache.put(key, laidOut);
+        }
+        return laidOut;
+    }
+
+    /**
+     * Clears the cache.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Gets the number of texts in the cache.
+     * @return the number of texts
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+}
@@ -0,0 +1,289 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.preferences.AbstractProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.data.projection.Projecting;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerAddEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerChangeListener;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerOrderChangeEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.tools.Geometry;
+import org.openstreetmap.josm.tools.Geometry.AreaAndPerimeter;
+
+/**
+ * A memory cache of the projected geometry of ways, used by the map renderer so that repaints do not need
+ * to project the nodes again.
+ * <p>
+ * Only the ways of the datasets given to {@link #register(DataSet)} are cached, since the cache has to listen to their changes.
+ * The datasets of the data layers are registered while the layers are in the layer manager.
+ * The entries are dropped when the nodes of a way change or move, and when the projection changes. The least recently
+ * used entries are dropped when a dataset has more than {@link #PROP_MAX_SIZE} cached ways.
+ */
+public final class WayGeometryCache implements DataSetListener, LayerChangeListener, ProjectionChangeListener {
+
+    /**
+     * The maximum number of cached ways per dataset
+     */
+    public static final AbstractProperty<Integer> PROP_MAX_SIZE = new IntegerProperty("mappaint.way-geometry-cache.size", 50_000).cached();
+
+    private static final WayGeometryCache INSTANCE = new WayGeometryCache();
+
+    private final Map<DataSet, Map<Way, WayGeometry>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * The cached geometry of a way.
+     */
+    private static final class WayGeometry {
+        private final Way way;
+        private final Projecting projecting;
+        private final double[] eastNorth;
+        private volatile AreaAndPerimeter areaAndPerimeter;
+
+        WayGeometry(Way way, Projecting projecting, double[] eastNorth) {
+            this.way = way;
+            this.projecting = projecting;
+            this.eastNorth = eastNorth;
+        }
+    }
+
+    private WayGeometryCache() {
+        Main.addProjectionChangeListener(this);
+        MainApplication.getLayerManager().addAndFireLayerChangeListener(this);
+    }
+
+    /**
+     * Replies the unique instance.
+     * @return the unique instance
+     */
+    public static WayGeometryCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts caching the geometry of the ways of the given dataset.
+     * The datasets of the data layers are registered when the layers are added to the layer manager, and the cache of
+     * the dataset is dropped when its layer is removed.
+     * @param ds the data set
+     */
+    public void register(DataSet ds) {
+        if (cache.putIfAbsent(ds, newLruMap()) == null) {
+            ds.addDataSetListener(this);
+        }
+    }
+
+    private static Map<Way, WayGeometry> newLruMap() {
+        return Collections.synchronizedMap(new LinkedHashMap<Way, WayGeometry>(256, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Way, WayGeometry> eldest) {
+                return size() > PROP_MAX_SIZE.get();
+            }
+        });
+    }
+
+    /**
+     * Stops caching the geometry of the ways of the given dataset.
+     * @param ds the data set
+     */
+    public void unregister(DataSet ds) {
+        if (cache.remove(ds) != null) {
+            ds.removeDataSetListener(this);
+        }
+    }
+
+    /**
+     * Determines if the given dataset is registered.
+     * @param ds the data set
+     * @return {@code true} if the dataset is registered
+     */
+    boolean isRegistered(DataSet ds) {
+        return cache.containsKey(ds);
+    }
+
+    /**
+     * Clears the whole cache. The datasets stay registered.
+     */
+    public void clear() {
+        for (Map<Way, WayGeometry> map : cache.values()) {
+            map.clear();
+        }
+    }
+
+    /**
+     * Gets the cached geometry of a way, computing it if needed.
+     * @param w the way
+     * @param projecting the projection of the coordinates, {@code null} to accept the cached coordinates of any projection
+     * @return the geometry, or {@code null} if it cannot be cached
+     */
+    private WayGeometry get(Way w, Projecting projecting) {
+        Map<Way, WayGeometry> map = w.getDataSet() != null ? cache.get(w.getDataSet()) : null;
+        if (map == null) {
+            return null;
+        }
+        WayGeometry geometry = map.get(w);
+        if (geometry == null || geometry.way != w || (projecting != null && geometry.projecting != projecting)) {
+            Projecting p = projecting != null ? projecting : Main.getProjection();
+            double[] eastNorth = project(w.getNodes(), p);
+            if (eastNorth == null) {
+                return null;
+            }
+            geometry = new WayGeometry(w, p, eastNorth);
+            map.put(w, geometry);
+        }
+        return geometry;
+    }
+
+    private static double[] project(List<Node> nodes, Projecting projecting) {
+        double[] eastNorth = new double[2 * nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            EastNorth en = nodes.get(i).getEastNorth(projecting);
+            if (en == null) {
+                return null;
+            }
+            eastNorth[2 * i] = en.east();
+            eastNorth[2 * i + 1] = en.north();
+        }
+        return eastNorth;
+    }
+
+    /**
+     * Gets the projected coordinates of the nodes of a way.
+     * @param w the way
+     * @param projecting the projection
+     * @return the east and north coordinates of the nodes, alternately, which must not be modified,
+     * or {@code null} if the dataset of the way is not registered or a node has no coordinates
+     */
+    public double[] getEastNorth(Way w, Projecting projecting) {
+        WayGeometry geometry = get(w, projecting);
+        return geometry != null ? geometry.eastNorth : null;
+    }
+
+    /**
+     * Gets the area and the perimeter of a way in the current projection, see {@link Geometry#getAreaAndPerimeter(List)}.
+     * @param w the way
+     * @return the area and the perimeter, cached if the dataset of the way is registered
+     */
+    public AreaAndPerimeter getAreaAndPerimeter(Way w) {
+        // the area does not depend on the projection of the cached coordinates
+        WayGeometry geometry = get(w, null);
+        if (geometry == null) {
+            return Geometry.getAreaAndPerimeter(w.getNodes());
+        }
+        AreaAndPerimeter ap = geometry.areaAndPerimeter;
+        if (ap == null) {
+            ap = Geometry.getAreaAndPerimeter(w.getNodes());
+            geometry.areaAndPerimeter = ap;
+        }
+        return ap;
+    }
+
+    private void remove(DataSet ds, Way w) {
+        Map<Way, WayGeometry> map = cache.get(ds);
+        if (map != null) {
+            map.remove(w);
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        for (OsmPrimitive p : event.getPrimitives()) {
+            if (p instanceof Way) {
+                remove(event.getDataset(), (Way) p);
+            }
+        }
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        for (OsmPrimitive p : event.getNode().getReferrers()) {
+            if (p instanceof Way) {
+                remove(event.getDataset(), (Way) p);
+            }
+        }
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        remove(event.getDataset(), event.getChangedWay());
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        // sent instead of the individual events when many primitives changed
+        Map<Way, WayGeometry> map = cache.get(event.getDataset());
+        if (map != null) {
+            map.clear();
+        }
+    }
+
+    @Override
+    public void layerAdded(LayerAddEvent e) {
+        if (e.getAddedLayer() instanceof OsmDataLayer) {
+            register(((OsmDataLayer) e.getAddedLayer()).data);
+        }
+    }
+
+    @Override
+    public void layerOrderChanged(LayerOrderChangeEvent e) {
+        // Do nothing
+    }
+
+    @Override
+    public void layerRemoving(LayerRemoveEvent e) {
+        if (e.getRemovedLayer() instanceof OsmDataLayer) {
+            unregister(((OsmDataLayer) e.getRemovedLayer()).data);
+        }
+    }
+
+    @Override
+    public void projectionChanged(Projection oldValue, Projection newValue) {
+        clear();
+    }
+}
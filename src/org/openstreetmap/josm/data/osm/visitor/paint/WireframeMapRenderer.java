@@ -7,13 +7,17 @@ import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Rectangle2D;
 import java.awt.geom.Rectangle2D.Double;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.osm.BBox;
@@ -25,6 +29,8 @@ import org.openstreetmap.josm.data.osm.IWay;
 import org.openstreetmap.josm.data.osm.OsmData;
 import org.openstreetmap.josm.data.osm.WaySegment;
 import org.openstreetmap.josm.data.osm.visitor.PrimitiveVisitor;
+import org.openstreetmap.josm.data.preferences.AbstractProperty;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.gui.MapViewState.MapViewPoint;
 import org.openstreetmap.josm.gui.MapViewState.MapViewRectangle;
 import org.openstreetmap.josm.gui.NavigatableComponent;
@@ -39,6 +45,15 @@ import org.openstreetmap.josm.tools.Utils;
  */
 public class WireframeMapRenderer extends AbstractMapRenderer implements PrimitiveVisitor {
 
+    /**
+     * Preference: should the segments and nodes be accumulated by color during a render pass, and drawn with one
+     * color change for each color instead of one for each run of segments and one for each node.
+     * <p>
+     * Disabled by default: batching draws the primitives grouped by color, so overlapping primitives of different colors
+     * may be drawn in another order.
+     */
+    public static final AbstractProperty<Boolean> PROP_BATCH = new BooleanProperty("mappaint.wireframe.batch", false).cached();
+
     /** Color Preference for ways not matching any other group */
     protected Color dfltWayColor;
     /** Color Preference for relations */
@@ -83,6 +98,43 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
     /** Path store to draw subsequent segments of same color as one <code>Path</code>. */
     protected MapPath2D currentPath = new MapPath2D();
 
+    /** Whether the segments and nodes are batched during the current render pass, see {@link #PROP_BATCH} */
+    private boolean batch;
+    /** Whether the nodes are batched too, which requires them to be on the pixel grid */
+    private boolean batchNodes;
+    /** The segments of the current group of ways, by color, in the order the colors were first used */
+    private final Map<Color, MapPath2D> segmentPaths = new LinkedHashMap<>();
+    /** The nodes of the current group, by color, in the order the colors were first used */
+    private final Map<Color, NodeBatch> nodeBatches = new LinkedHashMap<>();
+
+    /**
+     * The squares of the nodes of a color, on the pixel grid.
+     */
+    private static final class NodeBatch {
+        /** x, y, size and fill flag of each square */
+        private int[] squares = new int[64];
+        private int length;
+
+        void add(int x, int y, int size, boolean fill) {
+            if (length + 4 > squares.length) {
+                squares = Arrays.copyOf(squares, squares.length * 2);
+            }
+            squares[length++] = x;
+            squares[length++] = y;
+            squares[length++] = size;
+            squares[length++] = fill ? 1 : 0;
+        }
+
+        void draw(Graphics2D g) {
+            for (int i = 0; i < length; i += 4) {
+                if (squares[i + 3] != 0) {
+                    g.fillRect(squares[i], squares[i + 1], squares[i + 2], squares[i + 2]);
+                }
+                g.drawRect(squares[i], squares[i + 1], squares[i + 2], squares[i + 2]);
+            }
+        }
+    }
+
     /** Helper variable for {@link #drawSegment} */
     private static final ArrowPaintHelper ARROW_PAINT_HELPER = new ArrowPaintHelper(Utils.toRadians(20), 10);
 
@@ -152,7 +204,24 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
         clip.grow(50, 50);
         viewClip = mapState.getViewArea(clip);
         getSettings(virtual);
+        batch = PROP_BATCH.get();
+        AffineTransform transform = g.getTransform();
+        batchNodes = batch && !RenderingHints.VALUE_ANTIALIAS_ON.equals(g.getRenderingHint(RenderingHints.KEY_ANTIALIASING))
+                && !RenderingHints.VALUE_STROKE_PURE.equals(g.getRenderingHint(RenderingHints.KEY_STROKE_CONTROL))
+                && (transform.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0
+                && transform.getTranslateX() == Math.rint(transform.getTranslateX())
+                && transform.getTranslateY() == Math.rint(transform.getTranslateY());
+        try {
+            renderBatches(data, bbox);
+        } finally {
+            batch = false;
+            batchNodes = false;
+            segmentPaths.clear();
+            nodeBatches.clear();
+        }
+    }
 
+    private void renderBatches(OsmData<?, ?, ?, ?> data, BBox bbox) {
         for (final IRelation<?> rel : data.searchRelations(bbox)) {
             if (rel.isDrawable() && !rel.isSelected() && !rel.isDisabledAndHidden()) {
                 rel.accept(this);
@@ -197,6 +266,7 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
                 osm.accept(this);
             }
         }
+        displayNodes();
         drawVirtualNodes(data, bbox);
 
         // draw highlighted way segments over the already drawn ways. Otherwise each
@@ -235,6 +305,8 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
         if (n.isHighlighted()) {
             drawNode(n, highlightColor, selectedNodeSize, fillSelectedNode);
         } else {
+            final boolean tagged = isNodeTagged(n);
+            final boolean connection = n.isConnectionNode();
             Color color;
 
             if (isInactiveMode || n.isDisabled()) {
@@ -243,14 +315,14 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
                 color = selectedColor;
             } else if (n.isMemberOfSelected()) {
                 color = relationSelectedColor;
-            } else if (n.isConnectionNode()) {
-                if (isNodeTagged(n)) {
+            } else if (connection) {
+                if (tagged) {
                     color = taggedConnectionColor;
                 } else {
                     color = connectionColor;
                 }
             } else {
-                if (isNodeTagged(n)) {
+                if (tagged) {
                     color = taggedColor;
                 } else {
                     color = nodeColor;
@@ -258,13 +330,13 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
             }
 
             final int size = max(n.isSelected() ? selectedNodeSize : 0,
-                    isNodeTagged(n) ? taggedNodeSize : 0,
-                    n.isConnectionNode() ? connectionNodeSize : 0,
+                    tagged ? taggedNodeSize : 0,
+                    connection ? connectionNodeSize : 0,
                     unselectedNodeSize);
 
             final boolean fill = (n.isSelected() && fillSelectedNode) ||
-            (isNodeTagged(n) && fillTaggedNode) ||
-            (n.isConnectionNode() && fillConnectionNode) ||
+            (tagged && fillTaggedNode) ||
+            (connection && fillConnectionNode) ||
             fillUnselectedNode;
 
             drawNode(n, color, size, fill);
@@ -387,7 +459,20 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
             if (!p.isInView())
                 return;
             int radius = size / 2;
-            Double shape = new Rectangle2D.Double(p.getInViewX() - radius, p.getInViewY() - radius, size, size);
+            double x = p.getInViewX() - radius;
+            double y = p.getInViewY() - radius;
+            if (batchNodes) {
+                // the pixels of a rectangle drawn without antialiasing and with normalized strokes
+                int x1 = (int) Math.floor(x + 0.25);
+                int x2 = (int) Math.floor(x + size + 0.25);
+                int y1 = (int) Math.floor(y + 0.25);
+                int y2 = (int) Math.floor(y + size + 0.25);
+                if (x2 - x1 == y2 - y1) {
+                    nodeBatches.computeIfAbsent(color, c -> new NodeBatch()).add(x1, y1, x2 - x1, fill);
+                    return;
+                }
+            }
+            Double shape = new Rectangle2D.Double(x, y, size, size);
             g.setColor(color);
             if (fill) {
                 g.fill(shape);
@@ -423,6 +508,10 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
      * @since 10827
      */
     protected void drawSegment(MapViewPoint p1, MapViewPoint p2, Color col, boolean showDirection) {
+        if (batch) {
+            drawSegment(segmentPaths.computeIfAbsent(col, c -> new MapPath2D()), p1, p2, showDirection);
+            return;
+        }
         if (!col.equals(currentColor)) {
             displaySegments(col);
         }
@@ -438,10 +527,19 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
 
     /**
      * Finally display all segments in currect path.
+     * <p>
+     * When batching, the nodes and the segments accumulated since the last call are displayed, by color.
+     * The nodes are displayed first, since they were drawn before the segments without batching.
      *
      * @param newColor This color is set after the path is drawn.
      */
     protected void displaySegments(Color newColor) {
+        displayNodes();
+        for (Map.Entry<Color, MapPath2D> e : segmentPaths.entrySet()) {
+            g.setColor(e.getKey());
+            g.draw(e.getValue());
+        }
+        segmentPaths.clear();
         if (currentPath != null) {
             g.setColor(currentColor);
             g.draw(currentPath);
@@ -449,4 +547,15 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
             currentColor = newColor;
         }
     }
+
+    /**
+     * Display the nodes accumulated since the last call, by color.
+     */
+    private void displayNodes() {
+        for (Map.Entry<Color, NodeBatch> e : nodeBatches.entrySet()) {
+            g.setColor(e.getKey());
+            e.getValue().draw(g);
+        }
+        nodeBatches.clear();
+    }
 }
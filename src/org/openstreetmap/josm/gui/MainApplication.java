@@ -169,6 +169,7 @@ import org.openstreetmap.josm.tools.PlatformHook.NativeOsCallback;
 import org.openstreetmap.josm.tools.PlatformHookWindows;
 import org.openstreetmap.josm.tools.RightAndLefthandTraffic;
 import org.openstreetmap.josm.tools.Shortcut;
+import org.openstreetmap.josm.tools.StartupProfile;
 import org.openstreetmap.josm.tools.Territories;
 import org.openstreetmap.josm.tools.Utils;
 import org.openstreetmap.josm.tools.bugreport.BugReportExceptionHandler;
@@ -806,6 +807,8 @@ public class MainApplication extends Main {
                 "\t--version                                 "+tr("Displays the JOSM version and exits")+"\n\n"+
                 "\t--debug                                   "+tr("Print debugging messages to console")+"\n\n"+
                 "\t--skip-plugins                            "+tr("Skip loading plugins")+"\n\n"+
+                "\t--training-run                            "+tr("Record startup timings, loaded classes and generated resources"
+                        + " in the cache directory, to preload classes on next launches and build a class data sharing archive")+"\n\n"+
                 "\t--offline=<osm_api|josm_website|all>      "+tr("Disable access to the given resource(s), separated by comma")+"\n\n"+
                 tr("options provided as Java system properties")+":\n"+
                 align("\t-Djosm.dir.name=JOSM") + tr("Change the JOSM directory name") + "\n\n" +
@@ -941,6 +944,10 @@ public class MainApplication extends Main {
 
         args.getPreferencesToSet().forEach(Main.pref::put);
 
+        if (!args.hasOption(Option.TRAINING_RUN)) {
+            StartupProfile.preloadClasses(StartupProfile.getDefaultDirectory(), MainApplication.class.getClassLoader());
+        }
+
         if (!language.isPresent()) {
             I18n.set(Config.getPref().get("language", null));
         }
@@ -1044,7 +1051,9 @@ public class MainApplication extends Main {
         Collection<PluginInformation> pluginsToLoad = null;
 
         if (!skipLoadingPlugins) {
+            long start = System.currentTimeMillis();
             pluginsToLoad = updateAndLoadEarlyPlugins(splash, monitor);
+            StartupProfile.record(tr("Loading early plugins"), start, System.currentTimeMillis());
         }
 
         monitor.indeterminateSubTask(tr("Setting defaults"));
@@ -1060,7 +1069,8 @@ public class MainApplication extends Main {
         main.initialize();
 
         if (!skipLoadingPlugins) {
-            loadLatePlugins(splash, monitor, pluginsToLoad);
+            final Collection<PluginInformation> latePlugins = pluginsToLoad;
+            StartupProfile.run(tr("Loading late plugins"), () -> loadLatePlugins(splash, monitor, latePlugins));
         }
 
         // Wait for splash disappearance (fix #9714)
@@ -1424,6 +1434,15 @@ public class MainApplication extends Main {
 
             // Show download dialog if autostart is enabled
             DownloadDialog.autostartIfNeeded();
+
+            StartupProfile.recordSinceJvmStart(tr("JOSM startup"));
+            if (args.hasOption(Option.TRAINING_RUN)) {
+                try {
+                    StartupProfile.writeTrainingRun(StartupProfile.getDefaultDirectory(), MainApplication.class.getClassLoader());
+                } catch (IOException e) {
+                    Logging.error(e);
+                }
+            }
         }
 
         private static void handleAutosave() {
@@ -84,6 +84,12 @@ public final class MapViewState implements Serializable {
     private final Point topLeftOnScreen;
     private final Point topLeftInWindow;
 
+    /**
+     * The view area and the view clip rectangle, computed once since they are used for each drawn segment.
+     */
+    private final transient MapViewRectangle viewArea;
+    private final transient MapViewRectangle viewClipRectangle;
+
     /**
      * Create a new {@link MapViewState}
      * @param projection The projection to use.
@@ -109,6 +115,10 @@ public final class MapViewState implements Serializable {
         this.viewHeight = viewHeight;
         this.topLeftInWindow = topLeftInWindow;
         this.topLeftOnScreen = topLeftOnScreen;
+
+        this.viewArea = getForView(0, 0).rectTo(getForView(viewWidth, viewHeight));
+        this.viewClipRectangle = getForView(-CLIP_BOUNDS, -CLIP_BOUNDS)
+                .rectTo(getForView(viewWidth + CLIP_BOUNDS, viewHeight + CLIP_BOUNDS));
     }
 
     private MapViewState(Projecting projection, int viewWidth, int viewHeight, double scale, EastNorth topLeft) {
@@ -132,6 +142,15 @@ public final class MapViewState implements Serializable {
         this(projecting, mvs.viewWidth, mvs.viewHeight, mvs.scale, mvs.topLeft, mvs.topLeftInWindow, mvs.topLeftOnScreen);
     }
 
+    /**
+     * Rebuilds a deserialized state through the constructor, since the projection, the view area and the view clip
+     * rectangle are not serialized. The current projection is used.
+     * @return the rebuilt state
+     */
+    private Object readResolve() {
+        return new MapViewState(Main.getProjection(), viewWidth, viewHeight, scale, topLeft, topLeftInWindow, topLeftOnScreen);
+    }
+
     private static Point findTopLeftInWindow(JComponent position) {
         Point result = new Point();
         // better than using swing utils, since this allows us to use the method if no screen is present.
@@ -185,6 +204,32 @@ public final class MapViewState implements Serializable {
         return new MapViewViewPoint(x, y);
     }
 
+    /**
+     * Gets the x coordinate in view space of an east coordinate, without creating an intermediate object.
+     * @param east The east coordinate
+     * @return The x coordinate
+     */
+    public double getInViewX(double east) {
+        return (east - topLeft.east()) / scale;
+    }
+
+    /**
+     * Gets the y coordinate in view space of a north coordinate, without creating an intermediate object.
+     * @param north The north coordinate
+     * @return The y coordinate
+     */
+    public double getInViewY(double north) {
+        return (topLeft.north() - north) / scale;
+    }
+
+    /**
+     * Creates a point whose position can be changed, to convert many positions without creating an object for each of them.
+     * @return A new point, at the top left corner of the view.
+     */
+    public MutableMapViewPoint createMutablePoint() {
+        return new MutableMapViewPoint();
+    }
+
     /**
      * Gets the {@link MapViewPoint} for the given {@link EastNorth} coordinate.
      * @param eastNorth the position.
@@ -237,7 +282,7 @@ public final class MapViewState implements Serializable {
      * @return The rectangle.
      */
     public MapViewRectangle getViewArea() {
-        return getForView(0, 0).rectTo(getForView(viewWidth, viewHeight));
+        return viewArea;
     }
 
     /**
@@ -307,7 +352,7 @@ public final class MapViewState implements Serializable {
      * @return The rectangle.
      */
     public MapViewRectangle getViewClipRectangle() {
-        return getForView(-CLIP_BOUNDS, -CLIP_BOUNDS).rectTo(getForView(getViewWidth() + CLIP_BOUNDS, getViewHeight() + CLIP_BOUNDS));
+        return viewClipRectangle;
     }
 
     /**
@@ -552,16 +597,17 @@ public final class MapViewState implements Serializable {
          * @since 10827
          */
         public int getOutsideRectangleFlags(MapViewRectangle rect) {
-            Rectangle2D bounds = rect.getInView();
+            double x = getInViewX();
+            double y = getInViewY();
             int flags = 0;
-            if (getInViewX() < bounds.getMinX()) {
+            if (x < rect.minX) {
                 flags |= OUTSIDE_LEFT;
-            } else if (getInViewX() > bounds.getMaxX()) {
+            } else if (x > rect.maxX) {
                 flags |= OUTSIDE_RIGHT;
             }
-            if (getInViewY() < bounds.getMinY()) {
+            if (y < rect.minY) {
                 flags |= OUTSIDE_TOP;
-            } else if (getInViewY() > bounds.getMaxY()) {
+            } else if (y > rect.maxY) {
                 flags |= OUTSIDE_BOTTOM;
             }
 
@@ -647,12 +693,12 @@ public final class MapViewState implements Serializable {
 
         @Override
         public double getInViewX() {
-            return (eastNorth.east() - topLeft.east()) / scale;
+            return MapViewState.this.getInViewX(eastNorth.east());
         }
 
         @Override
         public double getInViewY() {
-            return (topLeft.north() - eastNorth.north()) / scale;
+            return MapViewState.this.getInViewY(eastNorth.north());
         }
 
         @Override
@@ -666,6 +712,86 @@ public final class MapViewState implements Serializable {
         }
     }
 
+    /**
+     * A {@link MapViewPoint} whose position can be changed. A loop over the nodes of a way can convert all of them with
+     * one instance instead of creating a point for each node.
+     * <p>
+     * The position of the point changes, so it must not be kept by the methods it is given to: the points which are stored
+     * must be created by {@link MapViewState#getForView(double, double)} or {@link MapViewState#getPointFor(EastNorth)}.
+     * A {@link MapViewRectangle} copies the mutable points it is created with.
+     */
+    public final class MutableMapViewPoint extends MapViewPoint {
+        private double x;
+        private double y;
+
+        private MutableMapViewPoint() {
+            // use createMutablePoint()
+        }
+
+        /**
+         * Moves this point to a position in view coordinates.
+         * @param x The x coordinate inside the view.
+         * @param y The y coordinate inside the view.
+         * @return this for easy chaining.
+         */
+        public MutableMapViewPoint setInView(double x, double y) {
+            this.x = x;
+            this.y = y;
+            return this;
+        }
+
+        /**
+         * Moves this point to an {@link EastNorth} coordinate.
+         * @param eastNorth the position.
+         * @return this for easy chaining.
+         */
+        public MutableMapViewPoint setEastNorth(EastNorth eastNorth) {
+            return setInView(MapViewState.this.getInViewX(eastNorth.east()), MapViewState.this.getInViewY(eastNorth.north()));
+        }
+
+        /**
+         * Moves this point to a {@link LatLon} coordinate. This uses the east/north cache of the nodes.
+         * @param latlon the position
+         * @return this for easy chaining.
+         */
+        public MutableMapViewPoint setLatLon(ILatLon latlon) {
+            if (latlon instanceof Node && ((Node) latlon).isLatLonKnown()) {
+                Node node = (Node) latlon;
+                return setInView(MapViewState.this.getInViewX(node.getEast(projecting)),
+                        MapViewState.this.getInViewY(node.getNorth(projecting)));
+            }
+            EastNorth eastNorth = latlon.getEastNorth(projecting);
+            if (eastNorth == null) {
+                throw BugReport.intercept(new IllegalArgumentException()).put("latlon", latlon);
+            }
+            return setEastNorth(eastNorth);
+        }
+
+        /**
+         * Moves this point to the position of an other point.
+         * @param p The other point
+         * @return this for easy chaining.
+         */
+        public MutableMapViewPoint setTo(MapViewPoint p) {
+            return setInView(p.getInViewX(), p.getInViewY());
+        }
+
+        @Override
+        public double getInViewX() {
+            return x;
+        }
+
+        @Override
+        public double getInViewY() {
+            return y;
+        }
+
+        @Override
+        public String toString() {
+            return "MutableMapViewPoint [x=" + x + ", y=" + y + ']';
+        }
+    }
+
     /**
      * A rectangle on the MapView. It is rectangular in screen / EastNorth space.
      * @author Michael Zangl
@@ -673,6 +799,14 @@ public final class MapViewState implements Serializable {
     public class MapViewRectangle {
         private final MapViewPoint p1;
         private final MapViewPoint p2;
+        /** the bounds in view and projection space, the corners of the rectangle cannot change */
+        private final double minX;
+        private final double minY;
+        private final double width;
+        private final double height;
+        private final double maxX;
+        private final double maxY;
+        private final ProjectionBounds projectionBounds;
 
         /**
          * Create a new MapViewRectangle
@@ -680,8 +814,21 @@ public final class MapViewState implements Serializable {
          * @param p2 The second point to use.
          */
         MapViewRectangle(MapViewPoint p1, MapViewPoint p2) {
-            this.p1 = p1;
-            this.p2 = p2;
+            // a mutable point would change the corners of the rectangle
+            this.p1 = p1 instanceof MutableMapViewPoint ? getForView(p1.getInViewX(), p1.getInViewY()) : p1;
+            this.p2 = p2 instanceof MutableMapViewPoint ? getForView(p2.getInViewX(), p2.getInViewY()) : p2;
+            double x1 = this.p1.getInViewX();
+            double y1 = this.p1.getInViewY();
+            double x2 = this.p2.getInViewX();
+            double y2 = this.p2.getInViewY();
+            this.minX = Math.min(x1, x2);
+            this.minY = Math.min(y1, y2);
+            this.width = Math.abs(x1 - x2);
+            this.height = Math.abs(y1 - y2);
+            // like Rectangle2D#getMaxX/getMaxY
+            this.maxX = minX + width;
+            this.maxY = minY + height;
+            this.projectionBounds = getProjectionBounds();
         }
 
         /**
@@ -722,11 +869,7 @@ public final class MapViewState implements Serializable {
          * @since 10651
          */
         public Rectangle2D getInView() {
-            double x1 = p1.getInViewX();
-            double y1 = p1.getInViewY();
-            double x2 = p2.getInViewX();
-            double y2 = p2.getInViewY();
-            return new Rectangle2D.Double(Math.min(x1, x2), Math.min(y1, y2), Math.abs(x1 - x2), Math.abs(y1 - y2));
+            return new Rectangle2D.Double(minX, minY, width, height);
         }
 
         /**
@@ -745,23 +888,25 @@ public final class MapViewState implements Serializable {
          * @return The entry point or <code>null</code> if the line does not intersect this view.
          */
         public MapViewPoint getLineEntry(MapViewPoint start, MapViewPoint end) {
-            ProjectionBounds bounds = getProjectionBounds();
-            if (bounds.contains(start.getEastNorth())) {
+            ProjectionBounds bounds = projectionBounds;
+            EastNorth startEastNorth = start.getEastNorth();
+            if (bounds.contains(startEastNorth)) {
                 return start;
             }
 
-            double dx = end.getEastNorth().east() - start.getEastNorth().east();
+            EastNorth endEastNorth = end.getEastNorth();
+            double dx = endEastNorth.east() - startEastNorth.east();
             double boundX = dx > 0 ? bounds.minEast : bounds.maxEast;
-            EastNorth borderIntersection = Geometry.getSegmentSegmentIntersection(start.getEastNorth(), end.getEastNorth(),
+            EastNorth borderIntersection = Geometry.getSegmentSegmentIntersection(startEastNorth, endEastNorth,
                     new EastNorth(boundX, bounds.minNorth),
                     new EastNorth(boundX, bounds.maxNorth));
             if (borderIntersection != null) {
                 return getPointFor(borderIntersection);
             }
 
-            double dy = end.getEastNorth().north() - start.getEastNorth().north();
+            double dy = endEastNorth.north() - startEastNorth.north();
             double boundY = dy > 0 ? bounds.minNorth : bounds.maxNorth;
-            borderIntersection = Geometry.getSegmentSegmentIntersection(start.getEastNorth(), end.getEastNorth(),
+            borderIntersection = Geometry.getSegmentSegmentIntersection(startEastNorth, endEastNorth,
                     new EastNorth(bounds.minEast, boundY),
                     new EastNorth(bounds.maxEast, boundY));
             if (borderIntersection != null) {
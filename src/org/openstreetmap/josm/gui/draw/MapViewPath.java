@@ -4,12 +4,14 @@ package org.openstreetmap.josm.gui.draw;
 import java.awt.BasicStroke;
 import java.awt.Shape;
 import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Path2D;
 import java.awt.geom.PathIterator;
 import java.util.ArrayList;
 
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.visitor.paint.OffsetIterator;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.gui.MapViewState;
@@ -59,7 +61,13 @@ public class MapViewPath extends MapPath2D {
      * @return this for easy chaining.
      */
     public MapViewPath moveTo(ILatLon n) {
-        moveTo(n.getEastNorth(state.getProjecting()));
+        if (n instanceof Node && ((Node) n).isLatLonKnown()) {
+            // avoid creating an EastNorth for each node
+            Node node = (Node) n;
+            moveTo(state.getInViewX(node.getEast(state.getProjecting())), state.getInViewY(node.getNorth(state.getProjecting())));
+        } else {
+            moveTo(n.getEastNorth(state.getProjecting()));
+        }
         return this;
     }
 
@@ -69,7 +77,7 @@ public class MapViewPath extends MapPath2D {
      * @return this for easy chaining.
      */
     public MapViewPath moveTo(EastNorth eastNorth) {
-        moveTo(state.getPointFor(eastNorth));
+        moveTo(state.getInViewX(eastNorth.east()), state.getInViewY(eastNorth.north()));
         return this;
     }
 
@@ -87,7 +95,12 @@ public class MapViewPath extends MapPath2D {
      * @return this for easy chaining.
      */
     public MapViewPath lineTo(ILatLon n) {
-        lineTo(n.getEastNorth(state.getProjecting()));
+        if (n instanceof Node && ((Node) n).isLatLonKnown()) {
+            Node node = (Node) n;
+            lineTo(state.getInViewX(node.getEast(state.getProjecting())), state.getInViewY(node.getNorth(state.getProjecting())));
+        } else {
+            lineTo(n.getEastNorth(state.getProjecting()));
+        }
         return this;
     }
 
@@ -99,7 +112,7 @@ public class MapViewPath extends MapPath2D {
      * @return this for easy chaining.
      */
     public MapViewPath lineTo(EastNorth eastNorth) {
-        lineTo(state.getPointFor(eastNorth));
+        lineTo(state.getInViewX(eastNorth.east()), state.getInViewY(eastNorth.north()));
         return this;
     }
 
@@ -161,6 +174,39 @@ public class MapViewPath extends MapPath2D {
         return this;
     }
 
+    /**
+     * Append a list of points given by their east/north coordinates in the projection of the map view state.
+     * <p>
+     * This is faster than {@link #append(Iterable, boolean)} for already projected points.
+     * @param eastNorth The east and north coordinates of the points, alternately
+     * @param connect <code>true</code> if we should use a lineTo as first command.
+     * @param close <code>true</code> to add a line back to the first point
+     * @return this for easy chaining.
+     */
+    public MapViewPath appendEastNorth(double[] eastNorth, boolean connect, boolean close) {
+        if (eastNorth.length < 2) {
+            return this;
+        }
+        AffineTransform transform = state.getAffineTransform();
+        double scaleX = transform.getScaleX();
+        double scaleY = transform.getScaleY();
+        double translateX = transform.getTranslateX();
+        double translateY = transform.getTranslateY();
+        for (int i = 0; i < eastNorth.length; i += 2) {
+            double x = eastNorth[i] * scaleX + translateX;
+            double y = eastNorth[i + 1] * scaleY + translateY;
+            if (i == 0 && !connect) {
+                moveTo(x, y);
+            } else {
+                lineTo(x, y);
+            }
+        }
+        if (close) {
+            lineTo(eastNorth[0] * scaleX + translateX, eastNorth[1] * scaleY + translateY);
+        }
+        return this;
+    }
+
     private void appendWay(Iterable<? extends ILatLon> nodes, boolean connect, boolean close) {
         boolean useMoveTo = !connect;
         ILatLon first = null;
@@ -189,12 +235,12 @@ public class MapViewPath extends MapPath2D {
         new PathVisitor() {
             @Override
             public void visitMoveTo(double x, double y) {
-                moveTo(new EastNorth(x, y));
+                moveTo(state.getInViewX(x), state.getInViewY(y));
             }
 
             @Override
             public void visitLineTo(double x, double y) {
-                lineTo(new EastNorth(x, y));
+                lineTo(state.getInViewX(x), state.getInViewY(y));
             }
 
             @Override
@@ -22,7 +22,7 @@ public class GeoJSONExporter extends FileExporter {
 
     /** File extension filter for .geojson files */
     public static final ExtensionFileFilter FILE_FILTER = new ExtensionFileFilter(
-            "geojson,json", "geojson", tr("GeoJSON Files") + " (*.geojson *.json)");
+            "geojson", "geojson", tr("GeoJSON Files") + " (*.geojson)");
 
     /**
      * Constructs a new {@code GeoJSONExporter} with WGS84 projection.
@@ -35,7 +35,7 @@ public class GeoJSONExporter extends FileExporter {
     public void exportData(File file, Layer layer) throws IOException {
         if (layer instanceof OsmDataLayer) {
             try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
-                out.write(new GeoJSONWriter(((OsmDataLayer) layer).data).write());
+                new GeoJSONWriter(((OsmDataLayer) layer).data).write(true, out);
             }
         } else {
             throw new IllegalArgumentException(tr("Layer ''{0}'' not supported", layer.getClass().toString()));
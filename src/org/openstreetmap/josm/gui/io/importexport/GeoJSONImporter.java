@@ -0,0 +1,37 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.io.importexport;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.InputStream;
+
+import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.io.GeoJSONReader;
+import org.openstreetmap.josm.io.IllegalDataException;
+
+/**
+ * File importer that reads GeoJSON files (*.geojson) into a new data layer.
+ * @see GeoJSONReader
+ */
+public class GeoJSONImporter extends OsmImporter {
+
+    /**
+     * The GeoJSON file filter (*.geojson files, optionally compressed).
+     */
+    public static final ExtensionFileFilter FILE_FILTER = ExtensionFileFilter.newFilterWithArchiveExtensions(
+            "geojson", "geojson", tr("GeoJSON Files"), true);
+
+    /**
+     * Constructs a new {@code GeoJSONImporter}.
+     */
+    public GeoJSONImporter() {
+        super(FILE_FILTER);
+    }
+
+    @Override
+    protected DataSet parseDataSet(InputStream in, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return GeoJSONReader.parseDataSet(in, progressMonitor);
+    }
+}
@@ -11,6 +11,8 @@ import javax.swing.JOptionPane;
 
 import org.openstreetmap.josm.actions.ExtensionFileFilter;
 import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.preferences.DoubleProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.GpxLayer;
 import org.openstreetmap.josm.gui.layer.markerlayer.MarkerLayer;
@@ -18,6 +20,8 @@ import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.io.Compression;
 import org.openstreetmap.josm.io.GpxReader;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.ImportCancelException;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Logging;
 import org.xml.sax.SAXException;
@@ -28,6 +32,16 @@ import org.xml.sax.SAXException;
  */
 public class GpxImporter extends FileImporter {
 
+    /**
+     * Size of the files, in MiB, from which the tracks are added to the layer while the file is read.
+     */
+    public static final IntegerProperty PROP_STREAMING_THRESHOLD = new IntegerProperty("gpx.import.streaming-threshold", 16);
+
+    /**
+     * Minimum distance in meters between two consecutive imported track points, {@code 0} to keep all points.
+     */
+    public static final DoubleProperty PROP_MIN_DISTANCE = new DoubleProperty("gpx.import.min-distance", 0.0);
+
     /**
      * Utility class containing imported GPX and marker layers, and a task to run after they are added to MapView.
      */
@@ -99,15 +113,85 @@ public class GpxImporter extends FileImporter {
     }
 
     @Override
-    public void importData(File file, ProgressMonitor progressMonitor) throws IOException {
+    public void importData(File file, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
         final String fileName = file.getName();
 
+        if (file.length() >= PROP_STREAMING_THRESHOLD.get() * 1024L * 1024L) {
+            importStreaming(file, fileName, progressMonitor);
+            return;
+        }
         try (InputStream is = Compression.getUncompressedFileInputStream(file)) {
             GpxReader r = new GpxReader(is);
+            r.setMinimumDistance(PROP_MIN_DISTANCE.get());
+            r.setProgressMonitor(progressMonitor);
             boolean parsedProperly = r.parse(true);
             r.getGpxData().storageFile = file;
             addLayers(loadLayers(r.getGpxData(), parsedProperly, fileName, tr("Markers from {0}", fileName)));
         } catch (SAXException e) {
+            if (e instanceof ImportCancelException) {
+                throw new IllegalDataException(e);
+            }
+            Logging.error(e);
+            throw new IOException(tr("Parsing data for layer ''{0}'' failed", fileName), e);
+        }
+    }
+
+    /**
+     * Imports a large GPX file: the GPX layer is added as soon as the first track is read,
+     * and the tracks are added to it while the file is read, so that they are painted progressively.
+     * @param file the GPX file
+     * @param fileName the file name, used as layer name
+     * @param progressMonitor the progress monitor. If the import is canceled, the layer is removed
+     * @throws IOException if an I/O or parsing error occurs
+     * @throws IllegalDataException if the import is canceled
+     */
+    private static void importStreaming(File file, String fileName, ProgressMonitor progressMonitor)
+            throws IOException, IllegalDataException {
+        final GpxData data = new GpxData();
+        data.storageFile = file;
+        final GpxLayer gpxLayer = new GpxLayer(data, fileName, true);
+        try (InputStream is = Compression.getUncompressedFileInputStream(file)) {
+            GpxReader r = new GpxReader(is);
+            r.setMinimumDistance(PROP_MIN_DISTANCE.get());
+            r.setProgressMonitor(progressMonitor);
+            // the tracks are added in the EDT, as the layer may already be painted
+            r.setStreamingListener((previous, track) -> GuiHelper.runInEDT(() -> {
+                if (previous != null) {
+                    data.removeTrack(previous);
+                }
+                data.addTrack(track);
+                if (!MainApplication.getLayerManager().containsLayer(gpxLayer)) {
+                    MainApplication.getLayerManager().addLayer(gpxLayer);
+                }
+            }));
+            final boolean parsedProperly = r.parse(true);
+            final GpxData others = r.getGpxData();
+            others.storageFile = file;
+            GuiHelper.runInEDT(() -> {
+                data.creator = others.creator;
+                data.fromServer = others.fromServer;
+                data.mergeFrom(others);
+                boolean added = MainApplication.getLayerManager().containsLayer(gpxLayer);
+                if (!added && data.hasRoutePoints()) {
+                    MainApplication.getLayerManager().addLayer(gpxLayer);
+                    added = true;
+                }
+                MarkerLayer markerLayer = createMarkerLayer(data, tr("Markers from {0}", fileName), added ? gpxLayer : null);
+                if (markerLayer != null) {
+                    MainApplication.getLayerManager().addLayer(markerLayer);
+                }
+                createPostLayerTask(data, parsedProperly, fileName).run();
+            });
+        } catch (SAXException e) {
+            if (e instanceof ImportCancelException) {
+                // queued after the tracks already given to the layer
+                GuiHelper.runInEDT(() -> {
+                    if (MainApplication.getLayerManager().containsLayer(gpxLayer)) {
+                        MainApplication.getLayerManager().removeLayer(gpxLayer);
+                    }
+                });
+                throw new IllegalDataException(e);
+            }
             Logging.error(e);
             throw new IOException(tr("Parsing data for layer ''{0}'' failed", fileName), e);
         }
@@ -143,17 +227,25 @@ public class GpxImporter extends FileImporter {
     public static GpxImporterData loadLayers(final GpxData data, final boolean parsedProperly,
             final String gpxLayerName, String markerLayerName) {
         GpxLayer gpxLayer = null;
-        MarkerLayer markerLayer = null;
         if (data.hasRoutePoints() || data.hasTrackPoints()) {
             gpxLayer = new GpxLayer(data, gpxLayerName, data.storageFile != null);
         }
+        MarkerLayer markerLayer = createMarkerLayer(data, markerLayerName, gpxLayer);
+        return new GpxImporterData(gpxLayer, markerLayer, createPostLayerTask(data, parsedProperly, gpxLayerName));
+    }
+
+    private static MarkerLayer createMarkerLayer(GpxData data, String markerLayerName, GpxLayer gpxLayer) {
         if (Config.getPref().getBoolean("marker.makeautomarkers", true) && !data.waypoints.isEmpty()) {
-            markerLayer = new MarkerLayer(data, markerLayerName, data.storageFile, gpxLayer);
-            if (markerLayer.data.isEmpty()) {
-                markerLayer = null;
+            MarkerLayer markerLayer = new MarkerLayer(data, markerLayerName, data.storageFile, gpxLayer);
+            if (!markerLayer.data.isEmpty()) {
+                return markerLayer;
             }
         }
-        Runnable postLayerTask = () -> {
+        return null;
+    }
+
+    private static Runnable createPostLayerTask(GpxData data, boolean parsedProperly, String gpxLayerName) {
+        return () -> {
             if (!parsedProperly) {
                 String msg;
                 if (data.storageFile == null) {
@@ -166,7 +258,6 @@ public class GpxImporter extends FileImporter {
                 JOptionPane.showMessageDialog(null, msg);
             }
         };
-        return new GpxImporterData(gpxLayer, markerLayer, postLayerTask);
     }
 
     /**
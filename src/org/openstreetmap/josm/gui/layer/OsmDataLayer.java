@@ -562,11 +562,16 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, D
         }
 
         int numNewConflicts = 0;
-        for (Conflict<?> c : visitor.getConflicts()) {
-            if (!data.getConflicts().hasConflict(c)) {
-                numNewConflicts++;
-                data.getConflicts().add(c);
+        data.getConflicts().beginUpdate();
+        try {
+            for (Conflict<?> c : visitor.getConflicts()) {
+                if (!data.getConflicts().hasConflict(c)) {
+                    numNewConflicts++;
+                    data.getConflicts().add(c);
+                }
             }
+        } finally {
+            data.getConflicts().endUpdate();
         }
         // repaint to make sure new data is displayed properly.
         invalidate();
@@ -31,6 +31,8 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import javax.swing.Action;
 import javax.swing.Icon;
@@ -168,6 +170,10 @@ public class GeoImageLayer extends AbstractModifiableLayer implements
      */
     static final class Loader extends PleaseWaitRunnable {
 
+        /** Number of images whose EXIF metadata is read in parallel between two progress updates */
+        private static final int EXIF_BATCH_SIZE = 256;
+        private static final ForkJoinPool EXIF_THREAD_POOL = newForkJoinPool();
+
         private boolean canceled;
         private GeoImageLayer layer;
         private final Collection<File> selection;
@@ -203,26 +209,43 @@ public class GeoImageLayer extends AbstractModifiableLayer implements
             progressMonitor.subTask(tr("Read photos..."));
             progressMonitor.setTicksCount(files.size());
 
-            // read the image files
+            // read the image files, by batches to report the progress and check for cancellation
             List<ImageEntry> entries = new ArrayList<>(files.size());
+            List<File> fileList = new ArrayList<>(files);
 
-            for (File f : files) {
-
-                if (canceled) {
-                    break;
-                }
-
-                progressMonitor.subTask(tr("Reading {0}...", f.getName()));
-                progressMonitor.worked(1);
+            for (int i = 0; i < fileList.size() && !canceled; i += EXIF_BATCH_SIZE) {
+                List<File> batch = fileList.subList(i, Math.min(i + EXIF_BATCH_SIZE, fileList.size()));
+                progressMonitor.subTask(tr("Reading {0}...", batch.get(0).getName()));
 
-                ImageEntry e = new ImageEntry(f);
-                e.extractExif();
-                entries.add(e);
+                entries.addAll(readExif(batch));
+                progressMonitor.worked(batch.size());
             }
             layer = new GeoImageLayer(entries, gpxLayer);
             files.clear();
         }
 
+        private static List<ImageEntry> readExif(List<File> files) {
+            if (EXIF_THREAD_POOL == null || files.size() == 1) {
+                return files.stream().map(Loader::readExif).collect(Collectors.toList());
+            }
+            return EXIF_THREAD_POOL.submit(() -> files.parallelStream().map(Loader::readExif).collect(Collectors.toList())).join();
+        }
+
+        private static ImageEntry readExif(File f) {
+            ImageEntry e = new ImageEntry(f);
+            e.extractExif();
+            return e;
+        }
+
+        private static ForkJoinPool newForkJoinPool() {
+            try {
+                return Utils.newForkJoinPool("geoimage.exif.numberOfThreads", "exif-reader-%d", Thread.NORM_PRIORITY);
+            } catch (SecurityException e) {
+                Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+                return null;
+            }
+        }
+
         private void addRecursiveFiles(Collection<File> files, Collection<File> sel) {
             boolean nullFile = false;
 
@@ -0,0 +1,253 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.geoimage;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.GpxConstants;
+import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.GpxTrack;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.ImmutableGpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.gpx.WayPointColumns;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Time index of the track points of GPX data, used to correlate images with the tracks.
+ * <p>
+ * Each couple of consecutive timed track points defines a time interval, in which the image positions are
+ * interpolated. The images taken up to 5 seconds before the first point of a segment are placed on that point.
+ * When the intervals overlap, the first one in the order of the tracks wins.
+ * <p>
+ * The index splits the time line at the bounds of the intervals, and stores the winning interval of each
+ * bound and of each gap between two bounds, so that the interval of an image is found by a binary search.
+ * The index does not depend on the time offset, so the images can be correlated again quickly when it changes.
+ */
+final class GpxTimeIndex {
+
+    /** Photos taken up to 5 seconds before the first track point are placed at the starting position */
+    private static final long FIRST_POINT_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+    // the intervals, in the order of the tracks
+    private int size;
+    private long[] start = new long[16];
+    private long[] end = new long[16];
+    /** the coordinates and elevations of the previous and current points */
+    private double[] points = new double[16 * 6];
+    /** the speed in km/h for interpolated intervals, {@code NaN} for intervals placing the images on the current point */
+    private double[] speed = new double[16];
+
+    /** the sorted bounds of the intervals */
+    private final long[] bounds;
+    /** the interval of each bound, or -1 */
+    private final int[] atBound;
+    /** the interval of the times between each bound and the next one, or -1 */
+    private final int[] afterBound;
+
+    /**
+     * Constructs a new {@code GpxTimeIndex}.
+     * @param data the GPX data
+     */
+    GpxTimeIndex(GpxData data) {
+        for (GpxTrack trk : data.getTracks()) {
+            for (GpxTrackSegment segment : trk.getSegments()) {
+                if (segment instanceof ImmutableGpxTrackSegment) {
+                    addSegment(((ImmutableGpxTrackSegment) segment).getColumns());
+                } else {
+                    addSegment(segment);
+                }
+            }
+        }
+        long[] allBounds = Arrays.copyOf(start, 2 * size);
+        System.arraycopy(end, 0, allBounds, size, size);
+        Arrays.sort(allBounds);
+        int n = 0;
+        for (int i = 0; i < allBounds.length; i++) {
+            if (i == 0 || allBounds[i] != allBounds[i - 1]) {
+                allBounds[n++] = allBounds[i];
+            }
+        }
+        bounds = Arrays.copyOf(allBounds, n);
+        atBound = new int[n];
+        afterBound = new int[n];
+        sweep();
+    }
+
+    private void addSegment(WayPointColumns columns) {
+        boolean hasPrevious = false;
+        long prevTime = 0;
+        double prevLat = 0;
+        double prevLon = 0;
+        double prevEle = Double.NaN;
+        for (int i = 0; i < columns.size(); i++) {
+            double seconds = columns.getTime(i);
+            if (seconds == 0) {
+                hasPrevious = false;
+                continue;
+            }
+            long time = Math.round(seconds * 1000);
+            double ele = columns.getElevation(i);
+            addInterval(hasPrevious, prevTime, prevLat, prevLon, prevEle, time, columns.lat(i), columns.lon(i), ele);
+            hasPrevious = true;
+            prevTime = time;
+            prevLat = columns.lat(i);
+            prevLon = columns.lon(i);
+            prevEle = ele;
+        }
+    }
+
+    private void addSegment(GpxTrackSegment segment) {
+        WayPoint prevWp = null;
+        long prevTime = 0;
+        for (WayPoint curWp : segment.getWayPoints()) {
+            final Date parsedTime = curWp.setTimeFromAttribute();
+            if (parsedTime == null) {
+                prevWp = null;
+                continue;
+            }
+            long time = parsedTime.getTime();
+            double ele = getElevation(curWp);
+            addInterval(prevWp != null, prevTime, prevWp == null ? 0 : prevWp.lat(), prevWp == null ? 0 : prevWp.lon(),
+                    prevWp == null ? Double.NaN : getElevation(prevWp), time, curWp.lat(), curWp.lon(), ele);
+            prevWp = curWp;
+            prevTime = time;
+        }
+    }
+
+    private static double getElevation(WayPoint wp) {
+        String value = wp.getString(GpxConstants.PT_ELE);
+        if (value != null && !value.isEmpty()) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                Logging.warn(e);
+            }
+        }
+        return Double.NaN;
+    }
+
+    private void addInterval(boolean hasPrevious, long prevTime, double prevLat, double prevLon, double prevEle,
+            long time, double lat, double lon, double ele) {
+        if (size == start.length) {
+            start = Arrays.copyOf(start, 2 * size);
+            end = Arrays.copyOf(end, 2 * size);
+            points = Arrays.copyOf(points, 12 * size);
+            speed = Arrays.copyOf(speed, 2 * size);
+        }
+        if (hasPrevious && time > prevTime) {
+            start[size] = prevTime;
+            double distance = new LatLon(prevLat, prevLon).greatCircleDistance(new LatLon(lat, lon));
+            // This is in km/h, 3.6 * m/s
+            speed[size] = 3600 * distance / (time - prevTime);
+        } else {
+            start[size] = time - (hasPrevious ? prevTime - time : FIRST_POINT_INTERVAL);
+            speed[size] = Double.NaN;
+        }
+        end[size] = time;
+        int p = 6 * size;
+        points[p] = prevLat;
+        points[p + 1] = prevLon;
+        points[p + 2] = prevEle;
+        points[p + 3] = lat;
+        points[p + 4] = lon;
+        points[p + 5] = ele;
+        size++;
+    }
+
+    /**
+     * Computes the first interval containing each bound and each gap between bounds.
+     */
+    private void sweep() {
+        Integer[] byStart = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            byStart[i] = i;
+        }
+        Arrays.sort(byStart, (a, b) -> Long.compare(start[a], start[b]));
+        // the active intervals, the first one on top
+        PriorityQueue<Integer> active = new PriorityQueue<>(Math.max(1, size));
+        int next = 0;
+        for (int b = 0; b < bounds.length; b++) {
+            long bound = bounds[b];
+            while (next < size && start[byStart[next]] <= bound) {
+                active.add(byStart[next++]);
+            }
+            while (!active.isEmpty() && end[active.peek()] < bound) {
+                active.poll();
+            }
+            atBound[b] = active.isEmpty() ? -1 : active.peek();
+            while (!active.isEmpty() && end[active.peek()] <= bound) {
+                active.poll();
+            }
+            afterBound[b] = active.isEmpty() ? -1 : active.peek();
+        }
+    }
+
+    /**
+     * Returns the first interval containing the given time.
+     * @param time the time in milliseconds
+     * @return the interval, or -1
+     */
+    private int getInterval(long time) {
+        int b = Arrays.binarySearch(bounds, time);
+        if (b >= 0) {
+            return atBound[b];
+        }
+        int before = -b - 2;
+        return before < 0 ? -1 : afterBound[before];
+    }
+
+    /**
+     * Returns the number of intervals.
+     * @return the number of intervals
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Match a list of photos to the tracks with a given offset.
+     * All images need a exifTime attribute and a temporary copy, see {@link ImageEntry#createTmp()}.
+     * Only the images without position are matched.
+     * @param images images to match
+     * @param offset offset
+     * @return number of matched images
+     */
+    int match(List<ImageEntry> images, long offset) {
+        int ret = 0;
+        for (ImageEntry curImg : images) {
+            if (curImg.tmp.getPos() != null) {
+                continue;
+            }
+            final long imgTime = curImg.getExifTime().getTime();
+            final int i = getInterval(imgTime - offset);
+            if (i < 0) {
+                continue;
+            }
+            final int p = 6 * i;
+            final double curEle = points[p + 5];
+            if (Double.isNaN(speed[i])) {
+                curImg.tmp.setPos(new LatLon(points[p + 3], points[p + 4]));
+                curImg.tmp.setSpeed(null);
+                curImg.tmp.setElevation(Double.isNaN(curEle) ? null : curEle);
+            } else {
+                // The values of timeDiff are between 0 and 1, it is not seconds but a dimensionless variable
+                final double timeDiff = (double) (imgTime - offset - start[i]) / (end[i] - start[i]);
+                curImg.tmp.setPos(new LatLon(points[p], points[p + 1]).interpolate(new LatLon(points[p + 3], points[p + 4]), timeDiff));
+                curImg.tmp.setSpeed(speed[i]);
+                final double prevEle = points[p + 2];
+                if (!Double.isNaN(curEle) && !Double.isNaN(prevEle)) {
+                    curImg.tmp.setElevation(prevEle + (curEle - prevEle) * timeDiff);
+                }
+            }
+            curImg.tmp.setGpsTime(new Date(imgTime - offset));
+            curImg.tmp.flagNewGpsData();
+            ret++;
+        }
+        return ret;
+    }
+}
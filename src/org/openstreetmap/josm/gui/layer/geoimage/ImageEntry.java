@@ -13,7 +13,6 @@ import org.openstreetmap.josm.tools.ExifReader;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Logging;
 
-import com.drew.imaging.jpeg.JpegMetadataReader;
 import com.drew.lang.CompoundException;
 import com.drew.metadata.Directory;
 import com.drew.metadata.Metadata;
@@ -481,7 +480,7 @@ public final class ImageEntry implements Comparable<ImageEntry>, Cloneable {
         }
 
         try {
-            metadata = JpegMetadataReader.readMetadata(file);
+            metadata = ExifReader.readMetadata(file);
         } catch (CompoundException | IOException ex) {
             Logging.error(ex);
             setExifTime(null);
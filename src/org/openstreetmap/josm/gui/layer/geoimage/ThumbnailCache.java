@@ -0,0 +1,313 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.geoimage;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Stores the thumbnails of the geotagged images in a single file.
+ * <p>
+ * The file starts with a header and contains one record per thumbnail: the record length, the key,
+ * the modification time and the length of the image file, and the length and bytes of the JPEG encoded thumbnail.
+ * The records are appended, and the index is rebuilt by reading the record headers when the file is opened.
+ * Outdated records and the oldest records exceeding the maximum size are removed at that time.
+ */
+final class ThumbnailCache {
+
+    /**
+     * Maximum size of the cache file in MiB.
+     */
+    static final IntegerProperty PROP_MAX_SIZE = new IntegerProperty("geoimage.thumbnail-cache.max-size", 256);
+
+    private static final byte[] HEADER = "JOSMTHC1".getBytes(StandardCharsets.US_ASCII);
+
+    private static ThumbnailCache instance;
+
+    private final File file;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private FileChannel channel;
+
+    /**
+     * The location of a thumbnail in the cache file.
+     */
+    private static final class Entry {
+        private final long lastModified;
+        private final long length;
+        private final long offset;
+        private final int size;
+        private final long recordOffset;
+
+        Entry(long lastModified, long length, long offset, int size, long recordOffset) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.offset = offset;
+            this.size = size;
+            this.recordOffset = recordOffset;
+        }
+
+        long getRecordSize() {
+            return offset - recordOffset + size;
+        }
+    }
+
+    /**
+     * Constructs a new {@code ThumbnailCache} and opens the given file.
+     * @param file the cache file, created if it does not exist
+     */
+    ThumbnailCache(File file) {
+        this.file = file;
+        try {
+            open();
+        } catch (IOException e) {
+            Logging.warn("Unable to open the thumbnail cache " + file);
+            Logging.warn(e);
+            close();
+        }
+    }
+
+    /**
+     * Returns the shared cache, stored in the cache directory.
+     * @return the shared cache
+     */
+    static synchronized ThumbnailCache getInstance() {
+        if (instance == null) {
+            instance = new ThumbnailCache(new File(Config.getDirs().getCacheDirectory(true), "geoimage-thumbnails.cache"));
+        }
+        return instance;
+    }
+
+    private static String getKey(File image, int size) {
+        return image.getAbsolutePath() + ':' + size;
+    }
+
+    private void open() throws IOException {
+        if (file.isFile()) {
+            long fileSize = file.length();
+            for (Map.Entry<String, Entry> r : readIndex(fileSize)) {
+                // later records replace the earlier ones
+                index.put(r.getKey(), r.getValue());
+            }
+            long live = 0;
+            for (Entry e : index.values()) {
+                live += e.getRecordSize();
+            }
+            long maxSize = PROP_MAX_SIZE.get() * 1024L * 1024L;
+            if (fileSize > 2 * live + 64 * 1024 || live > maxSize) {
+                compact(maxSize * 3 / 4);
+            }
+        }
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create directory " + dir);
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER.length) {
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(HEADER), 0);
+            index.clear();
+        }
+    }
+
+    /**
+     * Reads the record headers of the cache file.
+     * @param fileSize the size of the file
+     * @return the records, in the order of the file
+     * @throws IOException if an I/O error occurs
+     */
+    private List<Map.Entry<String, Entry>> readIndex(long fileSize) throws IOException {
+        List<Map.Entry<String, Entry>> records = new ArrayList<>();
+        long position = HEADER.length;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            byte[] header = new byte[HEADER.length];
+            in.readFully(header);
+            if (!Arrays.equals(HEADER, header)) {
+                Logging.warn("Invalid thumbnail cache " + file + ", discarding it");
+                return truncate(records, 0);
+            }
+            while (position < fileSize) {
+                int recordLength = in.readInt();
+                if (recordLength <= 0 || position + 4 + recordLength > fileSize) {
+                    break;
+                }
+                String key = in.readUTF();
+                long lastModified = in.readLong();
+                long length = in.readLong();
+                int dataSize = in.readInt();
+                if (dataSize <= 0 || dataSize > recordLength) {
+                    break;
+                }
+                long dataOffset = position + 4 + recordLength - dataSize;
+                in.skipBytes(dataSize);
+                records.add(new SimpleImmutableEntry<>(key,
+                        new Entry(lastModified, length, dataOffset, dataSize, position)));
+                position += 4 + recordLength;
+            }
+        } catch (EOFException e) {
+            Logging.trace(e);
+        }
+        return position < fileSize ? truncate(records, position) : records;
+    }
+
+    /**
+     * Removes the incomplete record at the end of the file, after a crash.
+     */
+    private List<Map.Entry<String, Entry>> truncate(List<Map.Entry<String, Entry>> records, long position) throws IOException {
+        try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            fc.truncate(position);
+        }
+        return records;
+    }
+
+    /**
+     * Rewrites the cache file with the current records only, dropping the oldest ones to fit in the given size.
+     * @param maxSize the maximum size of the records
+     * @throws IOException if an I/O error occurs
+     */
+    private void compact(long maxSize) throws IOException {
+        List<Map.Entry<String, Entry>> entries = new ArrayList<>(index.entrySet());
+        entries.sort(Comparator.comparingLong(e -> e.getValue().recordOffset));
+        long total = 0;
+        for (Map.Entry<String, Entry> e : entries) {
+            total += e.getValue().getRecordSize();
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.wrap(HEADER));
+            for (Map.Entry<String, Entry> e : entries) {
+                Entry entry = e.getValue();
+                long recordSize = entry.getRecordSize();
+                if (total > maxSize) {
+                    total -= recordSize;
+                    index.remove(e.getKey());
+                    continue;
+                }
+                long recordOffset = out.position();
+                in.transferTo(entry.recordOffset, recordSize, out);
+                index.put(e.getKey(), new Entry(entry.lastModified, entry.length,
+                        recordOffset + entry.offset - entry.recordOffset, entry.size, recordOffset));
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns the cached thumbnail of an image, if the image has not been modified since.
+     * @param image the image file
+     * @param size the maximum size of the thumbnail
+     * @return the thumbnail, or {@code null}
+     */
+    BufferedImage get(File image, int size) {
+        Entry entry = index.get(getKey(image, size));
+        FileChannel fc = channel;
+        if (entry == null || fc == null || entry.lastModified != image.lastModified() || entry.length != image.length()) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(entry.size);
+        try {
+            while (buffer.hasRemaining()) {
+                if (fc.read(buffer, entry.offset + buffer.position()) < 0) {
+                    return null;
+                }
+            }
+            return ImageIO.read(new ByteArrayInputStream(buffer.array()));
+        } catch (IOException e) {
+            Logging.warn(e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the thumbnail of an image.
+     * @param image the image file
+     * @param size the maximum size of the thumbnail
+     * @param thumbnail the thumbnail
+     */
+    void put(File image, int size, BufferedImage thumbnail) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            if (!ImageIO.write(thumbnail, "jpg", data)) {
+                return;
+            }
+            String key = getKey(image, size);
+            ByteArrayOutputStream record = new ByteArrayOutputStream(data.size() + 256);
+            try (DataOutputStream out = new DataOutputStream(record)) {
+                out.writeInt(0);
+                out.writeUTF(key);
+                out.writeLong(image.lastModified());
+                out.writeLong(image.length());
+                out.writeInt(data.size());
+                data.writeTo(out);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(record.toByteArray());
+            buffer.putInt(0, buffer.limit() - 4);
+            int dataOffset = buffer.limit() - data.size();
+            synchronized (this) {
+                FileChannel fc = channel;
+                if (fc == null) {
+                    return;
+                }
+                long position = fc.size();
+                while (buffer.hasRemaining()) {
+                    fc.write(buffer, position + buffer.position());
+                }
+                index.put(key, new Entry(image.lastModified(), image.length(), position + dataOffset, data.size(), position));
+            }
+        } catch (IOException e) {
+            Logging.warn("Failed to save geoimage thumb to cache");
+            Logging.warn(e);
+        }
+    }
+
+    /**
+     * Returns the number of cached thumbnails.
+     * @return the number of cached thumbnails
+     */
+    int size() {
+        return index.size();
+    }
+
+    /**
+     * Closes the cache file. The cache is disabled afterwards.
+     */
+    synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Logging.warn(e);
+            }
+            channel = null;
+        }
+    }
+}
@@ -1,34 +1,44 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.layer.geoimage;
 
+import java.awt.Component;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.MediaTracker;
 import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.Toolkit;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.JPanel;
 
-import org.apache.commons.jcs.access.behavior.ICacheAccess;
-import org.openstreetmap.josm.data.cache.BufferedImageCacheEntry;
-import org.openstreetmap.josm.data.cache.JCSCacheManager;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.geoimage.ImageDisplay.VisRect;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.ExifReader;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+import com.drew.imaging.jpeg.JpegProcessingException;
 
 /**
  * Loads thumbnail previews for a list of images from a {@link GeoImageLayer}.
  *
  * Thumbnails are loaded in the background and cached on disk for the next session.
+ * The thumbnails embedded in the EXIF section are used when they are large enough,
+ * the other ones are generated from a subsampled decoding of the image, on several threads.
  */
 public class ThumbsLoader implements Runnable {
     public static final int maxSize = 120;
@@ -36,10 +46,26 @@ public class ThumbsLoader implements Runnable {
     public volatile boolean stop;
     private final Collection<ImageEntry> data;
     private final GeoImageLayer layer;
-    private MediaTracker tracker;
-    private ICacheAccess<String, BufferedImageCacheEntry> cache;
+    private ThumbnailCache cache;
     private final boolean cacheOff = Config.getPref().getBoolean("geoimage.noThumbnailCache", false);
 
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+    /** The component used to track the images loaded by the toolkit */
+    private static final Component TRACKER_COMPONENT = new JPanel();
+
+    /** Maximum difference between the aspect ratios of an embedded thumbnail and its image */
+    private static final double ASPECT_RATIO_TOLERANCE = 0.02;
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool("geoimage.thumbnail.numberOfThreads", "thumbnail-loader-%d", Thread.MIN_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
     private ThumbsLoader(Collection<ImageEntry> data, GeoImageLayer layer) {
         this.data = data;
         this.layer = layer;
@@ -67,49 +93,131 @@ public class ThumbsLoader implements Runnable {
      */
     private void initCache() {
         if (!cacheOff) {
-            cache = JCSCacheManager.getCache("geoimage-thumbnails", 0, 120,
-                    Config.getDirs().getCacheDirectory(true).getPath() + File.separator + "geoimage-thumbnails");
+            cache = ThumbnailCache.getInstance();
         }
     }
 
     @Override
     public void run() {
         Logging.debug("Load Thumbnails");
-        tracker = new MediaTracker(MainApplication.getMap().mapView);
-        for (ImageEntry entry : data) {
-            if (stop) return;
-
-            // Do not load thumbnails that were loaded before.
-            if (!entry.hasThumbnail()) {
-                entry.setThumbnail(loadThumb(entry));
-
-                if (layer != null && MainApplication.isDisplayingMapView()) {
-                    layer.updateBufferAndRepaint();
-                }
-            }
+        if (THREAD_POOL == null || data.size() <= 1) {
+            data.forEach(this::loadThumbnail);
+        } else {
+            THREAD_POOL.submit(() -> data.parallelStream().forEach(this::loadThumbnail)).join();
         }
+        if (stop) return;
         if (layer != null) {
             layer.thumbsLoaded();
             layer.updateBufferAndRepaint();
         }
     }
 
+    private void loadThumbnail(ImageEntry entry) {
+        // Do not load thumbnails that were loaded before.
+        if (stop || entry.hasThumbnail()) {
+            return;
+        }
+        entry.setThumbnail(loadThumb(entry));
+
+        if (layer != null && MainApplication.isDisplayingMapView()) {
+            layer.updateBufferAndRepaint();
+        }
+    }
+
     private BufferedImage loadThumb(ImageEntry entry) {
-        final String cacheIdent = entry.getFile().toString()+':'+maxSize;
+        final File file = entry.getFile();
+
+        if (!cacheOff && cache != null) {
+            BufferedImage cached = cache.get(file, maxSize);
+            if (cached != null) {
+                Logging.debug(" from cache");
+                return cached;
+            }
+        }
+
+        final Integer exifOrientation = entry.getExifOrientation();
+        BufferedImage scaledBI = null;
+        Image img = readEmbeddedThumbnail(entry);
+        if (img == null) {
+            img = readSubsampled(file);
+        }
+        if (img == null) {
+            img = readWithToolkit(file);
+        }
+        if (img != null) {
+            scaledBI = scale(img, exifOrientation);
+        }
+        if (scaledBI == null) {
+            Logging.error(" Invalid image");
+            return null;
+        }
 
         if (!cacheOff && cache != null) {
+            cache.put(file, maxSize, scaledBI);
+        }
+
+        return scaledBI;
+    }
+
+    /**
+     * Reads the thumbnail embedded in the EXIF section, if it is large enough and has the aspect ratio of the image.
+     * @param entry the image
+     * @return the embedded thumbnail, or {@code null}
+     */
+    private static BufferedImage readEmbeddedThumbnail(ImageEntry entry) {
+        if (entry.getWidth() <= 0 || entry.getHeight() <= 0) {
+            return null;
+        }
+        try {
+            byte[] bytes = ExifReader.readEmbeddedThumbnail(entry.getFile());
+            if (bytes == null) {
+                return null;
+            }
+            BufferedImage thumb = ImageIO.read(new ByteArrayInputStream(bytes));
+            if (thumb == null || Math.max(thumb.getWidth(), thumb.getHeight()) < maxSize) {
+                return null;
+            }
+            double ratio = (double) entry.getWidth() / entry.getHeight();
+            double thumbRatio = (double) thumb.getWidth() / thumb.getHeight();
+            // some cameras add black bars to fit a fixed thumbnail size
+            return Math.abs(thumbRatio - ratio) <= ASPECT_RATIO_TOLERANCE * ratio ? thumb : null;
+        } catch (JpegProcessingException | IOException e) {
+            Logging.debug(e);
+            return null;
+        }
+    }
+
+    /**
+     * Decodes the image with the largest subsampling keeping at least twice the resolution of the thumbnail.
+     * @param file the image file
+     * @return the subsampled image, or {@code null} if it cannot be decoded by Image I/O
+     */
+    private static BufferedImage readSubsampled(File file) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
             try {
-                BufferedImageCacheEntry cacheEntry = cache.get(cacheIdent);
-                if (cacheEntry != null && cacheEntry.getImage() != null) {
-                    Logging.debug(" from cache");
-                    return cacheEntry.getImage();
-                }
-            } catch (IOException e) {
-                Logging.warn(e);
+                reader.setInput(in, true, true);
+                int subsampling = Math.max(1, Math.max(reader.getWidth(0), reader.getHeight(0)) / (2 * maxSize));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
             }
+        } catch (IOException | RuntimeException e) {
+            // e.g. CMYK images, which are not supported by the JPEG reader
+            Logging.debug(e);
+            return null;
         }
+    }
 
-        Image img = Toolkit.getDefaultToolkit().createImage(entry.getFile().getPath());
+    private static Image readWithToolkit(File file) {
+        MediaTracker tracker = new MediaTracker(TRACKER_COMPONENT);
+        Image img = Toolkit.getDefaultToolkit().createImage(file.getPath());
         tracker.addImage(img, 0);
         try {
             tracker.waitForID(0);
@@ -118,15 +226,16 @@ public class ThumbsLoader implements Runnable {
             Thread.currentThread().interrupt();
             return null;
         }
-        if (tracker.isErrorID(1) || img.getWidth(null) <= 0 || img.getHeight(null) <= 0) {
-            Logging.error(" Invalid image");
+        if (tracker.isErrorID(0) || img.getWidth(null) <= 0 || img.getHeight(null) <= 0) {
             return null;
         }
+        return img;
+    }
 
+    private static BufferedImage scale(Image img, Integer exifOrientation) {
         final int w = img.getWidth(null);
         final int h = img.getHeight(null);
         final int hh, ww;
-        final Integer exifOrientation = entry.getExifOrientation();
         if (exifOrientation != null && ExifReader.orientationSwitchesDimensions(exifOrientation)) {
             ww = h;
             hh = w;
@@ -138,8 +247,12 @@ public class ThumbsLoader implements Runnable {
         Rectangle targetSize = ImageDisplay.calculateDrawImageRectangle(
                 new VisRect(0, 0, ww, hh),
                 new Rectangle(0, 0, maxSize, maxSize));
+        if (targetSize.width <= 0 || targetSize.height <= 0) {
+            return null;
+        }
         BufferedImage scaledBI = new BufferedImage(targetSize.width, targetSize.height, BufferedImage.TYPE_INT_RGB);
         Graphics2D g = scaledBI.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
 
         final AffineTransform scale = AffineTransform.getScaleInstance((double) targetSize.width / ww, (double) targetSize.height / hh);
         if (exifOrientation != null) {
@@ -156,23 +269,7 @@ public class ThumbsLoader implements Runnable {
             }
         }
         g.dispose();
-        tracker.removeImage(img);
-
-        if (scaledBI.getWidth() <= 0 || scaledBI.getHeight() <= 0) {
-            Logging.error(" Invalid image");
-            return null;
-        }
-
-        if (!cacheOff && cache != null) {
-            try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
-                ImageIO.write(scaledBI, "png", output);
-                cache.put(cacheIdent, new BufferedImageCacheEntry(output.toByteArray()));
-            } catch (IOException e) {
-                Logging.warn("Failed to save geoimage thumb to cache");
-                Logging.warn(e);
-            }
-        }
-
+        img.flush();
         return scaledBI;
     }
 }
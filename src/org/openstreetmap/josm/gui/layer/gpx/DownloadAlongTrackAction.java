@@ -13,6 +13,7 @@ import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.GpxTrack;
 import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.gpx.WayPointColumns;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.PleaseWaitRunnable;
 import org.openstreetmap.josm.gui.help.HelpUtil;
@@ -69,8 +70,9 @@ public class DownloadAlongTrackAction extends DownloadAlongAction {
         if (near == NEAR_TRACK || near == NEAR_BOTH) {
             for (GpxTrack trk : data.tracks) {
                 for (GpxTrackSegment segment : trk.getSegments()) {
-                    for (WayPoint p : segment.getWayPoints()) {
-                        latsum += p.lat();
+                    WayPointColumns points = WayPointColumns.of(segment);
+                    for (int i = 0; i < points.size(); i++) {
+                        latsum += points.lat(i);
                         latcnt++;
                     }
                 }
@@ -145,9 +147,8 @@ public class DownloadAlongTrackAction extends DownloadAlongAction {
              * calculate area for single, given way point and return new LatLon if the
              * way point has been used to modify the area.
              */
-            private LatLon calcAreaForWayPoint(WayPoint p, LatLon previous) {
+            private LatLon calcAreaForWayPoint(LatLon c, LatLon previous) {
                 tick();
-                LatLon c = p.getCoor();
                 if (previous == null || c.greatCircleDistance(previous) > bufferDist) {
                     // we add a buffer around the point.
                     r.setRect(c.lon() - bufferX, c.lat() - bufferY, 2 * bufferX, 2 * bufferY);
@@ -169,11 +170,12 @@ public class DownloadAlongTrackAction extends DownloadAlongAction {
                 if (near == NEAR_TRACK || near == NEAR_BOTH) {
                     for (GpxTrack trk : data.tracks) {
                         for (GpxTrackSegment segment : trk.getSegments()) {
-                            for (WayPoint p : segment.getWayPoints()) {
+                            WayPointColumns points = WayPointColumns.of(segment);
+                            for (int i = 0; i < points.size(); i++) {
                                 if (cancel) {
                                     return;
                                 }
-                                previous = calcAreaForWayPoint(p, previous);
+                                previous = calcAreaForWayPoint(points.getCoor(i), previous);
                             }
                         }
                     }
@@ -183,7 +185,7 @@ public class DownloadAlongTrackAction extends DownloadAlongAction {
                         if (cancel) {
                             return;
                         }
-                        previous = calcAreaForWayPoint(p, previous);
+                        previous = calcAreaForWayPoint(p.getCoor(), previous);
                     }
                 }
             }
@@ -20,6 +20,7 @@ import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.GpxTrack;
 import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.gpx.WayPointColumns;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.PleaseWaitRunnable;
 import org.openstreetmap.josm.gui.layer.AbstractTileSourceLayer;
@@ -94,8 +95,9 @@ public class DownloadWmsAlongTrackAction extends AbstractAction {
         List<LatLon> points = new ArrayList<>();
         for (GpxTrack trk : data.tracks) {
             for (GpxTrackSegment segment : trk.getSegments()) {
-                for (WayPoint p : segment.getWayPoints()) {
-                    points.add(p.getCoor());
+                WayPointColumns columns = WayPointColumns.of(segment);
+                for (int i = 0; i < columns.size(); i++) {
+                    points.add(columns.getCoor(i));
                 }
             }
         }
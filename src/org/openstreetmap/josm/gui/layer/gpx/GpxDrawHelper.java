@@ -23,25 +23,31 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Date;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import javax.swing.ImageIcon;
 
+import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.PreferencesUtils;
 import org.openstreetmap.josm.data.SystemOfMeasurement;
 import org.openstreetmap.josm.data.SystemOfMeasurement.SoMChangeListener;
 import org.openstreetmap.josm.data.coor.LatLon;
-import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.GpxData.GpxDataChangeEvent;
 import org.openstreetmap.josm.data.gpx.GpxData.GpxDataChangeListener;
+import org.openstreetmap.josm.data.gpx.GpxRoute;
+import org.openstreetmap.josm.data.gpx.GpxTrack;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.ImmutableGpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.gpx.WayPointColumns;
 import org.openstreetmap.josm.data.preferences.NamedColorProperty;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.gui.MapViewState;
@@ -157,19 +163,18 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
     // do not draw elements with value lower than this limit
     private int heatMapDrawLowerLimit;
 
-    // normal buffered image and draw object (cached)
+    // normal buffered image (cached)
     private BufferedImage heatMapImgGray;
-    private Graphics2D heatMapGraph2d;
+    // density tiles of the heat map
+    private final GpxHeatMapTiles heatMapTiles = new GpxHeatMapTiles();
+    // line width of the last heat map
+    private int heatMapLineWidth;
 
     // some cached values
     Rectangle heatMapCacheScreenBounds = new Rectangle();
     MapViewState heatMapMapViewState;
     int heatMapCacheLineWith;
 
-    // copied value for line drawing
-    private final List<Integer> heatMapPolyX = new ArrayList<>();
-    private final List<Integer> heatMapPolyY = new ArrayList<>();
-
     // setup color maps used by heat map
     private static Color[] heatMapLutColorJosmInferno = createColorFromResource("inferno");
     private static Color[] heatMapLutColorJosmViridis = createColorFromResource("viridis");
@@ -182,6 +187,12 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
     // The heat map was invalidated since the last draw.
     private boolean gpxLayerInvalidated;
 
+    // columns of the routes, and of the track segments which are not stored in columns
+    private final Map<Object, WayPointColumns> convertedLines = new IdentityHashMap<>();
+
+    // level of detail pyramids and spatial indexes of the lines
+    private final Map<WayPointColumns, GpxLinePyramid> pyramids = new IdentityHashMap<>();
+
     private void setupColors() {
         hdopAlpha = Config.getPref().getInt("hdop.color.alpha", -1);
         velocityScale = ColorScale.createHSBScale(256);
@@ -349,45 +360,138 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
 
     @Override
     public void paint(MapViewGraphics graphics) {
-        List<WayPoint> visibleSegments = listVisibleSegments(graphics.getClipBounds().getLatLonBoundsBox());
+        readPreferences(layer.getName());
+        // the connections between points are needed to select the visible points
+        checkCache();
+        if (!computeCacheInSync) {
+            calculateColors();
+        }
+        MapView mv = graphics.getMapView();
+        VisiblePoints visibleSegments = listVisibleSegments(graphics.getClipBounds().getLatLonBoundsBox(), mv.getWidth());
         if (!visibleSegments.isEmpty()) {
-            readPreferences(layer.getName());
-            drawAll(graphics.getDefaultGraphics(), graphics.getMapView(), visibleSegments);
-            if (graphics.getMapView().getLayerManager().getActiveLayer() == layer) {
-                drawColorBar(graphics.getDefaultGraphics(), graphics.getMapView());
+            drawAll(graphics.getDefaultGraphics(), mv, visibleSegments);
+            if (mv.getLayerManager().getActiveLayer() == layer) {
+                drawColorBar(graphics.getDefaultGraphics(), mv);
             }
         }
     }
 
-    private List<WayPoint> listVisibleSegments(Bounds box) {
-        WayPoint last = null;
-        LinkedList<WayPoint> visibleSegments = new LinkedList<>();
-
+    /**
+     * Lists the visible points, using the level of detail matching the current scale.
+     * The lines are simplified only when the points are not drawn individually.
+     * @param box the visible area
+     * @param width the width of the visible area, in pixels
+     * @return the visible points
+     */
+    private VisiblePoints listVisibleSegments(Bounds box, int width) {
+        boolean simplify = lines && !large && !hdopCircle;
+        double lonPerPixel = 0;
+        if (simplify && width > 0) {
+            double lonWidth = box.getMaxLon() - box.getMinLon();
+            lonPerPixel = (box.crosses180thMeridian() ? lonWidth + 360 : lonWidth) / width;
+        }
+        double minLat = box.getMinLat();
+        double maxLat = box.getMaxLat();
+        double minLon = box.crosses180thMeridian() ? -180 : box.getMinLon();
+        double maxLon = box.crosses180thMeridian() ? 180 : box.getMaxLon();
+
+        VisiblePoints visibleSegments = new VisiblePoints();
+        WayPointColumns lastLine = null;
+        int last = -1;
         ensureTrackVisibilityLength();
-        for (Collection<WayPoint> segment : data.getLinesIterable(layer.trackVisibility)) {
+        for (GpxLinePyramid pyramid : getPyramids(getLines(layer.trackVisibility))) {
+            WayPointColumns line = pyramid.getLine();
+            int first = pyramid.getFirst();
+            if (first < 0) {
+                continue;
+            }
+            // connection to the previous line
+            if (lastLine != null && line.isDrawLine(first)) {
+                double lat = line.lat(first);
+                double lon = line.lon(first);
+                double prevLat = lastLine.lat(last);
+                double prevLon = lastLine.lon(last);
+                if (Math.min(lat, prevLat) <= maxLat && Math.max(lat, prevLat) >= minLat
+                        && Math.min(lon, prevLon) <= maxLon && Math.max(lon, prevLon) >= minLon) {
+                    if (!visibleSegments.isLast(lastLine, last)) {
+                        visibleSegments.add(lastLine, last, true);
+                    }
+                    visibleSegments.add(line, first, false);
+                }
+            }
+            pyramid.visit(pyramid.getLevelNumber(lonPerPixel), minLat, minLon, maxLat, maxLon, (i, previous) -> {
+                if (previous >= 0 && !visibleSegments.isLast(line, previous)) {
+                    // the line to the previous point is not visible
+                    visibleSegments.add(line, previous, true);
+                }
+                if (!visibleSegments.isLast(line, i)) {
+                    visibleSegments.add(line, i, false);
+                }
+            });
+            lastLine = line;
+            last = pyramid.getLast();
+        }
+        return visibleSegments;
+    }
 
-            for (WayPoint pt : segment) {
-                Bounds b = new Bounds(pt.getCoor());
-                if (pt.drawLine && last != null) {
-                    b.extend(last.getCoor());
+    /**
+     * Returns the level of detail pyramids of the given lines, computing the missing ones in parallel.
+     * @param lines the lines
+     * @return the pyramids of the lines, in the same order
+     */
+    private List<GpxLinePyramid> getPyramids(List<WayPointColumns> lines) {
+        synchronized (pyramids) {
+            List<WayPointColumns> missing = new ArrayList<>();
+            for (WayPointColumns line : lines) {
+                if (!pyramids.containsKey(line)) {
+                    missing.add(line);
                 }
-                if (b.intersects(box)) {
-                    if (last != null && (visibleSegments.isEmpty()
-                            || visibleSegments.getLast() != last)) {
-                        if (last.drawLine) {
-                            WayPoint l = new WayPoint(last);
-                            l.drawLine = false;
-                            visibleSegments.add(l);
+            }
+            if (!missing.isEmpty()) {
+                missing.parallelStream().map(GpxLinePyramid::new).collect(Collectors.toList())
+                    .forEach(p -> pyramids.put(p.getLine(), p));
+            }
+            List<GpxLinePyramid> result = new ArrayList<>(lines.size());
+            for (WayPointColumns line : lines) {
+                result.add(pyramids.get(line));
+            }
+            if (pyramids.size() > result.size()) {
+                // forget the lines removed from the data
+                pyramids.clear();
+                result.forEach(p -> pyramids.put(p.getLine(), p));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns the columns of the lines to draw: the track segments, then the routes.
+     * @param trackVisibility An array indicating which tracks should be included. Can be null, then all tracks are included.
+     * @return the columns of the lines
+     */
+    private List<WayPointColumns> getLines(boolean[] trackVisibility) {
+        List<WayPointColumns> result = new ArrayList<>();
+        synchronized (convertedLines) {
+            int idxTracks = 0;
+            for (GpxTrack track : data.getTracks()) {
+                if (trackVisibility == null || trackVisibility[idxTracks]) {
+                    for (GpxTrackSegment seg : track.getSegments()) {
+                        if (seg instanceof ImmutableGpxTrackSegment) {
+                            result.add(((ImmutableGpxTrackSegment) seg).getColumns());
                         } else {
-                            visibleSegments.add(last);
+                            result.add(convertedLines.computeIfAbsent(seg, x -> new WayPointColumns(seg.getWayPoints())));
                         }
                     }
-                    visibleSegments.add(pt);
                 }
-                last = pt;
+                idxTracks++;
+            }
+            for (GpxRoute route : data.getRoutes()) {
+                if (route.routePoints != null) {
+                    result.add(convertedLines.computeIfAbsent(route, x -> new WayPointColumns(route.routePoints)));
+                }
             }
         }
-        return visibleSegments;
+        return result;
     }
 
     /** ensures the trackVisibility array has the correct length without losing data.
@@ -410,8 +514,26 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * @param g               the common draw object to use
      * @param mv              the meta data to current displayed area
      * @param visibleSegments segments visible in the current scope of mv
+     * @deprecated GPX points are drawn from their columns, see {@link WayPointColumns}. The given waypoints are drawn
+     * with their own drawing state.
      */
+    @Deprecated
     public void drawAll(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+        WayPointColumns columns = new WayPointColumns(visibleSegments);
+        VisiblePoints points = new VisiblePoints();
+        for (int i = 0; i < columns.size(); i++) {
+            points.add(columns, i, false);
+        }
+        drawAll(g, mv, points);
+    }
+
+    /**
+     * Draw all enabled GPX elements of layer.
+     * @param g               the common draw object to use
+     * @param mv              the meta data to current displayed area
+     * @param visibleSegments points visible in the current scope of mv
+     */
+    private void drawAll(Graphics2D g, MapView mv, VisiblePoints visibleSegments) {
 
         final long timeStart = System.currentTimeMillis();
 
@@ -451,7 +573,7 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
 
         // use heatmap background layer
         if (useHeatMap) {
-            drawHeatMap(g, mv, visibleSegments);
+            drawHeatMap(g, mv);
         } else {
             // use normal line style or alpha-blending lines
             if (!alphaLines) {
@@ -495,25 +617,28 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
     public void calculateColors() {
         double minval = +1e10;
         double maxval = -1e10;
-        WayPoint oldWp = null;
+        WayPointColumns oldLine = null;
+        int oldWp = -1;
+        List<WayPointColumns> allLines = getLines(null);
 
         if (colorModeDynamic) {
             if (colored == ColorMode.VELOCITY) {
                 final List<Double> velocities = new ArrayList<>();
-                for (Collection<WayPoint> segment : data.getLinesIterable(null)) {
+                for (WayPointColumns segment : allLines) {
                     if (!forceLines) {
-                        oldWp = null;
+                        oldLine = null;
                     }
-                    for (WayPoint trkPnt : segment) {
-                        if (!trkPnt.isLatLonKnown()) {
+                    for (int i = 0; i < segment.size(); i++) {
+                        if (!segment.isLatLonKnown(i)) {
                             continue;
                         }
-                        if (oldWp != null && trkPnt.time > oldWp.time) {
-                            double vel = trkPnt.getCoor().greatCircleDistance(oldWp.getCoor())
-                                    / (trkPnt.time - oldWp.time);
+                        if (oldLine != null && segment.getTime(i) > oldLine.getTime(oldWp)) {
+                            double vel = segment.getCoor(i).greatCircleDistance(oldLine.getCoor(oldWp))
+                                    / (segment.getTime(i) - oldLine.getTime(oldWp));
                             velocities.add(vel);
                         }
-                        oldWp = trkPnt;
+                        oldLine = segment;
+                        oldWp = i;
                     }
                 }
                 Collections.sort(velocities);
@@ -525,11 +650,10 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
                     velocityScale.setRange(minval, maxval);
                 }
             } else if (colored == ColorMode.HDOP) {
-                for (Collection<WayPoint> segment : data.getLinesIterable(null)) {
-                    for (WayPoint trkPnt : segment) {
-                        Object val = trkPnt.get(GpxConstants.PT_HDOP);
-                        if (val != null) {
-                            double hdop = ((Float) val).doubleValue();
+                for (WayPointColumns segment : allLines) {
+                    for (int i = 0; i < segment.size(); i++) {
+                        double hdop = segment.getHdop(i);
+                        if (!Double.isNaN(hdop)) {
                             if (hdop > maxval) {
                                 maxval = hdop;
                             }
@@ -545,7 +669,7 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
                     hdopScale.setRange(minval, maxval);
                 }
             }
-            oldWp = null;
+            oldLine = null;
         } else { // color mode not dynamic
             velocityScale.setRange(0, colorTracksTune);
             hdopScale.setRange(0, hdoprange);
@@ -564,29 +688,29 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         }
 
         // Now the colors for all the points will be assigned
-        for (Collection<WayPoint> segment : data.getLinesIterable(null)) {
+        for (WayPointColumns segment : allLines) {
             if (!forceLines) { // don't draw lines between segments, unless forced to
-                oldWp = null;
+                oldLine = null;
             }
-            for (WayPoint trkPnt : segment) {
-                LatLon c = trkPnt.getCoor();
-                trkPnt.customColoring = neutralColor;
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+            for (int i = 0; i < segment.size(); i++) {
+                segment.setCustomColoring(i, neutralColor);
+                if (!segment.isLatLonKnown(i)) {
                     continue;
                 }
+                LatLon c = segment.getCoor(i);
                 // now we are sure some color will be assigned
                 Color color = null;
 
                 if (colored == ColorMode.HDOP) {
-                    Float hdop = (Float) trkPnt.get(GpxConstants.PT_HDOP);
-                    color = hdopScale.getColor(hdop);
+                    color = hdopScale.getColor(segment.getHdop(i));
                 }
-                if (oldWp != null) { // other coloring modes need segment for calcuation
-                    double dist = c.greatCircleDistance(oldWp.getCoor());
+                if (oldLine != null) { // other coloring modes need segment for calcuation
+                    LatLon oldCoor = oldLine.getCoor(oldWp);
+                    double dist = c.greatCircleDistance(oldCoor);
                     boolean noDraw = false;
                     switch (colored) {
                     case VELOCITY:
-                        double dtime = trkPnt.time - oldWp.time;
+                        double dtime = segment.getTime(i) - oldLine.getTime(oldWp);
                         if (dtime > 0) {
                             color = velocityScale.getColor(dist / dtime);
                         } else {
@@ -594,11 +718,11 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
                         }
                         break;
                     case DIRECTION:
-                        double dirColor = oldWp.getCoor().bearing(trkPnt.getCoor());
+                        double dirColor = oldCoor.bearing(c);
                         color = directionScale.getColor(dirColor);
                         break;
                     case TIME:
-                        double t = trkPnt.time;
+                        double t = segment.getTime(i);
                         // skip bad timestamps and very short tracks
                         if (t > 0 && t <= now && maxval - minval > minTrackDurationForTimeColoring) {
                             color = dateScale.getColor(t);
@@ -609,20 +733,21 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
                     default: // Do nothing
                     }
                     if (!noDraw && (maxLineLength == -1 || dist <= maxLineLength)) {
-                        trkPnt.drawLine = true;
-                        double bearing = oldWp.getCoor().bearing(trkPnt.getCoor());
-                        trkPnt.dir = ((int) (bearing / Math.PI * 4 + 1.5)) % 8;
+                        segment.setDrawLine(i, true);
+                        double bearing = oldCoor.bearing(c);
+                        segment.setDir(i, ((int) (bearing / Math.PI * 4 + 1.5)) % 8);
                     } else {
-                        trkPnt.drawLine = false;
+                        segment.setDrawLine(i, false);
                     }
                 } else { // make sure we reset outdated data
-                    trkPnt.drawLine = false;
+                    segment.setDrawLine(i, false);
                     color = neutralColor;
                 }
                 if (color != null) {
-                    trkPnt.customColoring = color;
+                    segment.setCustomColoring(i, color);
                 }
-                oldWp = trkPnt;
+                oldLine = segment;
+                oldWp = i;
             }
         }
 
@@ -636,6 +761,12 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
             // force redraw of image
             heatMapMapViewState = null;
         }
+        // the connections between points may have changed
+        heatMapTiles.clear();
+        heatMapMapViewState = null;
+        synchronized (pyramids) {
+            pyramids.values().forEach(GpxLinePyramid::invalidateLevels);
+        }
 
         computeCacheInSync = true;
     }
@@ -646,18 +777,18 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * @param mv              the meta data to current displayed area
      * @param visibleSegments segments visible in the current scope of mv
      */
-    private void drawLines(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+    private void drawLines(Graphics2D g, MapView mv, VisiblePoints visibleSegments) {
         if (lines) {
             Point old = null;
-            for (WayPoint trkPnt : visibleSegments) {
-                if (!trkPnt.isLatLonKnown()) {
+            for (int k = 0; k < visibleSegments.size(); k++) {
+                if (!visibleSegments.isLatLonKnown(k)) {
                     old = null;
                     continue;
                 }
-                Point screen = mv.getPoint(trkPnt);
+                Point screen = visibleSegments.getPoint(mv, k);
                 // skip points that are on the same screenposition
-                if (trkPnt.drawLine && old != null && ((old.x != screen.x) || (old.y != screen.y))) {
-                    g.setColor(trkPnt.customColoring);
+                if (visibleSegments.isDrawLine(k) && old != null && ((old.x != screen.x) || (old.y != screen.y))) {
+                    g.setColor(visibleSegments.getCustomColoring(k));
                     g.drawLine(old.x, old.y, screen.x, screen.y);
                 }
                 old = screen;
@@ -671,25 +802,25 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * @param mv              the meta data to current displayed area
      * @param visibleSegments segments visible in the current scope of mv
      */
-    private void drawArrows(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+    private void drawArrows(Graphics2D g, MapView mv, VisiblePoints visibleSegments) {
         /****************************************************************
          ********** STEP 3b - DRAW NICE ARROWS **************************
          ****************************************************************/
         if (lines && direction && !alternateDirection) {
             Point old = null;
             Point oldA = null; // last arrow painted
-            for (WayPoint trkPnt : visibleSegments) {
-                if (!trkPnt.isLatLonKnown()) {
+            for (int k = 0; k < visibleSegments.size(); k++) {
+                if (!visibleSegments.isLatLonKnown(k)) {
                     old = null;
                     continue;
                 }
-                if (trkPnt.drawLine) {
-                    Point screen = mv.getPoint(trkPnt);
+                if (visibleSegments.isDrawLine(k)) {
+                    Point screen = visibleSegments.getPoint(mv, k);
                     // skip points that are on the same screenposition
                     if (old != null
                             && (oldA == null || screen.x < oldA.x - delta || screen.x > oldA.x + delta
                             || screen.y < oldA.y - delta || screen.y > oldA.y + delta)) {
-                        g.setColor(trkPnt.customColoring);
+                        g.setColor(visibleSegments.getCustomColoring(k));
                         double t = Math.atan2((double) screen.y - old.y, (double) screen.x - old.x) + Math.PI;
                         g.drawLine(screen.x, screen.y, (int) (screen.x + 10 * Math.cos(t - PHI)),
                                 (int) (screen.y + 10 * Math.sin(t - PHI)));
@@ -708,22 +839,22 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         if (lines && direction && alternateDirection) {
             Point old = null;
             Point oldA = null; // last arrow painted
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+            for (int k = 0; k < visibleSegments.size(); k++) {
+                if (!visibleSegments.isLatLonKnown(k)) {
                     continue;
                 }
-                if (trkPnt.drawLine) {
-                    Point screen = mv.getPoint(trkPnt);
+                if (visibleSegments.isDrawLine(k)) {
+                    Point screen = visibleSegments.getPoint(mv, k);
                     // skip points that are on the same screenposition
                     if (old != null
                             && (oldA == null || screen.x < oldA.x - delta || screen.x > oldA.x + delta
                             || screen.y < oldA.y - delta || screen.y > oldA.y + delta)) {
-                        g.setColor(trkPnt.customColoring);
-                        g.drawLine(screen.x, screen.y, screen.x + dir[trkPnt.dir][0], screen.y
-                                + dir[trkPnt.dir][1]);
-                        g.drawLine(screen.x, screen.y, screen.x + dir[trkPnt.dir][2], screen.y
-                                + dir[trkPnt.dir][3]);
+                        int d = visibleSegments.getDir(k);
+                        g.setColor(visibleSegments.getCustomColoring(k));
+                        g.drawLine(screen.x, screen.y, screen.x + dir[d][0], screen.y
+                                + dir[d][1]);
+                        g.drawLine(screen.x, screen.y, screen.x + dir[d][2], screen.y
+                                + dir[d][3]);
                         oldA = screen;
                     }
                     old = screen;
@@ -738,39 +869,40 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * @param mv              the meta data to current displayed area
      * @param visibleSegments segments visible in the current scope of mv
      */
-    private void drawPoints(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+    private void drawPoints(Graphics2D g, MapView mv, VisiblePoints visibleSegments) {
         /****************************************************************
          ********** STEP 3d - DRAW LARGE POINTS AND HDOP CIRCLE *********
          ****************************************************************/
         if (large || hdopCircle) {
             final int halfSize = largesize/2;
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+            for (int k = 0; k < visibleSegments.size(); k++) {
+                if (!visibleSegments.isLatLonKnown(k)) {
                     continue;
                 }
-                Point screen = mv.getPoint(trkPnt);
+                Point screen = visibleSegments.getPoint(mv, k);
+                Color customColoring = visibleSegments.getCustomColoring(k);
+                // hdop value
+                float hdop = visibleSegments.getHdop(k);
 
-                if (hdopCircle && trkPnt.get(GpxConstants.PT_HDOP) != null) {
-                    // hdop value
-                    float hdop = (Float) trkPnt.get(GpxConstants.PT_HDOP);
+                if (hdopCircle && !Float.isNaN(hdop)) {
                     if (hdop < 0) {
                         hdop = 0;
                     }
-                    Color customColoringTransparent = hdopAlpha < 0 ? trkPnt.customColoring :
-                        new Color((trkPnt.customColoring.getRGB() & 0x00ffffff) | (hdopAlpha << 24), true);
+                    Color customColoringTransparent = hdopAlpha < 0 ? customColoring :
+                        new Color((customColoring.getRGB() & 0x00ffffff) | (hdopAlpha << 24), true);
                     g.setColor(customColoringTransparent);
                     // hdop circles
+                    LatLon c = visibleSegments.getCoor(k);
                     int hdopp = mv.getPoint(new LatLon(
-                            trkPnt.getCoor().lat(),
-                            trkPnt.getCoor().lon() + 2d*6*hdop*360/40000000d)).x - screen.x;
+                            c.lat(),
+                            c.lon() + 2d*6*hdop*360/40000000d)).x - screen.x;
                     g.drawArc(screen.x-hdopp/2, screen.y-hdopp/2, hdopp, hdopp, 0, 360);
                 }
                 if (large) {
                     // color the large GPS points like the gps lines
-                    if (trkPnt.customColoring != null) {
-                        Color customColoringTransparent = largePointAlpha < 0 ? trkPnt.customColoring :
-                            new Color((trkPnt.customColoring.getRGB() & 0x00ffffff) | (largePointAlpha << 24), true);
+                    if (customColoring != null) {
+                        Color customColoringTransparent = largePointAlpha < 0 ? customColoring :
+                            new Color((customColoring.getRGB() & 0x00ffffff) | (largePointAlpha << 24), true);
 
                         g.setColor(customColoringTransparent);
                     }
@@ -784,13 +916,12 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
          ****************************************************************/
         if (!large && lines) {
             g.setColor(neutralColor);
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+            for (int k = 0; k < visibleSegments.size(); k++) {
+                if (!visibleSegments.isLatLonKnown(k)) {
                     continue;
                 }
-                if (!trkPnt.drawLine) {
-                    Point screen = mv.getPoint(trkPnt);
+                if (!visibleSegments.isDrawLine(k)) {
+                    Point screen = visibleSegments.getPoint(mv, k);
                     g.drawRect(screen.x, screen.y, 0, 0);
                 }
             } // end for trkpnt
@@ -801,13 +932,12 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
          ****************************************************************/
         if (!large && !lines) {
             g.setColor(neutralColor);
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+            for (int k = 0; k < visibleSegments.size(); k++) {
+                if (!visibleSegments.isLatLonKnown(k)) {
                     continue;
                 }
-                Point screen = mv.getPoint(trkPnt);
-                g.setColor(trkPnt.customColoring);
+                Point screen = visibleSegments.getPoint(mv, k);
+                g.setColor(visibleSegments.getCustomColoring(k));
                 g.drawRect(screen.x, screen.y, 0, 0);
             } // end for trkpnt
         } // end if large
@@ -820,7 +950,7 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * @param visibleSegments segments visible in the current scope of mv
      * @param layerAlpha      the color alpha value set for that operation
      */
-    private void drawLinesAlpha(Graphics2D g, MapView mv, List<WayPoint> visibleSegments, float layerAlpha) {
+    private void drawLinesAlpha(Graphics2D g, MapView mv, VisiblePoints visibleSegments, float layerAlpha) {
 
         // 1st. backup the paint environment ----------------------------------
         Composite oldComposite = g.getComposite();
@@ -853,16 +983,16 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         // 5th draw the layer ---------------------------------------------------
 
         // for all points
-        for (WayPoint trkPnt : visibleSegments) {
+        for (int k = 0; k < visibleSegments.size(); k++) {
 
             // transform coordinates
-            final Point paintPnt = mv.getPoint(trkPnt);
+            final Point paintPnt = visibleSegments.getPoint(mv, k);
 
             // skip single points
-            if (lastPaintPnt != null && trkPnt.drawLine && !lastPaintPnt.equals(paintPnt)) {
+            if (lastPaintPnt != null && visibleSegments.isDrawLine(k) && !lastPaintPnt.equals(paintPnt)) {
 
                 // set different color
-                g.setColor(trkPnt.customColoring);
+                g.setColor(visibleSegments.getCustomColoring(k));
 
                 // draw it
                 g.drawLine(lastPaintPnt.x, lastPaintPnt.y, paintPnt.x, paintPnt.y);
@@ -1088,63 +1218,6 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         return new ImageIcon(createImageGradientMap(size, size, selectColorMap(userColor, tableIdx)));
     }
 
-    /**
-     * Draw gray heat map with current Graphics2D setting
-     * @param gB              the common draw object to use
-     * @param mv              the meta data to current displayed area
-     * @param listSegm        segments visible in the current scope of mv
-     * @param foreComp        composite use to draw foreground objects
-     * @param foreStroke      stroke use to draw foreground objects
-     * @param backComp        composite use to draw background objects
-     * @param backStroke      stroke use to draw background objects
-     */
-    private void drawHeatGrayLineMap(Graphics2D gB, MapView mv, List<WayPoint> listSegm,
-                                     Composite foreComp, Stroke foreStroke,
-                                     Composite backComp, Stroke backStroke) {
-
-        // draw foreground
-        boolean drawForeground = foreComp != null && foreStroke != null;
-
-        // set initial values
-        gB.setStroke(backStroke); gB.setComposite(backComp);
-
-        // get last point in list
-        final WayPoint lastPnt = !listSegm.isEmpty() ? listSegm.get(listSegm.size() - 1) : null;
-
-        // for all points, draw single lines by using optimized drawing
-        for (WayPoint trkPnt : listSegm) {
-
-            // get transformed coordinates
-            final Point paintPnt = mv.getPoint(trkPnt);
-
-            // end of line segment or end of list reached
-            if (!trkPnt.drawLine || (lastPnt == trkPnt)) {
-
-                // convert to primitive type
-                final int[] polyXArr = heatMapPolyX.stream().mapToInt(Integer::intValue).toArray();
-                final int[] polyYArr = heatMapPolyY.stream().mapToInt(Integer::intValue).toArray();
-
-                // a.) draw background
-                gB.drawPolyline(polyXArr, polyYArr, polyXArr.length);
-
-                // b.) draw extra foreground
-                if (drawForeground && heatMapDrawExtraLine) {
-
-                    gB.setStroke(foreStroke); gB.setComposite(foreComp);
-                    gB.drawPolyline(polyXArr, polyYArr, polyXArr.length);
-                    gB.setStroke(backStroke); gB.setComposite(backComp);
-                }
-
-                // drop used points
-                heatMapPolyX.clear(); heatMapPolyY.clear();
-            }
-
-            // store only the integer part (make sense because pixel is 1:1 here)
-            heatMapPolyX.add((int) paintPnt.getX());
-            heatMapPolyY.add((int) paintPnt.getY());
-        }
-    }
-
     /**
      * Map the gray map to heat map and draw them with current Graphics2D setting
      * @param g               the common draw object to use
@@ -1245,14 +1318,12 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * Collect and draw GPS segments and displays a heat-map
      * @param g               the common draw object to use
      * @param mv              the meta data to current displayed area
-     * @param visibleSegments segments visible in the current scope of mv
      */
-    private void drawHeatMap(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+    private void drawHeatMap(Graphics2D g, MapView mv) {
 
         // get bounds of screen image and projection, zoom and adjust input parameters
         final Rectangle screenBounds = new Rectangle(mv.getWidth(), mv.getHeight());
         final MapViewState mapViewState = mv.getState();
-        final double zoomScale = mv.getDist100Pixel() / 50.0f;
 
         // adjust global settings ( zero = default line width )
         final int globalLineWidth = (0 == lineWidth) ? 1 : Utils.clamp(lineWidth, 1, 20);
@@ -1266,41 +1337,17 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         if (imageSetup) {
             // we would use a "pure" grayscale image, but there is not efficient way to map gray scale values to RGB)
             heatMapImgGray = new BufferedImage(screenBounds.width, screenBounds.height, BufferedImage.TYPE_INT_ARGB);
-            heatMapGraph2d = heatMapImgGray.createGraphics();
-            heatMapGraph2d.setBackground(new Color(0, 0, 0, 255));
-            heatMapGraph2d.setColor(Color.WHITE);
-
-            // fast draw ( maybe help or not )
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_SPEED);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_DISABLE);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
-            heatMapGraph2d.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
 
             // cache it
             heatMapCacheScreenBounds = screenBounds;
         }
 
-        // 2nd. determine current scale factors -------------------------------
-
-        // the line width (foreground: draw extra small footprint line of track)
-        int lineWidthB = (int) Math.max(1.5f * (globalLineWidth / zoomScale) + 1, 2);
-        int lineWidthF = lineWidthB > 2 ? (globalLineWidth - 1) : 0;
-
-        // global alpha adjustment
-        float lineAlpha = (float) Utils.clamp((0.40 / zoomScale) / (globalLineWidth + 1), 0.01, 0.40);
+        // 2nd Calculate the heat map data from the density tiles ----------
 
-        // adjust 0.15 .. 1.85
-        float scaleAlpha = 1.0f + ((heatMapDrawGain/10.0f) * 0.85f);
-
-        // add to calculated values
-        float lineAlphaBPoint = (float) Utils.clamp((lineAlpha * 0.65) * scaleAlpha, 0.001, 0.90);
-        float lineAlphaBLine = (float) Utils.clamp((lineAlpha * 1.00) * scaleAlpha, 0.001, 0.90);
-        float lineAlphaFLine = (float) Utils.clamp((lineAlpha / 1.50) * scaleAlpha, 0.001, 0.90);
-
-        // 3rd Calculate the heat map data by draw GPX traces with alpha value ----------
+        // the density must be accumulated again
+        if (gpxLayerInvalidated) {
+            heatMapTiles.clear();
+        }
 
         // recalculation of image needed
         final boolean imageRecalc = !mapViewState.equalsInWindow(heatMapMapViewState)
@@ -1309,22 +1356,8 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
 
         // need re-generation of gray image ?
         if (imageSetup || imageRecalc) {
-
-            // clear background
-            heatMapGraph2d.clearRect(0, 0, heatMapImgGray.getWidth(), heatMapImgGray.getHeight());
-
-            // point or line blending
-            if (heatMapDrawPointMode) {
-                heatMapGraph2d.setComposite(AlphaComposite.SrcOver.derive(lineAlphaBPoint));
-                drawHeatGrayDotMap(heatMapGraph2d, mv, visibleSegments, lineWidthB);
-
-            } else {
-                drawHeatGrayLineMap(heatMapGraph2d, mv, visibleSegments,
-                                    lineWidthF > 1 ? AlphaComposite.SrcOver.derive(lineAlphaFLine) : null,
-                                    new BasicStroke(lineWidthF, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND),
-                                    AlphaComposite.SrcOver.derive(lineAlphaBLine),
-                                    new BasicStroke(lineWidthB, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-            }
+            heatMapLineWidth = heatMapTiles.render(mapViewState, mv.getDist100Pixel(), globalLineWidth, heatMapDrawPointMode,
+                    heatMapDrawExtraLine, heatMapDrawGain, getPyramids(getLines(layer.trackVisibility)), heatMapImgGray);
 
             // remember draw parameter
             heatMapMapViewState = mapViewState;
@@ -1332,118 +1365,19 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
             gpxLayerInvalidated = false;
         }
 
-        // 4th. Draw data on target layer, map data via color lookup table --------------
-        drawHeatMapGrayMap(g, heatMapImgGray, lineWidthB > 2 ? (int) (lineWidthB*1.25f) : 1, lineWidth > 2 ? (lineWidth - 2) : 1);
-    }
-
-    /**
-     * Draw a dotted heat map
-     *
-     * @param gB              the common draw object to use
-     * @param mv              the meta data to current displayed area
-     * @param listSegm        segments visible in the current scope of mv
-     * @param drawSize        draw size of draw element
-     */
-    private static void drawHeatGrayDotMap(Graphics2D gB, MapView mv, List<WayPoint> listSegm, int drawSize) {
-
-        // typical rendering rate -> use realtime preview instead of accurate display
-        final double maxSegm = 25_000, nrSegms = listSegm.size();
-
-        // determine random drop rate
-        final double randomDrop = Math.min(nrSegms > maxSegm ? (nrSegms - maxSegm) / nrSegms : 0, 0.70f);
-
-        // http://www.nstb.tc.faa.gov/reports/PAN94_0716.pdf#page=22
-        // Global Average Position Domain Accuracy, typical -> not worst case !
-        // < 4.218 m Vertical
-        // < 2.168 m Horizontal
-        final double pixelRmsX = (100 / mv.getDist100Pixel()) * 2.168;
-        final double pixelRmsY = (100 / mv.getDist100Pixel()) * 4.218;
-
-        Point lastPnt = null;
-
-        // for all points, draw single lines
-        for (WayPoint trkPnt : listSegm) {
-
-            // get transformed coordinates
-            final Point paintPnt = mv.getPoint(trkPnt);
-
-            // end of line segment or end of list reached
-            if (trkPnt.drawLine && null != lastPnt) {
-                drawHeatSurfaceLine(gB, paintPnt, lastPnt, drawSize, pixelRmsX, pixelRmsY, randomDrop);
-            }
-
-            // remember
-            lastPnt = paintPnt;
-        }
-    }
-
-    /**
-     * Draw a dotted surface line
-     *
-     * @param g                 the common draw object to use
-     * @param fromPnt           start point
-     * @param toPnt             end point
-     * @param drawSize          size of draw elements
-     * @param rmsSizeX          RMS size of circle for X (width)
-     * @param rmsSizeY          RMS size of circle for Y (height)
-     * @param dropRate          Pixel render drop rate
-     */
-    private static void drawHeatSurfaceLine(Graphics2D g,
-            Point fromPnt, Point toPnt, int drawSize, double rmsSizeX, double rmsSizeY, double dropRate) {
-
-        // collect frequently used items
-        final int fromX = (int) fromPnt.getX(); final int deltaX = (int) (toPnt.getX() - fromX);
-        final int fromY = (int) fromPnt.getY(); final int deltaY = (int) (toPnt.getY() - fromY);
-
-        // use same random values for each point
-        final Random heatMapRandom = new Random(fromX+fromY+deltaX+deltaY);
-
-        // cache distance between start and end point
-        final int dist = (int) Math.abs(fromPnt.distance(toPnt));
-
-        // number of increment ( fill wide distance tracks )
-        double scaleStep = Math.max(1.0f / dist, dist > 100 ? 0.10f : 0.20f);
-
-        // number of additional random points
-        int rounds = Math.min(drawSize/2, 1)+1;
-
-        // decrease random noise at high drop rate ( more accurate draw of fewer points )
-        rmsSizeX *= (1.0d - dropRate);
-        rmsSizeY *= (1.0d - dropRate);
-
-        double scaleVal = 0;
-
-        // interpolate line draw ( needs separate point instead of line )
-        while (scaleVal < (1.0d-0.0001d)) {
-
-            // get position
-            final double pntX = fromX + scaleVal * deltaX;
-            final double pntY = fromY + scaleVal * deltaY;
-
-            // add random distribution around sampled point
-            for (int k = 0; k < rounds; k++) {
-
-                // add error distribution, first point with less error
-                int x = (int) (pntX + heatMapRandom.nextGaussian() * (k > 0 ? rmsSizeX : rmsSizeX/4));
-                int y = (int) (pntY + heatMapRandom.nextGaussian() * (k > 0 ? rmsSizeY : rmsSizeY/4));
-
-                // draw it, even drop is requested
-                if (heatMapRandom.nextDouble() >= dropRate) {
-                    g.fillRect(x-drawSize, y-drawSize, drawSize, drawSize);
-                }
-            }
-            scaleVal += scaleStep;
-        }
+        // 3rd. Draw data on target layer, map data via color lookup table --------------
+        drawHeatMapGrayMap(g, heatMapImgGray, heatMapLineWidth > 2 ? (int) (heatMapLineWidth*1.25f) : 1,
+                lineWidth > 2 ? (lineWidth - 2) : 1);
     }
 
     /**
      * Apply default color configuration to way segments
      * @param visibleSegments segments visible in the current scope of mv
      */
-    private void fixColors(List<WayPoint> visibleSegments) {
-        for (WayPoint trkPnt : visibleSegments) {
-            if (trkPnt.customColoring == null) {
-                trkPnt.customColoring = neutralColor;
+    private void fixColors(VisiblePoints visibleSegments) {
+        for (int k = 0; k < visibleSegments.size(); k++) {
+            if (visibleSegments.getCustomColoring(k) == null) {
+                visibleSegments.setCustomColoring(k, neutralColor);
             }
         }
     }
@@ -1483,6 +1417,10 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
     @Override
     public void gpxDataChanged(GpxDataChangeEvent e) {
         computeCacheInSync = false;
+        synchronized (convertedLines) {
+            convertedLines.clear();
+        }
+        // the pyramids of the unchanged segments are kept, see getPyramids
     }
 
     /**
@@ -1517,4 +1455,72 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         layer.removeInvalidationListener(this);
         data.removeChangeListener(this);
     }
+
+    /**
+     * Points of the visible lines, in drawing order. Each entry references a point in the columns of its line.
+     */
+    private static final class VisiblePoints {
+        private WayPointColumns[] lines = new WayPointColumns[256];
+        private int[] indexes = new int[256];
+        /** entries which are not connected to the previous entry */
+        private final BitSet lineBreaks = new BitSet();
+        private int size;
+
+        void add(WayPointColumns line, int index, boolean lineBreak) {
+            if (size == indexes.length) {
+                lines = Arrays.copyOf(lines, 2 * size);
+                indexes = Arrays.copyOf(indexes, 2 * size);
+            }
+            lines[size] = line;
+            indexes[size] = index;
+            if (lineBreak) {
+                lineBreaks.set(size);
+            }
+            size++;
+        }
+
+        boolean isLast(WayPointColumns line, int index) {
+            return size > 0 && lines[size - 1] == line && indexes[size - 1] == index;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean isLatLonKnown(int k) {
+            return lines[k].isLatLonKnown(indexes[k]);
+        }
+
+        LatLon getCoor(int k) {
+            return lines[k].getCoor(indexes[k]);
+        }
+
+        Point getPoint(MapView mv, int k) {
+            return mv.getPoint(lines[k].getEastNorth(indexes[k], Main.getProjection()));
+        }
+
+        boolean isDrawLine(int k) {
+            return !lineBreaks.get(k) && lines[k].isDrawLine(indexes[k]);
+        }
+
+        int getDir(int k) {
+            return lines[k].getDir(indexes[k]);
+        }
+
+        Color getCustomColoring(int k) {
+            return lines[k].getCustomColoring(indexes[k]);
+        }
+
+        void setCustomColoring(int k, Color color) {
+            lines[k].setCustomColoring(indexes[k], color);
+        }
+
+        float getHdop(int k) {
+            return lines[k].getHdop(indexes[k]);
+        }
+    }
 }
@@ -0,0 +1,494 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.gpx;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.ProjectionBounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.gpx.WayPointColumns;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.gui.MapViewState;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Tiled heat map of GPX lines.
+ * <p>
+ * The density of the lines is accumulated in integer rasters, in tiles of a grid anchored in projected coordinates.
+ * Each tile counts, for each pixel, the number of traces covering it (line mode) or the number of dots drawn on it
+ * (point mode). The counts are converted to gray levels as if the traces had been drawn with alpha blending.
+ * <p>
+ * Tiles are cached per zoom level, so that only the newly exposed tiles are computed when panning. Missing tiles
+ * are computed in parallel, each one visiting only the lines intersecting it through their {@link GpxLinePyramid},
+ * at the level of detail matching the scale in line mode.
+ */
+final class GpxHeatMapTiles {
+
+    /** Maximal number of cached tiles per zoom level */
+    static final IntegerProperty PROP_CACHED_TILES = new IntegerProperty("draw.rawgps.heatmap.cached-tiles", 96);
+
+    /** Width and height of tiles, in pixels */
+    static final int TILE_SIZE = 256;
+    /** Maximal number of cached zoom levels */
+    private static final int MAX_LEVELS = 3;
+    /** Maximal radius of the lines, in pixels */
+    private static final int MAX_RADIUS = 32;
+
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool(
+                    "draw.rawgps.heatmap.numberOfThreads", "gpx-heatmap-%d", Thread.NORM_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
+    private final Map<LevelKey, Level> levels = new LinkedHashMap<LevelKey, Level>(MAX_LEVELS + 1, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LevelKey, Level> eldest) {
+            return size() > MAX_LEVELS;
+        }
+    };
+
+    private int computedTiles;
+
+    /**
+     * Identifies a zoom level and the drawing settings affecting the density.
+     */
+    private static final class LevelKey {
+        private final Object projection;
+        private final double scale;
+        private final int lineWidth;
+        private final boolean pointMode;
+        private final boolean extraLine;
+
+        LevelKey(Object projection, double scale, int lineWidth, boolean pointMode, boolean extraLine) {
+            this.projection = projection;
+            this.scale = scale;
+            this.lineWidth = lineWidth;
+            this.pointMode = pointMode;
+            this.extraLine = extraLine;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(projection, scale, lineWidth, pointMode, extraLine);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            LevelKey other = (LevelKey) obj;
+            return Double.compare(scale, other.scale) == 0 && lineWidth == other.lineWidth && pointMode == other.pointMode
+                    && extraLine == other.extraLine && Objects.equals(projection, other.projection);
+        }
+    }
+
+    /**
+     * A zoom level: its drawing parameters, fixed when the level is first rendered, and its tiles.
+     */
+    private static final class Level {
+        private final LevelKey key;
+        /** the line width (foreground: draw extra small footprint line of track) */
+        private final int backWidth;
+        private final int foreWidth;
+        /** Alpha value of the traces, before gain adjustment */
+        private final double lineAlpha;
+        /** Typical positional accuracy, in pixels */
+        private final double pixelRmsX;
+        private final double pixelRmsY;
+        /** Offsets of the pixels of the lines */
+        private final int[] backDisk;
+        private final int[] foreDisk;
+        /** Distance from the tiles at which the lines contribute to them */
+        private final int margin;
+        private final Map<Long, Tile> tiles = new LinkedHashMap<Long, Tile>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest) {
+                return size() > PROP_CACHED_TILES.get();
+            }
+        };
+
+        Level(LevelKey key, double dist100Pixel) {
+            this.key = key;
+            double zoomScale = dist100Pixel / 50.0f;
+            backWidth = (int) Math.max(1.5f * (key.lineWidth / zoomScale) + 1, 2);
+            foreWidth = key.extraLine && backWidth > 2 && key.lineWidth - 1 > 1 ? key.lineWidth - 1 : 0;
+            lineAlpha = Utils.clamp((0.40 / zoomScale) / (key.lineWidth + 1), 0.01, 0.40);
+            // http://www.nstb.tc.faa.gov/reports/PAN94_0716.pdf#page=22
+            // Global Average Position Domain Accuracy, typical -> not worst case !
+            // < 4.218 m Vertical
+            // < 2.168 m Horizontal
+            pixelRmsX = (100 / dist100Pixel) * 2.168;
+            pixelRmsY = (100 / dist100Pixel) * 4.218;
+            backDisk = disk(backWidth / 2.0);
+            foreDisk = foreWidth > 0 ? disk(foreWidth / 2.0) : null;
+            margin = key.pointMode
+                    ? (int) Math.min(TILE_SIZE, 4 * Math.max(pixelRmsX, pixelRmsY) + backWidth + 2)
+                    : Math.min(MAX_RADIUS, backWidth / 2) + 2;
+        }
+
+        /**
+         * Returns the alpha values of the traces, as drawn with Java2D.
+         */
+        double[] getAlphas(int gain) {
+            // adjust 0.15 .. 1.85
+            double scaleAlpha = 1.0f + ((gain / 10.0f) * 0.85f);
+            if (key.pointMode) {
+                return new double[] {Utils.clamp((lineAlpha * 0.65) * scaleAlpha, 0.001, 0.90), 0};
+            }
+            return new double[] {Utils.clamp((lineAlpha * 1.00) * scaleAlpha, 0.001, 0.90),
+                    foreWidth > 0 ? Utils.clamp((lineAlpha / 1.50) * scaleAlpha, 0.001, 0.90) : 0};
+        }
+    }
+
+    /**
+     * Accumulated density of a tile.
+     */
+    private static final class Tile {
+        /** Number of background traces or dots on each pixel, saturated */
+        private final char[] back = new char[TILE_SIZE * TILE_SIZE];
+        /** Number of foreground traces on each pixel, saturated, {@code null} if there is no foreground line */
+        private final char[] fore;
+
+        Tile(boolean withForeground) {
+            fore = withForeground ? new char[TILE_SIZE * TILE_SIZE] : null;
+        }
+    }
+
+    /**
+     * Returns the offsets of the pixels of a disk.
+     * @param radius the disk radius
+     * @return the offsets, as {@code x, y} pairs
+     */
+    private static int[] disk(double radius) {
+        int r = (int) Math.min(MAX_RADIUS, Math.ceil(radius - 0.5));
+        double r2 = Math.max(radius * radius, 0.25);
+        int[] result = new int[2 * (2 * r + 1) * (2 * r + 1)];
+        int n = 0;
+        for (int dy = -r; dy <= r; dy++) {
+            for (int dx = -r; dx <= r; dx++) {
+                if (dx * dx + dy * dy <= r2) {
+                    result[n++] = dx;
+                    result[n++] = dy;
+                }
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Discards all cached tiles, after a change of the data.
+     */
+    synchronized void clear() {
+        levels.clear();
+    }
+
+    /**
+     * Returns the number of tiles computed so far.
+     * @return the number of tiles computed so far
+     */
+    synchronized int getComputedTiles() {
+        return computedTiles;
+    }
+
+    /**
+     * Renders the density of the lines in the view as a gray image.
+     * @param state the map view state
+     * @param dist100Pixel the distance of 100 pixels, used to size the traces when a zoom level is first rendered
+     * @param lineWidth the line width setting
+     * @param pointMode {@code true} to draw dots around the lines, {@code false} to draw lines
+     * @param extraLine {@code true} to draw an extra foreground line
+     * @param gain the gain, from -10 to 10
+     * @param lines the lines to draw
+     * @param target the target image, of type {@link BufferedImage#TYPE_INT_ARGB}, with the size of the view
+     * @return the width of the background lines, in pixels
+     */
+    synchronized int render(MapViewState state, double dist100Pixel, int lineWidth, boolean pointMode, boolean extraLine,
+            int gain, List<GpxLinePyramid> lines, BufferedImage target) {
+        Projection projection = state.getProjection();
+        double scale = state.getScale();
+        LevelKey key = new LevelKey(projection.getCacheKey(), scale, lineWidth, pointMode, extraLine);
+        Level level = levels.computeIfAbsent(key, k -> new Level(k, dist100Pixel));
+
+        // the view is aligned on the pixels of the tile grid
+        EastNorth topLeft = state.getForView(0, 0).getEastNorth();
+        long originX = Math.round(topLeft.east() / scale);
+        long originY = Math.round(-topLeft.north() / scale);
+        int width = target.getWidth();
+        int height = target.getHeight();
+        long minTileX = Math.floorDiv(originX, TILE_SIZE);
+        long minTileY = Math.floorDiv(originY, TILE_SIZE);
+        int tilesX = (int) (Math.floorDiv(originX + width - 1, TILE_SIZE) - minTileX + 1);
+        int tilesY = (int) (Math.floorDiv(originY + height - 1, TILE_SIZE) - minTileY + 1);
+
+        Tile[] tiles = new Tile[tilesX * tilesY];
+        List<long[]> missing = new ArrayList<>();
+        for (int j = 0; j < tilesY; j++) {
+            for (int i = 0; i < tilesX; i++) {
+                tiles[j * tilesX + i] = level.tiles.get(tileKey(minTileX + i, minTileY + j));
+                if (tiles[j * tilesX + i] == null) {
+                    missing.add(new long[] {minTileX + i, minTileY + j});
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<Tile> computed = computeTiles(level, projection, lines, missing);
+            for (int k = 0; k < missing.size(); k++) {
+                long[] t = missing.get(k);
+                tiles[(int) ((t[1] - minTileY) * tilesX + t[0] - minTileX)] = computed.get(k);
+                level.tiles.put(tileKey(t[0], t[1]), computed.get(k));
+            }
+            computedTiles += missing.size();
+        }
+
+        // convert the counts to gray levels
+        double[] alphas = level.getAlphas(gain);
+        float[] backLut = transmittance(alphas[0]);
+        float[] foreLut = alphas[1] > 0 ? transmittance(alphas[1]) : null;
+        int[] pixels = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+        int offsetX = (int) Math.floorMod(originX, TILE_SIZE);
+        int offsetY = (int) Math.floorMod(originY, TILE_SIZE);
+        for (int y = 0; y < height; y++) {
+            int ty = (offsetY + y) / TILE_SIZE;
+            int ly = (offsetY + y) % TILE_SIZE;
+            for (int x = 0; x < width; x++) {
+                Tile tile = tiles[ty * tilesX + (offsetX + x) / TILE_SIZE];
+                int p = ly * TILE_SIZE + (offsetX + x) % TILE_SIZE;
+                float t = get(backLut, tile.back[p]);
+                if (tile.fore != null && foreLut != null) {
+                    t *= get(foreLut, tile.fore[p]);
+                }
+                int gray = (int) (255 * (1 - t) + 0.5f);
+                pixels[y * width + x] = 0xff000000 | (gray << 16) | (gray << 8) | gray;
+            }
+        }
+        return level.backWidth;
+    }
+
+    private static long tileKey(long x, long y) {
+        return (x << 32) | (y & 0xffffffffL);
+    }
+
+    /**
+     * Returns the transmittance of a number of overlapping traces, drawn with the given alpha value.
+     * @param alpha the alpha value of the traces
+     * @return the transmittance for each number of traces, until it is negligible
+     */
+    private static float[] transmittance(double alpha) {
+        int n = 1;
+        while (n < Character.MAX_VALUE && Math.pow(1 - alpha, n) * 255 >= 0.25) {
+            n++;
+        }
+        float[] lut = new float[n];
+        for (int i = 0; i < n; i++) {
+            lut[i] = (float) Math.pow(1 - alpha, i);
+        }
+        return lut;
+    }
+
+    private static float get(float[] lut, int count) {
+        return count < lut.length ? lut[count] : 0;
+    }
+
+    private List<Tile> computeTiles(Level level, Projection projection, List<GpxLinePyramid> lines, List<long[]> missing) {
+        if (THREAD_POOL == null || missing.size() == 1) {
+            return missing.stream().map(t -> computeTile(level, projection, lines, t[0], t[1])).collect(Collectors.toList());
+        }
+        return THREAD_POOL.submit(() -> missing.parallelStream()
+                .map(t -> computeTile(level, projection, lines, t[0], t[1])).collect(Collectors.toList())).join();
+    }
+
+    /**
+     * Computes the density of a tile.
+     */
+    private static Tile computeTile(Level level, Projection projection, List<GpxLinePyramid> lines, long tileX, long tileY) {
+        double scale = level.key.scale;
+        int margin = level.margin;
+        double originX = (double) tileX * TILE_SIZE;
+        double originY = (double) tileY * TILE_SIZE;
+        ProjectionBounds pb = new ProjectionBounds(
+                (originX - margin) * scale, -(originY + TILE_SIZE + margin) * scale,
+                (originX + TILE_SIZE + margin) * scale, -(originY - margin) * scale);
+        Bounds box = projection.getLatLonBoundsBox(pb);
+        double lonWidth = box.getMaxLon() - box.getMinLon();
+        double lonPerPixel = (box.crosses180thMeridian() ? lonWidth + 360 : lonWidth) / (TILE_SIZE + 2 * margin);
+        double minLon = box.crosses180thMeridian() ? -180 : box.getMinLon();
+        double maxLon = box.crosses180thMeridian() ? 180 : box.getMaxLon();
+
+        Tile tile = new Tile(level.foreDisk != null);
+        int[] backStamps = level.key.pointMode ? null : new int[TILE_SIZE * TILE_SIZE];
+        int[] foreStamps = level.foreDisk != null ? new int[TILE_SIZE * TILE_SIZE] : null;
+        // identifier of the current trace, zero is the initial value of the stamps
+        int[] trace = {1};
+        for (GpxLinePyramid pyramid : lines) {
+            WayPointColumns line = pyramid.getLine();
+            int[] last = {-1};
+            // the number of dots depends on the number of segments: the lines cannot be simplified in point mode
+            int lod = level.key.pointMode ? 0 : pyramid.getLevelNumber(lonPerPixel);
+            pyramid.visit(lod, box.getMinLat(), minLon, box.getMaxLat(), maxLon, (i, previous) -> {
+                if (previous >= 0 && line.isDrawLine(i)) {
+                    if (previous != last[0]) {
+                        // new trace: pixels are counted once per trace
+                        trace[0]++;
+                    }
+                    EastNorth from = line.getEastNorth(previous, projection);
+                    EastNorth to = line.getEastNorth(i, projection);
+                    double x0 = from.east() / scale - originX;
+                    double y0 = -from.north() / scale - originY;
+                    double x1 = to.east() / scale - originX;
+                    double y1 = -to.north() / scale - originY;
+                    if (level.key.pointMode) {
+                        drawDots(tile.back, x0 + originX, y0 + originY, x1 + originX, y1 + originY,
+                                originX, originY, level.backWidth, level.pixelRmsX, level.pixelRmsY);
+                    } else {
+                        drawLine(tile.back, backStamps, trace[0], level.backDisk, x0, y0, x1, y1);
+                        if (foreStamps != null) {
+                            drawLine(tile.fore, foreStamps, trace[0], level.foreDisk, x0, y0, x1, y1);
+                        }
+                    }
+                }
+                last[0] = i;
+            });
+            trace[0]++;
+        }
+        return tile;
+    }
+
+    /**
+     * Increments the count of the pixels covered by a line segment, once per trace.
+     */
+    private static void drawLine(char[] counts, int[] stamps, int trace, int[] disk, double x0, double y0, double x1, double y1) {
+        // clip the segment to the tile, extended with the line radius (Liang-Barsky)
+        double min = -MAX_RADIUS - 1;
+        double max = TILE_SIZE + MAX_RADIUS + 1;
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double[] p = {-dx, dx, -dy, dy};
+        double[] q = {x0 - min, max - x0, y0 - min, max - y0};
+        double t0 = 0;
+        double t1 = 1;
+        for (int k = 0; k < 4; k++) {
+            if (p[k] == 0) {
+                if (q[k] < 0) {
+                    return;
+                }
+            } else {
+                double t = q[k] / p[k];
+                if (p[k] < 0) {
+                    t0 = Math.max(t0, t);
+                } else {
+                    t1 = Math.min(t1, t);
+                }
+            }
+        }
+        if (t0 > t1) {
+            return;
+        }
+        double sx = x0 + t0 * dx;
+        double sy = y0 + t0 * dy;
+        double len = (t1 - t0) * Math.sqrt(dx * dx + dy * dy);
+        int steps = Math.max(1, (int) Math.ceil(len));
+        double stepX = (t1 - t0) * dx / steps;
+        double stepY = (t1 - t0) * dy / steps;
+        for (int s = 0; s <= steps; s++) {
+            int cx = (int) Math.floor(sx + s * stepX);
+            int cy = (int) Math.floor(sy + s * stepY);
+            for (int k = 0; k < disk.length; k += 2) {
+                int x = cx + disk[k];
+                int y = cy + disk[k + 1];
+                if (x >= 0 && x < TILE_SIZE && y >= 0 && y < TILE_SIZE) {
+                    int pixel = y * TILE_SIZE + x;
+                    if (stamps[pixel] != trace) {
+                        stamps[pixel] = trace;
+                        if (counts[pixel] < Character.MAX_VALUE) {
+                            counts[pixel]++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Increments the count of the pixels covered by dots randomly distributed around a line segment.
+     * The dots only depend on the segment, so that they are the same in all tiles.
+     */
+    private static void drawDots(char[] counts, double fromPntX, double fromPntY, double toPntX, double toPntY,
+            double originX, double originY, int drawSize, double rmsSizeX, double rmsSizeY) {
+
+        // collect frequently used items
+        final long fromX = (long) Math.floor(fromPntX); final long deltaX = (long) Math.floor(toPntX) - fromX;
+        final long fromY = (long) Math.floor(fromPntY); final long deltaY = (long) Math.floor(toPntY) - fromY;
+
+        // use same random values for each point
+        final Random heatMapRandom = new Random(fromX+fromY+deltaX+deltaY);
+
+        // cache distance between start and end point
+        final int dist = (int) Math.min(Integer.MAX_VALUE, Math.hypot(deltaX, deltaY));
+
+        // number of increment ( fill wide distance tracks )
+        double scaleStep = Math.max(1.0f / dist, dist > 100 ? 0.10f : 0.20f);
+
+        // number of additional random points
+        int rounds = Math.min(drawSize/2, 1)+1;
+
+        double scaleVal = 0;
+
+        // interpolate line draw ( needs separate point instead of line )
+        while (scaleVal < (1.0d-0.0001d)) {
+
+            // get position
+            final double pntX = fromX + scaleVal * deltaX;
+            final double pntY = fromY + scaleVal * deltaY;
+
+            // add random distribution around sampled point
+            for (int k = 0; k < rounds; k++) {
+
+                // add error distribution, first point with less error
+                long x = (long) (pntX + heatMapRandom.nextGaussian() * (k > 0 ? rmsSizeX : rmsSizeX/4));
+                long y = (long) (pntY + heatMapRandom.nextGaussian() * (k > 0 ? rmsSizeY : rmsSizeY/4));
+
+                long left = x - drawSize - (long) originX;
+                long top = y - drawSize - (long) originY;
+                if (left < TILE_SIZE && left + drawSize > 0 && top < TILE_SIZE && top + drawSize > 0) {
+                    fillRect(counts, (int) left, (int) top, drawSize);
+                }
+            }
+            scaleVal += scaleStep;
+        }
+    }
+
+    private static void fillRect(char[] counts, int left, int top, int size) {
+        for (int y = Math.max(0, top); y < Math.min(TILE_SIZE, top + size); y++) {
+            for (int x = Math.max(0, left); x < Math.min(TILE_SIZE, left + size); x++) {
+                int pixel = y * TILE_SIZE + x;
+                if (counts[pixel] < Character.MAX_VALUE) {
+                    counts[pixel]++;
+                }
+            }
+        }
+    }
+}
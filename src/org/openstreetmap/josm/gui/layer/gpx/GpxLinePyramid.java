@@ -0,0 +1,364 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.gpx;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.openstreetmap.josm.data.gpx.WayPointColumns;
+import org.openstreetmap.josm.data.preferences.DoubleProperty;
+
+/**
+ * Level of detail pyramid and spatial index of a GPX line, used to draw large tracks.
+ * <p>
+ * The Douglas-Peucker tolerance of each point is computed once: it is the largest tolerance at which the point is kept
+ * by the simplification. A level of detail is made of the points kept at a given tolerance, each level doubling the
+ * tolerance of the previous one. Levels are built on demand, and indexed by a tree of bounding boxes over blocks of
+ * consecutive points, so that only the points of the visible blocks are visited.
+ * <p>
+ * The points which are not connected to their predecessor (see {@link WayPointColumns#isDrawLine(int)}) and their
+ * predecessors are kept at all levels. The levels must be rebuilt with {@link #invalidateLevels()} when this state changes.
+ */
+final class GpxLinePyramid {
+
+    /** Simplification tolerance, in pixels. Zero or negative to disable simplification */
+    static final DoubleProperty PROP_TOLERANCE = new DoubleProperty("draw.rawgps.lod-tolerance", 0.5);
+
+    /** Number of points in the leaves of the spatial index */
+    static final int BLOCK_SIZE = 64;
+    /** Tolerance of the first simplified level, in degrees of latitude (about 10 cm) */
+    private static final double BASE_TOLERANCE = 1e-6;
+    private static final int MAX_LEVELS = 40;
+
+    /**
+     * Visitor of the visible points.
+     */
+    @FunctionalInterface
+    interface PointVisitor {
+        /**
+         * Visits a visible point.
+         * @param index the point index
+         * @param previous the index of the previous point in the same level of detail, or -1 for the first point
+         */
+        void visit(int index, int previous);
+    }
+
+    private final WayPointColumns line;
+    /** Cosine of the mean latitude, to scale longitudes */
+    private final double cosLat;
+    /** Douglas-Peucker tolerance of each point, in scaled degrees. {@code NaN} for the points without coordinates */
+    private final float[] tolerance;
+    private final int first;
+    private final int last;
+    private final Level[] levels = new Level[MAX_LEVELS];
+
+    /**
+     * A level of detail, with its spatial index.
+     */
+    private static final class Level {
+        /** Indexes of the points of the level */
+        private final int[] indexes;
+        /**
+         * Bounding boxes of the tree nodes, from the leaves to the root, as {@code minLat, minLon, maxLat, maxLon}.
+         * The box of a leaf also contains the point preceding the block.
+         */
+        private final double[][] boxes;
+
+        Level(WayPointColumns line, int[] indexes) {
+            this.indexes = indexes;
+            int nodes = (indexes.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            double[] leaves = new double[4 * nodes];
+            for (int b = 0; b < nodes; b++) {
+                Arrays.fill(leaves, 4 * b, 4 * b + 2, Double.POSITIVE_INFINITY);
+                Arrays.fill(leaves, 4 * b + 2, 4 * b + 4, Double.NEGATIVE_INFINITY);
+                for (int j = Math.max(0, b * BLOCK_SIZE - 1); j < Math.min(indexes.length, (b + 1) * BLOCK_SIZE); j++) {
+                    extend(leaves, b, line.lat(indexes[j]), line.lon(indexes[j]));
+                }
+            }
+            int depth = 1;
+            for (int n = nodes; n > 1; n = (n + 1) / 2) {
+                depth++;
+            }
+            boxes = new double[depth][];
+            boxes[0] = leaves;
+            for (int d = 1; d < depth; d++) {
+                double[] children = boxes[d - 1];
+                double[] parents = new double[4 * ((children.length / 4 + 1) / 2)];
+                for (int c = 0; c < children.length / 4; c++) {
+                    int p = c / 2;
+                    if (c % 2 == 0) {
+                        System.arraycopy(children, 4 * c, parents, 4 * p, 4);
+                    } else {
+                        extend(parents, p, children[4 * c], children[4 * c + 1]);
+                        extend(parents, p, children[4 * c + 2], children[4 * c + 3]);
+                    }
+                }
+                boxes[d] = parents;
+            }
+        }
+
+        private static void extend(double[] boxes, int node, double lat, double lon) {
+            boxes[4 * node] = Math.min(boxes[4 * node], lat);
+            boxes[4 * node + 1] = Math.min(boxes[4 * node + 1], lon);
+            boxes[4 * node + 2] = Math.max(boxes[4 * node + 2], lat);
+            boxes[4 * node + 3] = Math.max(boxes[4 * node + 3], lon);
+        }
+    }
+
+    /**
+     * Constructs a new {@code GpxLinePyramid}, computing the Douglas-Peucker tolerance of the points.
+     * @param line the line
+     */
+    GpxLinePyramid(WayPointColumns line) {
+        this.line = line;
+        int size = line.size();
+        int[] known = new int[size];
+        int n = 0;
+        double latSum = 0;
+        for (int i = 0; i < size; i++) {
+            if (line.isLatLonKnown(i)) {
+                known[n++] = i;
+                latSum += line.lat(i);
+            }
+        }
+        tolerance = new float[size];
+        Arrays.fill(tolerance, Float.NaN);
+        first = n > 0 ? known[0] : -1;
+        last = n > 0 ? known[n - 1] : -1;
+        cosLat = n > 0 ? Math.max(0.01, Math.cos(Math.toRadians(latSum / n))) : 1;
+        if (n > 0) {
+            computeTolerances(Arrays.copyOf(known, n));
+        }
+    }
+
+    /**
+     * Computes the tolerances with an iterative Douglas-Peucker simplification. The tolerance of a point is bounded
+     * by the one of the points splitting the ranges containing it, so that the levels are nested.
+     * @param known the indexes of the points with known coordinates
+     */
+    private void computeTolerances(int[] known) {
+        int n = known.length;
+        tolerance[known[0]] = Float.POSITIVE_INFINITY;
+        tolerance[known[n - 1]] = Float.POSITIVE_INFINITY;
+        // ranges to simplify, as (start, end) positions in known, with the tolerance of the range
+        int[] ranges = new int[64];
+        float[] rangeTolerances = new float[32];
+        int stack = 0;
+        if (n > 2) {
+            ranges[0] = 0;
+            ranges[1] = n - 1;
+            rangeTolerances[0] = Float.POSITIVE_INFINITY;
+            stack = 1;
+        }
+        while (stack > 0) {
+            stack--;
+            int start = ranges[2 * stack];
+            int end = ranges[2 * stack + 1];
+            float rangeTolerance = rangeTolerances[stack];
+            double ax = x(known[start]);
+            double ay = line.lat(known[start]);
+            double bx = x(known[end]);
+            double by = line.lat(known[end]);
+            double max = -1;
+            int split = -1;
+            for (int k = start + 1; k < end; k++) {
+                double d = distanceSq(x(known[k]), line.lat(known[k]), ax, ay, bx, by);
+                if (d > max) {
+                    max = d;
+                    split = k;
+                }
+            }
+            float t = Math.min(rangeTolerance, (float) Math.sqrt(max));
+            tolerance[known[split]] = t;
+            if (2 * stack + 4 > ranges.length) {
+                ranges = Arrays.copyOf(ranges, 2 * ranges.length);
+                rangeTolerances = Arrays.copyOf(rangeTolerances, 2 * rangeTolerances.length);
+            }
+            if (split - start > 1) {
+                ranges[2 * stack] = start;
+                ranges[2 * stack + 1] = split;
+                rangeTolerances[stack++] = t;
+            }
+            if (end - split > 1) {
+                ranges[2 * stack] = split;
+                ranges[2 * stack + 1] = end;
+                rangeTolerances[stack++] = t;
+            }
+        }
+    }
+
+    private double x(int index) {
+        return line.lon(index) * cosLat;
+    }
+
+    /**
+     * Returns the square of the distance between a point and a segment.
+     */
+    private static double distanceSq(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double len = dx * dx + dy * dy;
+        double u = len > 0 ? ((px - ax) * dx + (py - ay) * dy) / len : 0;
+        u = Math.max(0, Math.min(1, u));
+        double ex = px - ax - u * dx;
+        double ey = py - ay - u * dy;
+        return ex * ex + ey * ey;
+    }
+
+    /**
+     * Returns the line.
+     * @return the line
+     */
+    WayPointColumns getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the index of the first point with known coordinates.
+     * @return the index of the first point with known coordinates, or -1
+     */
+    int getFirst() {
+        return first;
+    }
+
+    /**
+     * Returns the index of the last point with known coordinates.
+     * @return the index of the last point with known coordinates, or -1
+     */
+    int getLast() {
+        return last;
+    }
+
+    /**
+     * Returns the Douglas-Peucker tolerance of a point.
+     * @param index the point index
+     * @return the largest tolerance at which the point is kept, in degrees of latitude, {@code NaN} if the point has no coordinates
+     */
+    double getTolerance(int index) {
+        return tolerance[index];
+    }
+
+    /**
+     * Discards the levels of detail, after a change of the connections between points.
+     */
+    synchronized void invalidateLevels() {
+        Arrays.fill(levels, null);
+    }
+
+    /**
+     * Returns the level of detail to use for the given scale.
+     * @param lonPerPixel the size of a pixel, in degrees of longitude. Zero for the full detail
+     * @return the level number
+     */
+    int getLevelNumber(double lonPerPixel) {
+        double t = lonPerPixel * cosLat * PROP_TOLERANCE.get();
+        int level = 0;
+        while (level < MAX_LEVELS - 1 && t >= BASE_TOLERANCE * (1L << level)) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Returns the number of points of a level of detail.
+     * @param level the level number
+     * @return the number of points
+     */
+    int getLevelSize(int level) {
+        return getLevel(level).indexes.length;
+    }
+
+    private synchronized Level getLevel(int level) {
+        Level result = levels[level];
+        if (result == null) {
+            // the levels are nested: build from the nearest finer level
+            int finer = level - 1;
+            while (finer >= 0 && levels[finer] == null) {
+                finer--;
+            }
+            int[] candidates = finer >= 0 ? levels[finer].indexes : null;
+            result = new Level(line, select(candidates, level == 0 ? -1 : BASE_TOLERANCE * (1L << (level - 1))));
+            levels[level] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Selects the points kept at a given tolerance.
+     * @param candidates the candidate points, {@code null} for all points
+     * @param minTolerance the tolerance, negative to keep all points with known coordinates
+     * @return the indexes of the points kept
+     */
+    private int[] select(int[] candidates, double minTolerance) {
+        BitSet forced = new BitSet();
+        if (minTolerance >= 0) {
+            int previous = -1;
+            for (int i = 0; i < line.size(); i++) {
+                if (!Float.isNaN(tolerance[i])) {
+                    if (previous >= 0 && !line.isDrawLine(i)) {
+                        forced.set(previous);
+                        forced.set(i);
+                    }
+                    previous = i;
+                }
+            }
+        }
+        int n = candidates != null ? candidates.length : line.size();
+        int[] result = new int[n];
+        int size = 0;
+        for (int k = 0; k < n; k++) {
+            int i = candidates != null ? candidates[k] : k;
+            if (tolerance[i] > minTolerance || forced.get(i)) {
+                result[size++] = i;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Visits the points of a level of detail which are in the given bounding box, or connected to a point in it,
+     * in increasing order.
+     * @param level the level number
+     * @param minLat minimal latitude of the bounding box
+     * @param minLon minimal longitude of the bounding box
+     * @param maxLat maximal latitude of the bounding box
+     * @param maxLon maximal longitude of the bounding box
+     * @param visitor the visitor
+     */
+    void visit(int level, double minLat, double minLon, double maxLat, double maxLon, PointVisitor visitor) {
+        Level l = getLevel(level);
+        if (l.indexes.length > 0) {
+            visit(l, l.boxes.length - 1, 0, minLat, minLon, maxLat, maxLon, visitor);
+        }
+    }
+
+    private void visit(Level l, int depth, int node, double minLat, double minLon, double maxLat, double maxLon,
+            PointVisitor visitor) {
+        double[] boxes = l.boxes[depth];
+        if (4 * node >= boxes.length || boxes[4 * node] > maxLat || boxes[4 * node + 2] < minLat
+                || boxes[4 * node + 1] > maxLon || boxes[4 * node + 3] < minLon) {
+            return;
+        }
+        if (depth > 0) {
+            visit(l, depth - 1, 2 * node, minLat, minLon, maxLat, maxLon, visitor);
+            visit(l, depth - 1, 2 * node + 1, minLat, minLon, maxLat, maxLon, visitor);
+            return;
+        }
+        int[] indexes = l.indexes;
+        for (int j = node * BLOCK_SIZE; j < Math.min(indexes.length, (node + 1) * BLOCK_SIZE); j++) {
+            int i = indexes[j];
+            int previous = j > 0 ? indexes[j - 1] : -1;
+            double lat = line.lat(i);
+            double lon = line.lon(i);
+            boolean visible = lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+            if (!visible && previous >= 0 && line.isDrawLine(i)) {
+                double prevLat = line.lat(previous);
+                double prevLon = line.lon(previous);
+                visible = Math.min(lat, prevLat) <= maxLat && Math.max(lat, prevLat) >= minLat
+                        && Math.min(lon, prevLon) <= maxLon && Math.max(lon, prevLon) >= minLon;
+            }
+            if (visible) {
+                visitor.visit(i, previous);
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.gpx.GpxTrack;
 import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.gpx.WayPointColumns;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MapFrame;
 import org.openstreetmap.josm.gui.MapView;
@@ -323,17 +324,20 @@ public final class PlayHeadMarker extends Marker {
         /* find the pair of track points for this position (adjusted by the syncOffset)
          * and interpolate between them
          */
-        WayPoint w1 = null;
+        WayPointColumns w1Points = null;
+        int w1Index = -1;
         WayPoint w2 = null;
 
         for (GpxTrack track : trackLayer.data.getTracks()) {
             for (GpxTrackSegment trackseg : track.getSegments()) {
-                for (WayPoint w: trackseg.getWayPoints()) {
-                    if (audioTime < w.time) {
-                        w2 = w;
+                WayPointColumns points = WayPointColumns.of(trackseg);
+                for (int i = 0; i < points.size(); i++) {
+                    if (audioTime < points.getTime(i)) {
+                        w2 = points.getWayPoint(i);
                         break;
                     }
-                    w1 = w;
+                    w1Points = points;
+                    w1Index = i;
                 }
                 if (w2 != null) {
                     break;
@@ -344,8 +348,9 @@ public final class PlayHeadMarker extends Marker {
             }
         }
 
-        if (w1 == null)
+        if (w1Points == null)
             return;
+        WayPoint w1 = w1Points.getWayPoint(w1Index);
         setEastNorth(w2 == null ?
                 w1.getEastNorth(Main.getProjection()) :
                     w1.getEastNorth(Main.getProjection()).interpolate(w2.getEastNorth(Main.getProjection()),
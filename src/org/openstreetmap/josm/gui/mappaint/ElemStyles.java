@@ -196,15 +196,23 @@ public class ElemStyles implements PreferenceChangedListener {
                 p.a = new StyleElementList(p.a, line);
             }
         }
-        StyleCache style = osm.getCachedStyle() != null ? osm.getCachedStyle() : StyleCache.EMPTY_STYLECACHE;
-        try {
-            osm.setCachedStyle(style.put(p.a, p.b, osm.isSelected()));
-        } catch (RangeViolatedError e) {
-            throw new AssertionError("Range violated: " + e.getMessage()
-                    + " (object: " + osm.getPrimitiveId() + ", current style: "+osm.getCachedStyle()
-                    + ", scale: " + scale + ", new stylelist: " + p.a + ", new range: " + p.b + ')', e);
+        p.a = p.a.intern();
+        // several renderers may compute the styles of the same primitive at the same time, e.g. the tiles of a pyramid
+        synchronized (osm) {
+            StyleCache style = osm.getCachedStyle() != null ? osm.getCachedStyle() : StyleCache.EMPTY_STYLECACHE;
+            Pair<StyleElementList, Range> cached = style.getWithRange(scale, osm.isSelected());
+            if (cached.a != null) {
+                return cached;
+            }
+            try {
+                osm.setCachedStyle(style.put(p.a, p.b, osm.isSelected()));
+            } catch (RangeViolatedError e) {
+                throw new AssertionError("Range violated: " + e.getMessage()
+                        + " (object: " + osm.getPrimitiveId() + ", current style: "+osm.getCachedStyle()
+                        + ", scale: " + scale + ", new stylelist: " + p.a + ", new range: " + p.b + ')', e);
+            }
+            osm.declareCachedStyleUpToDate();
         }
-        osm.declareCachedStyleUpToDate();
         return p;
     }
 
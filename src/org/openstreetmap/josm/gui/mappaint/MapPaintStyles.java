@@ -1,6 +1,7 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.mappaint;
 
+import java.awt.Dimension;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -9,7 +10,12 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.ImageIcon;
 import javax.swing.SwingUtilities;
@@ -19,6 +25,7 @@ import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.Tag;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.data.preferences.sources.MapPaintPrefHelper;
 import org.openstreetmap.josm.data.preferences.sources.SourceEntry;
 import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
@@ -63,6 +70,12 @@ public final class MapPaintStyles {
 
     private static ElemStyles styles = new ElemStyles();
 
+    /**
+     * Number of threads used to load style sources.
+     */
+    public static final IntegerProperty PROP_LOADING_THREADS = new IntegerProperty("mappaint.loading.threads",
+            Runtime.getRuntime().availableProcessors());
+
     /**
      * Returns the {@link ElemStyles} singleton instance.
      *
@@ -311,14 +324,69 @@ public final class MapPaintStyles {
                 Logging.error(e);
             }
         }
-        for (StyleSource source : styles.getStyleSources()) {
-            if (source.active) {
-                loadStyleForFirstTime(source);
-            } else {
-                source.loadStyleSource(true);
+        loadStyleSources(styles.getStyleSources());
+        prerasterizeIcons(styles.getStyleSources());
+        fireMapPaintSylesUpdated();
+    }
+
+    /**
+     * Rasterizes in the background the icons referenced by the given active style sources, at the sizes they are displayed at.
+     * @param sources the style sources
+     */
+    private static void prerasterizeIcons(List<StyleSource> sources) {
+        List<ImageProvider> providers = new ArrayList<>();
+        for (StyleSource source : sources) {
+            if (source.active && source instanceof MapCSSStyleSource) {
+                for (Entry<String, Set<Dimension>> icon : ((MapCSSStyleSource) source).getReferencedIcons().entrySet()) {
+                    IconReference ref = new IconReference(icon.getKey(), source);
+                    for (Dimension size : icon.getValue()) {
+                        // same sizes as MapImage, so that the rasterized images are found in the cache
+                        providers.add(getIconProvider(ref, false).setWidth(size.width).setHeight(size.height));
+                    }
+                }
             }
         }
-        fireMapPaintSylesUpdated();
+        ImageProvider.prerasterize(providers);
+    }
+
+    /**
+     * Loads the given style sources concurrently, using up to {@link #PROP_LOADING_THREADS} threads.
+     * Inactive sources only get their metadata loaded.
+     * @param sources the style sources to load
+     */
+    private static void loadStyleSources(List<StyleSource> sources) {
+        int threads = Math.min(sources.size(), PROP_LOADING_THREADS.get());
+        if (threads <= 1) {
+            sources.forEach(MapPaintStyles::loadStyleSource);
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads, Utils.newThreadFactory("mappaint-style-loader-%d", Thread.NORM_PRIORITY));
+        try {
+            List<Future<?>> futures = new ArrayList<>(sources.size());
+            for (StyleSource source : sources) {
+                futures.add(executor.submit(() -> loadStyleSource(source)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Logging.error(e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Logging.warn(e);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void loadStyleSource(StyleSource source) {
+        if (source.active) {
+            loadStyleForFirstTime(source);
+        } else {
+            source.loadStyleSource(true);
+        }
     }
 
     private static void loadStyleForFirstTime(StyleSource source) {
@@ -32,6 +32,9 @@ import org.openstreetmap.josm.data.preferences.JosmBaseDirectories;
 import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.Projections;
 import org.openstreetmap.josm.gui.mappaint.RenderingHelper.StyleData;
+import org.openstreetmap.josm.gui.mappaint.TilePyramidRenderer.DirectoryTileOutput;
+import org.openstreetmap.josm.gui.mappaint.TilePyramidRenderer.TileOutput;
+import org.openstreetmap.josm.gui.mappaint.TilePyramidRenderer.ZipTileOutput;
 import org.openstreetmap.josm.io.IllegalDataException;
 import org.openstreetmap.josm.io.OsmReader;
 import org.openstreetmap.josm.spi.preferences.Config;
@@ -74,6 +77,9 @@ public class RenderingCLI implements CLIModule {
     private Integer argHeightPx;
     private String argProjection;
     private Integer argMaxImageSize;
+    private Integer argTilesMinZoom;
+    private Integer argTilesMaxZoom;
+    private Integer argThreads;
 
     private enum Option {
         HELP(false, 'h'),
@@ -92,7 +98,9 @@ public class RenderingCLI implements CLIModule {
         WIDTH_PX(true, '*'),
         HEIGHT_PX(true, '*'),
         PROJECTION(true, '*'),
-        MAX_IMAGE_SIZE(true, '*');
+        MAX_IMAGE_SIZE(true, '*'),
+        TILES(true, '*'),
+        THREADS(true, '*');
 
         private final String name;
         private final boolean requiresArg;
@@ -158,11 +166,15 @@ public class RenderingCLI implements CLIModule {
             parseArguments(argArray);
             initialize();
             DataSet ds = loadDataset();
-            RenderingArea area = determineRenderingArea(ds);
-            RenderingHelper rh = new RenderingHelper(ds, area.bounds, area.scale, argStyles);
-            checkPreconditions(rh);
-            BufferedImage image = rh.render();
-            writeImageToFile(image);
+            if (argTilesMinZoom != null) {
+                renderTiles(ds);
+            } else {
+                RenderingArea area = determineRenderingArea(ds);
+                RenderingHelper rh = new RenderingHelper(ds, area.bounds, area.scale, argStyles);
+                checkPreconditions(rh);
+                BufferedImage image = rh.render();
+                writeImageToFile(image);
+            }
         } catch (FileNotFoundException e) {
             if (Logging.isDebugEnabled()) {
                 e.printStackTrace();
@@ -337,6 +349,29 @@ public class RenderingCLI implements CLIModule {
                     if (argMaxImageSize < 0) throw new IllegalArgumentException(
                             tr("Expected integer number >= 0 for option {0}, but got ''{1}''", "--max-image-size", getopt.getOptarg()));
                     break;
+                case TILES:
+                    String[] zooms = getopt.getOptarg().split("-", -1);
+                    try {
+                        argTilesMinZoom = Integer.valueOf(zooms[0].trim());
+                        argTilesMaxZoom = zooms.length == 2 ? Integer.valueOf(zooms[1].trim()) : argTilesMinZoom;
+                    } catch (NumberFormatException nfe) {
+                        throw new IllegalArgumentException(tr("Expected zoom level or range of zoom levels for option {0}, but got ''{1}''",
+                                "--tiles", getopt.getOptarg()), nfe);
+                    }
+                    if (zooms.length > 2 || argTilesMinZoom < 0 || argTilesMaxZoom < argTilesMinZoom || argTilesMaxZoom > 30)
+                        throw new IllegalArgumentException(tr("Expected zoom level or range of zoom levels for option {0}, but got ''{1}''",
+                                "--tiles", getopt.getOptarg()));
+                    break;
+                case THREADS:
+                    try {
+                        argThreads = Integer.valueOf(getopt.getOptarg());
+                    } catch (NumberFormatException nfe) {
+                        throw new IllegalArgumentException(
+                                tr("Expected integer number for option {0}, but got ''{1}''", "--threads", getopt.getOptarg()), nfe);
+                    }
+                    if (argThreads <= 0) throw new IllegalArgumentException(
+                            tr("Expected integer number > 0 for option {0}, but got ''{1}''", "--threads", getopt.getOptarg()));
+                    break;
                 default:
                     throw new AssertionError("Unexpected option index: " + getopt.getLongind());
                 }
@@ -391,6 +426,12 @@ public class RenderingCLI implements CLIModule {
                 "\t--projection <code>       "+tr("Projection to use, default value ''{0}'' (web-Mercator)", "epsg:3857")+"\n"+
                 "\t--max-image-size <number> "+tr("Maximum image width/height in pixel (''{0}'' means no limit), default value: {1}",
                                                     0, Integer.toString(DEFAULT_MAX_IMAGE_SIZE))+"\n"+
+                "\t--tiles <min>[-<max>]     "+tr("Render the XYZ tiles of the given zoom levels covering the area, "
+                                                + "instead of a single image")+"\n"+
+                "\t                          "+tr("The tiles are written to the directory given by the {0} option, default value ''{1}'', "
+                                                + "or to a zip archive if its name ends with ''{2}''", "--output", "tiles", ".zip")+"\n"+
+                "\t                          "+tr("The area is given by the {0} option.", "--bounds")+"\n"+
+                "\t--threads <number>        "+tr("Number of tiles rendered in parallel, default value: number of processors")+"\n"+
                 "\n"+
                 tr("To specify the rendered area and scale, the options can be combined in various ways")+":\n"+
                 "  * --bounds (--zoom|--scale|--width-px|--height-px)\n"+
@@ -409,7 +450,9 @@ public class RenderingCLI implements CLIModule {
                 "  josm render -i data.osm -s style.mapcss --bounds 21.151,51.401,21.152,51.402 -z 16\n"+
                 "  josm render -i data.osm -s style.mapcss --anchor 21.151,51.401 --width-m 500 --height-m 300 -z 16\n"+
                 "  josm render -i data.osm -s style.mapcss --anchor 21.151,51.401 --width-m 500 --height-m 300 --width-px 1800\n"+
-                "  josm render -i data.osm -s style.mapcss --scale 5000 --projection epsg:4326\n";
+                "  josm render -i data.osm -s style.mapcss --scale 5000 --projection epsg:4326\n"+
+                "  josm render -i data.osm -s style.mapcss --bounds 21.15,51.40,21.16,51.41 --tiles 14-18 -o tiles\n"+
+                "  josm render -i data.osm -s style.mapcss --tiles 16-18 --threads 4 -o tiles.zip\n";
     }
 
     /**
@@ -572,6 +615,40 @@ public class RenderingCLI implements CLIModule {
         }
     }
 
+    /**
+     * Renders the XYZ tiles of the zoom levels given by the {@code --tiles} option.
+     * @param ds the dataset
+     * @throws IOException in case of an I/O error
+     * @throws IllegalDataException if a style has errors
+     */
+    private void renderTiles(DataSet ds) throws IOException, IllegalDataException {
+        if (argStyles.isEmpty())
+            throw new IllegalArgumentException(tr("Missing argument - at least one style expected ({0})", "--style"));
+        if (argZoom != null || argScale != null || argAnchor != null || argWidthM != null || argHeightM != null
+                || argWidthPx != null || argHeightPx != null)
+            throw new IllegalArgumentException(tr("Option {0} can only be combined with {1} to determine the area to render",
+                    "--tiles", "--bounds"));
+        if (argProjection != null && !"epsg:3857".equalsIgnoreCase(argProjection))
+            throw new IllegalArgumentException(tr("Option {0} requires the projection ''{1}''", "--tiles", "epsg:3857"));
+        Bounds bounds = argBounds;
+        if (bounds == null) {
+            if (ds.getDataSourceBounds().isEmpty()) {
+                throw new IllegalArgumentException(tr("{0} mode, but no bounds found in osm data input file", "--bounds=auto"));
+            }
+            bounds = ds.getDataSourceBounds().get(0);
+        }
+        ElemStyles elemStyles = RenderingHelper.loadStyles(argStyles);
+        TilePyramidRenderer renderer = new TilePyramidRenderer(ds, bounds, argTilesMinZoom, argTilesMaxZoom, elemStyles);
+        int threads = Optional.ofNullable(argThreads).orElseGet(() -> Runtime.getRuntime().availableProcessors());
+        String output = Optional.ofNullable(argOutput).orElse("tiles");
+        try (TileOutput out = output.toLowerCase(Locale.ENGLISH).endsWith(".zip")
+                ? new ZipTileOutput(Files.newOutputStream(Paths.get(output)))
+                : new DirectoryTileOutput(new File(output))) {
+            int count = renderer.render(out, threads);
+            Logging.info("{0} tiles written to {1}", count, output);
+        }
+    }
+
     private void writeImageToFile(BufferedImage image) throws IOException {
         String output = Optional.ofNullable(argOutput).orElse("out.png");
         ImageIO.write(image, "png", new File(output));
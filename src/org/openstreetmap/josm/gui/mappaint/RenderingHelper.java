@@ -38,6 +38,7 @@ public class RenderingHelper {
     private final ProjectionBounds projBounds;
     private final double scale;
     private final Collection<StyleData> styles;
+    private final ElemStyles elemStyles;
     private Color backgroundColor;
     private boolean fillBackground = true;
 
@@ -57,13 +58,31 @@ public class RenderingHelper {
      * @param styles the styles to use for rendering
      */
     public RenderingHelper(DataSet ds, Bounds bounds, double scale, Collection<StyleData> styles) {
+        this(ds, bounds, scale, styles, null);
+        CheckParameterUtil.ensureParameterNotNull(styles, "styles");
+    }
+
+    /**
+     * Construct a new {@code RenderingHelper} using styles which are loaded already, so that several images
+     * can be rendered without loading the style files again.
+     * @param ds the dataset to render
+     * @param bounds the bounds of the are to render
+     * @param scale the scale to render at (east/north units per pixel)
+     * @param elemStyles the styles to use for rendering, see {@link #loadStyles(Collection)}
+     */
+    public RenderingHelper(DataSet ds, Bounds bounds, double scale, ElemStyles elemStyles) {
+        this(ds, bounds, scale, null, elemStyles);
+        CheckParameterUtil.ensureParameterNotNull(elemStyles, "elemStyles");
+    }
+
+    private RenderingHelper(DataSet ds, Bounds bounds, double scale, Collection<StyleData> styles, ElemStyles elemStyles) {
         CheckParameterUtil.ensureParameterNotNull(ds, "ds");
         CheckParameterUtil.ensureParameterNotNull(bounds, "bounds");
-        CheckParameterUtil.ensureParameterNotNull(styles, "styles");
         this.ds = ds;
         this.bounds = bounds;
         this.scale = scale;
         this.styles = styles;
+        this.elemStyles = elemStyles;
         Projection proj = Main.getProjection();
         projBounds = new ProjectionBounds();
         projBounds.extend(proj.latlon2eastNorth(bounds.getMin()));
@@ -101,14 +120,13 @@ public class RenderingHelper {
     }
 
     /**
-     * Invoke the renderer.
-     *
-     * @return the rendered image
+     * Loads the styles to use for rendering.
+     * @param styles the style files and their settings
+     * @return the loaded styles
      * @throws IOException in case of an IOException
-     * @throws IllegalDataException when illegal data is encountered (style has errors, etc.)
+     * @throws IllegalDataException when a style has errors
      */
-    public BufferedImage render() throws IOException, IllegalDataException {
-        // load the styles
+    public static ElemStyles loadStyles(Collection<StyleData> styles) throws IOException, IllegalDataException {
         ElemStyles elemStyles = new ElemStyles();
         MapCSSStyleSource.STYLE_SOURCE_LOCK.writeLock().lock();
         try {
@@ -140,6 +158,18 @@ public class RenderingHelper {
         } finally {
             MapCSSStyleSource.STYLE_SOURCE_LOCK.writeLock().unlock();
         }
+        return elemStyles;
+    }
+
+    /**
+     * Invoke the renderer.
+     *
+     * @return the rendered image
+     * @throws IOException in case of an IOException
+     * @throws IllegalDataException when illegal data is encountered (style has errors, etc.)
+     */
+    public BufferedImage render() throws IOException, IllegalDataException {
+        ElemStyles renderStyles = elemStyles != null ? elemStyles : loadStyles(styles);
 
         Dimension imgDimPx = getImageSize();
         NavigatableComponent nc = new NavigatableComponent() {
@@ -176,11 +206,11 @@ public class RenderingHelper {
         g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
 
         if (fillBackground) {
-            g.setColor(Optional.ofNullable(backgroundColor).orElse(elemStyles.getBackgroundColor()));
+            g.setColor(Optional.ofNullable(backgroundColor).orElse(renderStyles.getBackgroundColor()));
             g.fillRect(0, 0, imgDimPx.width, imgDimPx.height);
         }
         StyledMapRenderer smr = new StyledMapRenderer(g, nc, false);
-        smr.setStyles(elemStyles);
+        smr.setStyles(renderStyles);
         smr.render(ds, false, bounds);
         return image;
     }
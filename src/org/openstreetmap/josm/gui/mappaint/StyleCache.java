@@ -106,6 +106,7 @@ public final class StyleCache {
      */
     static void clearStyleCachePool() {
         internPool.clear();
+        StyleElementList.clearInternPool();
     }
 
     /**
@@ -8,13 +8,18 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 
+import org.openstreetmap.josm.data.osm.Storage;
 import org.openstreetmap.josm.gui.mappaint.styleelement.StyleElement;
 
 /**
  * List of {@link StyleElement}s, immutable.
  */
 public class StyleElementList implements Iterable<StyleElement> {
+
+    private static final Storage<StyleElementList> internPool = new Storage<>();
+
     private final List<StyleElement> lst;
+    private int hash;
 
     /**
      * Constructs a new {@code StyleList}.
@@ -70,6 +75,31 @@ public class StyleElementList implements Iterable<StyleElement> {
         return lst.size();
     }
 
+    /**
+     * Like String.intern(): returns the shared list equal to this one, so that the primitives with the same styles share
+     * one instance, whatever the scale ranges of their style caches.
+     * The list must not be changed after it has been added to the intern pool.
+     * @return the shared list
+     */
+    public StyleElementList intern() {
+        return internPool.putUnique(this);
+    }
+
+    /**
+     * Clears the intern pool. This should only be used for testing.
+     */
+    static void clearInternPool() {
+        internPool.clear();
+    }
+
+    /**
+     * Get the size of the intern pool. Only for tests!
+     * @return size of the intern pool
+     */
+    public static int getInternPoolSize() {
+        return internPool.size();
+    }
+
     @Override
     public String toString() {
         return lst.toString();
@@ -85,6 +115,12 @@ public class StyleElementList implements Iterable<StyleElement> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(lst);
+        // the list is immutable, the hash code is computed once
+        int h = hash;
+        if (h == 0) {
+            h = Objects.hash(lst);
+            hash = h;
+        }
+        return h;
     }
 }
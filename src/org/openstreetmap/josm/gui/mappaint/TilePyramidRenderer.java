@@ -0,0 +1,294 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.ImageIO;
+
+import org.openstreetmap.gui.jmapviewer.OsmMercator;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Renders the XYZ tiles of a range of zoom levels covering an area to PNG images, in parallel.
+ * <p>
+ * The dataset and the styles are loaded once and shared by the workers, which must not modify them. The renderer takes
+ * the read lock of the dataset, and the computed styles are cached in the primitives for all the workers.
+ * <p>
+ * The tiles are rendered by {@link #METATILE_SIZE} x {@link #METATILE_SIZE} metatiles with a {@link RenderingHelper}.
+ * Each metatile is rendered with a margin of {@link #BUFFER} pixels, then cut into tiles, so that the labels and icons
+ * placed near the edge of a tile are drawn on both sides of the edge.
+ * The current projection must be web-Mercator (EPSG:3857).
+ */
+public class TilePyramidRenderer {
+
+    /** The number of tiles rendered at once in each direction */
+    static final int METATILE_SIZE = 4;
+    /** The margin rendered around each metatile, in pixels */
+    static final int BUFFER = 128;
+
+    private static final double WORLD_SIZE = OsmMercator.EARTH_RADIUS * Math.PI * 2;
+    private static final int TILE_SIZE = OsmMercator.DEFAUL_TILE_SIZE;
+
+    private final DataSet ds;
+    private final Bounds bounds;
+    private final int minZoom;
+    private final int maxZoom;
+    private final ElemStyles elemStyles;
+
+    /**
+     * The destination of the rendered tiles.
+     */
+    @FunctionalInterface
+    public interface TileOutput extends Closeable {
+        /**
+         * Writes a tile. May be called concurrently by several workers.
+         * @param zoom the zoom level
+         * @param x the column of the tile
+         * @param y the row of the tile, from the north
+         * @param png the PNG encoded image
+         * @throws IOException if an I/O error occurs
+         */
+        void write(int zoom, int x, int y, byte[] png) throws IOException;
+
+        @Override
+        default void close() throws IOException {
+            // Do nothing
+        }
+    }
+
+    /**
+     * Writes the tiles to a directory tree, as {@code <zoom>/<x>/<y>.png} files.
+     */
+    public static class DirectoryTileOutput implements TileOutput {
+        private final Path directory;
+
+        /**
+         * Constructs a new {@code DirectoryTileOutput}.
+         * @param directory the root directory, created if needed
+         */
+        public DirectoryTileOutput(File directory) {
+            this.directory = directory.toPath();
+        }
+
+        @Override
+        public void write(int zoom, int x, int y, byte[] png) throws IOException {
+            Path dir = directory.resolve(Integer.toString(zoom)).resolve(Integer.toString(x));
+            Files.createDirectories(dir);
+            Files.write(dir.resolve(y + ".png"), png);
+        }
+    }
+
+    /**
+     * Writes the tiles to a single zip archive, as {@code <zoom>/<x>/<y>.png} entries.
+     */
+    public static class ZipTileOutput implements TileOutput {
+        private final ZipOutputStream zip;
+
+        /**
+         * Constructs a new {@code ZipTileOutput}.
+         * @param out the stream to write the archive to, closed by {@link #close()}
+         */
+        public ZipTileOutput(OutputStream out) {
+            this.zip = new ZipOutputStream(out);
+            // the PNG images are compressed already
+            zip.setLevel(1);
+        }
+
+        @Override
+        public synchronized void write(int zoom, int x, int y, byte[] png) throws IOException {
+            zip.putNextEntry(new ZipEntry(zoom + "/" + x + '/' + y + ".png"));
+            zip.write(png);
+            zip.closeEntry();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            zip.close();
+        }
+    }
+
+    /**
+     * Constructs a new {@code TilePyramidRenderer}.
+     * @param ds the dataset to render
+     * @param bounds the area to cover
+     * @param minZoom the lowest zoom level to render
+     * @param maxZoom the highest zoom level to render
+     * @param elemStyles the styles to use for rendering, see {@link RenderingHelper#loadStyles}
+     */
+    public TilePyramidRenderer(DataSet ds, Bounds bounds, int minZoom, int maxZoom, ElemStyles elemStyles) {
+        CheckParameterUtil.ensureParameterNotNull(ds, "ds");
+        CheckParameterUtil.ensureParameterNotNull(bounds, "bounds");
+        CheckParameterUtil.ensureParameterNotNull(elemStyles, "elemStyles");
+        CheckParameterUtil.ensureThat(0 <= minZoom && minZoom <= maxZoom && maxZoom <= 30, "0 <= minZoom <= maxZoom <= 30");
+        this.ds = ds;
+        this.bounds = bounds;
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        this.elemStyles = elemStyles;
+    }
+
+    /**
+     * Gets the size of the tiles of a zoom level.
+     * @param zoom the zoom level
+     * @return the size of the tiles, in east/north units
+     */
+    static double getTileSize(int zoom) {
+        return WORLD_SIZE / (1L << zoom);
+    }
+
+    /**
+     * Gets the column or row of the tile at a coordinate. A coordinate on the border of two tiles (within the precision
+     * of the projection) belongs to the tile after it when it is the start of a range, to the tile before it otherwise.
+     * @param coordinate the east or the negated north coordinate
+     * @param zoom the zoom level
+     * @param end {@code true} if the coordinate is the end of a range
+     * @return the index of the tile, clamped to the tiles of the zoom level
+     */
+    static int getTileIndex(double coordinate, int zoom, boolean end) {
+        double tiles = (coordinate + WORLD_SIZE / 2) / getTileSize(zoom);
+        long index = end ? (long) Math.ceil(tiles - 1e-6) - 1 : (long) Math.floor(tiles + 1e-6);
+        return (int) Math.max(0, Math.min((1L << zoom) - 1, index));
+    }
+
+    /**
+     * Lists the tiles to render, by increasing zoom level.
+     * @return the tiles, as {zoom, x, y} arrays
+     */
+    List<int[]> getTiles() {
+        Projection proj = Main.getProjection();
+        // the poles are not covered by the tiles
+        EastNorth min = proj.latlon2eastNorth(new LatLon(Math.max(bounds.getMinLat(), OsmMercator.MIN_LAT), bounds.getMinLon()));
+        EastNorth max = proj.latlon2eastNorth(new LatLon(Math.min(bounds.getMaxLat(), OsmMercator.MAX_LAT), bounds.getMaxLon()));
+        List<int[]> tiles = new ArrayList<>();
+        for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+            int minY = getTileIndex(-max.north(), zoom, false);
+            int maxY = getTileIndex(-min.north(), zoom, true);
+            int maxX = getTileIndex(max.east(), zoom, true);
+            for (int x = getTileIndex(min.east(), zoom, false); x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    tiles.add(new int[] {zoom, x, y});
+                }
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Groups the tiles to render by metatile.
+     * @return the metatiles, each one as the list of its tiles to render
+     */
+    List<List<int[]>> getMetaTiles() {
+        Map<List<Integer>, List<int[]>> metaTiles = new LinkedHashMap<>();
+        for (int[] tile : getTiles()) {
+            metaTiles.computeIfAbsent(Arrays.asList(tile[0], tile[1] / METATILE_SIZE, tile[2] / METATILE_SIZE),
+                    k -> new ArrayList<>()).add(tile);
+        }
+        return new ArrayList<>(metaTiles.values());
+    }
+
+    /**
+     * Renders the tiles.
+     * @param output the destination of the tiles
+     * @param threads the number of workers
+     * @return the number of rendered tiles
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalDataException if the data cannot be rendered
+     */
+    public int render(TileOutput output, int threads) throws IOException, IllegalDataException {
+        List<List<int[]>> metaTiles = getMetaTiles();
+        int count = metaTiles.stream().mapToInt(List::size).sum();
+        Logging.info("Rendering {0} tiles", count);
+        AtomicInteger next = new AtomicInteger();
+        int workers = Math.max(1, Math.min(threads, metaTiles.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(workers, Utils.newThreadFactory("render-tiles-%d", Thread.NORM_PRIORITY));
+        try {
+            List<Future<Void>> futures = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int index = next.getAndIncrement(); index < metaTiles.size(); index = next.getAndIncrement()) {
+                        renderMetaTile(metaTiles.get(index), output);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JosmRuntimeException(e);
+        } catch (ExecutionException e) {
+            // stop the other workers
+            next.set(metaTiles.size());
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof IllegalDataException) {
+                throw (IllegalDataException) e.getCause();
+            }
+            throw new JosmRuntimeException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        return count;
+    }
+
+    /**
+     * Renders the tiles of a metatile with a margin, clamped to the world, and writes them.
+     * @param tiles the tiles to write, all in the same metatile
+     * @param output the destination of the tiles
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalDataException if the data cannot be rendered
+     */
+    private void renderMetaTile(List<int[]> tiles, TileOutput output) throws IOException, IllegalDataException {
+        int zoom = tiles.get(0)[0];
+        long worldPixels = (long) TILE_SIZE << zoom;
+        long startX = (long) tiles.get(0)[1] / METATILE_SIZE * METATILE_SIZE * TILE_SIZE;
+        long startY = (long) tiles.get(0)[2] / METATILE_SIZE * METATILE_SIZE * TILE_SIZE;
+        long minX = Math.max(0, startX - BUFFER);
+        long minY = Math.max(0, startY - BUFFER);
+        long maxX = Math.min(worldPixels, startX + METATILE_SIZE * TILE_SIZE + BUFFER);
+        long maxY = Math.min(worldPixels, startY + METATILE_SIZE * TILE_SIZE + BUFFER);
+        Projection proj = Main.getProjection();
+        double scale = getTileSize(zoom) / TILE_SIZE;
+        Bounds area = new Bounds(proj.eastNorth2latlon(new EastNorth(minX * scale - WORLD_SIZE / 2, WORLD_SIZE / 2 - maxY * scale)), false);
+        area.extend(proj.eastNorth2latlon(new EastNorth(maxX * scale - WORLD_SIZE / 2, WORLD_SIZE / 2 - minY * scale)));
+        BufferedImage image = new RenderingHelper(ds, area, scale, elemStyles).render();
+        for (int[] tile : tiles) {
+            int left = (int) ((long) tile[1] * TILE_SIZE - minX);
+            int top = (int) ((long) tile[2] * TILE_SIZE - minY);
+            BufferedImage tileImage = image.getSubimage(left, top, TILE_SIZE, TILE_SIZE);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(tileImage, "png", out);
+            output.write(tile[0], tile[1], tile[2], out.toByteArray());
+        }
+    }
+}
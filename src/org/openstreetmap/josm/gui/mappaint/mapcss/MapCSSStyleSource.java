@@ -4,6 +4,7 @@ package org.openstreetmap.josm.gui.mappaint.mapcss;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.awt.Color;
+import java.awt.Dimension;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
@@ -17,12 +18,15 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.TreeMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.zip.ZipEntry;
@@ -36,6 +40,7 @@ import org.openstreetmap.josm.data.osm.OsmUtils;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.sources.SourceEntry;
 import org.openstreetmap.josm.gui.mappaint.Cascade;
 import org.openstreetmap.josm.gui.mappaint.Environment;
@@ -51,6 +56,7 @@ import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.KeyValueCondi
 import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.Op;
 import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.PseudoClassCondition;
 import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.SimpleKeyValueCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Instruction.AssignmentInstruction;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.AbstractSelector;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.ChildOrParentSelector;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.GeneralSelector;
@@ -60,6 +66,7 @@ import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.ParseException;
 import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.TokenMgrError;
 import org.openstreetmap.josm.gui.mappaint.styleelement.LineElement;
 import org.openstreetmap.josm.io.CachedFile;
+import org.openstreetmap.josm.io.SourceDigestCache;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.I18n;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
@@ -121,6 +128,22 @@ public class MapCSSStyleSource extends StyleSource {
      */
     public static final ReadWriteLock STYLE_SOURCE_LOCK = new ReentrantReadWriteLock();
 
+    /**
+     * Preference enabling the disk cache of preprocessed MapCSS sources.
+     */
+    public static final BooleanProperty PROP_PREPROCESSOR_CACHE = new BooleanProperty("mappaint.mapcss.preprocessor-cache", true);
+
+    private static final SourceDigestCache PREPROCESSOR_CACHE = new SourceDigestCache("mapcss", 1);
+
+    /**
+     * Properties referencing icons, with the properties giving their width and height, see {@link #getReferencedIcons()}.
+     */
+    private static final String[][] ICON_KEYS = {
+        {StyleKeys.ICON_IMAGE, StyleKeys.ICON_WIDTH, StyleKeys.ICON_HEIGHT},
+        {StyleKeys.FILL_IMAGE, null, null},
+        {StyleKeys.REPEAT_IMAGE, StyleKeys.REPEAT_IMAGE_WIDTH, StyleKeys.REPEAT_IMAGE_HEIGHT},
+    };
+
     /**
      * Set of all supported MapCSS keys.
      */
@@ -378,6 +401,19 @@ public class MapCSSStyleSource extends StyleSource {
             index.clear();
             remaining.clear();
         }
+
+        /**
+         * Replaces the content of this index by the content of another, already initialized, index.
+         * <p>
+         * You must own the write lock STYLE_SOURCE_LOCK when calling this method.
+         * @param other the index to copy
+         */
+        public void replaceWith(MapCSSRuleIndex other) {
+            clear();
+            rules.addAll(other.rules);
+            index.putAll(other.index);
+            remaining.or(other.remaining);
+        }
     }
 
     /**
@@ -411,55 +447,68 @@ public class MapCSSStyleSource extends StyleSource {
         this.css = css;
     }
 
+    /**
+     * Loads the style source.
+     * <p>
+     * Parsing and index building are done without holding {@link #STYLE_SOURCE_LOCK}, so that several style sources can be
+     * loaded concurrently. The write lock is only acquired to reset the source and its rules, and to publish the new rule
+     * indexes, settings, canvas and meta data, which are read by the renderers.
+     */
     @Override
-    public void loadStyleSource(boolean metadataOnly) {
+    public synchronized void loadStyleSource(boolean metadataOnly) {
         STYLE_SOURCE_LOCK.writeLock().lock();
         try {
             init();
             rules.clear();
-            nodeRules.clear();
-            wayRules.clear();
-            wayNoAreaRules.clear();
-            relationRules.clear();
-            multipolygonRules.clear();
-            canvasRules.clear();
-            try (InputStream in = getSourceInputStream()) {
-                try {
-                    // evaluate @media { ... } blocks
-                    MapCSSParser preprocessor = new MapCSSParser(in, "UTF-8", MapCSSParser.LexicalState.PREPROCESSOR);
-                    String mapcss = preprocessor.pp_root(this);
-
-                    // do the actual mapcss parsing
-                    InputStream in2 = new ByteArrayInputStream(mapcss.getBytes(StandardCharsets.UTF_8));
-                    MapCSSParser parser = new MapCSSParser(in2, "UTF-8", MapCSSParser.LexicalState.DEFAULT);
-                    parser.sheet(this);
-
-                    loadMeta();
-                    if (!metadataOnly) {
-                        loadCanvas();
-                        loadSettings();
-                    }
-                    // remove "areaStyle" pseudo classes intended only for validator (causes StackOverflowError otherwise)
-                    removeAreaStyleClasses();
-                } finally {
-                    closeSourceInputStream(in);
+        } finally {
+            STYLE_SOURCE_LOCK.writeLock().unlock();
+        }
+        Cascade meta = null;
+        Color canvasFillColor = null;
+        List<StyleSetting> newSettings = null;
+        Map<String, Object> newSettingValues = null;
+        try (InputStream in = getSourceInputStream()) {
+            try {
+                // evaluate @media { ... } blocks
+                String mapcss = preprocess(in);
+
+                // do the actual mapcss parsing
+                InputStream in2 = new ByteArrayInputStream(mapcss.getBytes(StandardCharsets.UTF_8));
+                MapCSSParser parser = new MapCSSParser(in2, "UTF-8", MapCSSParser.LexicalState.DEFAULT);
+                parser.sheet(this);
+
+                meta = constructSpecial("meta");
+                if (!metadataOnly) {
+                    canvasFillColor = constructSpecial("canvas").get("fill-color", null, Color.class);
+                    newSettings = new ArrayList<>();
+                    newSettingValues = new HashMap<>();
+                    loadSettings(newSettings, newSettingValues);
                 }
-            } catch (IOException e) {
-                Logging.warn(tr("Failed to load Mappaint styles from ''{0}''. Exception was: {1}", url, e.toString()));
-                Logging.log(Logging.LEVEL_ERROR, e);
-                logError(e);
-            } catch (TokenMgrError e) {
-                Logging.warn(tr("Failed to parse Mappaint styles from ''{0}''. Error was: {1}", url, e.getMessage()));
-                Logging.error(e);
-                logError(e);
-            } catch (ParseException e) {
-                Logging.warn(tr("Failed to parse Mappaint styles from ''{0}''. Error was: {1}", url, e.getMessage()));
-                Logging.error(e);
-                logError(new ParseException(e.getMessage())); // allow e to be garbage collected, it links to the entire token stream
-            }
-            if (metadataOnly) {
-                return;
+                // remove "areaStyle" pseudo classes intended only for validator (causes StackOverflowError otherwise)
+                removeAreaStyleClasses();
+            } finally {
+                closeSourceInputStream(in);
             }
+        } catch (IOException e) {
+            Logging.warn(tr("Failed to load Mappaint styles from ''{0}''. Exception was: {1}", url, e.toString()));
+            Logging.log(Logging.LEVEL_ERROR, e);
+            logError(e);
+        } catch (TokenMgrError e) {
+            Logging.warn(tr("Failed to parse Mappaint styles from ''{0}''. Error was: {1}", url, e.getMessage()));
+            Logging.error(e);
+            logError(e);
+        } catch (ParseException e) {
+            Logging.warn(tr("Failed to parse Mappaint styles from ''{0}''. Error was: {1}", url, e.getMessage()));
+            Logging.error(e);
+            logError(new ParseException(e.getMessage())); // allow e to be garbage collected, it links to the entire token stream
+        }
+        final MapCSSRuleIndex newNodeRules = new MapCSSRuleIndex();
+        final MapCSSRuleIndex newWayRules = new MapCSSRuleIndex();
+        final MapCSSRuleIndex newWayNoAreaRules = new MapCSSRuleIndex();
+        final MapCSSRuleIndex newRelationRules = new MapCSSRuleIndex();
+        final MapCSSRuleIndex newMultipolygonRules = new MapCSSRuleIndex();
+        final MapCSSRuleIndex newCanvasRules = new MapCSSRuleIndex();
+        if (!metadataOnly) {
             // optimization: filter rules for different primitive types
             for (MapCSSRule r: rules) {
                 // find the rightmost selector, this must be a GeneralSelector
@@ -471,29 +520,29 @@ public class MapCSSStyleSource extends StyleSource {
                 final String base = ((GeneralSelector) selRightmost).getBase();
                 switch (base) {
                     case "node":
-                        nodeRules.add(optRule);
+                        newNodeRules.add(optRule);
                         break;
                     case "way":
-                        wayNoAreaRules.add(optRule);
-                        wayRules.add(optRule);
+                        newWayNoAreaRules.add(optRule);
+                        newWayRules.add(optRule);
                         break;
                     case "area":
-                        wayRules.add(optRule);
-                        multipolygonRules.add(optRule);
+                        newWayRules.add(optRule);
+                        newMultipolygonRules.add(optRule);
                         break;
                     case "relation":
-                        relationRules.add(optRule);
-                        multipolygonRules.add(optRule);
+                        newRelationRules.add(optRule);
+                        newMultipolygonRules.add(optRule);
                         break;
                     case "*":
-                        nodeRules.add(optRule);
-                        wayRules.add(optRule);
-                        wayNoAreaRules.add(optRule);
-                        relationRules.add(optRule);
-                        multipolygonRules.add(optRule);
+                        newNodeRules.add(optRule);
+                        newWayRules.add(optRule);
+                        newWayNoAreaRules.add(optRule);
+                        newRelationRules.add(optRule);
+                        newMultipolygonRules.add(optRule);
                         break;
                     case "canvas":
-                        canvasRules.add(r);
+                        newCanvasRules.add(r);
                         break;
                     case "meta":
                     case "setting":
@@ -505,18 +554,84 @@ public class MapCSSStyleSource extends StyleSource {
                         logError(e);
                 }
             }
-            nodeRules.initIndex();
-            wayRules.initIndex();
-            wayNoAreaRules.initIndex();
-            relationRules.initIndex();
-            multipolygonRules.initIndex();
-            canvasRules.initIndex();
-            loaded = true;
+            // the new indexes are not shared yet, they can be initialized without lock
+            newNodeRules.initIndex();
+            newWayRules.initIndex();
+            newWayNoAreaRules.initIndex();
+            newRelationRules.initIndex();
+            newMultipolygonRules.initIndex();
+            newCanvasRules.initIndex();
+        }
+        STYLE_SOURCE_LOCK.writeLock().lock();
+        try {
+            nodeRules.replaceWith(newNodeRules);
+            wayRules.replaceWith(newWayRules);
+            wayNoAreaRules.replaceWith(newWayNoAreaRules);
+            relationRules.replaceWith(newRelationRules);
+            multipolygonRules.replaceWith(newMultipolygonRules);
+            canvasRules.replaceWith(newCanvasRules);
+            if (meta != null) {
+                loadMeta(meta);
+            }
+            if (!metadataOnly) {
+                backgroundColorOverride = canvasFillColor;
+                settings.clear();
+                if (newSettings != null) {
+                    settings.addAll(newSettings);
+                    settingValues = newSettingValues;
+                } else {
+                    settingValues = new HashMap<>();
+                }
+                loaded = true;
+            }
         } finally {
             STYLE_SOURCE_LOCK.writeLock().unlock();
         }
     }
 
+    /**
+     * Runs the MapCSS preprocessor, which evaluates {@code @supports} and {@code @media} blocks.
+     * <p>
+     * Only the preprocessor output is kept in a disk cache: the preprocessed MapCSS is still parsed, and the rule indexes
+     * built, on each load. The cached output is reused as long as the source content and the inputs of the conditions,
+     * see {@link #getConditionsDigest()}, do not change. Subclasses may evaluate the conditions differently, their output
+     * is not cached.
+     * @param in the source input stream
+     * @return the preprocessed MapCSS
+     * @throws IOException if any I/O error occurs
+     * @throws ParseException if the preprocessor fails
+     */
+    private String preprocess(InputStream in) throws IOException, ParseException {
+        if (url == null || getClass() != MapCSSStyleSource.class || !PROP_PREPROCESSOR_CACHE.get()) {
+            return new MapCSSParser(in, "UTF-8", MapCSSParser.LexicalState.PREPROCESSOR).pp_root(this);
+        }
+        byte[] content = Utils.readBytesFromStream(in);
+        String digest = SourceDigestCache.getDigest(content) + '/' + getConditionsDigest();
+        byte[] cached = PREPROCESSOR_CACHE.get(url, digest);
+        if (cached != null) {
+            return new String(cached, StandardCharsets.UTF_8);
+        }
+        String mapcss = new MapCSSParser(new ByteArrayInputStream(content), "UTF-8", MapCSSParser.LexicalState.PREPROCESSOR).pp_root(this);
+        // warnings about deprecated constructs are only reported by the preprocessor, do not hide them on next load
+        if (getWarnings().isEmpty()) {
+            PREPROCESSOR_CACHE.put(url, digest, mapcss.getBytes(StandardCharsets.UTF_8));
+        }
+        return mapcss;
+    }
+
+    /**
+     * Returns a digest of the inputs of the {@code @supports} and {@code @media} conditions, other than the source:
+     * the JOSM version and the supported keys, see {@link #evalSupportsDeclCondition}.
+     * @return a digest of the inputs of the preprocessor conditions
+     */
+    private static String getConditionsDigest() {
+        StringBuilder sb = new StringBuilder().append(Version.getInstance().getVersion());
+        for (String key : new TreeSet<>(SUPPORTED_KEYS)) {
+            sb.append('\n').append(key);
+        }
+        return SourceDigestCache.getDigest(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
     @Override
     public InputStream getSourceInputStream() throws IOException {
         if (css != null) {
@@ -553,9 +668,9 @@ public class MapCSSStyleSource extends StyleSource {
 
     /**
      * load meta info from a selector "meta"
+     * @param c the cascade of the selector "meta"
      */
-    private void loadMeta() {
-        Cascade c = constructSpecial("meta");
+    private void loadMeta(Cascade c) {
         String pTitle = c.get("title", null, String.class);
         if (title == null) {
             title = pTitle;
@@ -566,14 +681,7 @@ public class MapCSSStyleSource extends StyleSource {
         }
     }
 
-    private void loadCanvas() {
-        Cascade c = constructSpecial("canvas");
-        backgroundColorOverride = c.get("fill-color", null, Color.class);
-    }
-
-    private void loadSettings() {
-        settings.clear();
-        settingValues.clear();
+    private void loadSettings(List<StyleSetting> newSettings, Map<String, Object> newSettingValues) {
         MultiCascade mc = new MultiCascade();
         Node n = new Node();
         String code = LanguageInfo.getJOSMLocaleCode();
@@ -608,11 +716,11 @@ public class MapCSSStyleSource extends StyleSource {
                 Logging.warn("Unkown setting type: "+type);
             }
             if (set != null) {
-                settings.add(set);
-                settingValues.put(e.getKey(), set.getValue());
+                newSettings.add(set);
+                newSettingValues.put(e.getKey(), set.getValue());
             }
         }
-        settings.sort(null);
+        newSettings.sort(null);
     }
 
     private Cascade constructSpecial(String type) {
@@ -703,6 +811,41 @@ public class MapCSSStyleSource extends StyleSource {
         }
     }
 
+    /**
+     * Returns the icons referenced by literal values of this style ({@code icon-image}, {@code fill-image}
+     * and {@code repeat-image} properties), with the sizes they are displayed at. Icons computed by expressions are not included.
+     * <p>
+     * The size of an icon is given by the literal {@code icon-width} and {@code icon-height} (or {@code repeat-image-width}
+     * and {@code repeat-image-height}) of the same declaration, {@code -1} meaning the default size.
+     * @return the referenced icons, mapped to the sizes they are displayed at
+     */
+    public Map<String, Set<Dimension>> getReferencedIcons() {
+        Map<String, Set<Dimension>> icons = new TreeMap<>();
+        for (MapCSSRule r : rules) {
+            Map<String, Object> values = new HashMap<>();
+            for (Instruction i : r.declaration.instructions) {
+                if (i instanceof AssignmentInstruction) {
+                    AssignmentInstruction ai = (AssignmentInstruction) i;
+                    values.put(ai.key, ai.val);
+                }
+            }
+            for (String[] keys : ICON_KEYS) {
+                Object name = values.get(keys[0]);
+                if (name instanceof String) {
+                    icons.computeIfAbsent((String) name, k -> new LinkedHashSet<>())
+                            .add(new Dimension(getIconSize(values, keys[1]), getIconSize(values, keys[2])));
+                }
+            }
+        }
+        return icons;
+    }
+
+    private static int getIconSize(Map<String, Object> values, String key) {
+        Object value = key != null ? values.get(key) : null;
+        Float size = value instanceof Expression ? null : Cascade.convertTo(value, Float.class);
+        return size != null && size > 0 ? Math.round(size) : -1;
+    }
+
     /**
      * Evaluate a supports condition
      * @param feature The feature to evaluate for
@@ -0,0 +1,56 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.styleelement;
+
+import java.awt.Color;
+import java.util.Objects;
+
+import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.data.osm.visitor.paint.MapPaintSettings;
+import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * The fill of an area which is smaller than the level of detail of the map: it is drawn as a small rectangle of the
+ * fill color instead of the shape of the area.
+ */
+public final class SmallAreaElement extends StyleElement {
+
+    /**
+     * The fill color of the area
+     */
+    public final Color color;
+
+    /**
+     * Constructs a new {@code SmallAreaElement}.
+     * @param area the fill style of the area, which gives the color and the z-indexes
+     */
+    public SmallAreaElement(AreaElement area) {
+        super(area.majorZIndex, area.zIndex, area.objectZIndex, false, true);
+        this.color = area.color;
+    }
+
+    @Override
+    public void paintPrimitive(IPrimitive primitive, MapPaintSettings paintSettings, StyledMapRenderer painter,
+            boolean selected, boolean outermember, boolean member) {
+        painter.drawSmallArea(primitive, color);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        if (!super.equals(obj)) return false;
+        SmallAreaElement that = (SmallAreaElement) obj;
+        return Objects.equals(color, that.color);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), color);
+    }
+
+    @Override
+    public String toString() {
+        return "SmallAreaElement{" + super.toString() + "color=" + Utils.toString(color) + '}';
+    }
+}
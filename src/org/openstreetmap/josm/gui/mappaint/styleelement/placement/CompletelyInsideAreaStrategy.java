@@ -100,11 +100,34 @@ public class CompletelyInsideAreaStrategy implements PositionForAreaStrategy {
         return new MapViewPositionAndRotation(mapViewState.getForView(x, y), 0);
     }
 
+    @Override
+    public boolean isPlacementValid(MapViewPath path, Rectangle2D nb, MapViewPositionAndRotation placement) {
+        return path.contains(boundsAt(placement, nb));
+    }
+
+    /**
+     * Returns the bounds of a label or icon placed by this strategy, see {@link #centerOf}.
+     * @param placement the placement
+     * @param nb the bounding box of the label or icon
+     * @return the bounds of the label or icon
+     */
+    protected Rectangle2D boundsAt(MapViewPositionAndRotation placement, Rectangle2D nb) {
+        int nbw = (int) nb.getWidth();
+        int nbh = (int) nb.getHeight();
+        return new Rectangle2D.Double(placement.getPoint().getInViewX() - offsetX - nbw / 2.0,
+                placement.getPoint().getInViewY() - offsetY - nbh / 2.0, nbw, nbh);
+    }
+
     @Override
     public boolean supportsGlyphVector() {
         return false;
     }
 
+    @Override
+    public boolean isPlacementCacheable() {
+        return true;
+    }
+
     @Override
     public PositionForAreaStrategy withAddedOffset(Point2D addToOffset) {
         if (Math.abs(addToOffset.getX()) < 1e-5 && Math.abs(addToOffset.getY()) < 1e-5) {
@@ -33,16 +33,29 @@ public final class PartiallyInsideAreaStrategy extends CompletelyInsideAreaStrat
             return inside;
         }
 
+        Rectangle2D smallNb = shrink(nb);
+        // if it cannot be shrunk, we can't do any better
+        return smallNb != null ? super.findLabelPlacement(path, smallNb) : null;
+    }
+
+    @Override
+    public boolean isPlacementValid(MapViewPath path, Rectangle2D nb, MapViewPositionAndRotation placement) {
+        if (super.isPlacementValid(path, nb, placement)) {
+            return true;
+        }
+        Rectangle2D smallNb = shrink(nb);
+        return smallNb != null && super.isPlacementValid(path, smallNb, placement);
+    }
+
+    private static Rectangle2D shrink(Rectangle2D nb) {
         double nbdx = Math.max(0, (nb.getWidth() - 20) / 2);
         double nbdy = Math.max(0, (nb.getHeight() - 10) / 2);
 
         if (nbdx < .5 && nbdy < .5) {
-            // we can't do any better
             return null;
         } else {
-            Rectangle2D smallNb = new Rectangle2D.Double(nb.getX() + nbdx, nb.getY() + nbdy,
+            return new Rectangle2D.Double(nb.getX() + nbdx, nb.getY() + nbdy,
                     nb.getWidth() - 2 * nbdx, nb.getHeight() - 2 * nbdy);
-            return super.findLabelPlacement(path, smallNb);
         }
     }
 
@@ -32,6 +32,26 @@ public interface PositionForAreaStrategy {
      */
     boolean supportsGlyphVector();
 
+    /**
+     * Checks whether the placement only depends on the shape of the area in east/north space and on the scale,
+     * and not on the part of the area that is visible. Such placements can be cached while the view moves.
+     * @return <code>true</code> if the placement can be cached.
+     */
+    default boolean isPlacementCacheable() {
+        return false;
+    }
+
+    /**
+     * Checks whether a placement found by {@link #findLabelPlacement} at another scale is still valid for the area.
+     * @param path The area
+     * @param nb The bounding box of the label or icon
+     * @param placement The placement found at the other scale
+     * @return <code>true</code> if the placement can be used for the area.
+     */
+    default boolean isPlacementValid(MapViewPath path, Rectangle2D nb, MapViewPositionAndRotation placement) {
+        return path.contains(placement.getPoint().getInViewX(), placement.getPoint().getInViewY());
+    }
+
     /**
      * Generates the transformed glyph vectors for the given text.
      * @param path The path to place the text along
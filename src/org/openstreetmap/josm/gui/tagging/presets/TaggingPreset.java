@@ -63,6 +63,7 @@ import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.GBC;
 import org.openstreetmap.josm.tools.ImageProvider;
+import org.openstreetmap.josm.tools.ImageProvider.ImageSizes;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
 import org.openstreetmap.josm.tools.template_engine.ParseError;
@@ -219,7 +220,9 @@ public class TaggingPreset extends AbstractAction implements ActiveLayerChangeLi
         imgProv.setOptional(true);
         imgProv.getResourceAsync(result -> {
             if (result != null) {
-                GuiHelper.runInEDT(() -> result.attachImageIcon(this));
+                // rasterize the action icons in the background, so that the EDT only picks them from the cache
+                ImageProvider.prerasterize(result, ImageSizes.SMALLICON, ImageSizes.LARGEICON)
+                        .thenRun(() -> GuiHelper.runInEDT(() -> result.attachImageIcon(this)));
             } else {
                 Logging.warn(toString() + ": " + PRESET_ICON_ERROR_MSG_PREFIX + iconName);
             }
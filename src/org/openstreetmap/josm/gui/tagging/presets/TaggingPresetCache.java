@@ -0,0 +1,98 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.tagging.presets;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.io.CachedFile;
+import org.openstreetmap.josm.io.SourceDigestCache;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.XmlObjectParser;
+import org.xml.sax.SAXException;
+
+/**
+ * Binary cache of parsed tagging preset sources.
+ * <p>
+ * For each source, the elements read by the {@link XmlObjectParser} are stored in its compact binary recording format,
+ * along with a digest of the source content. As long as the source content does not change, the presets are then
+ * built from the recording, which avoids XML parsing (and zip inflating) at startup. Any change of the source,
+ * of the cache format, or a corrupted cache file leads to a transparent fallback to XML parsing.
+ * <p>
+ * The saving is limited to the XML parsing: the source is still read to compute its digest, and the presets are still
+ * built through the setters of the parser, which have side effects (icons, localized names, match expressions) that a
+ * serialized object graph would skip. For the default presets, this saves about a quarter of the reading time, see
+ * {@code TaggingPresetReaderPerformanceTest}.
+ */
+final class TaggingPresetCache {
+
+    /** Preference enabling the binary preset cache */
+    static final BooleanProperty PROP_ENABLED = new BooleanProperty("taggingpreset.binary-cache", true);
+
+    /** Version of the cache format, to be incremented for any incompatible change */
+    static final int FORMAT_VERSION = 1;
+
+    private static final SourceDigestCache CACHE = new SourceDigestCache("presets", FORMAT_VERSION);
+
+    private TaggingPresetCache() {
+        // Hide default constructor for utils classes
+    }
+
+    /**
+     * Returns the cache file of the given preset source.
+     * @param source preset source
+     * @return the cache file
+     */
+    static File getCacheFile(String source) {
+        return CACHE.getCacheFile(source);
+    }
+
+    /**
+     * Computes the digest of the raw content of a preset source.
+     * @param cf preset source
+     * @param zip {@code true} if the source is a zip file
+     * @return the hexadecimal digest of the source content
+     * @throws IOException if an I/O error occurs
+     */
+    static String getDigest(CachedFile cf, boolean zip) throws IOException {
+        try (InputStream in = zip ? Files.newInputStream(cf.getFile().toPath()) : cf.getInputStream()) {
+            return SourceDigestCache.getDigest(in);
+        }
+    }
+
+    /**
+     * Replays the cached recording of a preset source into the given parser.
+     * @param source preset source
+     * @param digest digest of the current source content
+     * @param parser the parser to replay the recording into
+     * @return {@code true} if the cache was up to date and successfully replayed.
+     * If {@code false}, the given parser must not be used anymore.
+     */
+    static boolean load(String source, String digest, XmlObjectParser parser) {
+        byte[] recording = CACHE.get(source, digest);
+        if (recording == null) {
+            return false;
+        }
+        try {
+            parser.startFromRecording(new ByteArrayInputStream(recording));
+            return true;
+        } catch (IOException | SAXException | RuntimeException e) {
+            Logging.log(Logging.LEVEL_WARN, "Unable to read preset cache of " + source, e);
+            CACHE.remove(source);
+            return false;
+        }
+    }
+
+    /**
+     * Stores the recording of a preset source.
+     * @param source preset source
+     * @param digest digest of the source content
+     * @param recording recording of the parsed source, see {@link XmlObjectParser#recordTo}
+     */
+    static void store(String source, String digest, byte[] recording) {
+        CACHE.put(source, digest, recording);
+    }
+}
@@ -4,10 +4,12 @@ package org.openstreetmap.josm.gui.tagging.presets;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -162,8 +164,38 @@ public final class TaggingPresetReader {
      * @throws SAXException if any XML error occurs
      */
     static Collection<TaggingPreset> readAll(Reader in, boolean validate, HashSetWithLast<TaggingPreset> all) throws SAXException {
+        return readAll(parse(in, validate, null), all);
+    }
+
+    /**
+     * Parses tagging presets from the input reader.
+     * @param in The input reader
+     * @param validate if {@code true}, XML validation will be performed
+     * @param recording if not null, receives the recording of the parsed elements, see {@link XmlObjectParser#recordTo}
+     * @return the parser, ready to iterate over parsed objects
+     * @throws SAXException if any XML error occurs
+     */
+    private static XmlObjectParser parse(Reader in, boolean validate, OutputStream recording) throws SAXException {
         XmlObjectParser parser = buildParser();
+        if (recording != null) {
+            parser.recordTo(recording);
+        }
+        if (validate) {
+            parser.startWithValidation(in, Main.getXMLBase()+"/tagging-preset-1.0", "resource://data/tagging-preset.xsd");
+        } else {
+            parser.start(in);
+        }
+        return parser;
+    }
 
+    /**
+     * Builds tagging presets from the objects of a started parser.
+     * @param parser the started parser
+     * @param all the accumulator for parsed tagging presets
+     * @return the accumulator
+     * @throws SAXException if any XML error occurs
+     */
+    private static Collection<TaggingPreset> readAll(XmlObjectParser parser, HashSetWithLast<TaggingPreset> all) throws SAXException {
         /** to detect end of {@code <group>} */
         TaggingPresetMenu lastmenu = null;
         /** to detect end of reused {@code <group>} */
@@ -176,11 +208,6 @@ public final class TaggingPresetReader {
         /** lastIdIterators contains non empty iterators of items to be handled before obtaining the next item from the XML parser */
         final Deque<Iterator<Object>> lastIdIterators = new ArrayDeque<>();
 
-        if (validate) {
-            parser.startWithValidation(in, Main.getXMLBase()+"/tagging-preset-1.0", "resource://data/tagging-preset.xsd");
-        } else {
-            parser.start(in);
-        }
         while (parser.hasNext() || !lastIdIterators.isEmpty()) {
             final Object o;
             if (!lastIdIterators.isEmpty()) {
@@ -325,6 +352,8 @@ public final class TaggingPresetReader {
 
     /**
      * Reads all tagging presets from the given source.
+     * <p>
+     * Without validation, presets are built from the {@link TaggingPresetCache binary cache} when the source has not changed.
      * @param source a given filename, URL or internal resource
      * @param validate if {@code true}, XML validation will be performed
      * @param all the accumulator for parsed tagging presets
@@ -337,6 +366,7 @@ public final class TaggingPresetReader {
         Collection<TaggingPreset> tp;
         Logging.debug("Reading presets from {0}", source);
         long startTime = System.currentTimeMillis();
+        boolean fromCache = false;
         try (
             CachedFile cf = new CachedFile(source).setHttpAccept(PRESET_MIME_TYPES);
             // zip may be null, but Java 7 allows it: https://blogs.oracle.com/darcy/entry/project_coin_null_try_with
@@ -346,12 +376,32 @@ public final class TaggingPresetReader {
                 zipIcons = cf.getFile();
                 I18n.addTexts(zipIcons);
             }
-            try (InputStreamReader r = UTFInputStreamReader.create(zip == null ? cf.getInputStream() : zip)) {
-                tp = readAll(new BufferedReader(r), validate, all);
+            String digest = null;
+            XmlObjectParser parser = null;
+            if (!validate && TaggingPresetCache.PROP_ENABLED.get()) {
+                digest = TaggingPresetCache.getDigest(cf, zip != null);
+                parser = buildParser();
+                if (TaggingPresetCache.load(source, digest, parser)) {
+                    fromCache = true;
+                } else {
+                    parser = null;
+                }
+            }
+            ByteArrayOutputStream recording = null;
+            if (parser == null) {
+                recording = digest != null ? new ByteArrayOutputStream() : null;
+                try (InputStreamReader r = UTFInputStreamReader.create(zip == null ? cf.getInputStream() : zip)) {
+                    parser = parse(new BufferedReader(r), validate, recording);
+                }
+            }
+            tp = readAll(parser, all);
+            if (recording != null) {
+                TaggingPresetCache.store(source, digest, recording.toByteArray());
             }
         }
         if (Logging.isDebugEnabled()) {
-            Logging.debug("Presets read in {0}", Utils.getDurationString(System.currentTimeMillis() - startTime));
+            Logging.debug("Presets read {0}in {1}", fromCache ? "from cache " : "",
+                    Utils.getDurationString(System.currentTimeMillis() - startTime));
         }
         return tp;
     }
@@ -0,0 +1,311 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
+import javax.json.stream.JsonParsingException;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Reads GeoJSON data, using JSR 353: Java API for JSON Processing (JSON-P).
+ * <p>
+ * The features of a feature collection are streamed: each feature is read, converted to primitives and added to
+ * the dataset before the next one, so that large files can be read without holding the whole JSON document in memory.
+ * <ul>
+ * <li>Points are read as nodes and line strings as ways,</li>
+ * <li>polygons are read as closed ways, or as multipolygon relations if they have holes,</li>
+ * <li>multi geometries and geometry collections are read as one primitive per geometry,
+ * except multipolygons which are read as a single multipolygon relation.</li>
+ * </ul>
+ * The properties of the features are read as tags. The coordinates are expected in WGS 84.
+ * <p>
+ * See <a href="https://tools.ietf.org/html/rfc7946">RFC7946: The GeoJSON Format</a>
+ */
+public class GeoJSONReader extends AbstractReader {
+
+    private ProgressMonitor progressMonitor;
+    private int features;
+
+    /**
+     * Exception thrown after user cancelation.
+     */
+    private static final class GeoJSONParsingCanceledException extends Exception implements ImportCancelException {
+        /**
+         * Constructs a new {@code GeoJSONParsingCanceledException}.
+         * @param msg The error message
+         */
+        GeoJSONParsingCanceledException(String msg) {
+            super(msg);
+        }
+    }
+
+    /**
+     * constructor (for private and subclasses use only)
+     *
+     * @see #parseDataSet(InputStream, ProgressMonitor)
+     */
+    protected GeoJSONReader() {
+        // Restricts visibility
+    }
+
+    @Override
+    protected DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        CheckParameterUtil.ensureParameterNotNull(source, "source");
+        this.progressMonitor = progressMonitor != null ? progressMonitor : NullProgressMonitor.INSTANCE;
+        this.progressMonitor.beginTask(tr("Reading GeoJSON data..."));
+        ds.beginUpdate();
+        try (JsonParser parser = Json.createParser(new InputStreamReader(source, StandardCharsets.UTF_8))) {
+            parse(parser);
+            return ds;
+        } catch (JsonParsingException e) {
+            throw new IllegalDataException(tr("Line {0} column {1}: ",
+                    e.getLocation().getLineNumber(), e.getLocation().getColumnNumber()) + e.getMessage(), e);
+        } catch (JsonException | ClassCastException | IndexOutOfBoundsException | NullPointerException e) {
+            throw new IllegalDataException(e);
+        } finally {
+            ds.endUpdate();
+            this.progressMonitor.finishTask();
+        }
+    }
+
+    private void parse(JsonParser parser) throws IllegalDataException {
+        if (!parser.hasNext() || parser.next() != Event.START_OBJECT) {
+            throw new IllegalDataException(tr("Invalid GeoJSON data: the root element is not an object"));
+        }
+        // the members of the root object, except the features which are streamed
+        JsonObjectBuilder root = Json.createObjectBuilder();
+        boolean featureCollection = false;
+        Event event;
+        while ((event = parser.next()) != Event.END_OBJECT) {
+            if (event != Event.KEY_NAME) {
+                throw new IllegalDataException(tr("Invalid GeoJSON data: unexpected {0}", event));
+            }
+            String key = parser.getString();
+            event = parser.next();
+            if ("features".equals(key) && event == Event.START_ARRAY) {
+                featureCollection = true;
+                parseFeatures(parser);
+            } else {
+                root.add(key, parser.getValue());
+            }
+        }
+        if (!featureCollection) {
+            JsonObject object = root.build();
+            if ("Feature".equals(object.getString("type", null))) {
+                parseFeature(object);
+            } else {
+                parseGeometry(object, Collections.emptyMap());
+            }
+        }
+    }
+
+    private void parseFeatures(JsonParser parser) throws IllegalDataException {
+        Event event;
+        while ((event = parser.next()) != Event.END_ARRAY) {
+            if (event == Event.START_OBJECT) {
+                parseFeature(parser.getObject());
+            } else {
+                Logging.warn("GeoJSON: ignoring {0} in features", event);
+                if (event == Event.START_ARRAY) {
+                    parser.skipArray();
+                }
+            }
+        }
+    }
+
+    private void parseFeature(JsonObject feature) throws IllegalDataException {
+        if (progressMonitor.isCanceled()) {
+            throw new IllegalDataException(new GeoJSONParsingCanceledException(tr("Reading was canceled")));
+        }
+        JsonValue geometry = feature.get("geometry");
+        if (geometry instanceof JsonObject) {
+            parseGeometry((JsonObject) geometry, getTags(feature));
+        } else {
+            Logging.debug("GeoJSON: ignoring feature without geometry");
+        }
+        if (++features % 10_000 == 0) {
+            progressMonitor.setCustomText(tr("{0} features read", features));
+        }
+    }
+
+    private static Map<String, String> getTags(JsonObject feature) {
+        JsonValue properties = feature.get("properties");
+        if (!(properties instanceof JsonObject)) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonValue> e : ((JsonObject) properties).entrySet()) {
+            JsonValue value = e.getValue();
+            if (value instanceof JsonString) {
+                tags.put(e.getKey(), ((JsonString) value).getString());
+            } else if (value.getValueType() != JsonValue.ValueType.NULL) {
+                tags.put(e.getKey(), value.toString());
+            }
+        }
+        return tags;
+    }
+
+    private void parseGeometry(JsonObject geometry, Map<String, String> tags) {
+        String type = geometry.getString("type", "");
+        switch (type) {
+        case "Point":
+            parsePoint(geometry.getJsonArray("coordinates"), tags);
+            break;
+        case "MultiPoint":
+            for (JsonArray point : geometry.getJsonArray("coordinates").getValuesAs(JsonArray.class)) {
+                parsePoint(point, tags);
+            }
+            break;
+        case "LineString":
+            parseLineString(geometry.getJsonArray("coordinates"), tags);
+            break;
+        case "MultiLineString":
+            for (JsonArray lineString : geometry.getJsonArray("coordinates").getValuesAs(JsonArray.class)) {
+                parseLineString(lineString, tags);
+            }
+            break;
+        case "Polygon":
+            parsePolygons(Collections.singletonList(geometry.getJsonArray("coordinates")), tags);
+            break;
+        case "MultiPolygon":
+            parsePolygons(geometry.getJsonArray("coordinates").getValuesAs(JsonArray.class), tags);
+            break;
+        case "GeometryCollection":
+            for (JsonObject g : geometry.getJsonArray("geometries").getValuesAs(JsonObject.class)) {
+                parseGeometry(g, tags);
+            }
+            break;
+        default:
+            Logging.warn("GeoJSON: ignoring unsupported geometry type {0}", type);
+        }
+    }
+
+    private static LatLon getLatLon(JsonArray coordinates) {
+        return new LatLon(coordinates.getJsonNumber(1).doubleValue(), coordinates.getJsonNumber(0).doubleValue());
+    }
+
+    private Node createNode(JsonArray coordinates) {
+        Node node = new Node(getLatLon(coordinates));
+        ds.addPrimitive(node);
+        return node;
+    }
+
+    private void parsePoint(JsonArray coordinates, Map<String, String> tags) {
+        createNode(coordinates).setKeys(tags);
+    }
+
+    private void parseLineString(JsonArray coordinates, Map<String, String> tags) {
+        if (coordinates.isEmpty()) {
+            return;
+        }
+        List<Node> nodes = new ArrayList<>(coordinates.size());
+        for (JsonArray point : coordinates.getValuesAs(JsonArray.class)) {
+            nodes.add(createNode(point));
+        }
+        createWay(nodes, tags);
+    }
+
+    private Way createWay(List<Node> nodes, Map<String, String> tags) {
+        Way way = new Way();
+        way.setNodes(nodes);
+        way.setKeys(tags);
+        ds.addPrimitive(way);
+        return way;
+    }
+
+    /**
+     * Creates a closed way of a polygon ring. The last position of the ring, equal to the first one, is not duplicated.
+     * @param ring the positions of the ring
+     * @param tags the tags of the way
+     * @return the way, or {@code null} if the ring is empty
+     */
+    private Way parseRing(JsonArray ring, Map<String, String> tags) {
+        List<JsonArray> points = ring.getValuesAs(JsonArray.class);
+        int size = points.size();
+        if (size > 1 && getLatLon(points.get(0)).equals(getLatLon(points.get(size - 1)))) {
+            size--;
+        }
+        if (size == 0) {
+            return null;
+        }
+        List<Node> nodes = new ArrayList<>(size + 1);
+        for (int i = 0; i < size; i++) {
+            nodes.add(createNode(points.get(i)));
+        }
+        nodes.add(nodes.get(0));
+        return createWay(nodes, tags);
+    }
+
+    /**
+     * Creates the primitives of polygons: a closed way for a single polygon without holes,
+     * or else a multipolygon relation.
+     * @param polygons the polygons, each one being a list of rings, the first one being the outer ring
+     * @param tags the tags of the polygons
+     */
+    private void parsePolygons(List<JsonArray> polygons, Map<String, String> tags) {
+        if (polygons.size() == 1 && polygons.get(0).size() == 1) {
+            parseRing(polygons.get(0).getJsonArray(0), tags);
+            return;
+        }
+        List<RelationMember> members = new ArrayList<>();
+        for (JsonArray polygon : polygons) {
+            List<JsonArray> rings = polygon.getValuesAs(JsonArray.class);
+            for (int i = 0; i < rings.size(); i++) {
+                Way way = parseRing(rings.get(i), Collections.emptyMap());
+                if (way != null) {
+                    members.add(new RelationMember(i == 0 ? "outer" : "inner", way));
+                }
+            }
+        }
+        if (members.isEmpty()) {
+            return;
+        }
+        Relation relation = new Relation();
+        relation.setMembers(members);
+        relation.setKeys(tags);
+        relation.put("type", "multipolygon");
+        ds.addPrimitive(relation);
+    }
+
+    /**
+     * Parse the given input source and return the dataset.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor  the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return new GeoJSONReader().doParseDataSet(source, progressMonitor);
+    }
+}
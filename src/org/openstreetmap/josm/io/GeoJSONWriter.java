@@ -1,22 +1,24 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.io;
 
+import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.stream.Stream;
+import java.util.function.Consumer;
 
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
-import javax.json.JsonValue;
-import javax.json.JsonWriter;
+import javax.json.JsonReader;
 import javax.json.stream.JsonGenerator;
 
 import org.openstreetmap.josm.data.Bounds;
@@ -39,6 +41,10 @@ import org.openstreetmap.josm.tools.Pair;
 /**
  * Writes OSM data as a GeoJSON string, using JSR 353: Java API for JSON Processing (JSON-P).
  * <p>
+ * The features are streamed to a {@link JsonGenerator} while the dataset is walked, so that large datasets
+ * can be exported without building the whole JSON document in memory. The protected {@code append*} methods taking a
+ * {@code JsonGenerator} are called for this; the former ones taking JSON builders are deprecated and no longer called.
+ * <p>
  * See <a href="https://tools.ietf.org/html/rfc7946">RFC7946: The GeoJSON Format</a>
  */
 public class GeoJSONWriter {
@@ -73,122 +79,158 @@ public class GeoJSONWriter {
      */
     public String write(boolean pretty) {
         StringWriter stringWriter = new StringWriter();
-        Map<String, Object> config = new HashMap<>(1);
-        config.put(JsonGenerator.PRETTY_PRINTING, pretty);
-        try (JsonWriter writer = Json.createWriterFactory(config).createWriter(stringWriter)) {
-            JsonObjectBuilder object = Json.createObjectBuilder()
-                    .add("type", "FeatureCollection")
-                    .add("generator", "JOSM");
-            appendLayerBounds(data, object);
-            appendLayerFeatures(data, object);
-            writer.writeObject(object.build());
-            return stringWriter.toString();
-        }
+        write(pretty, stringWriter);
+        return stringWriter.toString();
+    }
+
+    /**
+     * Writes OSM data as GeoJSON to a writer (prettified or not). The writer is flushed but not closed.
+     * @param pretty {@code true} to have pretty output, {@code false} otherwise
+     * @param writer The writer to write to
+     */
+    public void write(boolean pretty, Writer writer) {
+        Map<String, Object> config = pretty
+                ? Collections.singletonMap(JsonGenerator.PRETTY_PRINTING, Boolean.TRUE)
+                : Collections.emptyMap();
+        JsonGenerator generator = Json.createGeneratorFactory(config).createGenerator(writer);
+        generator.writeStartObject()
+                 .write("type", "FeatureCollection")
+                 .write("generator", "JOSM");
+        appendLayerBounds(data, generator);
+        appendLayerFeatures(data, generator);
+        generator.writeEnd();
+        generator.flush();
     }
 
     private class GeometryPrimitiveVisitor implements OsmPrimitiveVisitor {
 
-        private final JsonObjectBuilder geomObj;
+        private final JsonGenerator generator;
 
-        GeometryPrimitiveVisitor(JsonObjectBuilder geomObj) {
-            this.geomObj = geomObj;
+        GeometryPrimitiveVisitor(JsonGenerator generator) {
+            this.generator = generator;
         }
 
         @Override
         public void visit(Node n) {
-            geomObj.add("type", "Point");
+            generator.writeStartObject("geometry").write("type", "Point");
             LatLon ll = n.getCoor();
             if (ll != null) {
-                geomObj.add("coordinates", getCoorArray(null, n.getCoor()));
+                generator.writeStartArray("coordinates");
+                writeCoor(ll);
+                generator.writeEnd();
             }
+            generator.writeEnd();
         }
 
         @Override
         public void visit(Way w) {
             if (w != null) {
-                final JsonArrayBuilder array = getCoorsArray(w.getNodes());
                 if (w.isClosed() && ElemStyles.hasAreaElemStyle(w, false)) {
-                    final JsonArrayBuilder container = Json.createArrayBuilder().add(array);
-                    geomObj.add("type", "Polygon");
-                    geomObj.add("coordinates", container);
+                    generator.writeStartObject("geometry").write("type", "Polygon").writeStartArray("coordinates");
+                    generator.writeStartArray();
+                    writeCoors(w.getNodes());
+                    generator.writeEnd().writeEnd();
                 } else {
-                    geomObj.add("type", "LineString");
-                    geomObj.add("coordinates", array);
+                    generator.writeStartObject("geometry").write("type", "LineString").writeStartArray("coordinates");
+                    writeCoors(w.getNodes());
+                    generator.writeEnd();
                 }
+                generator.writeEnd();
+            } else {
+                generator.writeNull("geometry");
             }
         }
 
         @Override
         public void visit(Relation r) {
             if (r == null || !r.isMultipolygon() || r.hasIncompleteMembers()) {
+                generator.writeNull("geometry");
                 return;
             }
+            final Pair<List<JoinedPolygon>, List<JoinedPolygon>> mp;
             try {
-                final Pair<List<JoinedPolygon>, List<JoinedPolygon>> mp = MultipolygonBuilder.joinWays(r);
-                final JsonArrayBuilder polygon = Json.createArrayBuilder();
-                Stream.concat(mp.a.stream(), mp.b.stream())
-                        .map(p -> getCoorsArray(p.getNodes())
-                                // since first node is not duplicated as last node
-                                .add(getCoorArray(null, p.getNodes().get(0).getCoor())))
-                        .forEach(polygon::add);
-                geomObj.add("type", "MultiPolygon");
-                final JsonArrayBuilder multiPolygon = Json.createArrayBuilder().add(polygon);
-                geomObj.add("coordinates", multiPolygon);
+                mp = MultipolygonBuilder.joinWays(r);
             } catch (MultipolygonBuilder.JoinedPolygonCreationException ex) {
                 Logging.warn("GeoJSON: Failed to export multipolygon {0}", r.getUniqueId());
                 Logging.warn(ex);
+                generator.writeNull("geometry");
+                return;
             }
+            generator.writeStartObject("geometry").write("type", "MultiPolygon").writeStartArray("coordinates");
+            generator.writeStartArray();
+            for (List<JoinedPolygon> polygons : Arrays.asList(mp.a, mp.b)) {
+                for (JoinedPolygon p : polygons) {
+                    generator.writeStartArray();
+                    writeCoors(p.getNodes());
+                    // since first node is not duplicated as last node
+                    generator.writeStartArray();
+                    writeCoor(p.getNodes().get(0).getCoor());
+                    generator.writeEnd();
+                    generator.writeEnd();
+                }
+            }
+            generator.writeEnd().writeEnd().writeEnd();
         }
-    }
 
-    private JsonArrayBuilder getCoorArray(JsonArrayBuilder builder, LatLon c) {
-        return getCoorArray(builder, projection.latlon2eastNorth(c));
-    }
-
-    private static JsonArrayBuilder getCoorArray(JsonArrayBuilder builder, EastNorth c) {
-        return (builder != null ? builder : Json.createArrayBuilder())
-                .add(BigDecimal.valueOf(c.getX()).setScale(11, RoundingMode.HALF_UP))
-                .add(BigDecimal.valueOf(c.getY()).setScale(11, RoundingMode.HALF_UP));
-    }
+        private void writeCoor(LatLon c) {
+            writeEastNorth(generator, projection.latlon2eastNorth(c));
+        }
 
-    private JsonArrayBuilder getCoorsArray(Iterable<Node> nodes) {
-        final JsonArrayBuilder builder = Json.createArrayBuilder();
-        for (Node n : nodes) {
-            LatLon ll = n.getCoor();
-            if (ll != null) {
-                builder.add(getCoorArray(null, ll));
+        private void writeCoors(Iterable<Node> nodes) {
+            for (Node n : nodes) {
+                LatLon ll = n.getCoor();
+                if (ll != null) {
+                    generator.writeStartArray();
+                    writeCoor(ll);
+                    generator.writeEnd();
+                }
             }
         }
-        return builder;
     }
 
-    protected void appendPrimitive(OsmPrimitive p, JsonArrayBuilder array) {
+    private static void writeEastNorth(JsonGenerator generator, EastNorth c) {
+        generator.write(BigDecimal.valueOf(c.getX()).setScale(11, RoundingMode.HALF_UP))
+                 .write(BigDecimal.valueOf(c.getY()).setScale(11, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * Writes a primitive as a feature, in the array of features.
+     * @param p the primitive
+     * @param generator the JSON generator
+     */
+    protected void appendPrimitive(OsmPrimitive p, JsonGenerator generator) {
         if (p.isIncomplete()) {
             return;
         } else if (SKIP_EMPTY_NODES && p instanceof Node && p.getKeys().isEmpty()) {
             return;
         }
 
+        generator.writeStartObject().write("type", "Feature");
+
         // Properties
-        final JsonObjectBuilder propObj = Json.createObjectBuilder();
-        for (Entry<String, String> t : p.getKeys().entrySet()) {
-            propObj.add(t.getKey(), t.getValue());
+        Map<String, String> keys = p.getKeys();
+        if (keys.isEmpty()) {
+            generator.writeNull("properties");
+        } else {
+            generator.writeStartObject("properties");
+            for (Entry<String, String> t : keys.entrySet()) {
+                generator.write(t.getKey(), t.getValue());
+            }
+            generator.writeEnd();
         }
-        final JsonObject prop = propObj.build();
 
         // Geometry
-        final JsonObjectBuilder geomObj = Json.createObjectBuilder();
-        p.accept(new GeometryPrimitiveVisitor(geomObj));
-        final JsonObject geom = geomObj.build();
+        p.accept(new GeometryPrimitiveVisitor(generator));
 
-        // Build primitive JSON object
-        array.add(Json.createObjectBuilder()
-                .add("type", "Feature")
-                .add("properties", prop.isEmpty() ? JsonValue.NULL : prop)
-                .add("geometry", geom.isEmpty() ? JsonValue.NULL : geom));
+        generator.writeEnd();
     }
 
-    protected void appendLayerBounds(DataSet ds, JsonObjectBuilder object) {
+    /**
+     * Writes the bounding box of the data source bounds of a dataset, in the feature collection.
+     * @param ds the dataset
+     * @param generator the JSON generator
+     */
+    protected void appendLayerBounds(DataSet ds, JsonGenerator generator) {
         if (ds != null) {
             Iterator<Bounds> it = ds.getDataSourceBounds().iterator();
             if (it.hasNext()) {
@@ -196,25 +238,99 @@ public class GeoJSONWriter {
                 while (it.hasNext()) {
                     b.extend(it.next());
                 }
-                appendBounds(b, object);
+                appendBounds(b, generator);
             }
         }
     }
 
-    protected void appendBounds(Bounds b, JsonObjectBuilder object) {
+    /**
+     * Writes a bounding box, in the current object.
+     * @param b the bounds
+     * @param generator the JSON generator
+     */
+    protected void appendBounds(Bounds b, JsonGenerator generator) {
         if (b != null) {
-            JsonArrayBuilder builder = Json.createArrayBuilder();
-            getCoorArray(builder, b.getMin());
-            getCoorArray(builder, b.getMax());
-            object.add("bbox", builder);
+            generator.writeStartArray("bbox");
+            writeEastNorth(generator, projection.latlon2eastNorth(b.getMin()));
+            writeEastNorth(generator, projection.latlon2eastNorth(b.getMax()));
+            generator.writeEnd();
         }
     }
 
-    protected void appendLayerFeatures(DataSet ds, JsonObjectBuilder object) {
-        JsonArrayBuilder array = Json.createArrayBuilder();
+    /**
+     * Writes the array of features of a dataset, in the feature collection.
+     * @param ds the dataset
+     * @param generator the JSON generator
+     */
+    protected void appendLayerFeatures(DataSet ds, JsonGenerator generator) {
+        generator.writeStartArray("features");
         if (ds != null) {
-            ds.allNonDeletedPrimitives().forEach(p -> appendPrimitive(p, array));
+            ds.allNonDeletedPrimitives().forEach(p -> appendPrimitive(p, generator));
+        }
+        generator.writeEnd();
+    }
+
+    private static JsonObject writeObject(Consumer<JsonGenerator> content) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = Json.createGenerator(writer)) {
+            generator.writeStartObject();
+            content.accept(generator);
+            generator.writeEnd();
+        }
+        try (JsonReader reader = Json.createReader(new StringReader(writer.toString()))) {
+            return reader.readObject();
         }
-        object.add("features", array);
+    }
+
+    private static void addAll(JsonObject from, JsonObjectBuilder to) {
+        from.forEach(to::add);
+    }
+
+    /**
+     * Adds a primitive as a feature to an array of features.
+     * @param p the primitive
+     * @param array the array of features
+     * @deprecated use {@link #appendPrimitive(OsmPrimitive, JsonGenerator)} instead
+     */
+    @Deprecated
+    protected void appendPrimitive(OsmPrimitive p, JsonArrayBuilder array) {
+        writeObject(generator -> {
+            generator.writeStartArray("features");
+            appendPrimitive(p, generator);
+            generator.writeEnd();
+        }).getJsonArray("features").forEach(array::add);
+    }
+
+    /**
+     * Adds the bounding box of the data source bounds of a dataset to an object.
+     * @param ds the dataset
+     * @param object the object
+     * @deprecated use {@link #appendLayerBounds(DataSet, JsonGenerator)} instead
+     */
+    @Deprecated
+    protected void appendLayerBounds(DataSet ds, JsonObjectBuilder object) {
+        addAll(writeObject(generator -> appendLayerBounds(ds, generator)), object);
+    }
+
+    /**
+     * Adds a bounding box to an object.
+     * @param b the bounds
+     * @param object the object
+     * @deprecated use {@link #appendBounds(Bounds, JsonGenerator)} instead
+     */
+    @Deprecated
+    protected void appendBounds(Bounds b, JsonObjectBuilder object) {
+        addAll(writeObject(generator -> appendBounds(b, generator)), object);
+    }
+
+    /**
+     * Adds the array of features of a dataset to an object.
+     * @param ds the dataset
+     * @param object the object
+     * @deprecated use {@link #appendLayerFeatures(DataSet, JsonGenerator)} instead
+     */
+    @Deprecated
+    protected void appendLayerFeatures(DataSet ds, JsonObjectBuilder object) {
+        addAll(writeObject(generator -> appendLayerFeatures(ds, generator)), object);
     }
 }
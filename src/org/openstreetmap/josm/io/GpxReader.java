@@ -2,12 +2,14 @@
 package org.openstreetmap.josm.io;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
+import static org.openstreetmap.josm.tools.I18n.trn;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -23,8 +25,13 @@ import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.GpxLink;
 import org.openstreetmap.josm.data.gpx.GpxRoute;
+import org.openstreetmap.josm.data.gpx.GpxTrack;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.ImmutableGpxTrack;
+import org.openstreetmap.josm.data.gpx.ImmutableGpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
 import org.xml.sax.Attributes;
@@ -57,17 +64,65 @@ public class GpxReader implements GpxConstants {
         COPYRIGHT
     }
 
+    /**
+     * Receives the tracks while they are read, in streaming mode.
+     * @see GpxReader#setStreamingListener
+     */
+    @FunctionalInterface
+    public interface StreamingListener {
+        /**
+         * Called when a track has been completely read, or when new segments of the track being read are available.
+         * @param previous the track previously given for the same {@code <trk>} element, to be replaced by {@code track},
+         * or {@code null} for a new track
+         * @param track the track read so far
+         */
+        void trackRead(GpxTrack previous, GpxTrack track);
+    }
+
+    /** Minimum delay between two partial updates of the same track in streaming mode, in nanoseconds */
+    private static final long STREAMING_UPDATE_INTERVAL = 500_000_000L;
+    /** Number of new points after which the segment being read is given to the streaming listener */
+    private static final int STREAMING_UPDATE_POINTS = 1000;
+
+    /**
+     * Exception thrown after user cancelation.
+     */
+    private static final class GpxParsingCanceledException extends SAXException implements ImportCancelException {
+        /**
+         * Constructs a new {@code GpxParsingCanceledException}.
+         * @param msg The error message
+         */
+        GpxParsingCanceledException(String msg) {
+            super(msg);
+        }
+    }
+
     private String version;
     /** The resulting gpx data */
     private GpxData gpxData;
     private final InputSource inputSource;
 
+    private StreamingListener streamingListener;
+    private ProgressMonitor progressMonitor = NullProgressMonitor.INSTANCE;
+    private double minimumDistance;
+    private Bounds bounds;
+    private Date startTime;
+    private Date endTime;
+
     private class Parser extends DefaultHandler {
 
         private GpxData data;
-        private Collection<Collection<WayPoint>> currentTrack;
+        private List<GpxTrackSegment> currentTrack;
         private Map<String, Object> currentTrackAttr;
         private Collection<WayPoint> currentTrackSeg;
+        private WayPoint lastTrackPoint;
+        private WayPoint skippedTrackPoint;
+        private GpxTrack publishedTrack;
+        private int trackPoints;
+        private int readPoints;
+        private int publishedPoints;
+        private long publishedTime;
+        private int streamedTracks;
         private GpxRoute currentRoute;
         private WayPoint currentWayPoint;
 
@@ -153,6 +208,7 @@ public class GpxReader implements GpxConstants {
                     currentState = State.TRK;
                     currentTrack = new ArrayList<>();
                     currentTrackAttr = new HashMap<>();
+                    readPoints = 0;
                     break;
                 case "extensions":
                     states.push(currentState);
@@ -233,6 +289,7 @@ public class GpxReader implements GpxConstants {
                 break;
             case TRKSEG:
                 if ("trkpt".equals(localName)) {
+                    checkCanceled();
                     states.push(currentState);
                     currentState = State.WPT;
                     currentWayPoint = new WayPoint(parseLatLon(atts));
@@ -454,7 +511,7 @@ public class GpxReader implements GpxConstants {
                 case "trkpt":
                     currentState = states.pop();
                     convertUrlToLink(currentWayPoint.attr);
-                    currentTrackSeg.add(currentWayPoint);
+                    addTrackPoint(currentWayPoint);
                     break;
                 case "wpt":
                     currentState = states.pop();
@@ -470,7 +527,8 @@ public class GpxReader implements GpxConstants {
             case TRKSEG:
                 if ("trkseg".equals(localName)) {
                     currentState = states.pop();
-                    currentTrack.add(currentTrackSeg);
+                    endTrackSegment();
+                    currentTrackSeg = null;
                 }
                 break;
             case TRK:
@@ -478,7 +536,11 @@ public class GpxReader implements GpxConstants {
                 case "trk":
                     currentState = states.pop();
                     convertUrlToLink(currentTrackAttr);
-                    data.addTrack(new ImmutableGpxTrack(currentTrack, currentTrackAttr));
+                    if (streamingListener != null) {
+                        publishTrack(true);
+                    } else {
+                        data.addTrack(new ImmutableGpxTrack(currentTrack, currentTrackAttr));
+                    }
                     break;
                 case "name":
                 case "cmt":
@@ -516,6 +578,103 @@ public class GpxReader implements GpxConstants {
             }
         }
 
+        /**
+         * Adds a track point to the current segment, unless it is filtered out or too close to the previous one.
+         * @param wpt the track point
+         */
+        private void addTrackPoint(WayPoint wpt) {
+            if (!isAccepted(wpt)) {
+                // do not connect the points on both sides of the gap
+                endTrackSegment();
+                return;
+            }
+            if (minimumDistance > 0 && lastTrackPoint != null
+                    && lastTrackPoint.getCoor().greatCircleDistance(wpt.getCoor()) < minimumDistance) {
+                // keep it in case it is the last point of the segment
+                skippedTrackPoint = wpt;
+                return;
+            }
+            skippedTrackPoint = null;
+            lastTrackPoint = wpt;
+            currentTrackSeg.add(wpt);
+            readPoints++;
+            if (streamingListener != null && readPoints - publishedPoints >= STREAMING_UPDATE_POINTS) {
+                publishTrack(false);
+            }
+        }
+
+        private void checkCanceled() throws SAXException {
+            if (progressMonitor.isCanceled()) {
+                throw new GpxParsingCanceledException(tr("Reading was canceled"));
+            }
+            if (++trackPoints % 10_000 == 0) {
+                progressMonitor.setCustomText(trn("{0} track point read", "{0} track points read", trackPoints, trackPoints));
+            }
+        }
+
+        private boolean isAccepted(WayPoint wpt) {
+            if (bounds != null && !bounds.contains(wpt.getCoor())) {
+                return false;
+            }
+            if (startTime != null || endTime != null) {
+                long time = (long) (wpt.time * 1000);
+                return wpt.time != 0
+                        && (startTime == null || time >= startTime.getTime())
+                        && (endTime == null || time <= endTime.getTime());
+            }
+            return true;
+        }
+
+        /**
+         * Adds the points read so far to the current track as a new segment.
+         */
+        private void endTrackSegment() {
+            if (skippedTrackPoint != null) {
+                currentTrackSeg.add(skippedTrackPoint);
+                skippedTrackPoint = null;
+                readPoints++;
+            }
+            lastTrackPoint = null;
+            if (!currentTrackSeg.isEmpty()) {
+                // convert each segment as soon as it is read, to free the waypoints
+                currentTrack.add(new ImmutableGpxTrackSegment(currentTrackSeg));
+                currentTrackSeg = new ArrayList<>();
+                if (streamingListener != null) {
+                    publishTrack(false);
+                }
+            }
+        }
+
+        /**
+         * Gives the current track to the streaming listener.
+         * @param complete true if the track has been completely read. Otherwise, the partial track, including the
+         * points read so far in the current segment, is only given if new points have been read since the last update,
+         * and not too often.
+         */
+        private void publishTrack(boolean complete) {
+            if (!complete && (publishedPoints == readPoints
+                    || System.nanoTime() - publishedTime < STREAMING_UPDATE_INTERVAL)) {
+                return;
+            }
+            GpxTrack previous = publishedTrack;
+            List<GpxTrackSegment> segments = new ArrayList<>(currentTrack);
+            if (!complete && currentTrackSeg != null && !currentTrackSeg.isEmpty()) {
+                // a copy of the segment being read, replaced by the next update
+                segments.add(new ImmutableGpxTrackSegment(currentTrackSeg));
+            }
+            GpxTrack track = new ImmutableGpxTrack(segments, currentTrackAttr);
+            if (complete) {
+                publishedTrack = null;
+                publishedPoints = 0;
+                streamedTracks++;
+            } else {
+                publishedTrack = track;
+                publishedPoints = readPoints;
+            }
+            publishedTime = System.nanoTime();
+            streamingListener.trackRead(previous, track);
+        }
+
         @Override
         public void endDocument() throws SAXException {
             if (!states.empty())
@@ -568,6 +727,52 @@ public class GpxReader implements GpxConstants {
         this.inputSource = new InputSource(filtered);
     }
 
+    /**
+     * Enables the streaming mode: the tracks are given to the listener while they are read, and are not added
+     * to the {@link #getGpxData() resulting data}, which only contains the metadata, routes and waypoints.
+     * Long tracks are given in several steps, each new state of the track replacing the previous one.
+     * @param listener the listener receiving the tracks, on the parsing thread. {@code null} to disable streaming
+     */
+    public void setStreamingListener(StreamingListener listener) {
+        this.streamingListener = listener;
+    }
+
+    /**
+     * Sets the progress monitor used to report the number of track points read, and to cancel the parsing.
+     * @param progressMonitor the progress monitor. {@code null} for {@link NullProgressMonitor#INSTANCE}
+     */
+    public void setProgressMonitor(ProgressMonitor progressMonitor) {
+        this.progressMonitor = progressMonitor != null ? progressMonitor : NullProgressMonitor.INSTANCE;
+    }
+
+    /**
+     * Sets the minimum distance between two consecutive track points.
+     * The points closer to the last kept point are dropped, except the last point of each segment.
+     * @param minimumDistance the minimum distance in meters, {@code 0} to keep all points
+     */
+    public void setMinimumDistance(double minimumDistance) {
+        this.minimumDistance = minimumDistance;
+    }
+
+    /**
+     * Restricts the track points to the given area. The segments are split where they leave the area.
+     * @param bounds the area, {@code null} to keep all points
+     */
+    public void setBounds(Bounds bounds) {
+        this.bounds = bounds;
+    }
+
+    /**
+     * Restricts the track points to the given time range. The points without time are dropped if a bound is set.
+     * The segments are split at the dropped points.
+     * @param startTime the earliest time, {@code null} for no lower bound
+     * @param endTime the latest time, {@code null} for no upper bound
+     */
+    public void setTimeRange(Date startTime, Date endTime) {
+        this.startTime = startTime == null ? null : new Date(startTime.getTime());
+        this.endTime = endTime == null ? null : new Date(endTime.getTime());
+    }
+
     /**
      * Parse the GPX data.
      *
@@ -575,7 +780,8 @@ public class GpxReader implements GpxConstants {
      * data in case of an error.
      * @return true if file was properly parsed, false if there was error during
      * parsing but some data were parsed anyway
-     * @throws SAXException if any SAX parsing error occurs
+     * @throws SAXException if any SAX parsing error occurs. If the parsing is canceled through the
+     * {@link #setProgressMonitor progress monitor}, the exception implements {@link ImportCancelException}
      * @throws IOException if any I/O error occurs
      */
     public boolean parse(boolean tryToFinish) throws SAXException, IOException {
@@ -584,9 +790,9 @@ public class GpxReader implements GpxConstants {
             Utils.parseSafeSAX(inputSource, parser);
             return true;
         } catch (SAXException e) {
-            if (tryToFinish) {
+            if (tryToFinish && !(e instanceof ImportCancelException)) {
                 parser.tryToFinish();
-                if (parser.data.isEmpty())
+                if (parser.data.isEmpty() && parser.streamedTracks == 0)
                     throw e;
                 String message = e.getMessage();
                 if (e instanceof SAXParseException) {
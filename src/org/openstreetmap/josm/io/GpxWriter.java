@@ -12,6 +12,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Function;
 
 import javax.xml.XMLConstants;
 
@@ -25,7 +26,9 @@ import org.openstreetmap.josm.data.gpx.GpxRoute;
 import org.openstreetmap.josm.data.gpx.GpxTrack;
 import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.IWithAttributes;
+import org.openstreetmap.josm.data.gpx.ImmutableGpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.gpx.WayPointColumns;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 
 /**
@@ -94,24 +97,25 @@ public class GpxWriter extends XmlWriter implements GpxConstants {
     }
 
     private void writeAttr(IWithAttributes obj, List<String> keys) {
+        writeAttr(obj::get, keys);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeAttr(Function<String, Object> attributes, List<String> keys) {
         for (String key : keys) {
+            Object value = attributes.apply(key);
             if (META_LINKS.equals(key)) {
-                Collection<GpxLink> lValue = obj.<GpxLink>getCollection(key);
-                if (lValue != null) {
-                    for (GpxLink link : lValue) {
+                if (value instanceof Collection) {
+                    for (GpxLink link : (Collection<GpxLink>) value) {
                         gpxLink(link);
                     }
                 }
             } else if (META_EXTENSIONS.equals(key)) {
-                Extensions extensions = (Extensions) obj.get(key);
-                if (extensions != null) {
-                    gpxExtensions(extensions);
-                }
-            } else {
-                String value = obj.getString(key);
                 if (value != null) {
-                    simpleTag(key, value);
+                    gpxExtensions((Extensions) value);
                 }
+            } else if (value instanceof String) {
+                simpleTag(key, (String) value);
             }
         }
     }
@@ -207,8 +211,15 @@ public class GpxWriter extends XmlWriter implements GpxConstants {
             writeAttr(trk, RTE_TRK_KEYS);
             for (GpxTrackSegment seg : trk.getSegments()) {
                 openln("trkseg");
-                for (WayPoint pnt : seg.getWayPoints()) {
-                    wayPoint(pnt, TRACK_POINT);
+                if (seg instanceof ImmutableGpxTrackSegment) {
+                    WayPointColumns columns = ((ImmutableGpxTrackSegment) seg).getColumns();
+                    for (int i = 0; i < columns.size(); i++) {
+                        trackPoint(columns, i);
+                    }
+                } else {
+                    for (WayPoint pnt : seg.getWayPoints()) {
+                        wayPoint(pnt, TRACK_POINT);
+                    }
                 }
                 closeln("trkseg");
             }
@@ -306,6 +317,22 @@ public class GpxWriter extends XmlWriter implements GpxConstants {
         }
     }
 
+    /**
+     * output a track point stored in columns, without creating a waypoint
+     * @param columns waypoint columns
+     * @param index index of the point
+     */
+    private void trackPoint(WayPointColumns columns, int index) {
+        String coordAttr = "lat=\"" + columns.lat(index) + "\" lon=\"" + columns.lon(index) + '\"';
+        if (!columns.hasAttributes(index)) {
+            inline("trkpt", coordAttr);
+        } else {
+            openAtt("trkpt", coordAttr);
+            writeAttr(key -> columns.get(index, key), WPT_KEYS);
+            closeln("trkpt");
+        }
+    }
+
     private void gpxExtensions(Extensions extensions) {
         if (extensions != null && !extensions.isEmpty()) {
             openln("extensions");
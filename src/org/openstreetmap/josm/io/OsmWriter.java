@@ -4,12 +4,18 @@ package org.openstreetmap.josm.io;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.text.DecimalFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.openstreetmap.josm.data.DataSource;
 import org.openstreetmap.josm.data.coor.LatLon;
@@ -29,6 +35,9 @@ import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.UploadPolicy;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.visitor.PrimitiveVisitor;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 import org.openstreetmap.josm.tools.date.DateUtils;
 
 /**
@@ -41,6 +50,25 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
     /** Default OSM API version */
     public static final String DEFAULT_API_VERSION = "0.6";
 
+    /**
+     * Minimum number of primitives of a type to serialize them concurrently.
+     */
+    public static final IntegerProperty PROP_PARALLEL_THRESHOLD = new IntegerProperty("save.parallel-threshold", 10_000);
+
+    /** Number of primitives serialized by each task */
+    private static final int CHUNK_SIZE = 2048;
+
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool("save.numberOfThreads", "osm-writer-%d", Thread.NORM_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
     private final boolean osmConform;
     private boolean withBody = true;
     private boolean withVisible = true;
@@ -48,6 +76,11 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
     private String version;
     private Changeset changeset;
 
+    /** buffer to print numbers without allocating strings */
+    private final char[] numberBuffer = new char[32];
+    /** copy of {@link LatLon#cDdHighPecisionFormatter}, which is not thread safe, for the coordinates with many decimals */
+    private DecimalFormat coordinateFormat;
+
     /**
      * Constructs a new {@code OsmWriter}.
      * Do not call this directly. Use {@link OsmWriterFactory} instead.
@@ -191,11 +224,7 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
      * @since 5737
      */
     public void writeNodes(Collection<Node> nodes) {
-        for (Node n : sortById(nodes)) {
-            if (shouldWrite(n)) {
-                visit(n);
-            }
-        }
+        writePrimitives(nodes);
     }
 
     /**
@@ -204,11 +233,7 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
      * @since 5737
      */
     public void writeWays(Collection<Way> ways) {
-        for (Way w : sortById(ways)) {
-            if (shouldWrite(w)) {
-                visit(w);
-            }
-        }
+        writePrimitives(ways);
     }
 
     /**
@@ -217,13 +242,59 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
      * @since 5737
      */
     public void writeRelations(Collection<Relation> relations) {
-        for (Relation r : sortById(relations)) {
-            if (shouldWrite(r)) {
-                visit(r);
+        writePrimitives(relations);
+    }
+
+    /**
+     * Writes the given primitives sorted by id.
+     * <p>
+     * Large collections are split in chunks of consecutive primitives, which are serialized concurrently
+     * in memory and written in order. Subclasses may override the serialization, so they are always written
+     * sequentially.
+     * @param primitives The primitives to write
+     */
+    private <T extends OsmPrimitive> void writePrimitives(Collection<T> primitives) {
+        Collection<T> sorted = sortById(primitives);
+        if (THREAD_POOL == null || getClass() != OsmWriter.class || sorted.size() < PROP_PARALLEL_THRESHOLD.get()) {
+            for (T p : sorted) {
+                if (shouldWrite(p)) {
+                    p.accept(this);
+                }
             }
+            return;
+        }
+        List<T> list = sorted instanceof List ? (List<T>) sorted : new ArrayList<>(sorted);
+        // limit the number of serialized chunks waiting to be written
+        int maxPending = 2 * THREAD_POOL.getParallelism();
+        Deque<ForkJoinTask<String>> pending = new ArrayDeque<>(maxPending);
+        for (int from = 0; from < list.size(); from += CHUNK_SIZE) {
+            List<T> chunk = list.subList(from, Math.min(from + CHUNK_SIZE, list.size()));
+            if (pending.size() >= maxPending) {
+                out.write(pending.poll().join());
+            }
+            pending.add(THREAD_POOL.submit(() -> writeChunk(chunk)));
+        }
+        while (!pending.isEmpty()) {
+            out.write(pending.poll().join());
         }
     }
 
+    private String writeChunk(List<? extends OsmPrimitive> chunk) {
+        StringWriter buffer = new StringWriter(chunk.size() * 256);
+        OsmWriter writer = new OsmWriter(new PrintWriter(buffer), osmConform, version);
+        writer.withBody = withBody;
+        writer.withVisible = withVisible;
+        writer.isOsmChange = isOsmChange;
+        writer.changeset = changeset;
+        for (OsmPrimitive p : chunk) {
+            if (writer.shouldWrite(p)) {
+                p.accept(writer);
+            }
+        }
+        writer.flush();
+        return buffer.toString();
+    }
+
     protected boolean shouldWrite(OsmPrimitive osm) {
         return !osm.isNewOrUndeleted() || !osm.isDeleted();
     }
@@ -248,9 +319,101 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
 
     void writeLatLon(LatLon ll) {
         if (ll != null) {
-            out.print(" lat='"+LatLon.cDdHighPecisionFormatter.format(ll.lat())+
-                     "' lon='"+LatLon.cDdHighPecisionFormatter.format(ll.lon())+'\'');
+            out.print(" lat='");
+            printCoordinate(ll.lat());
+            out.print("' lon='");
+            printCoordinate(ll.lon());
+            out.print('\'');
+        }
+    }
+
+    /**
+     * Prints a coordinate in the format of {@link LatLon#cDdHighPecisionFormatter}.
+     * @param value the coordinate
+     */
+    private void printCoordinate(double value) {
+        int length = formatCoordinate(value, numberBuffer);
+        if (length >= 0) {
+            out.write(numberBuffer, 0, length);
+        } else {
+            if (coordinateFormat == null) {
+                coordinateFormat = (DecimalFormat) LatLon.cDdHighPecisionFormatter.clone();
+            }
+            out.print(coordinateFormat.format(value));
+        }
+    }
+
+    /**
+     * Formats a coordinate having at most 7 decimals, which is the case of the OSM data, without allocating.
+     * The result is the same as with {@link LatLon#cDdHighPecisionFormatter}: the shortest decimal representation
+     * of the value has at most 7 decimals, so there is no rounding, and it is printed with at least one decimal.
+     * @param value the coordinate
+     * @param buffer the buffer to write to, of at least 32 characters
+     * @return the number of characters written, or -1 if the value has more than 7 decimals or is out of range
+     */
+    static int formatCoordinate(double value, char[] buffer) {
+        if (!(Math.abs(value) < 1e6) || Double.doubleToRawLongBits(value) == Long.MIN_VALUE) {
+            // NaN, infinite, too large or -0.0
+            return -1;
+        }
+        long scaled = Math.round(value * 1e7);
+        if (scaled / 1e7 != value) {
+            return -1;
+        }
+        int pos = 0;
+        if (scaled < 0) {
+            buffer[pos++] = '-';
+            scaled = -scaled;
+        }
+        pos = formatLong(scaled / 10_000_000, buffer, pos);
+        buffer[pos++] = '.';
+        int fraction = (int) (scaled % 10_000_000);
+        int digits = 7;
+        while (digits > 1 && fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            buffer[i] = (char) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        return pos + digits;
+    }
+
+    /**
+     * Formats a non-negative number.
+     * @param value the number
+     * @param buffer the buffer to write to
+     * @param pos the position in the buffer
+     * @return the position after the number
+     */
+    private static int formatLong(long value, char[] buffer, int pos) {
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        long v = value;
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            buffer[i] = (char) ('0' + v % 10);
+            v /= 10;
+        }
+        return pos + digits;
+    }
+
+    /**
+     * Prints a number without allocating.
+     * @param value the number
+     */
+    private void printLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            out.print(value);
+            return;
+        }
+        int pos = 0;
+        if (value < 0) {
+            numberBuffer[pos++] = '-';
         }
+        out.write(numberBuffer, 0, formatLong(Math.abs(value), numberBuffer, pos));
     }
 
     @Override
@@ -274,7 +437,9 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         } else {
             out.println(">");
             for (int i = 0; i < w.getNodesCount(); ++i) {
-                out.println("    <nd ref='"+w.getNodeId(i) +"' />");
+                out.print("    <nd ref='");
+                printLong(w.getNodeId(i));
+                out.println("' />");
             }
             addTags(w, "way", false);
         }
@@ -291,8 +456,11 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
             for (int i = 0; i < e.getMembersCount(); ++i) {
                 out.print("    <member type='");
                 out.print(e.getMemberType(i).getAPIName());
-                out.println("' ref='"+e.getMemberId(i)+"' role='" +
-                        XmlWriter.encode(e.getRole(i)) + "' />");
+                out.print("' ref='");
+                printLong(e.getMemberId(i));
+                out.print("' role='");
+                out.print(XmlWriter.encode(e.getRole(i)));
+                out.println("' />");
             }
             addTags(e, "relation", false);
         }
@@ -339,8 +507,11 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
             List<Entry<String, String>> entries = new ArrayList<>(osm.getKeys().entrySet());
             entries.sort(byKeyComparator);
             for (Entry<String, String> e : entries) {
-                out.println("    <tag k='"+ XmlWriter.encode(e.getKey()) +
-                        "' v='"+XmlWriter.encode(e.getValue())+ "' />");
+                out.print("    <tag k='");
+                out.print(XmlWriter.encode(e.getKey()));
+                out.print("' v='");
+                out.print(XmlWriter.encode(e.getValue()));
+                out.println("' />");
             }
             out.println("  </" + tagname + '>');
         } else if (tagOpen) {
@@ -359,7 +530,9 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
     protected void addCommon(IPrimitive osm, String tagname) {
         out.print("  <"+tagname);
         if (osm.getUniqueId() != 0) {
-            out.print(" id='"+ osm.getUniqueId()+'\'');
+            out.print(" id='");
+            printLong(osm.getUniqueId());
+            out.print('\'');
         } else
             throw new IllegalStateException(tr("Unexpected id 0 for osm primitive found"));
         if (!isOsmChange) {
@@ -392,7 +565,9 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
             }
         }
         if (osm.getVersion() != 0) {
-            out.print(" version='"+osm.getVersion()+'\'');
+            out.print(" version='");
+            printLong(osm.getVersion());
+            out.print('\'');
         }
         if (this.changeset != null && this.changeset.getId() != 0) {
             out.print(" changeset='"+this.changeset.getId()+'\'');
@@ -0,0 +1,158 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Disk cache of data computed from a source (file, URL or internal resource), such as preprocessed styles or recorded presets.
+ * <p>
+ * Each entry is stored in its own file, along with the format version of the cache and a digest of the source content.
+ * An entry is only returned if both match, so any change of the source content or of the cache format leads
+ * to a cache miss. Truncated or corrupted files are discarded.
+ */
+public class SourceDigestCache {
+
+    /** Magic number at the start of cache files */
+    private static final int MAGIC = 0x4A505243;
+
+    private final String name;
+    private final int formatVersion;
+
+    /**
+     * Constructs a new {@code SourceDigestCache}.
+     * @param name the cache name, used as directory name in the cache directory
+     * @param formatVersion version of the cached data format, to be incremented for any incompatible change
+     */
+    public SourceDigestCache(String name, int formatVersion) {
+        this.name = name;
+        this.formatVersion = formatVersion;
+    }
+
+    /**
+     * Returns the cache directory.
+     * @return the cache directory
+     */
+    public File getDirectory() {
+        return new File(Config.getDirs().getCacheDirectory(true), name);
+    }
+
+    /**
+     * Returns the cache file of the given source.
+     * @param source the source
+     * @return the cache file
+     */
+    public File getCacheFile(String source) {
+        return new File(getDirectory(), Utils.md5Hex(source) + ".bin");
+    }
+
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new JosmRuntimeException(e);
+        }
+    }
+
+    /**
+     * Computes the digest of a source content.
+     * @param content the source content
+     * @return the hexadecimal digest of the source content
+     */
+    public static String getDigest(byte[] content) {
+        return Utils.toHexString(newMessageDigest().digest(content));
+    }
+
+    /**
+     * Computes the digest of a source content. The stream is fully read, but not closed.
+     * @param in the source content
+     * @return the hexadecimal digest of the source content
+     * @throws IOException if an I/O error occurs
+     */
+    public static String getDigest(InputStream in) throws IOException {
+        MessageDigest md = newMessageDigest();
+        @SuppressWarnings("resource")
+        DigestInputStream dis = new DigestInputStream(in, md);
+        byte[] buffer = new byte[8192];
+        while (dis.read(buffer) != -1) {
+            // digest is updated by the stream
+        }
+        return Utils.toHexString(md.digest());
+    }
+
+    /**
+     * Returns the cached data of a source.
+     * @param source the source
+     * @param digest the digest of the current source content
+     * @return the cached data, or {@code null} if there is no up to date entry for this source
+     */
+    public byte[] get(String source, String digest) {
+        File file = getCacheFile(source);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()))) {
+            if (in.readInt() != MAGIC || in.readInt() != formatVersion || !source.equals(in.readUTF()) || !digest.equals(in.readUTF())) {
+                Logging.debug("Outdated {0} cache entry for {1}", name, source);
+                return null;
+            }
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            return data;
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            Logging.log(Logging.LEVEL_WARN, "Unable to read cache file " + file, e);
+            remove(source);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the data computed from a source.
+     * @param source the source
+     * @param digest the digest of the source content
+     * @param data the data to store
+     */
+    public void put(String source, String digest, byte[] data) {
+        File dir = getDirectory();
+        File file = getCacheFile(source);
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try {
+            if (!dir.isDirectory()) {
+                Utils.mkDirs(dir);
+            }
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp.toPath()))) {
+                out.writeInt(MAGIC);
+                out.writeInt(formatVersion);
+                out.writeUTF(source);
+                out.writeUTF(digest);
+                out.writeInt(data.length);
+                out.write(data);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Logging.log(Logging.LEVEL_WARN, "Unable to write cache file " + file, e);
+            Utils.deleteFileIfExists(tmp);
+        }
+    }
+
+    /**
+     * Removes the cached data of a source.
+     * @param source the source
+     */
+    public void remove(String source) {
+        Utils.deleteFileIfExists(getCacheFile(source));
+    }
+}
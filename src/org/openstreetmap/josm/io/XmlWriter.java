@@ -4,8 +4,6 @@ package org.openstreetmap.josm.io;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Helper class to use for xml outputting classes.
@@ -59,17 +57,15 @@ public class XmlWriter implements Closeable {
         StringBuilder buffer = null;
         if (unencoded != null) {
             for (int i = 0; i < unencoded.length(); ++i) {
-                String encS = null;
-                if (!keepApos || unencoded.charAt(i) != '\'') {
-                    encS = ENCODING.get(unencoded.charAt(i));
-                }
+                char c = unencoded.charAt(i);
+                String encS = keepApos && c == '\'' ? null : getEncoding(c);
                 if (encS != null) {
                     if (buffer == null) {
-                        buffer = new StringBuilder(unencoded.substring(0, i));
+                        buffer = new StringBuilder(unencoded.length() + 16).append(unencoded, 0, i);
                     }
                     buffer.append(encS);
                 } else if (buffer != null) {
-                    buffer.append(unencoded.charAt(i));
+                    buffer.append(c);
                 }
             }
         }
@@ -77,18 +73,22 @@ public class XmlWriter implements Closeable {
     }
 
     /**
-     * The output writer to save the values to.
+     * Returns the XML 1.0 encoding of a character.
+     * @param c the character
+     * @return the encoded character, or {@code null} if the character does not need encoding
      */
-    private static final Map<Character, String> ENCODING = new HashMap<>();
-    static {
-        ENCODING.put('<', "&lt;");
-        ENCODING.put('>', "&gt;");
-        ENCODING.put('"', "&quot;");
-        ENCODING.put('\'', "&apos;");
-        ENCODING.put('&', "&amp;");
-        ENCODING.put('\n', "&#xA;");
-        ENCODING.put('\r', "&#xD;");
-        ENCODING.put('\t', "&#x9;");
+    private static String getEncoding(char c) {
+        switch (c) {
+        case '<': return "&lt;";
+        case '>': return "&gt;";
+        case '"': return "&quot;";
+        case '\'': return "&apos;";
+        case '&': return "&amp;";
+        case '\n': return "&#xA;";
+        case '\r': return "&#xD;";
+        case '\t': return "&#x9;";
+        default: return null;
+        }
     }
 
     @Override
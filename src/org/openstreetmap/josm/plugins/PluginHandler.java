@@ -25,9 +25,11 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -35,7 +37,13 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.jar.JarFile;
@@ -56,6 +64,7 @@ import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.RestartAction;
 import org.openstreetmap.josm.data.PreferencesUtils;
 import org.openstreetmap.josm.data.Version;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.HelpAwareOptionPane;
 import org.openstreetmap.josm.gui.HelpAwareOptionPane.ButtonSpec;
 import org.openstreetmap.josm.gui.MainApplication;
@@ -296,6 +305,18 @@ public final class PluginHandler {
      */
     static final Map<String, Throwable> pluginLoadingExceptions = new HashMap<>();
 
+    /**
+     * Time in milliseconds spent loading each plugin (jar opening, class loading and instantiation), by plugin name
+     */
+    static final Map<String, Long> pluginLoadingTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum number of threads used to open the plugin jar files and to load the plugin classes concurrently.
+     * Set to 1 to load plugins sequentially.
+     */
+    static final IntegerProperty PROP_LOADING_THREADS = new IntegerProperty("plugin.loading.threads",
+            Runtime.getRuntime().availableProcessors());
+
     /**
      * Class loader to locate resources from plugins.
      * @see #getJoinedPluginResourceCL()
@@ -758,20 +779,24 @@ public final class PluginHandler {
     }
 
     /**
-     * Loads and instantiates the plugin described by <code>plugin</code> using
-     * the class loader <code>pluginClassLoader</code>.
+     * Instantiates the plugin described by <code>plugin</code> from its main class,
+     * loaded beforehand by {@link #loadPluginClasses} using the class loader <code>pluginClassLoader</code>.
      *
      * @param parent The parent component to be used for the displayed dialog
      * @param plugin the plugin
      * @param pluginClassLoader the plugin class loader
+     * @param pluginClass the pending result of the plugin main class loading
      */
-    private static void loadPlugin(Component parent, PluginInformation plugin, PluginClassLoader pluginClassLoader) {
+    private static void loadPlugin(Component parent, PluginInformation plugin, PluginClassLoader pluginClassLoader,
+            Future<Class<?>> pluginClass) {
         String msg = tr("Could not load plugin {0}. Delete from preferences?", "'"+plugin.name+"'");
         try {
-            Class<?> klass = plugin.loadClass(pluginClassLoader);
+            Class<?> klass = getPluginClass(plugin, pluginClass);
             if (klass != null) {
                 Logging.info(tr("loading plugin ''{0}'' (version {1})", plugin.name, plugin.localversion));
+                long startTime = System.currentTimeMillis();
                 PluginProxy pluginProxy = plugin.load(klass, pluginClassLoader);
+                pluginLoadingTimes.merge(plugin.name, System.currentTimeMillis() - startTime, Long::sum);
                 pluginList.add(pluginProxy);
                 MainApplication.addAndFireMapFrameListener(pluginProxy);
             }
@@ -792,6 +817,132 @@ public final class PluginHandler {
         }
     }
 
+    /**
+     * Waits for the main class of a plugin to be loaded.
+     * @param plugin the plugin
+     * @param pluginClass the pending result of the plugin main class loading
+     * @return the plugin main class, or {@code null} if the plugin does not have any
+     * @throws PluginException if the class cannot be loaded
+     */
+    private static Class<?> getPluginClass(PluginInformation plugin, Future<Class<?>> pluginClass) throws PluginException {
+        try {
+            return pluginClass.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PluginException(plugin.name, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PluginException) {
+                throw (PluginException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new PluginException(plugin.name, cause);
+        }
+    }
+
+    /**
+     * Creates the class loaders of the given plugins concurrently, and opens their jar files.
+     * <p>
+     * The jar files are opened, and their central directories read, by looking up their manifests, so that the class loading
+     * does not have to do it. The dependencies between the class loaders are not set.
+     *
+     * @param toLoad the plugins to load
+     * @param executor the executor running the tasks
+     * @return the class loader of each plugin
+     */
+    static Map<PluginInformation, PluginClassLoader> createClassLoaders(List<PluginInformation> toLoad, ExecutorService executor) {
+        Map<PluginInformation, CompletableFuture<PluginClassLoader>> futures = new LinkedHashMap<>();
+        for (PluginInformation info : toLoad) {
+            futures.put(info, CompletableFuture.supplyAsync(() -> {
+                long startTime = System.currentTimeMillis();
+                PluginClassLoader cl = AccessController.doPrivileged((PrivilegedAction<PluginClassLoader>)
+                    () -> new PluginClassLoader(
+                        info.libraries.toArray(new URL[0]),
+                        PluginHandler.class.getClassLoader(),
+                        null));
+                try {
+                    for (Enumeration<URL> e = cl.findResources(JarFile.MANIFEST_NAME); e.hasMoreElements();) {
+                        e.nextElement();
+                    }
+                } catch (IOException e) {
+                    // the jar files are opened again when the classes are loaded, which reports the error
+                    Logging.trace(e);
+                }
+                pluginLoadingTimes.merge(info.name, System.currentTimeMillis() - startTime, Long::sum);
+                return cl;
+            }, executor));
+        }
+        Map<PluginInformation, PluginClassLoader> classLoaders = new HashMap<>();
+        for (Entry<PluginInformation, CompletableFuture<PluginClassLoader>> e : futures.entrySet()) {
+            classLoaders.put(e.getKey(), e.getValue().join());
+        }
+        return classLoaders;
+    }
+
+    /**
+     * Loads the main classes of the given plugins concurrently, without initializing them.
+     * <p>
+     * The static initializers of the plugins run when they are instantiated, one after the other in stage order, so that
+     * they can rely on the plugins they require. The main class of a plugin is only loaded once the main classes of all
+     * the plugins it requires have been loaded, since they are usually needed to define it.
+     * Plugins without mutual dependencies are loaded in parallel.
+     *
+     * @param toLoad the plugins to load, sorted by stage
+     * @param classLoaders the class loader of each plugin
+     * @param executor the executor running the tasks. It must not be shut down before all the classes are loaded
+     * @return the pending result of the main class loading, for each plugin
+     */
+    static Map<PluginInformation, Future<Class<?>>> loadPluginClasses(List<PluginInformation> toLoad,
+            Map<PluginInformation, PluginClassLoader> classLoaders, ExecutorService executor) {
+        Map<String, PluginInformation> byName = new HashMap<>();
+        for (PluginInformation info : toLoad) {
+            byName.put(info.name, info);
+        }
+        Map<PluginInformation, CompletableFuture<Class<?>>> result = new LinkedHashMap<>();
+        for (PluginInformation info : toLoad) {
+            submitPluginClassLoading(info, byName, classLoaders, result, new HashSet<>(), executor);
+        }
+        return new LinkedHashMap<>(result);
+    }
+
+    private static CompletableFuture<Class<?>> submitPluginClassLoading(PluginInformation info, Map<String, PluginInformation> byName,
+            Map<PluginInformation, PluginClassLoader> classLoaders, Map<PluginInformation, CompletableFuture<Class<?>>> submitted,
+            Set<PluginInformation> visiting, ExecutorService executor) {
+        CompletableFuture<Class<?>> future = submitted.get(info);
+        if (future != null) {
+            return future;
+        }
+        visiting.add(info);
+        List<CompletableFuture<Class<?>>> dependencies = new ArrayList<>();
+        for (String depName : info.getLocalRequiredPlugins()) {
+            PluginInformation depInfo = byName.get(depName);
+            // dependencies loaded in a previous call are already available, cyclic ones cannot be honoured
+            if (depInfo != null && !visiting.contains(depInfo)) {
+                dependencies.add(submitPluginClassLoading(depInfo, byName, classLoaders, submitted, visiting, executor));
+            }
+        }
+        visiting.remove(info);
+        PluginClassLoader cl = classLoaders.get(info);
+        // a dependency failing to load must not prevent to report the error of this plugin
+        future = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                .exceptionally(t -> null)
+                .thenApplyAsync(v -> {
+                    long startTime = System.currentTimeMillis();
+                    try {
+                        return info.loadClass(cl, false);
+                    } catch (PluginException e) {
+                        throw new CompletionException(e);
+                    } finally {
+                        pluginLoadingTimes.merge(info.name, System.currentTimeMillis() - startTime, Long::sum);
+                    }
+                }, executor);
+        submitted.put(info, future);
+        return future;
+    }
+
     /**
      * Loads the plugin in <code>plugins</code> from locally available jar files into memory.
      *
@@ -803,6 +954,7 @@ public final class PluginHandler {
         if (monitor == null) {
             monitor = NullProgressMonitor.INSTANCE;
         }
+        ExecutorService executor = null;
         try {
             monitor.beginTask(tr("Loading plugins ..."));
             monitor.subTask(tr("Checking plugin preconditions..."));
@@ -819,15 +971,9 @@ public final class PluginHandler {
             if (toLoad.isEmpty())
                 return;
 
-            Map<PluginInformation, PluginClassLoader> classLoaders = new HashMap<>();
-            for (PluginInformation info : toLoad) {
-                PluginClassLoader cl = AccessController.doPrivileged((PrivilegedAction<PluginClassLoader>)
-                    () -> new PluginClassLoader(
-                        info.libraries.toArray(new URL[0]),
-                        PluginHandler.class.getClassLoader(),
-                        null));
-                classLoaders.put(info, cl);
-            }
+            int threads = Math.max(1, Math.min(toLoad.size(), PROP_LOADING_THREADS.get()));
+            executor = Executors.newFixedThreadPool(threads, Utils.newThreadFactory("plugin-loader-%d", Thread.NORM_PRIORITY));
+            Map<PluginInformation, PluginClassLoader> classLoaders = createClassLoaders(toLoad, executor);
 
             // resolve dependencies
             for (PluginInformation info : toLoad) {
@@ -853,12 +999,18 @@ public final class PluginHandler {
             extendJoinedPluginResourceCL(toLoad);
             ImageProvider.addAdditionalClassLoaders(getResourceClassLoaders());
             monitor.setTicksCount(toLoad.size());
+            // plugin classes are loaded concurrently, but plugins are initialized and instantiated one after the other in stage order
+            // as their constructors usually register menus, actions and listeners
+            Map<PluginInformation, Future<Class<?>>> pluginClasses = loadPluginClasses(toLoad, classLoaders, executor);
             for (PluginInformation info : toLoad) {
                 monitor.setExtraText(tr("Loading plugin ''{0}''...", info.name));
-                loadPlugin(parent, info, classLoaders.get(info));
+                loadPlugin(parent, info, classLoaders.get(info), pluginClasses.get(info));
                 monitor.worked(1);
             }
         } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
             monitor.finishTask();
         }
     }
@@ -1510,6 +1662,18 @@ public final class PluginHandler {
         return pl;
     }
 
+    /**
+     * Returns the time spent loading each plugin as a {@code String} to be displayed in status report.
+     * The slowest plugins come first.
+     * @return The plugin loading times
+     */
+    public static Collection<String> getLoadingTimesInformation() {
+        return pluginLoadingTimes.entrySet().stream()
+                .sorted(Entry.<String, Long>comparingByValue().reversed().thenComparing(Entry.comparingByKey()))
+                .map(e -> e.getKey() + ": " + e.getValue() + " ms")
+                .collect(Collectors.toList());
+    }
+
     /**
      * Returns the list of loaded plugins as a {@code JPanel} to be displayed in About dialog.
      * @return The list of loaded plugins (one "line" of Swing components per plugin)
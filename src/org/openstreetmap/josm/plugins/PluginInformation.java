@@ -340,10 +340,23 @@ public class PluginInformation {
      * @throws PluginException if the class cannot be loaded
      */
     public Class<?> loadClass(ClassLoader classLoader) throws PluginException {
+        return loadClass(classLoader, true);
+    }
+
+    /**
+     * Loads the class of the plugin.
+     *
+     * @param classLoader the class loader to use
+     * @param initialize whether the class must be initialized. If {@code false}, its static initializers run
+     * when the plugin is instantiated by {@link #load}
+     * @return the loaded class
+     * @throws PluginException if the class cannot be loaded
+     */
+    public Class<?> loadClass(ClassLoader classLoader, boolean initialize) throws PluginException {
         if (className == null)
             return null;
         try {
-            return Class.forName(className, true, classLoader);
+            return Class.forName(className, initialize, classLoader);
         } catch (NoClassDefFoundError | ClassNotFoundException | ClassCastException e) {
             throw new PluginException(name, e);
         }
@@ -2,9 +2,16 @@
 package org.openstreetmap.josm.tools;
 
 import java.awt.geom.AffineTransform;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.openstreetmap.josm.data.SystemOfMeasurement;
@@ -13,7 +20,13 @@ import org.openstreetmap.josm.tools.date.DateUtils;
 
 import com.drew.imaging.jpeg.JpegMetadataReader;
 import com.drew.imaging.jpeg.JpegProcessingException;
+import com.drew.imaging.jpeg.JpegSegmentData;
+import com.drew.imaging.jpeg.JpegSegmentMetadataReader;
+import com.drew.imaging.jpeg.JpegSegmentReader;
+import com.drew.imaging.jpeg.JpegSegmentType;
+import com.drew.lang.ByteArrayReader;
 import com.drew.lang.Rational;
+import com.drew.lang.StreamReader;
 import com.drew.metadata.Directory;
 import com.drew.metadata.Metadata;
 import com.drew.metadata.MetadataException;
@@ -21,7 +34,9 @@ import com.drew.metadata.Tag;
 import com.drew.metadata.exif.ExifDirectoryBase;
 import com.drew.metadata.exif.ExifIFD0Directory;
 import com.drew.metadata.exif.ExifSubIFDDirectory;
+import com.drew.metadata.exif.ExifThumbnailDirectory;
 import com.drew.metadata.exif.GpsDirectory;
+import com.drew.metadata.jpeg.JpegReader;
 
 /**
  * Read out EXIF information from a JPEG file
@@ -30,10 +45,73 @@ import com.drew.metadata.exif.GpsDirectory;
  */
 public final class ExifReader {
 
+    /** The readers of the EXIF and frame segments */
+    private static final List<JpegSegmentMetadataReader> EXIF_READERS = Arrays.asList(
+            new JpegReader(), new com.drew.metadata.exif.ExifReader());
+
+    /** The value of the compression tag for JPEG thumbnails */
+    private static final int JPEG_COMPRESSION = 6;
+
     private ExifReader() {
         // Hide default constructor for utils classes
     }
 
+    /**
+     * Reads the EXIF metadata and the image size of the given JPEG file.
+     * Unlike {@link JpegMetadataReader#readMetadata(File)}, only the EXIF and frame segments are decoded,
+     * and the file is read through a buffer up to the start of the compressed image data.
+     * @param file The JPEG file to read
+     * @return The metadata, with the EXIF and {@link com.drew.metadata.jpeg.JpegDirectory JPEG} directories
+     * @throws JpegProcessingException if the file is not a valid JPEG file
+     * @throws IOException if an I/O error occurs
+     */
+    public static Metadata readMetadata(File file) throws JpegProcessingException, IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+            return JpegMetadataReader.readMetadata(in, EXIF_READERS);
+        }
+    }
+
+    /**
+     * Returns the thumbnail embedded in the EXIF section of the given JPEG file.
+     * Only the EXIF segment of the file is read.
+     * @param file The JPEG file to read
+     * @return The JPEG encoded thumbnail, or {@code null} if not found
+     * @throws JpegProcessingException if the file is not a valid JPEG file
+     * @throws IOException if an I/O error occurs
+     */
+    public static byte[] readEmbeddedThumbnail(File file) throws JpegProcessingException, IOException {
+        final JpegSegmentData segments;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+            segments = JpegSegmentReader.readSegments(new StreamReader(in), Collections.singleton(JpegSegmentType.APP1));
+        }
+        final byte[] preamble = com.drew.metadata.exif.ExifReader.JPEG_SEGMENT_PREAMBLE.getBytes(StandardCharsets.US_ASCII);
+        for (byte[] segment : segments.getSegments(JpegSegmentType.APP1)) {
+            if (segment.length < preamble.length || !Arrays.equals(preamble, Arrays.copyOf(segment, preamble.length))) {
+                continue; // XMP
+            }
+            final Metadata metadata = new Metadata();
+            new com.drew.metadata.exif.ExifReader().extract(new ByteArrayReader(segment), metadata, preamble.length);
+            final Directory dir = metadata.getFirstDirectoryOfType(ExifThumbnailDirectory.class);
+            try {
+                if (dir == null || !dir.containsTag(ExifThumbnailDirectory.TAG_THUMBNAIL_OFFSET)
+                        || !dir.containsTag(ExifThumbnailDirectory.TAG_THUMBNAIL_LENGTH)
+                        || (dir.containsTag(ExifDirectoryBase.TAG_COMPRESSION)
+                                && dir.getInt(ExifDirectoryBase.TAG_COMPRESSION) != JPEG_COMPRESSION)) {
+                    continue;
+                }
+                // the offset is relative to the TIFF header, which follows the preamble
+                final long offset = preamble.length + (long) dir.getInt(ExifThumbnailDirectory.TAG_THUMBNAIL_OFFSET);
+                final int length = dir.getInt(ExifThumbnailDirectory.TAG_THUMBNAIL_LENGTH);
+                if (length > 0 && offset + length <= segment.length) {
+                    return Arrays.copyOfRange(segment, (int) offset, (int) offset + length);
+                }
+            } catch (MetadataException e) {
+                Logging.debug(e);
+            }
+        }
+        return null;
+    }
+
     /**
      * Returns the date/time from the given JPEG file.
      * @param filename The JPEG file to read
@@ -378,7 +378,7 @@ public final class I18n {
      * @param source file path/name of the JAR or Zip file containing translation strings
      * @since 4159
      */
-    public static void addTexts(File source) {
+    public static synchronized void addTexts(File source) {
         if ("en".equals(loadedCode))
             return;
         final ZipEntry enfile = new ZipEntry("data/en.lang");
@@ -30,19 +30,21 @@ import java.io.StringReader;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Consumer;
@@ -64,6 +66,7 @@ import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
 import org.openstreetmap.josm.gui.mappaint.Range;
 import org.openstreetmap.josm.gui.mappaint.StyleElementList;
@@ -255,7 +258,7 @@ public class ImageProvider {
     public static final String PROP_TRANSPARENCY_COLOR = "josm.transparency.color";
 
     /** set of class loaders to take images from */
-    private static final Set<ClassLoader> classLoaders = new HashSet<>();
+    private static final Set<ClassLoader> classLoaders = new CopyOnWriteArraySet<>();
     static {
         try {
             classLoaders.add(ClassLoader.getSystemClassLoader());
@@ -303,9 +306,27 @@ public class ImageProvider {
     private static SVGUniverse svgUniverse;
 
     /**
-     * The icon cache
+     * Maximum number of entries in the icon cache.
      */
-    private static final Map<String, ImageResource> cache = new HashMap<>();
+    public static final IntegerProperty PROP_CACHE_SIZE = new IntegerProperty("image-provider.cache.size", 4096);
+
+    /**
+     * Number of threads used to rasterize icons in the background, see {@link #prerasterize}. {@code 0} disables it.
+     */
+    public static final IntegerProperty PROP_PRERASTERIZE_THREADS = new IntegerProperty("image-provider.prerasterize.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    /**
+     * The icon cache, evicting least recently used entries when {@link #PROP_CACHE_SIZE} is exceeded
+     */
+    private static final Map<String, ImageResource> cache = new LinkedHashMap<String, ImageResource>(256, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ImageResource> eldest) {
+            return size() > PROP_CACHE_SIZE.get();
+        }
+    };
 
     /**
      * Caches the image data for rotated versions of the same image.
@@ -315,6 +336,8 @@ public class ImageProvider {
     private static final ExecutorService IMAGE_FETCHER =
             Executors.newSingleThreadExecutor(Utils.newThreadFactory("image-fetcher-%d", Thread.NORM_PRIORITY));
 
+    private static ExecutorService imagePrerasterizer;
+
     /**
      * Constructs a new {@code ImageProvider} from a filename in a given directory.
      * @param subdir subdirectory the image lies in
@@ -733,6 +756,65 @@ public class ImageProvider {
                 : CompletableFuture.completedFuture(getResource()).thenAccept(action);
     }
 
+    private static synchronized ExecutorService getImagePrerasterizer() {
+        int threads = PROP_PRERASTERIZE_THREADS.get();
+        if (imagePrerasterizer == null && threads > 0) {
+            imagePrerasterizer = Executors.newFixedThreadPool(threads,
+                    Utils.newThreadFactory("image-prerasterizer-%d", Thread.MIN_PRIORITY));
+        }
+        return imagePrerasterizer;
+    }
+
+    /**
+     * Loads and rasterizes the given images in the background, so that later requests for the same images
+     * at the same size are served from the caches.
+     * <p>
+     * Nothing is done if {@link #PROP_PRERASTERIZE_THREADS} is {@code 0}.
+     * @param providers the image providers, configured with the expected size. Images that cannot be found are ignored.
+     * @return the future completed once all images have been rasterized
+     */
+    public static CompletableFuture<Void> prerasterize(Collection<ImageProvider> providers) {
+        ExecutorService executor = getImagePrerasterizer();
+        if (executor == null || providers.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(providers.size());
+        for (ImageProvider provider : providers) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    provider.setOptional(true).setSuppressWarnings(true).get();
+                } catch (RuntimeException e) {
+                    Logging.trace(e);
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Rasterizes an image resource in the background at the given sizes, as done by
+     * {@link ImageResource#getImageIconBounded}, so that later requests for these sizes are served from the cache.
+     * <p>
+     * The returned future is completed immediately if {@link #PROP_PRERASTERIZE_THREADS} is {@code 0}.
+     * @param resource the image resource
+     * @param sizes the bounding sizes
+     * @return the future completed once the image has been rasterized at all sizes
+     */
+    public static CompletableFuture<Void> prerasterize(ImageResource resource, ImageSizes... sizes) {
+        ExecutorService executor = getImagePrerasterizer();
+        if (executor == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+            for (ImageSizes size : sizes) {
+                resource.getImageIconBounded(size.getImageDimension());
+            }
+        }, executor).exceptionally(e -> {
+            Logging.trace(e);
+            return null;
+        });
+    }
+
     /**
      * Load an image with a given file name.
      *
@@ -844,113 +926,123 @@ public class ImageProvider {
      * @return the requested image or null if the request failed
      */
     private ImageResource getIfAvailableImpl() {
-        synchronized (cache) {
-            // This method is called from different thread and modifying HashMap concurrently can result
-            // for example in loops in map entries (ie freeze when such entry is retrieved)
-            if (name == null)
-                return null;
+        // The cache is only locked to look up and store an image: loading and parsing it happens unlocked, so that
+        // background rasterization does not block the painting threads. Concurrent requests for the same image may
+        // both load it, the first one stored in the cache wins.
+        if (name == null)
+            return null;
 
-            String prefix = isDisabled ? "dis:" : "";
-            if (name.startsWith("data:")) {
-                String url = name;
-                ImageResource ir = cache.get(prefix+url);
-                if (ir != null) return ir;
-                ir = getIfAvailableDataUrl(url);
-                if (ir != null) {
-                    cache.put(prefix+url, ir);
-                }
-                return ir;
+        String prefix = isDisabled ? "dis:" : "";
+        if (name.startsWith("data:")) {
+            String url = name;
+            ImageResource ir = getCached(prefix+url);
+            if (ir != null) return ir;
+            ir = getIfAvailableDataUrl(url);
+            if (ir != null) {
+                ir = putCached(prefix+url, ir);
             }
+            return ir;
+        }
 
-            ImageType type = Utils.hasExtension(name, "svg") ? ImageType.SVG : ImageType.OTHER;
-
-            if (name.startsWith(HTTP_PROTOCOL) || name.startsWith(HTTPS_PROTOCOL)) {
-                String url = name;
-                ImageResource ir = cache.get(prefix+url);
-                if (ir != null) return ir;
-                ir = getIfAvailableHttp(url, type);
-                if (ir != null) {
-                    cache.put(prefix+url, ir);
-                }
-                return ir;
-            } else if (name.startsWith(WIKI_PROTOCOL)) {
-                ImageResource ir = cache.get(prefix+name);
-                if (ir != null) return ir;
-                ir = getIfAvailableWiki(name, type);
-                if (ir != null) {
-                    cache.put(prefix+name, ir);
-                }
-                return ir;
-            }
+        ImageType type = Utils.hasExtension(name, "svg") ? ImageType.SVG : ImageType.OTHER;
 
-            if (subdir == null) {
-                subdir = "";
-            } else if (!subdir.isEmpty() && !subdir.endsWith("/")) {
-                subdir += '/';
+        if (name.startsWith(HTTP_PROTOCOL) || name.startsWith(HTTPS_PROTOCOL)) {
+            String url = name;
+            ImageResource ir = getCached(prefix+url);
+            if (ir != null) return ir;
+            ir = getIfAvailableHttp(url, type);
+            if (ir != null) {
+                ir = putCached(prefix+url, ir);
             }
-            String[] extensions;
-            if (name.indexOf('.') != -1) {
-                extensions = new String[] {""};
-            } else {
-                extensions = new String[] {".png", ".svg"};
+            return ir;
+        } else if (name.startsWith(WIKI_PROTOCOL)) {
+            ImageResource ir = getCached(prefix+name);
+            if (ir != null) return ir;
+            ir = getIfAvailableWiki(name, type);
+            if (ir != null) {
+                ir = putCached(prefix+name, ir);
             }
-            final int typeArchive = 0;
-            final int typeLocal = 1;
-            for (int place : new Integer[] {typeArchive, typeLocal}) {
-                for (String ext : extensions) {
-
-                    if (".svg".equals(ext)) {
-                        type = ImageType.SVG;
-                    } else if (".png".equals(ext)) {
-                        type = ImageType.OTHER;
-                    }
+            return ir;
+        }
 
-                    String fullName = subdir + name + ext;
-                    String cacheName = prefix + fullName;
-                    /* cache separately */
-                    if (dirs != null && !dirs.isEmpty()) {
-                        cacheName = "id:" + id + ':' + fullName;
-                        if (archive != null) {
-                            cacheName += ':' + archive.getName();
-                        }
+        if (subdir == null) {
+            subdir = "";
+        } else if (!subdir.isEmpty() && !subdir.endsWith("/")) {
+            subdir += '/';
+        }
+        String[] extensions;
+        if (name.indexOf('.') != -1) {
+            extensions = new String[] {""};
+        } else {
+            extensions = new String[] {".png", ".svg"};
+        }
+        final int typeArchive = 0;
+        final int typeLocal = 1;
+        for (int place : new Integer[] {typeArchive, typeLocal}) {
+            for (String ext : extensions) {
+
+                if (".svg".equals(ext)) {
+                    type = ImageType.SVG;
+                } else if (".png".equals(ext)) {
+                    type = ImageType.OTHER;
+                }
+
+                String fullName = subdir + name + ext;
+                String cacheName = prefix + fullName;
+                /* cache separately */
+                if (dirs != null && !dirs.isEmpty()) {
+                    cacheName = "id:" + id + ':' + fullName;
+                    if (archive != null) {
+                        cacheName += ':' + archive.getName();
                     }
+                }
 
-                    switch (place) {
-                    case typeArchive:
-                        if (archive != null) {
-                            cacheName = "zip:"+archive.hashCode()+':'+cacheName;
-                            ImageResource ir = cache.get(cacheName);
-                            if (ir != null) return ir;
-
-                            ir = getIfAvailableZip(fullName, archive, inArchiveDir, type);
-                            if (ir != null) {
-                                cache.put(cacheName, ir);
-                                return ir;
-                            }
-                        }
-                        break;
-                    case typeLocal:
-                        ImageResource ir = cache.get(cacheName);
+                switch (place) {
+                case typeArchive:
+                    if (archive != null) {
+                        cacheName = "zip:"+archive.hashCode()+':'+cacheName;
+                        ImageResource ir = getCached(cacheName);
                         if (ir != null) return ir;
 
-                        // getImageUrl() does a ton of "stat()" calls and gets expensive
-                        // and redundant when you have a whole ton of objects. So,
-                        // index the cache by the name of the icon we're looking for
-                        // and don't bother to create a URL unless we're actually creating the image.
-                        URL path = getImageUrl(fullName);
-                        if (path == null) {
-                            continue;
-                        }
-                        ir = getIfAvailableLocalURL(path, type);
+                        ir = getIfAvailableZip(fullName, archive, inArchiveDir, type);
                         if (ir != null) {
-                            cache.put(cacheName, ir);
-                            return ir;
+                            return putCached(cacheName, ir);
                         }
-                        break;
                     }
+                    break;
+                case typeLocal:
+                    ImageResource ir = getCached(cacheName);
+                    if (ir != null) return ir;
+
+                    // getImageUrl() does a ton of "stat()" calls and gets expensive
+                    // and redundant when you have a whole ton of objects. So,
+                    // index the cache by the name of the icon we're looking for
+                    // and don't bother to create a URL unless we're actually creating the image.
+                    URL path = getImageUrl(fullName);
+                    if (path == null) {
+                        continue;
+                    }
+                    ir = getIfAvailableLocalURL(path, type);
+                    if (ir != null) {
+                        return putCached(cacheName, ir);
+                    }
+                    break;
                 }
             }
-            return null;
+        }
+        return null;
+    }
+
+    private static ImageResource getCached(String key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    private static ImageResource putCached(String key, ImageResource ir) {
+        synchronized (cache) {
+            ImageResource existing = cache.putIfAbsent(key, ir);
+            return existing != null ? existing : ir;
         }
     }
 
@@ -972,7 +1064,7 @@ public class ImageProvider {
                     URI uri = getSvgUniverse().loadSVG(is, Utils.fileToURL(cf.getFile()).toString());
                     svg = getSvgUniverse().getDiagram(uri);
                 }
-                return svg == null ? null : new ImageResource(svg);
+                return svg == null ? null : new ImageResource(svg).setRasterCacheKey(SvgRasterCache.getSourceKey(Utils.fileToURL(cf.getFile())));
             case OTHER:
                 BufferedImage img = null;
                 try {
@@ -1109,7 +1201,7 @@ public class ImageProvider {
                             URI uri = getSvgUniverse().loadSVG(is, entryName);
                             svg = getSvgUniverse().getDiagram(uri);
                         }
-                        return svg == null ? null : new ImageResource(svg);
+                        return svg == null ? null : new ImageResource(svg).setRasterCacheKey(SvgRasterCache.getSourceKey(archive, entryName));
                     case OTHER:
                         while (size > 0) {
                             int l = is.read(buf, offs, size);
@@ -1153,7 +1245,7 @@ public class ImageProvider {
                     Logging.log(Logging.LEVEL_WARN, "Unable to read SVG", e);
                 }
             }
-            return svg == null ? null : new ImageResource(svg);
+            return svg == null ? null : new ImageResource(svg).setRasterCacheKey(SvgRasterCache.getSourceKey(path));
         case OTHER:
             BufferedImage img = null;
             try {
@@ -51,6 +51,10 @@ public class ImageResource {
      * The base raster image for the final output
      */
     private Image baseImage;
+    /**
+     * Key of the SVG source in the disk cache of rasterized images, or {@code null}
+     */
+    private String rasterCacheKey;
 
     /**
      * Constructs a new {@code ImageResource} from an image.
@@ -80,6 +84,17 @@ public class ImageResource {
         this.svg = res.svg;
         this.baseImage = res.baseImage;
         this.overlayInfo = overlayInfo;
+        this.rasterCacheKey = res.rasterCacheKey;
+    }
+
+    /**
+     * Sets the key identifying the SVG source in the disk cache of rasterized images.
+     * @param rasterCacheKey the source key, see {@link SvgRasterCache#getSourceKey}
+     * @return the current object, for convenience
+     */
+    ImageResource setRasterCacheKey(String rasterCacheKey) {
+        this.rasterCacheKey = rasterCacheKey;
+        return this;
     }
 
     /**
@@ -156,13 +171,20 @@ public class ImageResource {
     public ImageIcon getImageIcon(Dimension dim, boolean multiResolution) {
         if (dim.width < -1 || dim.width == 0 || dim.height < -1 || dim.height == 0)
             throw new IllegalArgumentException(dim+" is invalid");
-        BufferedImage img = imgCache.get(dim);
+        BufferedImage img;
+        synchronized (imgCache) {
+            img = imgCache.get(dim);
+        }
         if (img == null) {
             if (svg != null) {
                 Dimension realDim = GuiSizesHelper.getDimensionDpiAdjusted(dim);
-                img = ImageProvider.createImageFromSvg(svg, realDim);
+                img = SvgRasterCache.get(rasterCacheKey, realDim);
                 if (img == null) {
-                    return null;
+                    img = ImageProvider.createImageFromSvg(svg, realDim);
+                    if (img == null) {
+                        return null;
+                    }
+                    SvgRasterCache.put(rasterCacheKey, realDim, img);
                 }
             } else {
                 if (baseImage == null) throw new AssertionError();
@@ -198,7 +220,9 @@ public class ImageResource {
                 img = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
                 disabledIcon.paintIcon(new JPanel(), img.getGraphics(), 0, 0);
             }
-            imgCache.put(dim, img);
+            synchronized (imgCache) {
+                imgCache.put(dim, img);
+            }
         }
 
         if (!multiResolution)
@@ -0,0 +1,398 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.spi.preferences.Config;
+
+/**
+ * Startup instrumentation.
+ * <p>
+ * Records the time spent in each initialization task, and supports a "training run" mode which dumps the list
+ * of classes loaded during startup and the list of resources generated in the cache directory. The class list can be
+ * used to build an Application Class-Data Sharing (AppCDS) archive, and to preload classes in the background on
+ * subsequent launches:
+ * <pre>
+ *  java -Xshare:dump -XX:SharedClassListFile=&lt;classlist&gt; -XX:SharedArchiveFile=josm.jsa -cp josm.jar
+ *  java -Xshare:auto -XX:SharedArchiveFile=josm.jsa -jar josm.jar
+ * </pre>
+ * Starting with Java 9, the loaded classes can only be listed by the JVM itself: the training run must be launched
+ * with {@code -XX:DumpLoadedClassList=<file>}.
+ */
+public final class StartupProfile {
+
+    /**
+     * Preference enabling the background preloading of classes listed by a previous training run.
+     */
+    public static final BooleanProperty PROP_PRELOAD_CLASSES = new BooleanProperty("startup.preload-classes", false);
+
+    /** Name of the class list file, as written by a training run */
+    public static final String CLASS_LIST_FILE = "classlist";
+
+    /** Name of the timing report file, as written by a training run */
+    public static final String TIMINGS_FILE = "startup-times.txt";
+
+    /** Name of the file listing the resources generated in the cache directory, as written by a training run */
+    public static final String RESOURCES_FILE = "resources.txt";
+
+    private static final String DUMP_LOADED_CLASS_LIST = "-XX:DumpLoadedClassList=";
+
+    private static final List<TaskTiming> TIMINGS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Duration of a startup task.
+     */
+    public static final class TaskTiming {
+        private final String name;
+        private final String thread;
+        private final long start;
+        private final long duration;
+
+        TaskTiming(String name, String thread, long start, long duration) {
+            this.name = name;
+            this.thread = thread;
+            this.start = start;
+            this.duration = duration;
+        }
+
+        /**
+         * Returns the task name.
+         * @return the task name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the name of the thread which ran the task.
+         * @return the thread name
+         */
+        public String getThread() {
+            return thread;
+        }
+
+        /**
+         * Returns the task start time, in milliseconds since JVM start.
+         * @return the task start time
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * Returns the task duration in milliseconds.
+         * @return the task duration
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%6d ms %6d ms  %-20s %s", start, duration, thread, name);
+        }
+    }
+
+    private StartupProfile() {
+        // Hide default constructor for utils classes
+    }
+
+    /**
+     * Runs a startup task and records its duration.
+     * @param name task name
+     * @param task task to run
+     */
+    public static void run(String name, Runnable task) {
+        long start = System.currentTimeMillis();
+        try {
+            task.run();
+        } finally {
+            record(name, start, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Records the duration of a startup task.
+     * @param name task name
+     * @param start task start time, as returned by {@link System#currentTimeMillis}
+     * @param end task end time, as returned by {@link System#currentTimeMillis}
+     */
+    public static void record(String name, long start, long end) {
+        TaskTiming timing = new TaskTiming(name, Thread.currentThread().getName(), start - getJvmStartTime(), end - start);
+        TIMINGS.add(timing);
+        Logging.debug("Startup: {0} took {1} ms", name, timing.duration);
+    }
+
+    /**
+     * Records the time elapsed since the JVM start.
+     * @param name task name
+     */
+    public static void recordSinceJvmStart(String name) {
+        record(name, getJvmStartTime(), System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the recorded startup task durations, in completion order.
+     * @return the recorded startup task durations
+     */
+    public static List<TaskTiming> getTimings() {
+        return Collections.unmodifiableList(TIMINGS);
+    }
+
+    /**
+     * Returns a human readable report of the recorded startup task durations, sorted by start time.
+     * @return startup report, one line per task
+     */
+    public static List<String> getReport() {
+        List<TaskTiming> timings = new ArrayList<>(TIMINGS);
+        timings.sort((a, b) -> Long.compare(a.start, b.start));
+        List<String> result = new ArrayList<>(timings.size() + 1);
+        result.add(String.format("%9s %9s  %-20s %s", "start", "duration", "thread", "task"));
+        for (TaskTiming t : timings) {
+            result.add(t.toString());
+        }
+        return result;
+    }
+
+    private static long getJvmStartTime() {
+        try {
+            return ManagementFactory.getRuntimeMXBean().getStartTime();
+        } catch (SecurityException | LinkageError e) {
+            Logging.trace(e);
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the default directory used by training runs, in the cache directory.
+     * @return the default training run directory
+     */
+    public static File getDefaultDirectory() {
+        return new File(Config.getDirs().getCacheDirectory(true), "startup");
+    }
+
+    /**
+     * Returns the names of the classes loaded so far by the given class loader and its parents,
+     * excluding the bootstrap class loader.
+     * <p>
+     * This relies on the class loader internals, which are only accessible up to Java 8: the result is empty on later
+     * versions, see {@link #getJvmClassList()}.
+     * @param loader class loader
+     * @return names of the loaded classes, in the internal form expected by {@code -XX:SharedClassListFile}
+     */
+    public static Set<String> getLoadedClassNames(ClassLoader loader) {
+        Set<String> result = new TreeSet<>();
+        if (Utils.getJavaVersion() > 8) {
+            return result;
+        }
+        for (ClassLoader cl = loader; cl != null; cl = cl.getParent()) {
+            for (Class<?> klass : getLoadedClasses(cl)) {
+                // anonymous, local and generated classes cannot be looked up by name
+                if (!klass.isAnonymousClass() && !klass.isLocalClass() && !klass.isSynthetic()
+                        && klass.getName().indexOf('/') < 0) {
+                    result.add(klass.getName().replace('.', '/'));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Collection<Class<?>> getLoadedClasses(ClassLoader loader) {
+        try {
+            Field field = ClassLoader.class.getDeclaredField("classes");
+            Utils.setObjectsAccessible(field);
+            Collection<?> classes = (Collection<?>) field.get(loader);
+            List<Class<?>> result = new ArrayList<>();
+            // the vector is used concurrently by the class loader
+            synchronized (classes) {
+                for (Object o : classes) {
+                    result.add((Class<?>) o);
+                }
+            }
+            return result;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Logging.log(Logging.LEVEL_WARN, tr("Unable to list the classes loaded by {0}", loader), e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns the class list written by the JVM, if it has been launched with {@code -XX:DumpLoadedClassList=<file>}.
+     * @return the class list written by the JVM, or {@code null}
+     */
+    public static File getJvmClassList() {
+        try {
+            for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+                if (arg.startsWith(DUMP_LOADED_CLASS_LIST)) {
+                    return new File(arg.substring(DUMP_LOADED_CLASS_LIST.length()));
+                }
+            }
+        } catch (SecurityException | LinkageError e) {
+            Logging.trace(e);
+        }
+        return null;
+    }
+
+    /**
+     * Reads a class list, as written by a training run or by the JVM.
+     * @param classList class list file
+     * @return names of the listed classes, in the internal form expected by {@code -XX:SharedClassListFile}
+     * @throws IOException if an I/O error occurs
+     */
+    static List<String> readClassList(File classList) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(classList.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                // recent JVMs add the class id after the name, and lines starting with @ for lambda proxies
+                if (!line.isEmpty() && !line.startsWith("#") && !line.startsWith("@")) {
+                    int space = line.indexOf(' ');
+                    names.add(space > 0 ? line.substring(0, space) : line);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Returns the resources generated in the given cache directory since the JVM start, such as rasterized icons or
+     * preprocessed styles. Subdirectories are included, except the given training run directory.
+     * @param cacheDirectory cache directory
+     * @param directory training run directory, excluded from the result
+     * @return paths of the generated resources, relative to the cache directory
+     * @throws IOException if an I/O error occurs
+     */
+    public static List<String> getGeneratedResources(File cacheDirectory, File directory) throws IOException {
+        if (!cacheDirectory.isDirectory()) {
+            return Collections.emptyList();
+        }
+        long since = getJvmStartTime();
+        Path root = cacheDirectory.toPath();
+        Path excluded = directory.toPath();
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(p -> !p.startsWith(excluded) && p.toFile().isFile() && p.toFile().lastModified() >= since)
+                    .map(p -> root.relativize(p).toString().replace(File.separatorChar, '/'))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Writes the results of a training run: the startup timing report, the list of loaded classes and the list of the
+     * resources generated in the cache directory.
+     * <p>
+     * If the JVM has been launched with {@code -XX:DumpLoadedClassList}, it writes the class list itself until it exits:
+     * the list is then neither read nor written here, so that it is not taken before it is complete. Otherwise the
+     * loaded classes are taken from the given class loader, which is only possible up to Java 8.
+     * @param directory output directory
+     * @param loader class loader whose classes are listed
+     * @throws IOException if an I/O error occurs
+     */
+    public static void writeTrainingRun(File directory, ClassLoader loader) throws IOException {
+        Utils.mkDirs(directory);
+        File classList = new File(directory, CLASS_LIST_FILE);
+        File jvmClassList = getJvmClassList();
+        if (jvmClassList != null) {
+            Logging.info(tr("Training run: the loaded classes are written to {0} by the JVM when it exits", jvmClassList));
+            if (!jvmClassList.getAbsoluteFile().equals(classList.getAbsoluteFile())) {
+                Logging.info(tr("Training run: copy {0} to {1} after exit to preload the classes on next launches",
+                        jvmClassList, classList));
+            }
+            logAppCdsCommand(jvmClassList);
+        } else {
+            Set<String> classes = getLoadedClassNames(loader);
+            if (classes.isEmpty()) {
+                Logging.info(tr("Training run: loaded classes cannot be listed by this Java version, relaunch with {0}",
+                        DUMP_LOADED_CLASS_LIST + classList));
+            } else {
+                Files.write(classList.toPath(), classes, StandardCharsets.UTF_8);
+                Logging.info(tr("Training run: {0} loaded classes written to {1}", classes.size(), classList));
+                logAppCdsCommand(classList);
+            }
+        }
+        File resources = new File(directory, RESOURCES_FILE);
+        List<String> generated = getGeneratedResources(Config.getDirs().getCacheDirectory(false), directory);
+        Files.write(resources.toPath(), generated, StandardCharsets.UTF_8);
+        Logging.info(tr("Training run: {0} generated resources written to {1}", generated.size(), resources));
+        File timings = new File(directory, TIMINGS_FILE);
+        Files.write(timings.toPath(), getReport(), StandardCharsets.UTF_8);
+        Logging.info(tr("Training run: startup timings written to {0}", timings));
+    }
+
+    private static void logAppCdsCommand(File classList) {
+        Logging.info(tr("Training run: an AppCDS archive can be built with: {0}",
+                "java -Xshare:dump -XX:SharedClassListFile=" + classList + " -XX:SharedArchiveFile=josm.jsa -cp josm.jar"));
+    }
+
+    /**
+     * Loads, in the background, the classes listed in the class list of a previous training run.
+     * Classes are loaded without being initialized, on low-priority threads, so that the startup thread finds them ready.
+     * @param directory training run directory
+     * @param loader class loader to use
+     * @return the number of classes scheduled for loading
+     */
+    public static int preloadClasses(File directory, ClassLoader loader) {
+        File classList = new File(directory, CLASS_LIST_FILE);
+        if (!PROP_PRELOAD_CLASSES.get() || !classList.isFile()) {
+            return 0;
+        }
+        List<String> names = new ArrayList<>();
+        try {
+            for (String name : readClassList(classList)) {
+                names.add(name.replace('/', '.'));
+            }
+        } catch (IOException e) {
+            Logging.warn(e);
+            return 0;
+        }
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, Utils.newThreadFactory("class-preload-%d", Thread.MIN_PRIORITY));
+        AtomicInteger loaded = new AtomicInteger();
+        long start = System.currentTimeMillis();
+        int chunk = names.size() / threads + 1;
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < names.size(); i += chunk) {
+            List<String> part = names.subList(i, Math.min(names.size(), i + chunk));
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (String name : part) {
+                    try {
+                        Class.forName(name, false, loader);
+                        loaded.incrementAndGet();
+                    } catch (ClassNotFoundException | LinkageError e) {
+                        // The class list may be outdated
+                        Logging.trace(e);
+                    }
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete((v, t) -> {
+            executor.shutdown();
+            record(tr("Preloading {0} classes", loaded.get()), start, System.currentTimeMillis());
+        });
+        return names.size();
+    }
+}
@@ -0,0 +1,218 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.jar.JarEntry;
+
+import javax.imageio.ImageIO;
+
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.spi.preferences.Config;
+
+/**
+ * Disk cache of rasterized SVG images.
+ * <p>
+ * Rasterizing SVG icons is expensive, and the same icons are rasterized at the same sizes on each launch.
+ * This cache stores the rasterized images as PNG files, keyed by the SVG source (location and modification time),
+ * the requested size and the screen pixel density.
+ * Sources without a known modification time (inline or remote images) are not cached.
+ * <p>
+ * The size of the cache is limited by {@link #PROP_MAX_SIZE}: the least recently used files are deleted when it is exceeded.
+ */
+final class SvgRasterCache {
+
+    /** Preference enabling the disk cache of rasterized SVG images */
+    static final BooleanProperty PROP_ENABLED = new BooleanProperty("image-provider.svg-raster-cache", true);
+
+    /** Maximum size of the disk cache of rasterized SVG images, in megabytes */
+    static final IntegerProperty PROP_MAX_SIZE = new IntegerProperty("image-provider.svg-raster-cache.max-size", 20);
+
+    /** The cache size is checked on the first write of a session, then every {@code CLEANUP_INTERVAL} writes */
+    private static final int CLEANUP_INTERVAL = 100;
+
+    /** Version of the cache format, to be incremented if the rasterization changes */
+    private static final int FORMAT_VERSION = 1;
+
+    /** Cache files are written in the background, in order not to slow down the rasterization */
+    private static final ExecutorService WRITER =
+            Executors.newSingleThreadExecutor(Utils.newThreadFactory("svg-raster-cache-%d", Thread.MIN_PRIORITY));
+
+    private static int writes;
+
+    private SvgRasterCache() {
+        // Hide default constructor for utils classes
+    }
+
+    /**
+     * Returns the cache directory.
+     * @return the cache directory
+     */
+    static File getDirectory() {
+        return new File(Config.getDirs().getCacheDirectory(true), "svg-raster");
+    }
+
+    /**
+     * Returns the source key of a SVG file, or resource.
+     * @param url the SVG location
+     * @return the source key, or {@code null} if the modification time of the SVG cannot be determined
+     */
+    static String getSourceKey(URL url) {
+        long lastModified = 0;
+        try {
+            if ("file".equals(url.getProtocol())) {
+                lastModified = new File(url.toURI()).lastModified();
+            } else if ("jar".equals(url.getProtocol())) {
+                URLConnection connection = url.openConnection();
+                JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+                lastModified = entry != null ? entry.getTime() : 0;
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException | ClassCastException e) {
+            Logging.trace(e);
+        }
+        return lastModified > 0 ? url.toExternalForm() + '@' + lastModified : null;
+    }
+
+    /**
+     * Returns the source key of a SVG file in a zip archive.
+     * @param archive the zip archive
+     * @param entryName the SVG entry name
+     * @return the source key, or {@code null} if the modification time of the archive cannot be determined
+     */
+    static String getSourceKey(File archive, String entryName) {
+        long lastModified = archive.lastModified();
+        return lastModified > 0 ? archive.getAbsolutePath() + '!' + entryName + '@' + lastModified : null;
+    }
+
+    /**
+     * Returns the cache file for the given source and size.
+     * @param sourceKey the source key
+     * @param dim the rasterization size, already adjusted to the screen pixel density
+     * @return the cache file
+     */
+    static File getCacheFile(String sourceKey, Dimension dim) {
+        String key = FORMAT_VERSION + "|" + sourceKey + '|' + dim.width + 'x' + dim.height + '@' + GuiSizesHelper.getPixelDensity();
+        return new File(getDirectory(), Utils.md5Hex(key) + ".png");
+    }
+
+    /**
+     * Returns the cached rasterization of a SVG image.
+     * @param sourceKey the source key, can be {@code null}
+     * @param dim the rasterization size, already adjusted to the screen pixel density
+     * @return the cached image, or {@code null}
+     */
+    static BufferedImage get(String sourceKey, Dimension dim) {
+        if (sourceKey == null || !PROP_ENABLED.get()) {
+            return null;
+        }
+        File file = getCacheFile(sourceKey, dim);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            BufferedImage img = ImageIO.read(file);
+            if (img != null) {
+                // the modification time records the last use, for the cleanup of the least recently used files
+                if (!file.setLastModified(System.currentTimeMillis())) {
+                    Logging.trace("Unable to update the modification time of {0}", file);
+                }
+                return img;
+            }
+        } catch (IOException | RuntimeException e) {
+            Logging.trace(e);
+        }
+        Logging.debug("Discarding invalid SVG raster cache file {0}", file);
+        Utils.deleteFileIfExists(file);
+        return null;
+    }
+
+    /**
+     * Stores the rasterization of a SVG image. The file is written in the background, from a copy of the image.
+     * @param sourceKey the source key, can be {@code null}
+     * @param dim the rasterization size, already adjusted to the screen pixel density
+     * @param img the rasterized image
+     */
+    static void put(String sourceKey, Dimension dim, BufferedImage img) {
+        if (sourceKey == null || !PROP_ENABLED.get()) {
+            return;
+        }
+        // the image may be modified afterwards (overlays)
+        BufferedImage copy = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(img, 0, 0, null);
+        g.dispose();
+        File file = getCacheFile(sourceKey, dim);
+        WRITER.execute(() -> write(file, copy));
+    }
+
+    private static void write(File file, BufferedImage img) {
+        File dir = file.getParentFile();
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try {
+            if (!dir.isDirectory()) {
+                Utils.mkDirs(dir);
+            }
+            if (ImageIO.write(img, "png", tmp)) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Logging.log(Logging.LEVEL_WARN, "Unable to write SVG raster cache file " + file, e);
+        } finally {
+            Utils.deleteFileIfExists(tmp);
+        }
+        // only called from the writer thread
+        if (writes++ % CLEANUP_INTERVAL == 0) {
+            cleanup(dir, PROP_MAX_SIZE.get() * 1024L * 1024L);
+        }
+    }
+
+    /**
+     * Deletes the least recently used cache files until the size of the cache does not exceed the given size.
+     * @param dir the cache directory
+     * @param maxSize the maximum size of the cache, in bytes
+     */
+    static void cleanup(File dir, long maxSize) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".png"));
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        Map<File, Long> lastModified = new HashMap<>(files.length);
+        for (File f : files) {
+            size += f.length();
+            lastModified.put(f, f.lastModified());
+        }
+        if (size <= maxSize) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparing(lastModified::get));
+        int deleted = 0;
+        for (File f : files) {
+            if (size <= maxSize) {
+                break;
+            }
+            long length = f.length();
+            if (Utils.deleteFile(f)) {
+                size -= length;
+                deleted++;
+            }
+        }
+        Logging.debug("Deleted {0} least recently used files from the SVG raster cache", deleted);
+    }
+}
@@ -3,12 +3,19 @@ package org.openstreetmap.josm.tools;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -31,11 +38,15 @@ import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.XMLFilterImpl;
 
 /**
  * An helper class that reads from a XML stream into specific objects.
+ * <p>
+ * The elements handled by the parser can be recorded in a compact binary form (see {@link #recordTo}),
+ * and later replayed with {@link #startFromRecording} to build the same objects without parsing XML again.
  *
  * @author Imi
  */
@@ -63,11 +74,67 @@ public class XmlObjectParser implements Iterable<Object> {
         }
     }
 
+    /**
+     * Writes the mapped elements seen by the parser in the binary recording format.
+     */
+    private static class Recorder {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        Recorder(OutputStream out) {
+            this.out = new DataOutputStream(new BufferedOutputStream(out));
+        }
+
+        void writeString(String s) throws IOException {
+            Integer index = strings.get(s);
+            if (index != null) {
+                out.writeInt(index);
+            } else {
+                strings.put(s, strings.size());
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(-1 - bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        void startElement(String qname, Attributes a) throws IOException {
+            out.writeByte(RECORD_START);
+            writeString(qname);
+            out.writeInt(a.getLength());
+            for (int i = 0; i < a.getLength(); ++i) {
+                writeString(a.getQName(i));
+                writeString(a.getValue(i));
+            }
+        }
+
+        void endElement(String qname, String text) throws IOException {
+            out.writeByte(RECORD_END);
+            writeString(qname);
+            writeString(text != null ? text : "");
+        }
+
+        void finish() throws IOException {
+            out.writeByte(RECORD_EOF);
+            out.flush();
+        }
+    }
+
+    private static final int RECORD_EOF = 0;
+    private static final int RECORD_START = 1;
+    private static final int RECORD_END = 2;
+
     private class Parser extends DefaultHandler {
         private final Stack<Object> current = new Stack<>();
         private StringBuilder characters = new StringBuilder(64);
 
         private Locator locator;
+        private Recorder recorder;
+
+        private void stopRecording(IOException e) {
+            // Do not fail parsing because of the recording, just stop it
+            Logging.warn(e);
+            recorder = null;
+        }
 
         @Override
         public void setDocumentLocator(Locator locator) {
@@ -81,6 +148,13 @@ public class XmlObjectParser implements Iterable<Object> {
         @Override
         public void startElement(String ns, String lname, String qname, Attributes a) throws SAXException {
             if (mapping.containsKey(qname)) {
+                if (recorder != null) {
+                    try {
+                        recorder.startElement(qname, a);
+                    } catch (IOException e) {
+                        stopRecording(e);
+                    }
+                }
                 Class<?> klass = mapping.get(qname).klass;
                 try {
                     current.push(klass.getConstructor().newInstance());
@@ -101,6 +175,13 @@ public class XmlObjectParser implements Iterable<Object> {
 
         @Override
         public void endElement(String ns, String lname, String qname) throws SAXException {
+            if (recorder != null && mapping.containsKey(qname)) {
+                try {
+                    recorder.endElement(qname, mapping.get(qname).onStart && characters != null ? characters.toString().trim() : null);
+                } catch (IOException e) {
+                    stopRecording(e);
+                }
+            }
             if (mapping.containsKey(qname) && !mapping.get(qname).onStart) {
                 report();
             } else if (mapping.containsKey(qname) && characters != null && !current.isEmpty()) {
@@ -227,7 +308,7 @@ public class XmlObjectParser implements Iterable<Object> {
     }
 
     private final Map<String, Entry> mapping = new HashMap<>();
-    private final DefaultHandler parser;
+    private final Parser parser;
 
     /**
      * The queue of already parsed items from the parsing thread.
@@ -254,11 +335,73 @@ public class XmlObjectParser implements Iterable<Object> {
                 Logging.log(Logging.LEVEL_ERROR, "Cannot disable 'load-external-dtd' feature:", e);
             }
             reader.parse(new InputSource(in));
+            if (parser.recorder != null) {
+                parser.recorder.finish();
+            }
             queueIterator = queue.iterator();
             return this;
         } catch (ParserConfigurationException e) {
             throw new JosmRuntimeException(e);
+        } finally {
+            parser.recorder = null;
+        }
+    }
+
+    /**
+     * Records the elements handled by the next call to {@link #start(Reader)} or {@link #startWithValidation},
+     * in the binary format understood by {@link #startFromRecording}.
+     * Only the elements mapped to a class are recorded. The output stream is flushed, but not closed, at the end of parsing.
+     * @param out the output stream receiving the recording
+     */
+    public void recordTo(OutputStream out) {
+        parser.recorder = new Recorder(out);
+    }
+
+    /**
+     * Starts parsing from a binary recording previously written during a {@link #recordTo recorded} parsing.
+     * The same tag mappings must be used for the recording and the replay.
+     * @param in The input stream of the recording
+     * @return iterable collection of objects
+     * @throws SAXException if the recorded data cannot be mapped to objects
+     * @throws IOException if the recording cannot be read, or is truncated
+     */
+    public Iterable<Object> startFromRecording(InputStream in) throws SAXException, IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        List<String> strings = new ArrayList<>();
+        AttributesImpl attributes = new AttributesImpl();
+        int type;
+        while ((type = data.readByte()) != RECORD_EOF) {
+            String qname = readString(data, strings);
+            if (type == RECORD_START) {
+                attributes.clear();
+                for (int i = data.readInt(); i > 0; i--) {
+                    attributes.addAttribute("", "", readString(data, strings), "CDATA", readString(data, strings));
+                }
+                parser.startElement("", qname, qname, attributes);
+            } else if (type == RECORD_END) {
+                parser.characters = new StringBuilder(readString(data, strings));
+                parser.endElement("", qname, qname);
+            } else {
+                throw new IOException("Invalid record type: " + type);
+            }
+        }
+        queueIterator = queue.iterator();
+        return this;
+    }
+
+    private static String readString(DataInputStream data, List<String> strings) throws IOException {
+        int index = data.readInt();
+        if (index >= 0) {
+            if (index >= strings.size()) {
+                throw new IOException("Invalid string index: " + index);
+            }
+            return strings.get(index);
         }
+        byte[] bytes = new byte[-1 - index];
+        data.readFully(bytes);
+        String s = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(s);
+        return s;
     }
 
     /**
@@ -148,7 +148,7 @@ public final class DateUtils {
      * @param timestamp number of seconds since the epoch
      * @return The formatted date
      */
-    public static synchronized String fromTimestamp(int timestamp) {
+    public static String fromTimestamp(int timestamp) {
         final ZonedDateTime temporal = Instant.ofEpochMilli(TimeUnit.SECONDS.toMillis(timestamp)).atZone(ZoneOffset.UTC);
         return DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(temporal);
     }
@@ -158,7 +158,7 @@ public final class DateUtils {
      * @param date The date to format
      * @return The formatted date
      */
-    public static synchronized String fromDate(Date date) {
+    public static String fromDate(Date date) {
         final ZonedDateTime temporal = date.toInstant().atZone(ZoneOffset.UTC);
         return DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(temporal);
     }
@@ -0,0 +1,116 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * This test measures the performance of {@link DataSetMerger}, merging 1 million primitives into a dataset of 5 million primitives.
+ * <p>
+ * Half of the merged primitives are updates of existing primitives, the other half are added to the dataset.
+ */
+public class DataSetMergerPerformanceTest {
+    private static final int NODES_PER_WAY = 10;
+    private static final int TARGET_WAYS = 450_000;
+    private static final int SOURCE_WAYS = 90_000;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    /**
+     * Reset the preferences.
+     */
+    @After
+    public void tearDown() {
+        DataSetMerger.PROP_PARALLEL_THRESHOLD.remove();
+    }
+
+    /**
+     * Creates a dataset of ways with their nodes.
+     * @param firstWay the id of the first way
+     * @param ways the number of ways
+     * @param version the version of the primitives
+     * @return the dataset
+     */
+    private static DataSet createDataSet(int firstWay, int ways, int version) {
+        DataSet ds = new DataSet();
+        ds.setVersion("0.6");
+        List<Node> nodes = new ArrayList<>(NODES_PER_WAY);
+        for (int w = firstWay; w < firstWay + ways; w++) {
+            nodes.clear();
+            for (int i = 0; i < NODES_PER_WAY; i++) {
+                long id = (long) (w - 1) * NODES_PER_WAY + i + 1;
+                Node n = new Node(new LatLon((w % 1000) * 1e-3, (w / 1000 + i * 1e-4) * 1e-3));
+                n.setOsmId(id, version);
+                ds.addPrimitive(n);
+                nodes.add(n);
+            }
+            Way way = new Way(w, version);
+            way.setNodes(nodes);
+            way.put("highway", version > 1 ? "primary" : "residential");
+            ds.addPrimitive(way);
+        }
+        return ds;
+    }
+
+    /**
+     * Measures the merge with a sequential lookup of the merge targets.
+     */
+    @Test
+    public void testMergeSequential() {
+        DataSetMerger.PROP_PARALLEL_THRESHOLD.put(Integer.MAX_VALUE);
+        runTest("sequential");
+    }
+
+    /**
+     * Measures the merge with a parallel lookup of the merge targets.
+     */
+    @Test
+    public void testMergeParallel() {
+        DataSetMerger.PROP_PARALLEL_THRESHOLD.put(0);
+        runTest("parallel");
+    }
+
+    private void runTest(String what) {
+        DataSet target = createDataSet(1, TARGET_WAYS, 1);
+        DataSet source = createDataSet(TARGET_WAYS - SOURCE_WAYS / 2 + 1, SOURCE_WAYS, 2);
+        int targetSize = target.allPrimitives().size();
+        int sourceSize = source.allPrimitives().size();
+
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(
+                "merge " + sourceSize + " primitives into " + targetSize + " primitives (" + what + ")");
+        DataSetMerger merger = new DataSetMerger(target, source);
+        merger.merge();
+        timer.done();
+
+        assertTrue(merger.getConflicts().isEmpty());
+        assertEquals(targetSize + sourceSize / 2, target.allPrimitives().size());
+    }
+}
@@ -4,10 +4,14 @@ package org.openstreetmap.josm.data.osm;
 import java.io.File;
 import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import org.apache.commons.lang.RandomStringUtils;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 
 /**
@@ -18,6 +22,7 @@ public final class OsmDataGenerator {
     private static final int DEFAULT_KEY_VALUE_RATIO = 3;
     private static final int DEFAULT_NODE_COUNT = 1000;
     private static final String DATA_DIR = "data_nodist" + File.separator + "osmfiles";
+    private static final int DEFAULT_CITY_BLOCKS = 20;
 
     private OsmDataGenerator() {
         // private constructor for utility classes
@@ -240,6 +245,180 @@ public final class OsmDataGenerator {
         }
     }
 
+    /**
+     * A data generator that generates the streets, buildings, multipolygons and points of interest of a city,
+     * tagged like the OSM data of a real city so that the default map style renders most of them.
+     * <p>
+     * The city is a grid of square blocks of about 120 m, separated by named streets. Most blocks are covered by
+     * a residential landuse and filled with buildings, some of them with a courtyard (a multipolygon) or a house number.
+     * The other blocks are parks (a multipolygon with a pond). The data is the same for each run.
+     */
+    public static final class CityDataGenerator extends DataGenerator {
+        /** the latitude of the south-west corner, the size of the blocks depends on it */
+        private static final double SOUTH = 53.55;
+        private static final double WEST = 13.25;
+        private static final double BLOCK_LAT = 0.0011;
+        private static final double BLOCK_LON = 0.0018;
+        /** the part of a block that is taken by its streets, on each side */
+        private static final double STREET = 0.08;
+        private static final String[] BUILDINGS = {"yes", "yes", "house", "apartments", "residential", "garage"};
+        private static final String[][] POIS = {
+            {"amenity", "restaurant"}, {"amenity", "cafe"}, {"amenity", "pharmacy"}, {"amenity", "school"},
+            {"shop", "bakery"}, {"shop", "supermarket"}, {"shop", "hairdresser"}, {"tourism", "hotel"}};
+
+        private final int blocks;
+        private final Random seeded = new Random(42);
+        private DataSet data;
+
+        private CityDataGenerator(String datasetName, int blocks) {
+            super(datasetName);
+            this.blocks = blocks;
+        }
+
+        /**
+         * Gets the area covered by the city.
+         * @return The bounds of the city
+         */
+        public Bounds getBounds() {
+            return new Bounds(SOUTH, WEST, SOUTH + blocks * BLOCK_LAT, WEST + blocks * BLOCK_LON);
+        }
+
+        @Override
+        public void fillData(DataSet ds) {
+            this.data = ds;
+            Node[][] crossings = new Node[blocks + 1][blocks + 1];
+            for (int i = 0; i <= blocks; i++) {
+                for (int j = 0; j <= blocks; j++) {
+                    crossings[i][j] = node(i, j);
+                    if (i % 5 == 0 && j % 5 == 0) {
+                        crossings[i][j].put("highway", "traffic_signals");
+                    }
+                }
+            }
+            for (int i = 0; i <= blocks; i++) {
+                List<Node> northSouth = new ArrayList<>();
+                List<Node> eastWest = new ArrayList<>();
+                for (int j = 0; j <= blocks; j++) {
+                    if (j > 0) {
+                        // a node in the middle of each section, like the entrances of the buildings
+                        northSouth.add(node(i, j - 0.5));
+                        eastWest.add(node(j - 0.5, i));
+                    }
+                    northSouth.add(crossings[i][j]);
+                    eastWest.add(crossings[j][i]);
+                }
+                street(northSouth, i, "Avenue");
+                street(eastWest, i, "Street");
+            }
+            for (int i = 0; i < blocks; i++) {
+                for (int j = 0; j < blocks; j++) {
+                    if (seeded.nextInt(12) == 0) {
+                        park(i, j);
+                    } else {
+                        residential(i, j);
+                    }
+                }
+            }
+            Node city = node(blocks / 2.0, blocks / 2.0);
+            city.put("place", "city");
+            city.put("name", "Generated City");
+        }
+
+        /**
+         * Creates a node in the grid of the blocks.
+         * @param x the column, from the west
+         * @param y the row, from the south
+         * @return the new node
+         */
+        private Node node(double x, double y) {
+            Node node = new Node(new LatLon(SOUTH + y * BLOCK_LAT, WEST + x * BLOCK_LON));
+            data.addPrimitive(node);
+            return node;
+        }
+
+        private Way way(List<Node> nodes, String... tags) {
+            Way way = new Way();
+            way.setNodes(nodes);
+            for (int i = 0; i < tags.length; i += 2) {
+                way.put(tags[i], tags[i + 1]);
+            }
+            data.addPrimitive(way);
+            return way;
+        }
+
+        /**
+         * Creates a closed way of the rectangle of the grid.
+         */
+        private Way rectangle(double x0, double y0, double x1, double y1, String... tags) {
+            Node first = node(x0, y0);
+            return way(Arrays.asList(first, node(x1, y0), node(x1, y1), node(x0, y1), first), tags);
+        }
+
+        private Relation multipolygon(Way outer, Way inner, String... tags) {
+            Relation relation = new Relation();
+            relation.put("type", "multipolygon");
+            for (int i = 0; i < tags.length; i += 2) {
+                relation.put(tags[i], tags[i + 1]);
+            }
+            relation.addMember(new RelationMember("outer", outer));
+            relation.addMember(new RelationMember("inner", inner));
+            data.addPrimitive(relation);
+            return relation;
+        }
+
+        private void street(List<Node> nodes, int index, String kind) {
+            String highway = index % 5 == 0 ? "primary" : index % 5 == 3 ? "tertiary" : "residential";
+            Way street = way(nodes, "highway", highway, "name", kind + ' ' + (index + 1));
+            if ("primary".equals(highway)) {
+                street.put("maxspeed", "50");
+                street.put("lanes", "2");
+            }
+        }
+
+        private void park(int i, int j) {
+            Way outer = rectangle(i + STREET, j + STREET, i + 1 - STREET, j + 1 - STREET);
+            Way inner = rectangle(i + 0.35, j + 0.35, i + 0.6, j + 0.55);
+            multipolygon(outer, inner, "leisure", "park", "name", "Park " + (i + 1) + '-' + (j + 1));
+            way(inner.getNodes(), "natural", "water");
+            for (int k = 0; k < 10; k++) {
+                double x = i + 0.15 + seeded.nextDouble() * 0.15;
+                double y = j + 0.15 + seeded.nextDouble() * 0.7;
+                node(x, y).put("natural", "tree");
+            }
+        }
+
+        private void residential(int i, int j) {
+            rectangle(i + STREET, j + STREET, i + 1 - STREET, j + 1 - STREET, "landuse", "residential");
+            int lots = 2 + seeded.nextInt(3);
+            double size = (1 - 2 * STREET - 0.04) / lots;
+            for (int x = 0; x < lots; x++) {
+                for (int y = 0; y < lots; y++) {
+                    double x0 = i + STREET + 0.02 + x * size;
+                    double y0 = j + STREET + 0.02 + y * size;
+                    double margin = size * (0.08 + seeded.nextDouble() * 0.1);
+                    String building = BUILDINGS[seeded.nextInt(BUILDINGS.length)];
+                    if (lots == 2 && seeded.nextInt(4) == 0) {
+                        Way outer = rectangle(x0 + margin, y0 + margin, x0 + size - margin, y0 + size - margin);
+                        Way inner = rectangle(x0 + size * 0.4, y0 + size * 0.4, x0 + size * 0.6, y0 + size * 0.6);
+                        multipolygon(outer, inner, "building", building);
+                    } else {
+                        Way way = rectangle(x0 + margin, y0 + margin, x0 + size - margin, y0 + size - margin, "building", building);
+                        if (seeded.nextBoolean()) {
+                            way.put("addr:street", "Street " + (j + 1));
+                            way.put("addr:housenumber", Integer.toString((i * lots + x) * lots + y + 1));
+                        }
+                    }
+                    if (seeded.nextInt(6) == 0) {
+                        String[] poi = POIS[seeded.nextInt(POIS.length)];
+                        Node node = node(x0 + size / 2, y0 + size / 2);
+                        node.put(poi[0], poi[1]);
+                        node.put("name", poi[1] + ' ' + (i + 1) + '-' + (j + 1));
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Generate a generator that creates some nodes and adds random keys and values to it.
      * @return The generator
@@ -274,4 +453,21 @@ public final class OsmDataGenerator {
     public static DataGenerator getNodes() {
         return new NodeDataGenerator("nodes", DEFAULT_NODE_COUNT);
     }
+
+    /**
+     * Create a generator that generates a city of 20 x 20 blocks.
+     * @return The generator
+     */
+    public static CityDataGenerator getCity() {
+        return getCity(DEFAULT_CITY_BLOCKS);
+    }
+
+    /**
+     * Create a generator that generates a city.
+     * @param blocks The number of blocks in each direction.
+     * @return The generator
+     */
+    public static CityDataGenerator getCity(int blocks) {
+        return new CityDataGenerator("city", blocks);
+    }
 }
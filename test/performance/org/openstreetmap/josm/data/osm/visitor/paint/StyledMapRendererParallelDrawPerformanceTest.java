@@ -0,0 +1,150 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.InputStream;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.visitor.paint.RenderBenchmarkCollector.CapturingBenchmark;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.spi.preferences.Config;
+
+/**
+ * Measures the draw phase of the {@link StyledMapRenderer}, directly and in parallel bands.
+ * <p>
+ * Besides the time of a whole render, the average time of the draw phase alone (after the styles are computed
+ * and sorted) is reported, since it is the only phase that the parallel draw changes.
+ */
+public class StyledMapRendererParallelDrawPerformanceTest {
+
+    private static final int IMG_WIDTH = 1400;
+    private static final int IMG_HEIGHT = 1050;
+    private static final Bounds CITY = new Bounds(53.55, 13.25, 53.57, 13.29);
+
+    private static BufferedImage img;
+    private static NavigatableComponent nc;
+    private static DataSet dsCity;
+
+    /**
+     * Loads the city data and the default style.
+     * @throws Exception if the data cannot be read
+     */
+    @BeforeClass
+    public static void load() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        img = new BufferedImage(IMG_WIDTH, IMG_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        nc = new NavigatableComponent() {
+            {
+                setBounds(0, 0, IMG_WIDTH, IMG_HEIGHT);
+                updateLocationState();
+            }
+
+            @Override
+            protected boolean isVisibleOnScreen() {
+                return true;
+            }
+
+            @Override
+            public Point getLocationOnScreen() {
+                return new Point(0, 0);
+            }
+        };
+        StyledMapRenderer.PREFERENCE_ANTIALIASING_USE.put(true);
+        StyledMapRenderer.PREFERENCE_TEXT_ANTIALIASING.put("gasp");
+        MapPaintStyles.readFromPreferences();
+        try (InputStream fisC = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            dsCity = OsmReader.parseDataSet(fisC, NullProgressMonitor.INSTANCE);
+        }
+        nc.zoomTo(CITY);
+        // warm up the caches and the compiler, so that the first test does not pay for it
+        for (int i = 0; i < 20; i++) {
+            render(new RenderBenchmarkCollector());
+        }
+    }
+
+    /**
+     * Resets the preferences.
+     */
+    @After
+    public void tearDown() {
+        StyledMapRenderer.PREFERENCE_PARALLEL_DRAW.remove();
+        Config.getPref().put("mappaint.parallel-draw.bands", null);
+    }
+
+    /**
+     * Captures the time from the end of the sorting to the end of the render.
+     */
+    private static class DrawTimeBenchmark extends CapturingBenchmark {
+        private long drawTime;
+        private int renders;
+
+        @Override
+        public void renderDone() {
+            super.renderDone();
+            drawTime += timeFinished - timeSortingDone;
+            renders++;
+        }
+    }
+
+    private static void test(String name) {
+        DrawTimeBenchmark benchmark = new DrawTimeBenchmark();
+        PerformanceTestUtils.runPerformanceTest(name, () -> render(benchmark));
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " draw phase", (double) benchmark.drawTime / benchmark.renders);
+    }
+
+    private static void render(RenderBenchmarkCollector benchmark) {
+        Graphics2D g = img.createGraphics();
+        try {
+            g.setClip(0, 0, IMG_WIDTH, IMG_HEIGHT);
+            g.setColor(Color.BLACK);
+            g.fillRect(0, 0, IMG_WIDTH, IMG_HEIGHT);
+            StyledMapRenderer renderer = new StyledMapRenderer(g, nc, false);
+            renderer.setBenchmarkFactory(() -> benchmark);
+            renderer.render(dsCity, false, CITY);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Draws the records directly.
+     */
+    @Test
+    public void testDirect() {
+        StyledMapRenderer.PREFERENCE_PARALLEL_DRAW.put(false);
+        test("StyledMapRenderer city direct");
+    }
+
+    /**
+     * Draws the records in one band per thread.
+     */
+    @Test
+    public void testBands() {
+        StyledMapRenderer.PREFERENCE_PARALLEL_DRAW.put(true);
+        test("StyledMapRenderer city parallel bands");
+    }
+
+    /**
+     * Draws the records in four bands, whatever the number of threads.
+     */
+    @Test
+    public void testFourBands() {
+        StyledMapRenderer.PREFERENCE_PARALLEL_DRAW.put(true);
+        Config.getPref().putInt("mappaint.parallel-draw.bands", 4);
+        test("StyledMapRenderer city 4 parallel bands");
+    }
+}
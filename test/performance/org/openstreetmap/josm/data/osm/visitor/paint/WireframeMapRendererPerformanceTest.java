@@ -1,8 +1,13 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm.visitor.paint;
 
+import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.Bounds;
 
 /**
  * Performance test of {@code WireframeMapRenderer}.
@@ -19,8 +24,33 @@ public class WireframeMapRendererPerformanceTest extends AbstractMapRendererPerf
         AbstractMapRendererPerformanceTestParent.clean();
     }
 
+    /**
+     * Reset the preferences.
+     */
+    @After
+    public void tearDown() {
+        WireframeMapRenderer.PROP_BATCH.remove();
+    }
+
     @Override
     protected Rendering buildRenderer() {
         return new WireframeMapRenderer(g, nc, false);
     }
+
+    /**
+     * Compares the rendering of the city with and without batching the segments and nodes by color.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCityBatch() throws Exception {
+        Bounds bounds = new Bounds(53.51, 13.20, 53.59, 13.34);
+        // warm up
+        test(5, dsCity, bounds);
+        for (boolean batch : new boolean[] {false, true}) {
+            WireframeMapRenderer.PROP_BATCH.put(batch);
+            PerformanceTestTimer timer = PerformanceTestUtils.startTimer("wireframe city " + (batch ? "batched" : "unbatched"));
+            test(50, dsCity, bounds);
+            timer.done();
+        }
+    }
 }
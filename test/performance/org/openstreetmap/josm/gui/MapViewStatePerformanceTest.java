@@ -0,0 +1,154 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.visitor.paint.OffsetIterator;
+import org.openstreetmap.josm.gui.MapViewState.MapViewPoint;
+import org.openstreetmap.josm.gui.MapViewState.MutableMapViewPoint;
+import org.openstreetmap.josm.gui.draw.MapViewPath;
+
+/**
+ * Measures the memory allocated by the coordinate transforms of {@link MapViewState} in the rendering hot paths.
+ * <p>
+ * Each test converts the nodes of many ways, like a render pass, with the methods creating a point for each node and
+ * with the methods returning primitives or reusing a {@link MutableMapViewPoint}.
+ */
+public class MapViewStatePerformanceTest {
+
+    private static final int WAYS = 2000;
+    private static final int NODES_PER_WAY = 50;
+    private static final int ITERATIONS = 20;
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static MapViewState state;
+    private static List<List<Node>> ways;
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createState() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        Assert.assertTrue(THREADS.isThreadAllocatedMemorySupported());
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        state = MapViewState.createDefaultState(1400, 1050);
+        Random random = new Random(42);
+        ways = new ArrayList<>(WAYS);
+        for (int i = 0; i < WAYS; i++) {
+            List<Node> nodes = new ArrayList<>(NODES_PER_WAY);
+            for (int j = 0; j < NODES_PER_WAY; j++) {
+                Node node = new Node(new LatLon(random.nextDouble() * 10, random.nextDouble() * 10));
+                // fill the east/north cache, like a dataset which has been rendered before
+                node.getEastNorth(state.getProjection());
+                node.getEastNorth(state.getProjecting());
+                nodes.add(node);
+            }
+            ways.add(nodes);
+        }
+    }
+
+    /**
+     * Runs the conversion of all ways several times, and outputs the time and the memory allocated per node.
+     * @param name The name of the measurement
+     * @param pass A render pass, returning a value computed from the points so that the conversion is not optimized away
+     * @return The memory allocated per node, in bytes
+     */
+    private static double measure(String name, ToDoubleFunction<List<Node>> pass) {
+        // warm up, so that the methods are compiled
+        for (int i = 0; i < ITERATIONS; i++) {
+            run(pass);
+        }
+        PerformanceTestUtils.PerformanceTestTimer timer = PerformanceTestUtils.startTimer(name);
+        long allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        double sum = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            sum += run(pass);
+        }
+        allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated;
+        timer.done();
+        Assert.assertFalse(Double.isNaN(sum));
+        double perNode = (double) allocated / ITERATIONS / WAYS / NODES_PER_WAY;
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " allocated per node (bytes)", perNode);
+        return perNode;
+    }
+
+    private static double run(ToDoubleFunction<List<Node>> pass) {
+        double sum = 0;
+        for (List<Node> nodes : ways) {
+            sum += pass.applyAsDouble(nodes);
+        }
+        return sum;
+    }
+
+    /**
+     * Test the conversion of nodes to view coordinates.
+     */
+    @Test
+    public void testTransform() {
+        measure("MapViewPoint", nodes -> {
+            double sum = 0;
+            for (Node node : nodes) {
+                MapViewPoint p = state.getPointFor(node);
+                sum += p.getInViewX() + p.getInViewY();
+            }
+            return sum;
+        });
+        double perNode = measure("getInViewX/Y", nodes -> {
+            double sum = 0;
+            for (Node node : nodes) {
+                sum += state.getInViewX(node.getEast(state.getProjecting())) + state.getInViewY(node.getNorth(state.getProjecting()));
+            }
+            return sum;
+        });
+        measure("MutableMapViewPoint", nodes -> {
+            double sum = 0;
+            MutableMapViewPoint p = state.createMutablePoint();
+            for (Node node : nodes) {
+                p.setLatLon(node);
+                sum += p.getInViewX() + p.getInViewY();
+            }
+            return sum;
+        });
+        Assert.assertTrue("allocated per node: " + perNode, perNode < 1);
+    }
+
+    /**
+     * Test the creation of the path of a way, like {@code StyledMapRenderer.drawWay}.
+     */
+    @Test
+    public void testWayPath() {
+        measure("OffsetIterator.next()", nodes -> {
+            MapViewPath path = new MapViewPath(state);
+            OffsetIterator it = new OffsetIterator(state, nodes, 3);
+            path.moveTo(it.next());
+            while (it.hasNext()) {
+                path.lineTo(it.next());
+            }
+            return path.getCurrentPoint().getX();
+        });
+        measure("OffsetIterator.next(MutableMapViewPoint)", nodes -> {
+            MapViewPath path = new MapViewPath(state);
+            OffsetIterator it = new OffsetIterator(state, nodes, 3);
+            MutableMapViewPoint p = state.createMutablePoint();
+            path.moveTo(it.next(p));
+            while (it.hasNext()) {
+                path.lineTo(it.next(p));
+            }
+            return path.getCurrentPoint().getX();
+        });
+        measure("MapViewPath.append", nodes -> new MapViewPath(state).append(nodes, false).getCurrentPoint().getX());
+    }
+}
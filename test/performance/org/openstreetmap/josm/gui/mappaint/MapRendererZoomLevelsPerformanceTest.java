@@ -0,0 +1,252 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmDataGenerator;
+import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer;
+import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer.StyleRecord;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.mappaint.MapRendererPerformanceTest.BenchmarkData;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Performance test of the phases of the map renderer with the default style, for each zoom level of a city.
+ * <p>
+ * The styles are computed, sorted and drawn for a generated city and for the Neubrandenburg extract, the styles being
+ * cleared before each render. The median time and the memory allocated by all threads are reported for each phase.
+ */
+public class MapRendererZoomLevelsPerformanceTest {
+
+    private static final boolean DUMP_IMAGE = false; // dump images to file for debugging purpose
+
+    private static final int IMG_WIDTH = 1400;
+    private static final int IMG_HEIGHT = 1050;
+    private static final int MIN_ZOOM = 13;
+    private static final int MAX_ZOOM = 19;
+    private static final int NO_WARMUP = 2;
+    private static final int NO_ITERATIONS = 5;
+    private static final LatLon LL_CITY = new LatLon(53.5574458, 13.2602781);
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static Graphics2D g;
+    private static BufferedImage img;
+    private static NavigatableComponent nc;
+    private static DataSet dsGenerated;
+    private static LatLon llGenerated;
+    private static DataSet dsCity;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Initializes test environment.
+     * @throws Exception if any error occurs
+     */
+    @BeforeClass
+    public static void load() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        Assert.assertTrue(THREADS.isThreadAllocatedMemorySupported());
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        img = new BufferedImage(IMG_WIDTH, IMG_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        g = (Graphics2D) img.getGraphics();
+        g.setClip(0, 0, IMG_WIDTH, IMG_HEIGHT);
+        nc = new NavigatableComponent() {
+            {
+                setBounds(0, 0, IMG_WIDTH, IMG_HEIGHT);
+                updateLocationState();
+            }
+
+            @Override
+            protected boolean isVisibleOnScreen() {
+                return true;
+            }
+
+            @Override
+            public Point getLocationOnScreen() {
+                return new Point(0, 0);
+            }
+        };
+
+        MapPaintStyles.readFromPreferences();
+
+        OsmDataGenerator.CityDataGenerator generator = OsmDataGenerator.getCity();
+        dsGenerated = generator.generateDataSet();
+        llGenerated = generator.getBounds().getCenter();
+        try (
+            InputStream fisC = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"));
+        ) {
+            dsCity = OsmReader.parseDataSet(fisC, NullProgressMonitor.INSTANCE);
+        }
+    }
+
+    /**
+     * Captures the memory allocated by all threads at the start of each phase, in addition to the times.
+     */
+    private static class AllocationBenchmarkData extends BenchmarkData {
+        private long allocatedStart;
+        private long allocatedGenerateDone;
+        private long allocatedSortingDone;
+        private long allocatedFinished;
+        private int styleRecords;
+
+        @Override
+        public void renderStart(double circum) {
+            allocatedStart = getAllocatedBytes();
+            super.renderStart(circum);
+        }
+
+        @Override
+        public boolean renderSort() {
+            allocatedGenerateDone = getAllocatedBytes();
+            return super.renderSort();
+        }
+
+        @Override
+        public boolean renderDraw(List<StyleRecord> allStyleElems) {
+            allocatedSortingDone = getAllocatedBytes();
+            styleRecords = allStyleElems.size();
+            return super.renderDraw(allStyleElems);
+        }
+
+        @Override
+        public void renderDone() {
+            super.renderDone();
+            allocatedFinished = getAllocatedBytes();
+        }
+
+        /**
+         * The draw time includes the sorting, the allocated memory does not.
+         */
+        long[] getAllocated() {
+            return new long[] {allocatedGenerateDone - allocatedStart, allocatedSortingDone - allocatedGenerateDone,
+                    allocatedFinished - allocatedSortingDone};
+        }
+
+        /**
+         * Gets the memory allocated by the live threads, including the workers computing the styles.
+         */
+        private static long getAllocatedBytes() {
+            long allocated = 0;
+            for (long bytes : THREADS.getThreadAllocatedBytes(THREADS.getAllThreadIds())) {
+                if (bytes > 0) {
+                    allocated += bytes;
+                }
+            }
+            return allocated;
+        }
+    }
+
+    @SuppressFBWarnings(value = "DM_GC")
+    private static void test(String label, DataSet ds, LatLon center, int zoom) throws IOException {
+        // the middle of the range of scales of the zoom level
+        EastNorth en = Main.getProjection().latlon2eastNorth(center);
+        nc.zoomTo(en, 1);
+        nc.zoomTo(en, 0.75 * Selector.GeneralSelector.level2scale(zoom) / nc.getDist100Pixel());
+        Assert.assertEquals(zoom, Selector.GeneralSelector.scale2level(nc.getDist100Pixel()));
+
+        StyledMapRenderer renderer = new StyledMapRenderer(g, nc, false);
+        List<AllocationBenchmarkData> runs = new ArrayList<>();
+        for (int i = 1; i <= NO_WARMUP + NO_ITERATIONS; i++) {
+            g.setColor(Color.BLACK);
+            g.fillRect(0, 0, IMG_WIDTH, IMG_HEIGHT);
+            MapPaintStyles.getStyles().clearCached();
+            ds.clearMappaintCache();
+            System.gc();
+            System.runFinalization();
+            AllocationBenchmarkData data = new AllocationBenchmarkData();
+            renderer.setBenchmarkFactory(() -> data);
+            renderer.render(ds, false, nc.getRealBounds());
+            if (i > NO_WARMUP) {
+                runs.add(data);
+            }
+        }
+        Assert.assertTrue(runs.get(0).styleRecords > 0);
+        if (DUMP_IMAGE) {
+            ImageIO.write(img, "png", new File("test-" + label + "-z" + zoom + ".png"));
+        }
+
+        String prefix = label + " z" + zoom + ' ';
+        List<Long> times = new ArrayList<>();
+        List<Long> rates = new ArrayList<>();
+        for (AllocationBenchmarkData data : runs) {
+            long time = data.getGenerateTime() + data.getDrawTime();
+            long allocated = data.getAllocated()[0] + data.getAllocated()[1] + data.getAllocated()[2];
+            times.add(time);
+            rates.add(allocated / 1000 / Math.max(1, time));
+        }
+        output(prefix + "generate (ms)", runs.stream().map(BenchmarkData::getGenerateTime));
+        output(prefix + "sort (ms)", runs.stream().map(BenchmarkData::getSortTime));
+        output(prefix + "draw (ms)", runs.stream().map(BenchmarkData::getDrawTime));
+        output(prefix + "total (ms)", times.stream());
+        output(prefix + "generate allocated (kB)", runs.stream().map(d -> d.getAllocated()[0] / 1000));
+        output(prefix + "sort allocated (kB)", runs.stream().map(d -> d.getAllocated()[1] / 1000));
+        output(prefix + "draw allocated (kB)", runs.stream().map(d -> d.getAllocated()[2] / 1000));
+        output(prefix + "allocation rate (MB/s)", rates.stream());
+    }
+
+    private static void output(String label, Stream<Long> values) {
+        List<Long> sorted = new ArrayList<>();
+        values.forEach(sorted::add);
+        Collections.sort(sorted);
+        // Take median instead of average, like MapRendererPerformanceTest
+        PerformanceTestUtils.measurementPlotsPluginOutput(label, sorted.get(sorted.size() / 2));
+    }
+
+    /**
+     * Test the phases of the render of a generated city, with dense buildings, multipolygons and labels.
+     * @throws IOException in case of an I/O error
+     */
+    @Test
+    public void testGenerated() throws IOException {
+        for (int zoom = MIN_ZOOM; zoom <= MAX_ZOOM; zoom++) {
+            test("generated", dsGenerated, llGenerated, zoom);
+        }
+    }
+
+    /**
+     * Test the phases of the render of the Neubrandenburg extract.
+     * @throws IOException in case of an I/O error
+     */
+    @Test
+    public void testCity() throws IOException {
+        for (int zoom = MIN_ZOOM; zoom <= MAX_ZOOM; zoom++) {
+            test("city", dsCity, LL_CITY, zoom);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.tagging.presets;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.io.CachedFile;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.xml.sax.SAXException;
+
+/**
+ * Measures the time needed to read the default presets, with and without the {@link TaggingPresetCache binary cache}.
+ * <p>
+ * The binary cache only saves the XML parsing: the digest of the source is computed, and the presets are built through
+ * the same setters, in both cases. The digest alone is measured as well.
+ */
+public class TaggingPresetReaderPerformanceTest {
+
+    private static final String SOURCE = "resource://data/defaultpresets.xml";
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    /**
+     * Restores the cache preference.
+     */
+    @After
+    public void tearDown() {
+        TaggingPresetCache.PROP_ENABLED.remove();
+    }
+
+    private static void readPresets() {
+        try {
+            Collection<TaggingPreset> presets = TaggingPresetReader.readAll(SOURCE, false);
+            assertFalse(presets.isEmpty());
+        } catch (SAXException | IOException e) {
+            throw new JosmRuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the default presets from XML.
+     */
+    @Test
+    public void testReadWithoutCache() {
+        TaggingPresetCache.PROP_ENABLED.put(false);
+        PerformanceTestUtils.runPerformanceTest("TaggingPresetReader without cache", TaggingPresetReaderPerformanceTest::readPresets);
+    }
+
+    /**
+     * Reads the default presets from the binary cache.
+     */
+    @Test
+    public void testReadWithCache() {
+        TaggingPresetCache.PROP_ENABLED.put(true);
+        readPresets();
+        assertTrue(TaggingPresetCache.getCacheFile(SOURCE).isFile());
+        PerformanceTestUtils.runPerformanceTest("TaggingPresetReader with cache", TaggingPresetReaderPerformanceTest::readPresets);
+    }
+
+    /**
+     * Computes the digest of the default presets, which is needed to validate the binary cache.
+     */
+    @Test
+    public void testDigest() {
+        PerformanceTestUtils.runPerformanceTest("TaggingPresetCache digest", () -> {
+            try (CachedFile cf = new CachedFile(SOURCE)) {
+                assertFalse(TaggingPresetCache.getDigest(cf, false).isEmpty());
+            } catch (IOException e) {
+                throw new JosmRuntimeException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,97 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.osm.DataSet;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * This test tests how fast we are at writing an OSM file.
+ * <p>
+ * For this, we use the neubrandenburg-file, which is a good real world example of an OSM file. We ignore disk access times.
+ */
+public class OsmWriterPerformanceTest {
+    private static final int TIMES = 4;
+    private static final String DATA_FILE = "data_nodist/neubrandenburg.osm.bz2";
+
+    private static DataSet data;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Prepare the test.
+     * @throws Exception if the data cannot be read
+     */
+    @BeforeClass
+    public static void createJOSMFixture() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        try (InputStream is = Compression.getUncompressedFileInputStream(new File(DATA_FILE))) {
+            data = OsmReader.parseDataSet(is, null);
+        }
+    }
+
+    /**
+     * Reset the preferences.
+     */
+    @After
+    public void tearDown() {
+        OsmWriter.PROP_PARALLEL_THRESHOLD.remove();
+    }
+
+    /**
+     * Writes the primitives sequentially.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testSequential() throws IOException {
+        OsmWriter.PROP_PARALLEL_THRESHOLD.put(Integer.MAX_VALUE);
+        runTest("sequential");
+    }
+
+    /**
+     * Writes the primitives concurrently.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testParallel() throws IOException {
+        OsmWriter.PROP_PARALLEL_THRESHOLD.put(0);
+        runTest("parallel");
+    }
+
+    private void runTest(String what) throws IOException {
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("write .osm-file " + TIMES + " times (" + what + ")");
+        int length = 0;
+        for (int i = 0; i < TIMES; i++) {
+            StringWriter sw = new StringWriter();
+            try (OsmWriter writer = OsmWriterFactory.createOsmWriter(new PrintWriter(sw), false, data.getVersion())) {
+                writer.header();
+                writer.writeContent(data);
+                writer.footer();
+            }
+            length = sw.getBuffer().length();
+        }
+        timer.done();
+        assertTrue(length > 0);
+    }
+}
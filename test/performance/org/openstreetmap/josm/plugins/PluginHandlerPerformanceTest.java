@@ -0,0 +1,98 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins;
+
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Measures the time needed by {@link PluginHandler} to open the jar files and to load the main classes of 30 plugins,
+ * sequentially and concurrently. Each plugin bundles a library of about 2000 entries, as many plugins do.
+ */
+public class PluginHandlerPerformanceTest {
+
+    private static final int PLUGINS = 30;
+
+    /**
+     * Folder of the plugin jar files.
+     */
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static final List<PluginInformation> plugins = new ArrayList<>();
+
+    /**
+     * Prepare the test.
+     * @throws Exception if the plugins cannot be created
+     */
+    @BeforeClass
+    public static void setUp() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        File plugin = new File(TestUtils.getTestDataRoot(), "plugin/dummy_plugin.jar");
+        File library = new File("test/lib/reflections/guava-21.0.jar");
+        for (int i = 0; i < PLUGINS; i++) {
+            File pluginCopy = folder.newFile("plugin" + i + ".jar");
+            File libraryCopy = folder.newFile("library" + i + ".jar");
+            Files.copy(plugin.toPath(), pluginCopy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.copy(library.toPath(), libraryCopy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            PluginInformation info = new PluginInformation(pluginCopy, "plugin" + i);
+            info.libraries.add(Utils.fileToURL(libraryCopy));
+            plugins.add(info);
+        }
+    }
+
+    private static void loadPlugins(int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Map<PluginInformation, PluginClassLoader> classLoaders = PluginHandler.createClassLoaders(plugins, executor);
+            Map<PluginInformation, Future<Class<?>>> classes = PluginHandler.loadPluginClasses(plugins, classLoaders, executor);
+            for (Future<Class<?>> future : classes.values()) {
+                assertNotNull(future.get());
+            }
+            for (PluginClassLoader cl : classLoaders.values()) {
+                cl.close();
+            }
+        } catch (InterruptedException | ExecutionException | IOException e) {
+            throw new JosmRuntimeException(e);
+        } finally {
+            executor.shutdown();
+            PluginHandler.pluginLoadingTimes.clear();
+        }
+    }
+
+    /**
+     * Loads the plugins on one thread.
+     */
+    @Test
+    public void testSequential() {
+        PerformanceTestUtils.runPerformanceTest("PluginHandler sequential loading", () -> loadPlugins(1));
+    }
+
+    /**
+     * Loads the plugins on 4 threads.
+     */
+    @Test
+    public void testConcurrent() {
+        PerformanceTestUtils.runPerformanceTest("PluginHandler concurrent loading", () -> loadPlugins(4));
+    }
+}
@@ -0,0 +1,187 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.conflict;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ConflictCollection} class.
+ */
+public class ConflictCollectionTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    private static final class CountingListener implements IConflictListener {
+        private int added;
+        private int removed;
+
+        @Override
+        public void onConflictsAdded(ConflictCollection conflicts) {
+            added++;
+        }
+
+        @Override
+        public void onConflictsRemoved(ConflictCollection conflicts) {
+            removed++;
+        }
+    }
+
+    /**
+     * Unit test of the lookups by "my" and "their" primitives.
+     */
+    @Test
+    public void testLookups() {
+        ConflictCollection conflicts = new ConflictCollection();
+        Node my1 = new Node(1);
+        Node my2 = new Node(2);
+        Node my3 = new Node(3);
+        Node their1 = new Node(1);
+        Node their2 = new Node(2);
+        Conflict<Node> c1 = new Conflict<>(my1, their1);
+        Conflict<Node> c2 = new Conflict<>(my2, their2);
+        // a second conflict with the same "their" primitive
+        Conflict<Node> c3 = new Conflict<>(my3, their2);
+        conflicts.add(c1);
+        conflicts.add(c2);
+        conflicts.add(c3);
+
+        assertEquals(3, conflicts.size());
+        assertSame(c1, conflicts.getConflictForMy(my1));
+        assertSame(c3, conflicts.getConflictForMy(my3));
+        assertNull(conflicts.getConflictForMy(their1));
+        assertSame(c2, conflicts.getConflictForTheir(their2));
+        assertFalse(conflicts.hasConflictForTheir(my1));
+
+        conflicts.remove(c2);
+        assertFalse(conflicts.hasConflictForMy(my2));
+        assertSame(c3, conflicts.getConflictForTheir(their2));
+
+        Iterator<Conflict<?>> it = conflicts.iterator();
+        assertSame(c1, it.next());
+        it.remove();
+        assertFalse(conflicts.hasConflictForMy(my1));
+        assertFalse(conflicts.hasConflictForTheir(their1));
+
+        conflicts.add(c1);
+        conflicts.add(c2);
+        conflicts.removeForTheir(their2);
+        assertEquals(1, conflicts.size());
+        assertSame(c1, conflicts.get(0));
+        conflicts.remove(my1);
+        assertTrue(conflicts.isEmpty());
+        assertNull(conflicts.getConflictForTheir(their1));
+    }
+
+    /**
+     * Unit test of the removal of conflicts sharing the same "their" primitive.
+     */
+    @Test
+    public void testRemoveDuplicateTheir() {
+        ConflictCollection conflicts = new ConflictCollection();
+        Node their = new Node(1);
+        List<Conflict<Node>> list = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            Conflict<Node> c = new Conflict<>(new Node(i), their);
+            list.add(c);
+            conflicts.add(c);
+        }
+        Node otherTheir = new Node(6);
+        Conflict<Node> other = new Conflict<>(new Node(6), otherTheir);
+        conflicts.add(other);
+
+        // removing a later conflict keeps the first one
+        conflicts.remove(list.get(2));
+        assertSame(list.get(0), conflicts.getConflictForTheir(their));
+        // removing the first conflict makes the earliest remaining one the first
+        conflicts.remove(list.get(0));
+        assertSame(list.get(1), conflicts.getConflictForTheir(their));
+        assertEquals(4, conflicts.size());
+        assertEquals(Arrays.asList(list.get(1), list.get(3), list.get(4), other), conflicts.get());
+        assertSame(list.get(3), conflicts.get(1));
+
+        Iterator<Conflict<?>> it = conflicts.iterator();
+        assertSame(list.get(1), it.next());
+        it.remove();
+        assertSame(list.get(3), conflicts.getConflictForTheir(their));
+        assertSame(list.get(3), it.next());
+        assertSame(list.get(4), it.next());
+        assertSame(other, it.next());
+        assertFalse(it.hasNext());
+
+        conflicts.removeForTheir(their);
+        assertFalse(conflicts.hasConflictForTheir(their));
+        assertEquals(1, conflicts.size());
+        assertSame(other, conflicts.get(0));
+        assertSame(other, conflicts.getConflictForTheir(otherTheir));
+
+        // a removed conflict can be added again
+        conflicts.add(list.get(0));
+        assertEquals(Arrays.asList(other, list.get(0)), conflicts.get());
+        assertSame(list.get(0), conflicts.getConflictForMy(list.get(0).getMy()));
+    }
+
+    /**
+     * Adding an already registered conflict fails.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testAddTwice() {
+        ConflictCollection conflicts = new ConflictCollection();
+        Node my = new Node(1);
+        conflicts.add(my, new Node(1));
+        conflicts.add(my, new Node(1));
+    }
+
+    /**
+     * Unit test of {@link ConflictCollection#beginUpdate} and {@link ConflictCollection#endUpdate}.
+     */
+    @Test
+    public void testBatchedNotifications() {
+        ConflictCollection conflicts = new ConflictCollection();
+        CountingListener listener = new CountingListener();
+        conflicts.addConflictListener(listener);
+
+        ConflictCollection other = new ConflictCollection();
+        for (int i = 1; i <= 10; i++) {
+            other.add(new Node(i), new Node(i));
+        }
+        conflicts.add(other);
+        assertEquals(10, conflicts.size());
+        assertEquals(1, listener.added);
+
+        conflicts.beginUpdate();
+        conflicts.beginUpdate();
+        for (Conflict<?> c : other) {
+            conflicts.remove(c);
+        }
+        conflicts.endUpdate();
+        assertEquals(0, listener.removed);
+        conflicts.endUpdate();
+        assertEquals(1, listener.removed);
+        assertTrue(conflicts.isEmpty());
+
+        conflicts.add(other.get(0));
+        assertEquals(2, listener.added);
+        conflicts.clear();
+        assertEquals(2, listener.removed);
+    }
+}
@@ -0,0 +1,201 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.date.DateUtils;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import nl.jqno.equalsverifier.EqualsVerifier;
+import nl.jqno.equalsverifier.Warning;
+
+/**
+ * Unit tests for class {@link WayPointColumns}.
+ */
+public class WayPointColumnsTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().projection();
+
+    private static WayPoint newWayPoint(double lat, double lon, String time, String ele) {
+        WayPoint wpt = new WayPoint(new LatLon(lat, lon));
+        if (time != null) {
+            wpt.put(GpxConstants.PT_TIME, time);
+            wpt.setTime();
+        }
+        if (ele != null) {
+            wpt.put(GpxConstants.PT_ELE, ele);
+        }
+        return wpt;
+    }
+
+    /**
+     * Checks that waypoints created from columns are equal to the original ones, whatever the format of their attributes.
+     */
+    @Test
+    public void testWayPoints() {
+        List<WayPoint> wayPoints = new ArrayList<>();
+        wayPoints.add(newWayPoint(48.1, 11.5, "2016-01-03T11:59:58Z", "520"));
+        wayPoints.add(newWayPoint(48.2, 11.6, "2016-01-03T11:59:59.000Z", "520.40"));
+        wayPoints.add(newWayPoint(48.3, 11.7, "2016-01-03T12:00:00.12Z", "-5.5"));
+        wayPoints.add(newWayPoint(48.4, 11.8, "2016-01-03T13:00:01+01:00", "1e3"));
+        wayPoints.add(newWayPoint(48.5, 11.9, "2016-01-03 12:00:02 UTC", "007"));
+        wayPoints.add(newWayPoint(48.6, 12.0, null, "0.000001"));
+        wayPoints.add(newWayPoint(48.7, 12.1, "not a date", null));
+        wayPoints.add(newWayPoint(Double.NaN, Double.NaN, null, null));
+        WayPoint wpt = newWayPoint(48.8, 12.2, null, "-0.0");
+        wpt.setTime(DateUtils.fromString("2016-01-03T12:00:03.456Z"));
+        wpt.put("speed", Double.toString(10 / 3.6));
+        wpt.put(GpxConstants.PT_HDOP, 1.5f);
+        wpt.put(GpxConstants.PT_VDOP, 2.5f);
+        wpt.put(GpxConstants.GPX_NAME, "name");
+        wpt.addExtension("key", "value");
+        wayPoints.add(wpt);
+
+        WayPointColumns columns = new WayPointColumns(wayPoints);
+        assertEquals(wayPoints.size(), columns.size());
+        assertEquals(wayPoints, columns.asList());
+        for (int i = 0; i < wayPoints.size(); i++) {
+            WayPoint expected = wayPoints.get(i);
+            WayPoint actual = columns.getWayPoint(i);
+            assertEquals(expected.attr, actual.attr);
+            assertEquals(expected.time, actual.time, 0);
+            assertEquals(expected.isLatLonKnown(), columns.isLatLonKnown(i));
+            assertEquals(!expected.attr.isEmpty(), columns.hasAttributes(i));
+            for (String key : expected.attr.keySet()) {
+                assertEquals(expected.get(key), columns.get(i, key));
+            }
+        }
+        assertEquals(520, columns.getElevation(0), 0);
+        assertEquals(1000, columns.getElevation(3), 0);
+        assertTrue(Double.isNaN(columns.getElevation(6)));
+        assertEquals(10 / 3.6, columns.getSpeed(8), 1e-12);
+        assertTrue(Double.isNaN(columns.getSpeed(0)));
+        assertEquals(1.5f, columns.getHdop(8), 0);
+        assertTrue(Float.isNaN(columns.getHdop(0)));
+        assertEquals(new ImmutableGpxTrackSegment(wayPoints), new ImmutableGpxTrackSegment(columns));
+    }
+
+    /**
+     * Unit test of the drawing state.
+     */
+    @Test
+    public void testDrawingState() {
+        WayPoint wpt = newWayPoint(48.1, 11.5, null, null);
+        wpt.customColoring = Color.RED;
+        wpt.drawLine = true;
+        wpt.dir = 5;
+        WayPointColumns columns = new WayPointColumns(Arrays.asList(wpt, newWayPoint(48.2, 11.6, null, null)));
+        assertSame(Color.RED, columns.getCustomColoring(0));
+        assertTrue(columns.isDrawLine(0));
+        assertEquals(5, columns.getDir(0));
+        assertNull(columns.getCustomColoring(1));
+        assertFalse(columns.isDrawLine(1));
+
+        columns.setDrawLine(0, false);
+        assertFalse(columns.isDrawLine(0));
+        assertEquals(5, columns.getDir(0));
+        columns.setDir(1, 7);
+        columns.setDrawLine(1, true);
+        columns.setCustomColoring(1, Color.BLUE);
+        WayPoint view = columns.getWayPoint(1);
+        assertTrue(view.drawLine);
+        assertEquals(7, view.dir);
+        assertSame(Color.BLUE, view.customColoring);
+
+        // views are copies
+        view.drawLine = false;
+        assertTrue(columns.isDrawLine(1));
+    }
+
+    /**
+     * Unit test of {@link WayPointColumns#of} and of the waypoints returned by {@link ImmutableGpxTrackSegment#getWayPoints()}.
+     */
+    @Test
+    public void testOf() {
+        List<WayPoint> wayPoints = Arrays.asList(newWayPoint(48.1, 11.5, null, null), newWayPoint(48.2, 11.6, null, null));
+        ImmutableGpxTrackSegment segment = new ImmutableGpxTrackSegment(wayPoints);
+        assertSame(segment.getColumns(), WayPointColumns.of(segment));
+
+        // waypoints are created on demand: equal, but not identical
+        List<WayPoint> view = new ArrayList<>(segment.getWayPoints());
+        assertEquals(wayPoints, view);
+        assertEquals(view.get(0), segment.getWayPoints().iterator().next());
+        assertNotSame(view.get(0), segment.getWayPoints().iterator().next());
+        assertEquals(1, new ArrayList<>(segment.getWayPoints()).indexOf(wayPoints.get(1)));
+
+        GpxTrackSegment other = new GpxTrackSegment() {
+            @Override
+            public Bounds getBounds() {
+                return null;
+            }
+
+            @Override
+            public Collection<WayPoint> getWayPoints() {
+                return wayPoints;
+            }
+
+            @Override
+            public double length() {
+                return 0;
+            }
+
+            @Override
+            public int getUpdateCount() {
+                return 0;
+            }
+        };
+        assertEquals(segment.getColumns(), WayPointColumns.of(other));
+    }
+
+    /**
+     * Unit test of {@link WayPointColumns#getEastNorth}.
+     */
+    @Test
+    public void testEastNorth() {
+        WayPointColumns columns = new WayPointColumns(Arrays.asList(
+                newWayPoint(48.1, 11.5, null, null), newWayPoint(Double.NaN, Double.NaN, null, null)));
+        EastNorth en = columns.getEastNorth(0, Main.getProjection());
+        assertEquals(Main.getProjection().latlon2eastNorth(new LatLon(48.1, 11.5)), en);
+        assertNotSame(en, columns.getEastNorth(0, Main.getProjection()));
+        assertEquals(en, columns.getEastNorth(0, Main.getProjection()));
+        columns.invalidateEastNorthCache();
+        assertEquals(en, columns.getEastNorth(0, Main.getProjection()));
+        assertNull(columns.getEastNorth(1, Main.getProjection()));
+    }
+
+    /**
+     * Unit test of methods {@link WayPointColumns#equals} and {@link WayPointColumns#hashCode}.
+     */
+    @Test
+    public void testEqualsContract() {
+        TestUtils.assumeWorkingEqualsVerifier();
+        EqualsVerifier.forClass(WayPointColumns.class).usingGetClass()
+            .withIgnoredFields("customColoring", "lineState", "projected")
+            .suppress(Warning.STRICT_HASHCODE)
+            .verify();
+    }
+}
@@ -13,6 +13,7 @@ import java.io.StringWriter;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.stream.Collectors;
 
 import org.junit.After;
 import org.junit.Before;
@@ -1053,4 +1054,80 @@ public class DataSetMergerTest {
         assertEquals(new LatLon(1, 1), n.getCoor());
         assertTrue(n.isModified());
     }
+
+    private static DataSet createDataSet(int size, int version, boolean modify) {
+        DataSet ds = new DataSet();
+        ds.setVersion("0.6");
+        for (int i = 1; i <= size; i++) {
+            Node n = new Node(new LatLon(i * 1e-4, 0));
+            n.setOsmId(i, version);
+            if (modify && i % 7 == 0) {
+                n.setCoor(new LatLon(i * 1e-4, 1e-4));
+                n.setModified(true);
+            }
+            if (i % 11 == 0) {
+                n.setDeleted(!modify);
+            }
+            ds.addPrimitive(n);
+            // new nodes, the same in both datasets except for the modified ones
+            Node newNode = new Node(new LatLon(i * 1e-4, modify && i % 5 == 0 ? 2e-4 : 3e-4));
+            ds.addPrimitive(newNode);
+        }
+        for (int i = 1; i < size; i += 2) {
+            if (!modify && (i % 11 == 0 || (i + 1) % 11 == 0)) {
+                continue;
+            }
+            Way w = new Way(i, version);
+            w.setNodes(Arrays.asList((Node) ds.getPrimitiveById(i, OsmPrimitiveType.NODE),
+                    (Node) ds.getPrimitiveById(i + 1, OsmPrimitiveType.NODE)));
+            w.put("highway", modify && i % 9 == 0 ? "primary" : "residential");
+            w.setModified(modify && i % 9 == 0);
+            ds.addPrimitive(w);
+        }
+        return ds;
+    }
+
+    private static String describe(DataSet ds) {
+        // the new primitives are created with other ids by each merge, so they are identified by their content
+        return ds.allPrimitives().stream().map(p -> {
+            StringBuilder sb = new StringBuilder();
+            sb.append(p.getType()).append(p.isNew() ? 0 : p.getId()).append(' ').append(p.getVersion())
+              .append(p.isModified()).append(p.isDeleted()).append(p.getKeys());
+            if (p instanceof Node) {
+                sb.append(((Node) p).getCoor());
+            } else if (p instanceof Way) {
+                ((Way) p).getNodes().forEach(n -> sb.append(',').append(n.isNew() ? n.getCoor() : n.getId()));
+            }
+            return sb.toString();
+        }).sorted().collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Checks that the parallel lookup of the merge targets gives the same result as the sequential one.
+     */
+    @Test
+    public void testParallelMerge() {
+        DataSet source = createDataSet(500, 2, false);
+        DataSet target1 = createDataSet(400, 1, true);
+        DataSet target2 = new DataSet(target1);
+
+        DataSetMerger serial = new DataSetMerger(target1, new DataSet(source));
+        serial.merge();
+        DataSetMerger.PROP_PARALLEL_THRESHOLD.put(0);
+        try {
+            DataSetMerger parallel = new DataSetMerger(target2, new DataSet(source));
+            parallel.merge();
+            assertFalse(serial.getConflicts().isEmpty());
+            assertEquals(serial.getConflicts().size(), parallel.getConflicts().size());
+            for (int i = 0; i < serial.getConflicts().size(); i++) {
+                assertEquals(serial.getConflicts().get(i).getMy().getPrimitiveId(),
+                        parallel.getConflicts().get(i).getMy().getPrimitiveId());
+            }
+            assertEquals(describe(target1), describe(target2));
+        } finally {
+            DataSetMerger.PROP_PARALLEL_THRESHOLD.remove();
+        }
+        runConsistencyTests(target1);
+        runConsistencyTests(target2);
+    }
 }
@@ -0,0 +1,205 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.MapViewState;
+import org.openstreetmap.josm.gui.draw.MapViewPath;
+import org.openstreetmap.josm.gui.draw.MapViewPositionAndRotation;
+import org.openstreetmap.josm.gui.layer.MainLayerManager;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.mappaint.styleelement.placement.CompletelyInsideAreaStrategy;
+import org.openstreetmap.josm.gui.mappaint.styleelement.placement.PositionForAreaStrategy;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Logging;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link LabelPositionCache} class.
+ */
+public class LabelPositionCacheTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    /**
+     * A strategy counting the searches.
+     */
+    private static final class CountingStrategy extends CompletelyInsideAreaStrategy {
+        private int searches;
+
+        CountingStrategy() {
+            super(0, 0);
+        }
+
+        @Override
+        public MapViewPositionAndRotation findLabelPlacement(MapViewPath path, Rectangle2D nb) {
+            searches++;
+            return super.findLabelPlacement(path, nb);
+        }
+    }
+
+    private static MapViewPath getPath(MapViewState state, Way w) {
+        MapViewPath path = new MapViewPath(state);
+        path.append(w.getNodes(), false);
+        return path;
+    }
+
+    private static Way createSquare(DataSet ds, double size) {
+        Node n1 = new Node(new EastNorth(0, 0));
+        Node n2 = new Node(new EastNorth(size, 0));
+        Node n3 = new Node(new EastNorth(size, size));
+        Node n4 = new Node(new EastNorth(0, size));
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2, n3, n4, n1));
+        for (Node n : Arrays.asList(n1, n2, n3, n4)) {
+            ds.addPrimitive(n);
+        }
+        ds.addPrimitive(w);
+        return w;
+    }
+
+    /**
+     * Unit test of {@link LabelPositionCache#findLabelPlacement}.
+     */
+    @Test
+    public void testFindLabelPlacement() {
+        DataSet ds = new DataSet();
+        Way w = createSquare(ds, 100);
+        Node n3 = w.getNode(2);
+
+        LabelPositionCache cache = LabelPositionCache.getInstance();
+        CountingStrategy strategy = new CountingStrategy();
+        Rectangle2D nb = new Rectangle2D.Double(0, -10, 20, 10);
+        MapViewState state = MapViewState.createDefaultState(400, 400).usingScale(1).usingCenter(new EastNorth(50, 50));
+
+        // not registered: not cached
+        cache.findLabelPlacement(w, 0, getPath(state, w), strategy, nb);
+        cache.findLabelPlacement(w, 0, getPath(state, w), strategy, nb);
+        assertEquals(2, strategy.searches);
+
+        cache.register(ds);
+        try {
+            MapViewPositionAndRotation p1 = cache.findLabelPlacement(w, 0, getPath(state, w), strategy, nb);
+            assertEquals(3, strategy.searches);
+            assertEquals(50, p1.getPoint().getEastNorth().east(), 1);
+
+            // moving the view reuses the position
+            MapViewState moved = state.usingCenter(new EastNorth(80, 20));
+            MapViewPositionAndRotation p2 = cache.findLabelPlacement(w, 0, getPath(moved, w), strategy, nb);
+            assertEquals(3, strategy.searches);
+            assertEquals(p1.getPoint().getEastNorth().east(), p2.getPoint().getEastNorth().east(), 1e-6);
+            assertEquals(p1.getPoint().getEastNorth().north(), p2.getPoint().getEastNorth().north(), 1e-6);
+
+            // other label size, other scale band
+            cache.findLabelPlacement(w, 0, getPath(state, w), strategy, new Rectangle2D.Double(0, -10, 30, 10));
+            assertEquals(4, strategy.searches);
+            assertNull(cache.findLabelPlacement(w, 0, getPath(state.usingScale(10), w), strategy, nb));
+            assertNull(cache.findLabelPlacement(w, 0, getPath(state.usingScale(10), w), strategy, nb));
+            assertEquals(5, strategy.searches);
+
+            // geometry change
+            n3.setEastNorth(new EastNorth(200, 200));
+            assertNotNull(cache.findLabelPlacement(w, 0, getPath(state, w), strategy, nb));
+            assertEquals(6, strategy.searches);
+
+            // strategies which are not cacheable
+            PositionForAreaStrategy online = PositionForAreaStrategy.forKeyword(null);
+            cache.findLabelPlacement(w, 0, getPath(state, w), online, nb);
+        } finally {
+            cache.unregister(ds);
+        }
+    }
+
+    /**
+     * Checks that a cached position is searched again when the label does not fit in the area at the current scale
+     * of the scale band.
+     */
+    @Test
+    public void testFindLabelPlacementInBand() {
+        DataSet ds = new DataSet();
+        Way w = createSquare(ds, 20.5);
+        LabelPositionCache cache = LabelPositionCache.getInstance();
+        CountingStrategy strategy = new CountingStrategy();
+        Rectangle2D nb = new Rectangle2D.Double(0, -10, 20, 10);
+        MapViewState state = MapViewState.createDefaultState(400, 400).usingScale(1).usingCenter(new EastNorth(10, 10));
+        cache.register(ds);
+        try {
+            assertNotNull(cache.findLabelPlacement(w, 0, getPath(state, w), strategy, nb));
+            assertEquals(1, strategy.searches);
+            // same scale band, but the area is smaller than the label
+            assertNull(cache.findLabelPlacement(w, 0, getPath(state.usingScale(1.04), w), strategy, nb));
+            assertEquals(2, strategy.searches);
+        } finally {
+            cache.unregister(ds);
+        }
+    }
+
+    /**
+     * Checks that the positions of the least recently used primitives are dropped when the cache is full.
+     */
+    @Test
+    public void testMaxSize() {
+        DataSet ds = new DataSet();
+        Way w1 = createSquare(ds, 100);
+        Way w2 = createSquare(ds, 100);
+        LabelPositionCache cache = LabelPositionCache.getInstance();
+        CountingStrategy strategy = new CountingStrategy();
+        Rectangle2D nb = new Rectangle2D.Double(0, -10, 20, 10);
+        MapViewState state = MapViewState.createDefaultState(400, 400).usingScale(1).usingCenter(new EastNorth(50, 50));
+        LabelPositionCache.PROP_MAX_SIZE.put(1);
+        cache.register(ds);
+        try {
+            cache.findLabelPlacement(w1, 0, getPath(state, w1), strategy, nb);
+            cache.findLabelPlacement(w1, 0, getPath(state, w1), strategy, nb);
+            assertEquals(1, strategy.searches);
+            cache.findLabelPlacement(w2, 0, getPath(state, w2), strategy, nb);
+            cache.findLabelPlacement(w1, 0, getPath(state, w1), strategy, nb);
+            assertEquals(3, strategy.searches);
+        } finally {
+            cache.unregister(ds);
+            LabelPositionCache.PROP_MAX_SIZE.remove();
+        }
+    }
+
+    /**
+     * Checks that the dataset of a data layer is only registered while the layer is in the layer manager.
+     */
+    @Test
+    public void testLayerRegistration() {
+        LabelPositionCache instance = LabelPositionCache.getInstance();
+        MainLayerManager layerManager = MainApplication.getLayerManager();
+        try {
+            // the layer change listeners are removed between tests
+            layerManager.addLayerChangeListener(instance);
+        } catch (IllegalArgumentException e) {
+            // the instance has been created by this test
+            Logging.trace(e);
+        }
+        OsmDataLayer layer = new OsmDataLayer(new DataSet(), "test", null);
+        assertFalse(instance.isRegistered(layer.data));
+        layerManager.addLayer(layer);
+        assertTrue(instance.isRegistered(layer.data));
+        layerManager.removeLayer(layer);
+        assertFalse(instance.isRegistered(layer.data));
+    }
+}
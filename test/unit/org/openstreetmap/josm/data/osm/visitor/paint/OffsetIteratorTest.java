@@ -0,0 +1,79 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.gui.MapViewState;
+import org.openstreetmap.josm.gui.MapViewState.MapViewPoint;
+import org.openstreetmap.josm.gui.MapViewState.MutableMapViewPoint;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link OffsetIterator} class.
+ */
+public class OffsetIteratorTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    private static void assertPoint(double x, double y, MapViewPoint p) {
+        assertEquals("x", x, p.getInViewX(), 1e-10);
+        assertEquals("y", y, p.getInViewY(), 1e-10);
+    }
+
+    /**
+     * Unit test of {@link OffsetIterator#next()} and {@link OffsetIterator#next(MutableMapViewPoint)}.
+     */
+    @Test
+    public void testNext() {
+        MapViewState state = MapViewState.createDefaultState(100, 100);
+        // a right angle, the offset line is on the left side of the way
+        List<MapViewPoint> points = Arrays.asList(state.getForView(10, 50), state.getForView(50, 50), state.getForView(50, 10));
+
+        OffsetIterator it = new OffsetIterator(points, 5);
+        assertPoint(10, 45, it.next());
+        assertPoint(45, 45, it.next());
+        assertPoint(45, 10, it.next());
+        assertFalse(it.hasNext());
+
+        it = new OffsetIterator(points, 5);
+        MutableMapViewPoint p = state.createMutablePoint();
+        assertSame(p, it.next(p));
+        assertPoint(10, 45, p);
+        assertPoint(45, 45, it.next(p));
+        assertPoint(45, 10, it.next(p));
+        assertFalse(it.hasNext());
+
+        // without offset, the points are returned unchanged
+        it = new OffsetIterator(points, 0);
+        assertSame(points.get(0), it.next());
+        assertPoint(50, 50, it.next(p));
+    }
+
+    /**
+     * Unit test of {@link OffsetIterator#next(MutableMapViewPoint)} at the end of the line.
+     */
+    @Test(expected = NoSuchElementException.class)
+    public void testNextAfterEnd() {
+        MapViewState state = MapViewState.createDefaultState(100, 100);
+        OffsetIterator it = new OffsetIterator(Arrays.asList(state.getForView(10, 50), state.getForView(50, 50)), 5);
+        MutableMapViewPoint p = state.createMutablePoint();
+        it.next(p);
+        it.next(p);
+        it.next(p);
+    }
+}
@@ -0,0 +1,125 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.layer.MainLayerManager;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.mappaint.ElemStyles;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Logging;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link StylePrefetcher} class.
+ */
+public class StylePrefetcherTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection().mapStyles();
+
+    private final DataSet ds = new DataSet();
+
+    /**
+     * Unregister the dataset.
+     */
+    @After
+    public void tearDown() {
+        StylePrefetcher.getInstance().unregister(ds);
+        StylePrefetcher.PROP_ENABLED.remove();
+    }
+
+    private static Node addNode(DataSet ds, double lat, double lon) {
+        Node n = new Node(new LatLon(lat, lon));
+        n.put("amenity", "cafe");
+        ds.addPrimitive(n);
+        return n;
+    }
+
+    private static boolean isCached(Node n, double circum) {
+        return n.getCachedStyle() != null && n.getCachedStyle().getWithRange(circum, false).a != null;
+    }
+
+    /**
+     * Unit test of {@link StylePrefetcher#prefetch}.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testPrefetch() throws Exception {
+        Node inside = addNode(ds, 0.5, 0.5);
+        Node around = addNode(ds, 1.2, 1.2);
+        Node outside = addNode(ds, 3, 3);
+        BBox bbox = new BBox(0, 0, 1, 1);
+        double circum = 1000;
+        NavigatableComponent nc = new NavigatableComponent();
+        ElemStyles styles = MapPaintStyles.getStyles();
+        StylePrefetcher prefetcher = StylePrefetcher.getInstance();
+
+        // not registered
+        assertNull(prefetcher.prefetch(ds, bbox, circum, nc, styles));
+
+        prefetcher.register(ds);
+        StylePrefetcher.PROP_ENABLED.put(false);
+        assertNull(prefetcher.prefetch(ds, bbox, circum, nc, styles));
+        StylePrefetcher.PROP_ENABLED.put(true);
+
+        Future<?> future = prefetcher.prefetch(ds, bbox, circum, nc, styles);
+        assertNotNull(future);
+        future.get();
+        assertTrue(isCached(inside, circum / 2));
+        assertTrue(isCached(inside, circum * 2));
+        // the area around the view is prefetched for zooming out
+        assertTrue(isCached(around, circum * 2));
+        assertNull(outside.getCachedStyle());
+
+        // the same render is prefetched once
+        assertNull(prefetcher.prefetch(ds, bbox, circum, nc, styles));
+        ds.clearMappaintCache();
+        future = prefetcher.prefetch(ds, bbox, circum, nc, styles);
+        assertNotNull(future);
+        future.get();
+        assertTrue(isCached(inside, circum / 2));
+    }
+
+    /**
+     * Checks that the dataset of a data layer is only registered while the layer is in the layer manager.
+     */
+    @Test
+    public void testLayerRegistration() {
+        StylePrefetcher instance = StylePrefetcher.getInstance();
+        MainLayerManager layerManager = MainApplication.getLayerManager();
+        try {
+            // the layer change listeners are removed between tests
+            layerManager.addLayerChangeListener(instance);
+        } catch (IllegalArgumentException e) {
+            // the instance has been created by this test
+            Logging.trace(e);
+        }
+        OsmDataLayer layer = new OsmDataLayer(new DataSet(), "test", null);
+        assertFalse(instance.isRegistered(layer.data));
+        layerManager.addLayer(layer);
+        assertTrue(instance.isRegistered(layer.data));
+        layerManager.removeLayer(layer);
+        assertFalse(instance.isRegistered(layer.data));
+    }
+}
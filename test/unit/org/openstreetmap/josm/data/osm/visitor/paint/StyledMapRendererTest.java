@@ -2,10 +2,32 @@
 package org.openstreetmap.josm.data.osm.visitor.paint;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
 import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.visitor.paint.ComputeStyleListWorker.LevelOfDetail;
+import org.openstreetmap.josm.data.osm.visitor.paint.RenderBenchmarkCollector.CapturingBenchmark;
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer.StyleRecord;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
  * Test the {@link StyledMapRenderer}
@@ -14,6 +36,24 @@ import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer.StyleReco
  */
 public class StyledMapRendererTest {
 
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection().mapStyles();
+
+    /**
+     * Reset the preferences.
+     */
+    @After
+    public void tearDown() {
+        StyledMapRenderer.PREFERENCE_PARALLEL_DRAW.remove();
+        Config.getPref().put("mappaint.parallel-draw.bands", null);
+        Config.getPref().put("mappaint.parallel-draw.margin", null);
+        ComputeStyleListWorker.PROP_LOD_MIN_SIZE.remove();
+    }
+
     /**
      * Tests the floatToFixed function.
      */
@@ -76,4 +116,193 @@ public class StyledMapRendererTest {
         return result;
     }
 
+    /**
+     * Drawing in parallel bands gives the same image as drawing directly.
+     */
+    @Test
+    public void testParallelDraw() {
+        DataSet ds = new DataSet();
+        for (int i = 0; i < 200; i++) {
+            Node n1 = new Node(new LatLon(i * 1e-5, 0));
+            Node n2 = new Node(new LatLon(i * 1e-5 + 5e-4, 2e-3));
+            Node n3 = new Node(new LatLon(i * 1e-5 + 3e-4, 1e-3));
+            n3.put("amenity", "cafe");
+            n3.put("name", "Cafe " + i);
+            ds.addPrimitive(n1);
+            ds.addPrimitive(n2);
+            ds.addPrimitive(n3);
+            Way w = new Way();
+            w.setNodes(Arrays.asList(n1, n2));
+            w.put("highway", i % 2 == 0 ? "residential" : "primary");
+            w.put("name", "Street " + i);
+            ds.addPrimitive(w);
+        }
+        Bounds bounds = new Bounds(-1e-4, -1e-4, 3e-3, 2.1e-3);
+
+        StyledMapRenderer.PREFERENCE_PARALLEL_DRAW.put(false);
+        BufferedImage direct = render(ds, bounds);
+        StyledMapRenderer.PREFERENCE_PARALLEL_DRAW.put(true);
+        Config.getPref().putInt("mappaint.parallel-draw.bands", 4);
+        assertSimilar(direct, render(ds, bounds));
+        // the band images are reused
+        assertSimilar(direct, render(ds, bounds));
+    }
+
+    /**
+     * Labels and icons are not cut at the band seams, whatever the margin.
+     */
+    @Test
+    public void testParallelDrawLabelAtSeam() {
+        DataSet ds = new DataSet();
+        // enough buildings in the upper band to draw them in bands
+        for (int i = 0; i < 150; i++) {
+            addSquare(ds, new LatLon(5e-4 + (i / 15) * 6e-5, -8e-4 + (i % 15) * 1e-4), 5e-5);
+        }
+        // the seam between the two bands is in the middle of the view
+        for (int i = -1; i <= 1; i++) {
+            Node n = new Node(new LatLon(0, i * 5e-4));
+            n.put("amenity", "cafe");
+            n.put("name", "Cafe " + i);
+            ds.addPrimitive(n);
+        }
+        Bounds bounds = new Bounds(-1e-3, -1e-3, 1e-3, 1e-3);
+
+        StyledMapRenderer.PREFERENCE_PARALLEL_DRAW.put(false);
+        BufferedImage direct = render(ds, bounds);
+        StyledMapRenderer.PREFERENCE_PARALLEL_DRAW.put(true);
+        Config.getPref().putInt("mappaint.parallel-draw.bands", 2);
+        Config.getPref().putInt("mappaint.parallel-draw.margin", 0);
+        assertSimilar(direct, render(ds, bounds));
+    }
+
+    private static void assertSimilar(BufferedImage direct, BufferedImage bands) {
+        for (int y = 0; y < direct.getHeight(); y++) {
+            for (int x = 0; x < direct.getWidth(); x++) {
+                int expected = direct.getRGB(x, y);
+                int actual = bands.getRGB(x, y);
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int delta = Math.abs(((expected >> shift) & 0xff) - ((actual >> shift) & 0xff));
+                    // compositing the bands may round differently
+                    assertTrue("pixel " + x + "," + y, delta <= 8);
+                }
+            }
+        }
+    }
+
+    private static Way addSquare(DataSet ds, LatLon corner, double size) {
+        return addSquare(ds, corner, size, "building", "yes");
+    }
+
+    private static Way addSquare(DataSet ds, LatLon corner, double size, String key, String value) {
+        Node n1 = new Node(corner);
+        Node n2 = new Node(new LatLon(corner.lat(), corner.lon() + size));
+        Node n3 = new Node(new LatLon(corner.lat() + size, corner.lon() + size));
+        Node n4 = new Node(new LatLon(corner.lat() + size, corner.lon()));
+        for (Node n : Arrays.asList(n1, n2, n3, n4)) {
+            ds.addPrimitive(n);
+        }
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2, n3, n4, n1));
+        if (key != null) {
+            w.put(key, value);
+        }
+        ds.addPrimitive(w);
+        return w;
+    }
+
+    /**
+     * Only one of the areas smaller than the level of detail is drawn at each pixel, as a small rectangle.
+     */
+    @Test
+    public void testLevelOfDetail() {
+        ComputeStyleListWorker.PROP_LOD_MIN_SIZE.put(1.0);
+        DataSet ds = new DataSet();
+        // 100 pairs of tiny buildings, the buildings of a pair are in the same pixel
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                addSquare(ds, new LatLon(i * 2e-4 + 5e-5, j * 2e-4 + 5e-5), 1e-6);
+                addSquare(ds, new LatLon(i * 2e-4 + 5.2e-5, j * 2e-4 + 5.2e-5), 1e-6);
+            }
+        }
+        addSquare(ds, new LatLon(5e-4, 5e-4), 5e-4);
+        Way selected = addSquare(ds, new LatLon(1e-4, 1e-4), 1e-6);
+        ds.setSelected(selected);
+        // closed ways which are not filled by the style
+        addSquare(ds, new LatLon(1.5e-3, 1.5e-3), 1e-6, null, null);
+        addSquare(ds, new LatLon(1.6e-3, 1.6e-3), 1e-6, "barrier", "fence");
+        Bounds bounds = new Bounds(0, 0, 2e-3, 2e-3);
+
+        CapturingBenchmark benchmark = new CapturingBenchmark();
+        render(ds, bounds, benchmark);
+        // the large and the selected areas are drawn with their style, the closed ways without fill are drawn alone
+        assertEquals(100, benchmark.getSmallAreasSkipped());
+        assertEquals(102, benchmark.getSmallAreasDrawn());
+
+        // the areas are not filled at all
+        Config.getPref().putInt("mappaint.fillareas", 0);
+        render(ds, bounds, benchmark);
+        assertEquals(0, benchmark.getSmallAreasSkipped());
+        Config.getPref().put("mappaint.fillareas", null);
+
+        ComputeStyleListWorker.PROP_LOD_MIN_SIZE.put(0.0);
+        render(ds, bounds, benchmark);
+        assertEquals(0, benchmark.getSmallAreasSkipped());
+    }
+
+    /**
+     * The area drawn at a pixel does not depend on the order of the primitives.
+     */
+    @Test
+    public void testLevelOfDetailOrder() {
+        DataSet ds = new DataSet();
+        Way a = addSquare(ds, new LatLon(5e-5, 5e-5), 1e-6);
+        Way b = addSquare(ds, new LatLon(5.2e-5, 5.2e-5), 1e-6);
+        NavigatableComponent nc = new NavigatableComponent();
+        nc.setBounds(0, 0, 200, 300);
+        nc.zoomTo(new Bounds(0, 0, 2e-3, 2e-3));
+        Way first = a.getUniqueId() < b.getUniqueId() ? a : b;
+        Way second = first == a ? b : a;
+        for (List<Way> ways : Arrays.asList(Arrays.asList(a, b), Arrays.asList(b, a))) {
+            LevelOfDetail levelOfDetail = new LevelOfDetail(nc.getState(), 1.0);
+            levelOfDetail.addAreas(nc.getDist100Pixel(), ways);
+            assertFalse(levelOfDetail.isCulled(first));
+            assertTrue(levelOfDetail.isDrawnSmall(first));
+            assertTrue(levelOfDetail.isCulled(second));
+            assertFalse(levelOfDetail.isDrawnSmall(second));
+        }
+    }
+
+    private static BufferedImage render(DataSet ds, Bounds bounds) {
+        return render(ds, bounds, new RenderBenchmarkCollector());
+    }
+
+    private static BufferedImage render(DataSet ds, Bounds bounds, RenderBenchmarkCollector benchmark) {
+        BufferedImage img = new BufferedImage(200, 300, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setClip(0, 0, img.getWidth(), img.getHeight());
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, img.getWidth(), img.getHeight());
+        NavigatableComponent nc = new NavigatableComponent() {
+            {
+                setBounds(0, 0, img.getWidth(), img.getHeight());
+                updateLocationState();
+            }
+
+            @Override
+            protected boolean isVisibleOnScreen() {
+                return true;
+            }
+
+            @Override
+            public Point getLocationOnScreen() {
+                return new Point(0, 0);
+            }
+        };
+        nc.zoomTo(bounds);
+        StyledMapRenderer renderer = new StyledMapRenderer(g, nc, false);
+        renderer.setBenchmarkFactory(() -> benchmark);
+        renderer.render(ds, false, bounds);
+        g.dispose();
+        return img;
+    }
 }
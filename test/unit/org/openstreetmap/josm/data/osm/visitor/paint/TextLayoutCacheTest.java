@@ -0,0 +1,109 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.visitor.paint.TextLayoutCache.LaidOutText;
+import org.openstreetmap.josm.data.osm.visitor.paint.TextLayoutCache.Statistics;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Utils;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link TextLayoutCache} class.
+ */
+public class TextLayoutCacheTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static final Font FONT = new Font("SansSerif", Font.PLAIN, 12);
+    private static final FontRenderContext FRC = new FontRenderContext(null, true, true);
+
+    /**
+     * Reset the cache.
+     */
+    @After
+    public void tearDown() {
+        TextLayoutCache.PROP_SIZE.remove();
+        TextLayoutCache.getInstance().clear();
+    }
+
+    /**
+     * Unit test of {@link TextLayoutCache#get}.
+     */
+    @Test
+    public void testGet() {
+        TextLayoutCache cache = TextLayoutCache.getInstance();
+        Statistics statistics = new Statistics();
+        LaidOutText text = cache.get("Main Street", FONT, FRC, statistics);
+        assertSame(text, cache.get("Main Street", FONT, FRC, statistics));
+        assertNotSame(text, cache.get("Main Street", FONT.deriveFont(14f), FRC, statistics));
+        assertNotSame(text, cache.get("Main Street", FONT, new FontRenderContext(null, false, false), statistics));
+        assertNotSame(text, cache.get("12", FONT, FRC, statistics));
+        assertEquals(1, statistics.getHits());
+        assertEquals(4, statistics.getMisses());
+
+        assertEquals(FONT.getStringBounds("Main Street", FRC), text.getBounds());
+        assertSame(text.getLayout(), text.getLayout());
+        assertEquals(text.getLayout().getOutline(null).getBounds2D(), text.getOutline().getBounds2D());
+    }
+
+    /**
+     * Unit test of the eviction of the least recently used texts.
+     */
+    @Test
+    public void testEviction() {
+        TextLayoutCache.PROP_SIZE.put(2);
+        TextLayoutCache cache = TextLayoutCache.getInstance();
+        Statistics statistics = new Statistics();
+        LaidOutText a = cache.get("a", FONT, FRC, statistics);
+        cache.get("b", FONT, FRC, statistics);
+        cache.get("a", FONT, FRC, statistics);
+        cache.get("c", FONT, FRC, statistics);
+        assertEquals(2, cache.size());
+        assertSame(a, cache.get("a", FONT, FRC, statistics));
+        cache.get("b", FONT, FRC, statistics);
+        assertEquals(2, statistics.getHits());
+        assertEquals(4, statistics.getMisses());
+    }
+
+    /**
+     * Unit test of {@link LaidOutText#createGlyphVectors}.
+     */
+    @Test
+    public void testCreateGlyphVectors() {
+        String s = "Rue שלום 12";
+        LaidOutText text = TextLayoutCache.getInstance().get(s, FONT, FRC, new Statistics());
+        List<GlyphVector> expected = Utils.getGlyphVectorsBidi(s, FONT, FRC);
+        for (int i = 0; i < 2; i++) {
+            List<GlyphVector> gvs = text.createGlyphVectors();
+            assertEquals(expected.size(), gvs.size());
+            for (int j = 0; j < gvs.size(); j++) {
+                GlyphVector gv = gvs.get(j);
+                int n = expected.get(j).getNumGlyphs();
+                assertArrayEquals(expected.get(j).getGlyphCodes(0, n, null), gv.getGlyphCodes(0, gv.getNumGlyphs(), null));
+                assertArrayEquals(expected.get(j).getGlyphPositions(0, n + 1, null), gv.getGlyphPositions(0, n + 1, null), 1e-3f);
+                // the returned glyph vectors can be modified
+                gv.setGlyphTransform(0, AffineTransform.getTranslateInstance(100, 100));
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.MainLayerManager;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Geometry.AreaAndPerimeter;
+import org.openstreetmap.josm.tools.Logging;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link WayGeometryCache} class.
+ */
+public class WayGeometryCacheTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    private static Way createSquare(DataSet ds) {
+        Node n1 = new Node(new EastNorth(0, 0));
+        Node n2 = new Node(new EastNorth(10, 0));
+        Node n3 = new Node(new EastNorth(10, 10));
+        Node n4 = new Node(new EastNorth(0, 10));
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2, n3, n4, n1));
+        for (Node n : Arrays.asList(n1, n2, n3, n4)) {
+            ds.addPrimitive(n);
+        }
+        ds.addPrimitive(w);
+        return w;
+    }
+
+    /**
+     * Unit test of {@link WayGeometryCache#getEastNorth} and of its invalidation.
+     */
+    @Test
+    public void testEastNorth() {
+        WayGeometryCache cache = WayGeometryCache.getInstance();
+        Projection projection = Main.getProjection();
+        DataSet ds = new DataSet();
+        Way w = createSquare(ds);
+        assertNull(cache.getEastNorth(w, projection));
+
+        cache.register(ds);
+        try {
+            double[] eastNorth = cache.getEastNorth(w, projection);
+            assertArrayEquals(new double[] {0, 0, 10, 0, 10, 10, 0, 10, 0, 0}, eastNorth, 1e-6);
+            assertSame(eastNorth, cache.getEastNorth(w, projection));
+
+            w.firstNode().setEastNorth(new EastNorth(-10, 0));
+            eastNorth = cache.getEastNorth(w, projection);
+            assertEquals(-10, eastNorth[0], 1e-6);
+
+            w.removeNode(w.getNode(2));
+            assertEquals(8, cache.getEastNorth(w, projection).length);
+
+            Node incomplete = new Node(1);
+            ds.addPrimitive(incomplete);
+            w.addNode(1, incomplete);
+            assertNull(cache.getEastNorth(w, projection));
+        } finally {
+            cache.unregister(ds);
+        }
+        assertNull(cache.getEastNorth(createSquare(new DataSet()), projection));
+    }
+
+    /**
+     * Unit test of {@link WayGeometryCache#getAreaAndPerimeter}.
+     */
+    @Test
+    public void testAreaAndPerimeter() {
+        WayGeometryCache cache = WayGeometryCache.getInstance();
+        DataSet ds = new DataSet();
+        Way w = createSquare(ds);
+        cache.register(ds);
+        try {
+            AreaAndPerimeter ap = cache.getAreaAndPerimeter(w);
+            assertEquals(100, ap.getArea(), 1e-6);
+            assertEquals(40, ap.getPerimeter(), 1e-6);
+            assertSame(ap, cache.getAreaAndPerimeter(w));
+
+            w.getNode(2).setEastNorth(new EastNorth(20, 10));
+            AreaAndPerimeter moved = cache.getAreaAndPerimeter(w);
+            assertNotSame(ap, moved);
+            assertEquals(150, moved.getArea(), 1e-6);
+
+            cache.projectionChanged(null, Main.getProjection());
+            assertNotSame(moved, cache.getAreaAndPerimeter(w));
+        } finally {
+            cache.unregister(ds);
+        }
+    }
+
+    /**
+     * Checks that the least recently used ways are dropped when the cache is full.
+     */
+    @Test
+    public void testMaxSize() {
+        WayGeometryCache cache = WayGeometryCache.getInstance();
+        Projection projection = Main.getProjection();
+        DataSet ds = new DataSet();
+        Way w1 = createSquare(ds);
+        Way w2 = createSquare(ds);
+        Way w3 = createSquare(ds);
+        WayGeometryCache.PROP_MAX_SIZE.put(2);
+        cache.register(ds);
+        try {
+            double[] eastNorth1 = cache.getEastNorth(w1, projection);
+            double[] eastNorth2 = cache.getEastNorth(w2, projection);
+            assertSame(eastNorth1, cache.getEastNorth(w1, projection));
+            cache.getEastNorth(w3, projection);
+            // w2 is the least recently used
+            assertSame(eastNorth1, cache.getEastNorth(w1, projection));
+            assertNotSame(eastNorth2, cache.getEastNorth(w2, projection));
+        } finally {
+            cache.unregister(ds);
+            WayGeometryCache.PROP_MAX_SIZE.remove();
+        }
+    }
+
+    /**
+     * Checks that the dataset of a data layer is only registered while the layer is in the layer manager.
+     */
+    @Test
+    public void testLayerRegistration() {
+        WayGeometryCache instance = WayGeometryCache.getInstance();
+        MainLayerManager layerManager = MainApplication.getLayerManager();
+        try {
+            // the layer change listeners are removed between tests
+            layerManager.addLayerChangeListener(instance);
+        } catch (IllegalArgumentException e) {
+            // the instance has been created by this test
+            Logging.trace(e);
+        }
+        OsmDataLayer layer = new OsmDataLayer(new DataSet(), "test", null);
+        assertFalse(instance.isRegistered(layer.data));
+        layerManager.addLayer(layer);
+        assertTrue(instance.isRegistered(layer.data));
+        layerManager.removeLayer(layer);
+        assertFalse(instance.isRegistered(layer.data));
+    }
+}
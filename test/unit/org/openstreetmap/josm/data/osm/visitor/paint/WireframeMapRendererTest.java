@@ -0,0 +1,123 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link WireframeMapRenderer} class.
+ */
+public class WireframeMapRendererTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    /**
+     * Reset the preferences.
+     */
+    @After
+    public void tearDown() {
+        WireframeMapRenderer.PROP_BATCH.remove();
+    }
+
+    /**
+     * Drawing the segments and nodes in batches gives the same image as drawing them one after the other.
+     */
+    @Test
+    public void testBatch() {
+        DataSet ds = new DataSet();
+        Way selected = null;
+        for (int i = 0; i < 20; i++) {
+            Node n1 = new Node(new LatLon(i * 1e-4, 0));
+            Node n2 = new Node(new LatLon(i * 1e-4 + 5e-5, 1e-3));
+            Node n3 = new Node(new LatLon(i * 1e-4, 2e-3));
+            if (i % 3 == 0) {
+                n2.put("amenity", "cafe");
+            }
+            ds.addPrimitive(n1);
+            ds.addPrimitive(n2);
+            ds.addPrimitive(n3);
+            Way w = new Way();
+            w.setNodes(Arrays.asList(n1, n2, n3));
+            if (i % 2 == 0) {
+                w.put("highway", "residential");
+            }
+            ds.addPrimitive(w);
+            if (i == 5) {
+                selected = w;
+            }
+        }
+        Relation r = new Relation();
+        r.addMember(new RelationMember("", ds.getWays().iterator().next()));
+        ds.addPrimitive(r);
+        ds.setSelected(selected, r);
+        Bounds bounds = new Bounds(-1e-4, -1e-4, 2.1e-3, 2.1e-3);
+
+        WireframeMapRenderer.PROP_BATCH.put(false);
+        BufferedImage direct = render(ds, bounds);
+        WireframeMapRenderer.PROP_BATCH.put(true);
+        BufferedImage batched = render(ds, bounds);
+
+        boolean drawn = false;
+        for (int y = 0; y < direct.getHeight(); y++) {
+            for (int x = 0; x < direct.getWidth(); x++) {
+                assertEquals("pixel " + x + "," + y, direct.getRGB(x, y), batched.getRGB(x, y));
+                drawn |= direct.getRGB(x, y) != Color.BLACK.getRGB();
+            }
+        }
+        assertTrue(drawn);
+    }
+
+    private static BufferedImage render(DataSet ds, Bounds bounds) {
+        BufferedImage img = new BufferedImage(200, 300, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setClip(0, 0, img.getWidth(), img.getHeight());
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, img.getWidth(), img.getHeight());
+        NavigatableComponent nc = new NavigatableComponent() {
+            {
+                setBounds(0, 0, img.getWidth(), img.getHeight());
+                updateLocationState();
+            }
+
+            @Override
+            protected boolean isVisibleOnScreen() {
+                return true;
+            }
+
+            @Override
+            public Point getLocationOnScreen() {
+                return new Point(0, 0);
+            }
+        };
+        nc.zoomTo(bounds);
+        new WireframeMapRenderer(g, nc, false).render(ds, false, bounds);
+        g.dispose();
+        return img;
+    }
+}
@@ -2,9 +2,17 @@
 package org.openstreetmap.josm.gui;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Arrays;
 import java.util.function.Function;
 
@@ -17,6 +25,7 @@ import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.gui.MapViewState.MapViewPoint;
 import org.openstreetmap.josm.gui.MapViewState.MapViewRectangle;
+import org.openstreetmap.josm.gui.MapViewState.MutableMapViewPoint;
 
 /**
  * Test {@link MapViewState}
@@ -126,6 +135,50 @@ public class MapViewStateTest {
         assertEquals("north", 3, p2.getEastNorth().north(), 0.01);
     }
 
+    /**
+     * Test {@link MapViewState#getInViewX(double)} and {@link MapViewState#getInViewY(double)}
+     */
+    @Test
+    public void testGetInView() {
+        for (EastNorth en : Arrays.asList(new EastNorth(100, 100), new EastNorth(0, 0), new EastNorth(-1, -2.5))) {
+            MapViewPoint should = state.getPointFor(en);
+            assertEquals("x", should.getInViewX(), state.getInViewX(en.east()), 0);
+            assertEquals("y", should.getInViewY(), state.getInViewY(en.north()), 0);
+        }
+    }
+
+    /**
+     * Test {@link MapViewState#createMutablePoint()}
+     */
+    @Test
+    public void testMutablePoint() {
+        MutableMapViewPoint p = state.createMutablePoint();
+        assertHasViewCoords(0, 0, p);
+        assertSame(p, p.setInView(120, 130));
+        assertHasViewCoords(120, 130, p);
+
+        EastNorth en = new EastNorth(2, 3);
+        MapViewPoint should = state.getPointFor(en);
+        assertSame(p, p.setEastNorth(en));
+        assertHasViewCoords(should.getInViewX(), should.getInViewY(), p);
+        assertEquals("east", 2, p.getEastNorth().east(), 0.01);
+        assertEquals("north", 3, p.getEastNorth().north(), 0.01);
+
+        LatLon ll = new LatLon(12, 34);
+        should = state.getPointFor(ll);
+        assertSame(p, p.setLatLon(ll));
+        assertHasViewCoords(should.getInViewX(), should.getInViewY(), p);
+
+        assertSame(p, p.setTo(state.getForView(-17, -30)));
+        assertHasViewCoords(-17, -30, p);
+        assertEquals("MutableMapViewPoint [x=-17.0, y=-30.0]", p.toString());
+
+        // a rectangle keeps its corners when the point is moved
+        MapViewRectangle rect = p.rectTo(state.getForView(10, 20));
+        p.setInView(100, 100);
+        assertEquals(new Rectangle2D.Double(-17, -30, 27, 50), rect.getInView());
+    }
+
     /**
      * Test {@link MapViewState#getAffineTransform()}
      */
@@ -208,4 +261,27 @@ public class MapViewStateTest {
         assertEquals("MapViewEastNorthPoint [eastNorth=EastNorth[e=0.0, n=0.0]]",
                 state.getPointFor(new EastNorth(0, 0)).toString());
     }
+
+    /**
+     * Tests that a deserialized state gets its projection, view area and view clip rectangle back.
+     * @throws IOException if the state cannot be written or read
+     * @throws ClassNotFoundException never
+     */
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(state);
+        }
+        MapViewState read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (MapViewState) in.readObject();
+        }
+        assertNotNull(read.getProjecting());
+        assertNotNull(read.getViewArea());
+        assertNotNull(read.getViewClipRectangle());
+        assertEquals(state.getViewArea().getInView(), read.getViewArea().getInView());
+        assertEquals(state.getViewClipRectangle().getInView(), read.getViewClipRectangle().getInView());
+        assertEquals(state.getCenter().getEastNorth(), read.getCenter().getEastNorth());
+    }
 }
@@ -0,0 +1,124 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.geoimage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.ImmutableGpxTrack;
+import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link GpxTimeIndex} class.
+ */
+public class GpxTimeIndexTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    private static ImmutableGpxTrack createTrack(double lon, int... seconds) {
+        List<WayPoint> points = new ArrayList<>();
+        for (int i = 0; i < seconds.length; i++) {
+            WayPoint wpt = new WayPoint(new LatLon(0, lon + i * 0.001));
+            wpt.setTime(seconds[i] * 1000L);
+            points.add(wpt);
+        }
+        return new ImmutableGpxTrack(Collections.singleton(points), Collections.emptyMap());
+    }
+
+    private static ImageEntry createImage(int seconds) {
+        ImageEntry image = new ImageEntry();
+        image.setExifTime(new Date(seconds * 1000L));
+        image.createTmp();
+        return image;
+    }
+
+    private static double lon(ImageEntry image) {
+        return image.tmp.getPos().lon();
+    }
+
+    /**
+     * Unit test of the matching of images, with overlapping tracks.
+     */
+    @Test
+    public void testMatch() {
+        GpxData gpx = new GpxData();
+        gpx.addTrack(createTrack(0, 100, 110, 120));
+        gpx.addTrack(createTrack(1, 115, 130));
+        GpxTimeIndex index = new GpxTimeIndex(gpx);
+        // an interval before the first point of each track, and one between each couple of points
+        assertEquals(5, index.size());
+
+        List<ImageEntry> images = Arrays.asList(
+                createImage(94), createImage(96), createImage(105), createImage(117), createImage(125), createImage(131));
+        assertEquals(4, index.match(images, 0));
+        assertNull(images.get(0).tmp.getPos());
+        // 5 seconds before the first point
+        assertEquals(0, lon(images.get(1)), 1e-9);
+        assertNull(images.get(1).tmp.getSpeed());
+        assertEquals(0.0005, lon(images.get(2)), 1e-9);
+        assertEquals(40.0, images.get(2).tmp.getSpeed(), 0.1);
+        // the first track wins
+        assertEquals(0.0017, lon(images.get(3)), 1e-9);
+        assertEquals(1 + 0.001 * 10 / 15, lon(images.get(4)), 1e-9);
+        assertNull(images.get(5).tmp.getPos());
+        assertEquals(new Date(125000), images.get(4).tmp.getGpsTime());
+
+        // with an offset
+        ImageEntry image = createImage(106);
+        assertEquals(1, index.match(Collections.singletonList(image), 10_000));
+        assertEquals(0, lon(image), 1e-9);
+        assertEquals(new Date(96000), image.tmp.getGpsTime());
+    }
+
+    /**
+     * Checks that the points without time split the segments, and that the time going backwards is handled.
+     */
+    @Test
+    public void testUntimedAndBackwards() {
+        GpxData gpx = new GpxData();
+        List<WayPoint> points = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            WayPoint wpt = new WayPoint(new LatLon(0, i * 0.001));
+            if (i != 2) {
+                wpt.setTime((i == 4 ? 100 : 100 + i * 10) * 1000L);
+            }
+            points.add(wpt);
+        }
+        gpx.addTrack(new ImmutableGpxTrack(Collections.singleton(points), Collections.emptyMap()));
+        GpxTimeIndex index = new GpxTimeIndex(gpx);
+        assertEquals(4, index.size());
+        // between the points 1 and 3, separated by a point without time
+        ImageEntry image = createImage(115);
+        assertEquals(0, index.match(Collections.singletonList(image), 0));
+        // the point 3 starts a new segment
+        image = createImage(128);
+        assertEquals(1, index.match(Collections.singletonList(image), 0));
+        assertEquals(0.003, lon(image), 1e-9);
+        // the point 4 is 30 seconds before the point 3: the images of these 30 seconds are placed on it
+        image = createImage(80);
+        assertEquals(1, index.match(Collections.singletonList(image), 0));
+        assertEquals(0.004, lon(image), 1e-9);
+        assertNull(image.tmp.getSpeed());
+        // the first interval wins
+        image = createImage(99);
+        assertEquals(1, index.match(Collections.singletonList(image), 0));
+        assertEquals(0, lon(image), 1e-9);
+    }
+}
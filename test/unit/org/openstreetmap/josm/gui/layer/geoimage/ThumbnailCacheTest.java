@@ -0,0 +1,126 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.geoimage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ThumbnailCache} class.
+ */
+public class ThumbnailCacheTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static BufferedImage createThumbnail() {
+        BufferedImage img = new BufferedImage(120, 90, BufferedImage.TYPE_INT_RGB);
+        img.setRGB(10, 10, 0xffffff);
+        return img;
+    }
+
+    private File createImage(String name) throws IOException {
+        File image = folder.newFile(name);
+        Files.write(image.toPath(), new byte[] {1, 2, 3});
+        assertTrue(image.setLastModified(1000000000000L));
+        return image;
+    }
+
+    /**
+     * Checks that the thumbnails are persisted, and invalidated when their image changes.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testPutGet() throws IOException {
+        File file = new File(folder.getRoot(), "thumbs.cache");
+        File image1 = createImage("1.jpg");
+        File image2 = createImage("2.jpg");
+        ThumbnailCache cache = new ThumbnailCache(file);
+        assertNull(cache.get(image1, 120));
+        cache.put(image1, 120, createThumbnail());
+        cache.put(image2, 120, createThumbnail());
+        BufferedImage thumb = cache.get(image1, 120);
+        assertNotNull(thumb);
+        assertEquals(120, thumb.getWidth());
+        assertEquals(90, thumb.getHeight());
+        assertNull(cache.get(image1, 60));
+        cache.close();
+
+        cache = new ThumbnailCache(file);
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(image1, 120));
+        // the image has been modified
+        assertTrue(image2.setLastModified(2000000000000L));
+        assertNull(cache.get(image2, 120));
+        cache.close();
+    }
+
+    /**
+     * Checks that an incomplete record is dropped, and that the replaced records are removed.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testRecovery() throws IOException {
+        File file = new File(folder.getRoot(), "thumbs.cache");
+        List<File> images = new ArrayList<>();
+        ThumbnailCache cache = new ThumbnailCache(file);
+        for (int i = 0; i < 10; i++) {
+            images.add(createImage(i + ".jpg"));
+            cache.put(images.get(i), 120, createThumbnail());
+        }
+        cache.close();
+        long length = file.length();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length - 10);
+        }
+        cache = new ThumbnailCache(file);
+        assertEquals(9, cache.size());
+        assertNotNull(cache.get(images.get(8), 120));
+        assertNull(cache.get(images.get(9), 120));
+        for (int i = 0; i < 300; i++) {
+            cache.put(images.get(0), 120, createThumbnail());
+        }
+        cache.close();
+        long before = file.length();
+        cache = new ThumbnailCache(file);
+        assertEquals(9, cache.size());
+        assertTrue(file.length() < before / 2);
+        assertNotNull(cache.get(images.get(0), 120));
+        assertNotNull(cache.get(images.get(8), 120));
+        cache.close();
+
+        Files.write(Paths.get(file.getPath()), new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        cache = new ThumbnailCache(file);
+        assertEquals(0, cache.size());
+        cache.put(images.get(0), 120, createThumbnail());
+        assertNotNull(cache.get(images.get(0), 120));
+        cache.close();
+    }
+}
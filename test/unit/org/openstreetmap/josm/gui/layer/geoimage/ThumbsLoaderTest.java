@@ -0,0 +1,59 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.geoimage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Image;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ThumbsLoader} class.
+ */
+public class ThumbsLoaderTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static ImageEntry load(List<ImageEntry> entries, String name) {
+        ImageEntry e = new ImageEntry(new File("data_nodist/" + name));
+        e.extractExif();
+        entries.add(e);
+        return e;
+    }
+
+    /**
+     * Checks the thumbnails, from the EXIF section or from the subsampled images, with their orientation.
+     */
+    @Test
+    public void testLoadThumbnails() {
+        List<ImageEntry> entries = new ArrayList<>();
+        // embedded thumbnails, rotated
+        ImageEntry rotated = load(entries, "exif-example_orientation=6.jpg");
+        ImageEntry embedded = load(entries, "exif-example_direction.jpg");
+        // without embedded thumbnail
+        ImageEntry decoded = load(entries, "IMG_20150711_193419.jpg");
+        load(entries, "exif-example_orientation=3.jpg");
+        new ThumbsLoader(entries).run();
+        for (ImageEntry e : entries) {
+            assertTrue(e.hasThumbnail());
+            Image thumb = e.getThumbnail();
+            assertEquals(ThumbsLoader.maxSize, Math.max(thumb.getWidth(null), thumb.getHeight(null)));
+        }
+        assertEquals(67, rotated.getThumbnail().getWidth(null));
+        assertEquals(90, embedded.getThumbnail().getHeight(null));
+        assertTrue(decoded.getThumbnail().getHeight(null) > 0);
+    }
+}
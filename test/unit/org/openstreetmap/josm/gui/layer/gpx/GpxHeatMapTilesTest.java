@@ -0,0 +1,122 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.gpx;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.gpx.WayPointColumns;
+import org.openstreetmap.josm.gui.MapViewState;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link GpxHeatMapTiles} class.
+ */
+public class GpxHeatMapTilesTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    private static final double SCALE = 4;
+
+    private static List<GpxLinePyramid> createLines() {
+        List<WayPoint> points = new ArrayList<>();
+        for (int i = 0; i <= 100; i++) {
+            WayPoint wpt = new WayPoint(new LatLon(0, i * 1e-4));
+            wpt.drawLine = i > 0;
+            points.add(wpt);
+        }
+        return Collections.singletonList(new GpxLinePyramid(new WayPointColumns(points)));
+    }
+
+    private static MapViewState createState(double offsetX) {
+        EastNorth center = Main.getProjection().latlon2eastNorth(new LatLon(0, 0.005));
+        return MapViewState.createDefaultState(600, 300).usingScale(SCALE)
+                .usingCenter(new EastNorth(center.east() + offsetX * SCALE, center.north()));
+    }
+
+    private static int gray(BufferedImage img, int x, int y) {
+        return img.getRGB(x, y) & 0xff;
+    }
+
+    /**
+     * Checks that the density is drawn along the line, and that the tiles are reused when panning.
+     */
+    @Test
+    public void testLines() {
+        List<GpxLinePyramid> lines = createLines();
+        GpxHeatMapTiles tiles = new GpxHeatMapTiles();
+        BufferedImage img = new BufferedImage(600, 300, BufferedImage.TYPE_INT_ARGB);
+        int width = tiles.render(createState(0), 100 * SCALE, 1, false, false, 0, lines, img);
+        assertTrue(width >= 2);
+        int computed = tiles.getComputedTiles();
+        assertTrue(computed > 0);
+        assertTrue(gray(img, 300, 150) > 0);
+        assertEquals(0, gray(img, 300, 10));
+        assertEquals(0, gray(img, 10, 150));
+
+        // same view: all tiles are cached
+        tiles.render(createState(0), 100 * SCALE, 1, false, false, 0, lines, img);
+        assertEquals(computed, tiles.getComputedTiles());
+
+        // panning: same density at the same place
+        int[] row = img.getRGB(100, 150, 400, 1, null, 0, 400);
+        BufferedImage panned = new BufferedImage(600, 300, BufferedImage.TYPE_INT_ARGB);
+        tiles.render(createState(50), 100 * SCALE, 1, false, false, 0, lines, panned);
+        assertArrayEquals(row, panned.getRGB(50, 150, 400, 1, null, 0, 400));
+        assertTrue(tiles.getComputedTiles() - computed <= 2);
+
+        // gain only changes the gray levels
+        int before = tiles.getComputedTiles();
+        tiles.render(createState(50), 100 * SCALE, 1, false, false, 10, lines, panned);
+        assertEquals(before, tiles.getComputedTiles());
+        assertTrue(gray(panned, 250, 150) > gray(img, 300, 150));
+
+        tiles.clear();
+        tiles.render(createState(0), 100 * SCALE, 1, false, false, 0, lines, panned);
+        assertTrue(tiles.getComputedTiles() > before);
+        assertArrayEquals(((DataBufferInt) img.getRaster().getDataBuffer()).getData(),
+                ((DataBufferInt) panned.getRaster().getDataBuffer()).getData());
+    }
+
+    /**
+     * Checks that the dots of the point mode are deterministic.
+     */
+    @Test
+    public void testPoints() {
+        List<GpxLinePyramid> lines = createLines();
+        GpxHeatMapTiles tiles = new GpxHeatMapTiles();
+        BufferedImage img1 = new BufferedImage(600, 300, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage img2 = new BufferedImage(600, 300, BufferedImage.TYPE_INT_ARGB);
+        tiles.render(createState(0), 100 * SCALE, 3, true, false, 0, lines, img1);
+        tiles.clear();
+        tiles.render(createState(0), 100 * SCALE, 3, true, false, 0, lines, img2);
+        int[] pixels = ((DataBufferInt) img1.getRaster().getDataBuffer()).getData();
+        assertArrayEquals(pixels, ((DataBufferInt) img2.getRaster().getDataBuffer()).getData());
+        int drawn = 0;
+        for (int p : pixels) {
+            if ((p & 0xff) > 0) {
+                drawn++;
+            }
+        }
+        assertTrue(drawn > 100);
+    }
+}
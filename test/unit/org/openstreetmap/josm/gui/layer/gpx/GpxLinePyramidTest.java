@@ -0,0 +1,108 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer.gpx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.data.gpx.WayPointColumns;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link GpxLinePyramid} class.
+ */
+public class GpxLinePyramidTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Creates a line of {@code n} points along the equator, with a bump of the given height in the middle.
+     */
+    private static WayPointColumns createLine(int n, double bump) {
+        List<WayPoint> points = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            WayPoint wpt = new WayPoint(new LatLon(i == n / 2 ? bump : 0, i * 1e-4));
+            wpt.drawLine = i > 0;
+            points.add(wpt);
+        }
+        return new WayPointColumns(points);
+    }
+
+    private static List<Integer> visit(GpxLinePyramid pyramid, int level, double minLat, double minLon, double maxLat, double maxLon) {
+        List<Integer> result = new ArrayList<>();
+        pyramid.visit(level, minLat, minLon, maxLat, maxLon, (i, previous) -> {
+            assertTrue(previous < i);
+            result.add(i);
+        });
+        return result;
+    }
+
+    /**
+     * Unit test of the Douglas-Peucker tolerances and levels of detail.
+     */
+    @Test
+    public void testLevels() {
+        GpxLinePyramid pyramid = new GpxLinePyramid(createLine(1001, 0.01));
+        assertEquals(Double.POSITIVE_INFINITY, pyramid.getTolerance(0), 0);
+        assertEquals(Double.POSITIVE_INFINITY, pyramid.getTolerance(1000), 0);
+        assertEquals(0.01, pyramid.getTolerance(500), 1e-6);
+        assertEquals(0, pyramid.getTolerance(250), 1e-9);
+
+        assertEquals(0, pyramid.getLevelNumber(0));
+        assertEquals(1001, pyramid.getLevelSize(0));
+        int level = pyramid.getLevelNumber(1e-4);
+        assertTrue(level > 0);
+        // the bump is kept, along with its neighbours
+        assertEquals(5, pyramid.getLevelSize(level));
+        assertEquals(2, pyramid.getLevelSize(pyramid.getLevelNumber(1)));
+    }
+
+    /**
+     * Checks that the points which are not connected to their predecessor are kept.
+     */
+    @Test
+    public void testBreaks() {
+        WayPointColumns line = createLine(101, 0);
+        GpxLinePyramid pyramid = new GpxLinePyramid(line);
+        int level = pyramid.getLevelNumber(1);
+        assertEquals(2, pyramid.getLevelSize(level));
+        line.setDrawLine(30, false);
+        pyramid.invalidateLevels();
+        assertEquals(4, pyramid.getLevelSize(level));
+        assertEquals("[0, 29, 30, 100]", visit(pyramid, level, -1, -1, 1, 1).toString());
+    }
+
+    /**
+     * Unit test of the spatial index.
+     */
+    @Test
+    public void testVisit() {
+        WayPointColumns line = createLine(10_000, 0);
+        GpxLinePyramid pyramid = new GpxLinePyramid(line);
+        List<Integer> visible = visit(pyramid, 0, -1, 0.19995, 1, 0.30005);
+        // the last point is connected to a point in the box
+        assertEquals(1002, visible.size());
+        assertEquals(2000, (int) visible.get(0));
+        assertEquals(3001, (int) visible.get(1001));
+        // segments crossing the box are visible
+        assertEquals("[1]", visit(pyramid, 0, -1, 0.00005, 1, 0.00006).toString());
+        assertTrue(visit(pyramid, 0, 1, 0, 2, 1).isEmpty());
+        // points without coordinates are never visited
+        GpxLinePyramid empty = new GpxLinePyramid(new WayPointColumns(new ArrayList<>()));
+        assertEquals(-1, empty.getFirst());
+        assertTrue(visit(empty, 3, -90, -180, 90, 180).isEmpty());
+    }
+}
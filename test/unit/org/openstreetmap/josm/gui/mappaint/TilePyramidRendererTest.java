@@ -0,0 +1,201 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.mappaint.RenderingHelper.StyleData;
+import org.openstreetmap.josm.gui.mappaint.TilePyramidRenderer.DirectoryTileOutput;
+import org.openstreetmap.josm.gui.mappaint.TilePyramidRenderer.ZipTileOutput;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link TilePyramidRenderer} class.
+ */
+public class TilePyramidRendererTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    /**
+     * Temporary folder
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // area of imagery tile z=19/x=292949/y=174587
+    private static final Bounds TILE = new Bounds(51.40091918770498, 21.152114868164077, 51.4013475612123, 21.15280151367189, false);
+
+    private static DataSet createDataSet() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(51.4010, 21.1522));
+        Node n2 = new Node(new LatLon(51.4012, 21.1527));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        ds.addPrimitive(w);
+        return ds;
+    }
+
+    private ElemStyles loadStyles() throws Exception {
+        File style = new File(folder.getRoot(), "style.mapcss");
+        Files.write(style.toPath(), "way { width: 4; color: #ff0000; }".getBytes(StandardCharsets.UTF_8));
+        StyleData sd = new StyleData();
+        sd.styleUrl = style.getAbsolutePath();
+        return RenderingHelper.loadStyles(Collections.singletonList(sd));
+    }
+
+    /**
+     * Unit test of {@link TilePyramidRenderer#getTiles}.
+     * @throws Exception if the styles cannot be loaded
+     */
+    @Test
+    public void testGetTiles() throws Exception {
+        Bounds inside = new Bounds(51.4010, 21.1522, 51.4012, 21.1527);
+        List<int[]> tiles = new TilePyramidRenderer(createDataSet(), inside, 17, 19, loadStyles()).getTiles();
+        assertEquals(Arrays.asList("17/73237/43646", "18/146474/87293", "19/292949/174587"),
+                tiles.stream().map(t -> t[0] + "/" + t[1] + '/' + t[2]).collect(Collectors.toList()));
+        assertEquals(1, new TilePyramidRenderer(createDataSet(), new Bounds(-90, -180, 90, 180), 0, 0, loadStyles()).getTiles().size());
+        assertEquals(16, new TilePyramidRenderer(createDataSet(), new Bounds(-90, -180, 90, 180), 2, 2, loadStyles()).getTiles().size());
+    }
+
+    /**
+     * Unit test of {@link TilePyramidRenderer#getMetaTiles}.
+     * @throws Exception if the styles cannot be loaded
+     */
+    @Test
+    public void testGetMetaTiles() throws Exception {
+        List<List<int[]>> metaTiles = new TilePyramidRenderer(createDataSet(), TILE, 18, 20, loadStyles()).getMetaTiles();
+        assertEquals(Arrays.asList(1, 1, 4), metaTiles.stream().map(List::size).collect(Collectors.toList()));
+        assertEquals(4, new TilePyramidRenderer(createDataSet(), new Bounds(-90, -180, 90, 180), 3, 3, loadStyles()).getMetaTiles().size());
+    }
+
+    private static LatLon getTileCorner(int zoom, int x, int y) {
+        double n = Math.PI * (1 - 2.0 * y / (1 << zoom));
+        return new LatLon(Math.toDegrees(Math.atan(Math.sinh(n))), 360.0 * x / (1 << zoom) - 180);
+    }
+
+    private static boolean hasColor(BufferedImage image, int rgb) {
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                if (image.getRGB(x, y) == rgb) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A symbol near the edge of two metatiles is drawn on both sides of the edge.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testRenderBuffer() throws Exception {
+        // the tiles 585899 and 585900 belong to two metatiles
+        LatLon corner = getTileCorner(20, 585900, 349174);
+        LatLon next = getTileCorner(20, 585901, 349175);
+        double pixel = (next.lon() - corner.lon()) / 256;
+        double latPixel = (corner.lat() - next.lat()) / 256;
+        DataSet ds = new DataSet();
+        ds.addPrimitive(new Node(new LatLon(corner.lat() - 128 * latPixel, corner.lon() - 10 * pixel)));
+        File style = new File(folder.getRoot(), "symbol.mapcss");
+        Files.write(style.toPath(), "node { symbol-shape: square; symbol-size: 40; symbol-fill-color: #00ff00; }"
+                .getBytes(StandardCharsets.UTF_8));
+        StyleData sd = new StyleData();
+        sd.styleUrl = style.getAbsolutePath();
+        Bounds bounds = new Bounds(next.lat() + latPixel, corner.lon() - pixel, corner.lat() - latPixel, corner.lon() + pixel);
+        File dir = folder.newFolder("buffer");
+        assertEquals(2, new TilePyramidRenderer(ds, bounds, 20, 20, RenderingHelper.loadStyles(Collections.singletonList(sd)))
+                .render(new DirectoryTileOutput(dir), 2));
+        assertTrue(hasColor(ImageIO.read(new File(dir, "20/585899/349174.png")), 0xff00ff00));
+        assertTrue(hasColor(ImageIO.read(new File(dir, "20/585900/349174.png")), 0xff00ff00));
+    }
+
+    /**
+     * Unit test of {@link TilePyramidRenderer#render} to a directory tree.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testRenderDirectory() throws Exception {
+        File dir = folder.newFolder("tiles");
+        int count = new TilePyramidRenderer(createDataSet(), TILE, 18, 20, loadStyles()).render(new DirectoryTileOutput(dir), 2);
+        assertEquals(6, count);
+        BufferedImage image = ImageIO.read(new File(dir, "19/292949/174587.png"));
+        assertEquals(256, image.getWidth());
+        assertEquals(256, image.getHeight());
+        // the way is drawn in red
+        boolean red = false;
+        for (int x = 0; x < 256 && !red; x++) {
+            for (int y = 0; y < 256 && !red; y++) {
+                red = image.getRGB(x, y) == 0xffff0000;
+            }
+        }
+        assertTrue(red);
+    }
+
+    /**
+     * Unit test of {@link TilePyramidRenderer#render} to a zip archive.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testRenderZip() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipTileOutput output = new ZipTileOutput(out)) {
+            assertEquals(6, new TilePyramidRenderer(createDataSet(), TILE, 18, 20, loadStyles()).render(output, 3));
+        }
+        Set<String> names = new HashSet<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+            }
+        }
+        assertEquals(new HashSet<>(Arrays.asList("18/146474/87293.png", "19/292949/174587.png",
+                "20/585898/349174.png", "20/585898/349175.png", "20/585899/349174.png", "20/585899/349175.png")), names);
+    }
+
+    /**
+     * Unit test of the failure of the workers.
+     * @throws Exception if an error occurs
+     */
+    @Test(expected = IOException.class)
+    public void testRenderFailure() throws Exception {
+        new TilePyramidRenderer(createDataSet(), TILE, 18, 20, loadStyles()).render((zoom, x, y, png) -> {
+            throw new IOException();
+        }, 2);
+    }
+}
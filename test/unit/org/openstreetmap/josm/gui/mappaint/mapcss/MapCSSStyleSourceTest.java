@@ -0,0 +1,148 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.mapcss;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.data.osm.OsmUtils;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link MapCSSStyleSource} class.
+ */
+public class MapCSSStyleSourceTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static MapCSSStyleSource load(File file) {
+        MapCSSStyleSource source = new MapCSSStyleSource(file.toURI().toString(), "test", "test");
+        source.loadStyleSource();
+        assertTrue(source.getErrors().toString(), source.getErrors().isEmpty());
+        return source;
+    }
+
+    /**
+     * Checks that the preprocessor cache gives the same rules, and is invalidated when the source changes.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testPreprocessorCache() throws IOException {
+        File file = folder.newFile("style.mapcss");
+        Files.write(file.toPath(), ("node[amenity] { color: red; }\n"
+                + "@supports (user-agent: josm) { way[highway] { width: 2; } }\n"
+                + "@supports (user-agent: other) { way[railway] { width: 3; } }\n").getBytes(StandardCharsets.UTF_8));
+        String parsed = load(file).toString();
+        assertTrue(parsed, parsed.contains("highway"));
+        assertFalse(parsed, parsed.contains("railway"));
+        MapCSSStyleSource cached = load(file);
+        assertEquals(parsed, cached.toString());
+        assertEquals(1, cached.nodeRules.getRuleCandidates(OsmUtils.createPrimitive("node amenity=bar"))
+                .next().declaration.instructions.size());
+
+        Files.write(file.toPath(), "node[shop] { color: blue; }\n".getBytes(StandardCharsets.UTF_8));
+        String changed = load(file).toString();
+        assertTrue(changed, changed.contains("shop") && !changed.contains("highway"));
+    }
+
+    /**
+     * Checks that the preprocessor cache is invalidated when the inputs of the conditions change.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testPreprocessorCacheConditions() throws IOException {
+        File file = folder.newFile("supports.mapcss");
+        Files.write(file.toPath(), "@supports (test-feature) { way[railway] { width: 3; } }\n".getBytes(StandardCharsets.UTF_8));
+        String parsed = load(file).toString();
+        assertFalse(parsed, parsed.contains("railway"));
+        MapCSSStyleSource.SUPPORTED_KEYS.add("test-feature");
+        try {
+            String supported = load(file).toString();
+            assertTrue(supported, supported.contains("railway"));
+        } finally {
+            MapCSSStyleSource.SUPPORTED_KEYS.remove("test-feature");
+        }
+        parsed = load(file).toString();
+        assertFalse(parsed, parsed.contains("railway"));
+    }
+
+    /**
+     * Checks that a reload replaces the settings, the canvas and the meta data, without modifying the map of the setting
+     * values which may be used by a renderer.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testReload() throws IOException {
+        File file = folder.newFile("settings.mapcss");
+        Files.write(file.toPath(), ("meta { icon: \"presets/shop.svg\"; }\n"
+                + "canvas { fill-color: #ff0000; }\n"
+                + "setting::hide_shops { type: boolean; label: \"Hide shops\"; default: true; }\n"
+                + "node[shop][!setting(\"hide_shops\")] { color: blue; }\n").getBytes(StandardCharsets.UTF_8));
+        MapCSSStyleSource source = load(file);
+        assertEquals("presets/shop.svg", source.icon);
+        assertEquals(Color.RED, source.getBackgroundColorOverride());
+        assertEquals(1, source.settings.size());
+        Map<String, Object> settingValues = source.settingValues;
+        assertEquals(Boolean.TRUE, settingValues.get("hide_shops"));
+
+        Files.write(file.toPath(), "node[shop] { color: blue; }\n".getBytes(StandardCharsets.UTF_8));
+        source.loadStyleSource();
+        assertTrue(source.getErrors().toString(), source.getErrors().isEmpty());
+        assertNull(source.icon);
+        assertNull(source.getBackgroundColorOverride());
+        assertTrue(source.settings.isEmpty());
+        assertTrue(source.settingValues.isEmpty());
+        assertNotSame(settingValues, source.settingValues);
+        assertEquals(Boolean.TRUE, settingValues.get("hide_shops"));
+    }
+
+    /**
+     * Unit test of {@link MapCSSStyleSource#getReferencedIcons}.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testGetReferencedIcons() throws IOException {
+        File file = folder.newFile("icons.mapcss");
+        Files.write(file.toPath(), ("node[amenity=bar] { icon-image: \"presets/bar.svg\"; }\n"
+                + "node[amenity=pub] { icon-image: \"presets/bar.svg\"; icon-width: 24; }\n"
+                + "node[amenity=cafe] { icon-image: concat(\"presets/\", tag(amenity), \".svg\"); }\n"
+                + "area[landuse=forest] { fill-image: \"forest.png\"; icon-width: 24; }\n"
+                + "way[barrier] { repeat-image: \"fence.svg\"; repeat-image-width: 8; repeat-image-height: 6; }\n")
+                .getBytes(StandardCharsets.UTF_8));
+        Map<String, Set<Dimension>> icons = load(file).getReferencedIcons();
+        assertEquals(3, icons.size());
+        assertEquals(new HashSet<>(Arrays.asList(new Dimension(-1, -1), new Dimension(24, -1))), icons.get("presets/bar.svg"));
+        assertEquals(Collections.singleton(new Dimension(-1, -1)), icons.get("forest.png"));
+        assertEquals(Collections.singleton(new Dimension(8, 6)), icons.get("fence.svg"));
+    }
+}
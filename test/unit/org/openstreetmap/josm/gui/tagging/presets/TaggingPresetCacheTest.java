@@ -0,0 +1,106 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.tagging.presets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.gui.tagging.presets.items.Key;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.xml.sax.SAXException;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link TaggingPresetCache} class.
+ */
+public class TaggingPresetCacheTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> describe(Collection<TaggingPreset> presets) {
+        List<String> result = new ArrayList<>();
+        for (TaggingPreset p : presets) {
+            StringBuilder sb = new StringBuilder(p.getClass().getSimpleName()).append(' ').append(p.getRawName());
+            for (TaggingPresetItem item : p.data) {
+                sb.append(' ').append(item.getClass().getSimpleName());
+                if (item instanceof Key) {
+                    sb.append('=').append(((Key) item).key).append('=').append(((Key) item).value);
+                }
+            }
+            result.add(sb.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Checks that presets read from the cache are identical to the ones parsed from XML.
+     * @throws SAXException if any XML error occurs
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    public void testDefaultPresets() throws SAXException, IOException {
+        String source = "resource://data/defaultpresets.xml";
+        File cache = TaggingPresetCache.getCacheFile(source);
+        Files.deleteIfExists(cache.toPath());
+        List<String> parsed = describe(TaggingPresetReader.readAll(source, false));
+        assertTrue(cache.isFile());
+        List<String> cached = describe(TaggingPresetReader.readAll(source, false));
+        assertFalse(parsed.isEmpty());
+        assertEquals(parsed, cached);
+    }
+
+    /**
+     * Checks that the cache is invalidated when the source changes, and ignored when corrupted.
+     * @throws SAXException if any XML error occurs
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    public void testInvalidation() throws SAXException, IOException {
+        File source = folder.newFile("preset.xml");
+        Files.copy(new File(TestUtils.getTestDataRoot() + "preset_chunk.xml").toPath(), source.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        String name = source.getAbsolutePath();
+        List<String> parsed = describe(TaggingPresetReader.readAll(name, false));
+        assertEquals(parsed, describe(TaggingPresetReader.readAll(name, false)));
+
+        // Source change
+        String xml = new String(Files.readAllBytes(source.toPath()), StandardCharsets.UTF_8);
+        Files.write(source.toPath(), xml.replace("A1", "Z1").getBytes(StandardCharsets.UTF_8));
+        List<String> changed = describe(TaggingPresetReader.readAll(name, false));
+        assertEquals(parsed.toString().replace("A1", "Z1"), changed.toString());
+        assertEquals(changed, describe(TaggingPresetReader.readAll(name, false)));
+
+        // Corrupted cache
+        File cache = TaggingPresetCache.getCacheFile(name);
+        byte[] content = Files.readAllBytes(cache.toPath());
+        Files.write(cache.toPath(), Arrays.copyOf(content, content.length / 2));
+        assertEquals(changed, describe(TaggingPresetReader.readAll(name, false)));
+        assertEquals(content.length, cache.length());
+    }
+}
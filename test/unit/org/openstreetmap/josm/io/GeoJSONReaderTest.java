@@ -0,0 +1,139 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link GeoJSONReader} class.
+ */
+public class GeoJSONReaderTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().projection();
+
+    private static DataSet parse(String json) throws IllegalDataException {
+        return GeoJSONReader.parseDataSet(new ByteArrayInputStream(json.replace('\'', '"').getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    /**
+     * Reads back the output of {@link GeoJSONWriter}.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReadWrittenData() throws Exception {
+        final DataSet ds = new DataSet();
+        final Node n1 = new Node(new LatLon(12.3, 4.56));
+        n1.put("name", "foo");
+        final Node n2 = new Node(new LatLon(12.4, 4.57));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        final Way way = new Way();
+        way.put("highway", "footway");
+        way.setNodes(Arrays.asList(n1, n2));
+        ds.addPrimitive(way);
+
+        DataSet read = parse(new GeoJSONWriter(ds).write(false));
+        assertEquals(3, read.getNodes().size());
+        assertEquals(1, read.getWays().size());
+        Way readWay = read.getWays().iterator().next();
+        assertEquals("footway", readWay.get("highway"));
+        assertEquals(2, readWay.getNodesCount());
+        assertTrue(readWay.firstNode().getCoor().equalsEpsilon(new LatLon(12.3, 4.56)));
+        assertEquals(1, read.getNodes().stream().filter(n -> "foo".equals(n.get("name"))).count());
+    }
+
+    /**
+     * Unit test of the supported geometries.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testGeometries() throws Exception {
+        DataSet ds = parse("{'type': 'FeatureCollection', 'features': ["
+                + "{'type': 'Feature', 'properties': {'name': 'p', 'level': 2, 'note': null},"
+                + " 'geometry': {'type': 'MultiPoint', 'coordinates': [[1, 2], [3, 4]]}},"
+                + "{'type': 'Feature', 'properties': {'building': 'yes'},"
+                + " 'geometry': {'type': 'Polygon', 'coordinates': [[[0, 0], [1, 0], [1, 1], [0, 0]]]}},"
+                + "{'type': 'Feature', 'properties': {'landuse': 'forest'},"
+                + " 'geometry': {'type': 'Polygon', 'coordinates': [[[0, 0], [4, 0], [4, 4], [0, 0]],"
+                + " [[1, 1], [2, 1], [2, 2], [1, 1]]]}},"
+                + "{'type': 'Feature', 'properties': null, 'geometry': null}"
+                + "], 'bbox': [0, 0, 4, 4]}");
+        assertEquals(2 + 3 + 6, ds.getNodes().size());
+        assertEquals(3, ds.getWays().size());
+        assertEquals(1, ds.getRelations().size());
+
+        Node point = ds.getNodes().stream().filter(n -> n.hasKey("name")).findFirst().get();
+        assertEquals("2", point.get("level"));
+        assertEquals(2, point.getKeys().size());
+
+        Way building = ds.getWays().stream().filter(w -> w.hasKey("building")).findFirst().get();
+        assertTrue(building.isClosed());
+        assertEquals(4, building.getNodesCount());
+
+        Relation forest = ds.getRelations().iterator().next();
+        assertTrue(forest.isMultipolygon());
+        assertEquals("forest", forest.get("landuse"));
+        assertEquals("outer", forest.getMember(0).getRole());
+        assertEquals("inner", forest.getMember(1).getRole());
+    }
+
+    /**
+     * Unit test of a single geometry as root element.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testGeometryRoot() throws Exception {
+        DataSet ds = parse("{'coordinates': [[1, 2], [3, 4]], 'type': 'LineString'}");
+        assertEquals(2, ds.getNodes().size());
+        assertEquals(1, ds.getWays().size());
+    }
+
+    /**
+     * Invalid data is reported as {@link IllegalDataException}.
+     * @throws Exception always
+     */
+    @Test(expected = IllegalDataException.class)
+    public void testInvalid() throws Exception {
+        parse("{'type': 'FeatureCollection', 'features': [{'type': 'Feature', 'geometry': {'type': 'Point', 'coordinates': [1]}}]}");
+    }
+
+    /**
+     * A canceled import is reported as an {@link IllegalDataException} caused by an {@link ImportCancelException}.
+     */
+    @Test
+    public void testCanceled() {
+        ProgressMonitor monitor = TestUtils.newTestProgressMonitor();
+        monitor.cancel();
+        String json = "{\"type\": \"FeatureCollection\", \"features\": [{\"type\": \"Feature\", \"properties\": null, "
+                + "\"geometry\": {\"type\": \"Point\", \"coordinates\": [1, 2]}}]}";
+        try {
+            GeoJSONReader.parseDataSet(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), monitor);
+            fail("Reading should have been canceled");
+        } catch (IllegalDataException e) {
+            assertTrue(e.getCause() instanceof ImportCancelException);
+        }
+    }
+}
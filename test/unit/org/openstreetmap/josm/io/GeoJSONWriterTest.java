@@ -7,6 +7,10 @@ import static org.junit.Assert.assertTrue;
 import java.io.FileInputStream;
 import java.util.Arrays;
 
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.openstreetmap.josm.JOSMFixture;
@@ -131,4 +135,25 @@ public class GeoJSONWriterTest {
             assertTrue(writer.write().contains("MultiPolygon"));
         }
     }
+
+    /**
+     * Unit test of the deprecated {@code append*} methods taking JSON builders.
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedBuilders() {
+        final Node node = new Node(new LatLon(12.3, 4.56));
+        node.put("name", "foo");
+        final DataSet ds = new DataSet();
+        ds.addPrimitive(node);
+        final GeoJSONWriter writer = new GeoJSONWriter(ds);
+        final JsonObjectBuilder object = Json.createObjectBuilder();
+        writer.appendLayerFeatures(ds, object);
+        final JsonObject features = object.build();
+        assertEquals(1, features.getJsonArray("features").size());
+        final JsonObject feature = features.getJsonArray("features").getJsonObject(0);
+        assertEquals("Feature", feature.getString("type"));
+        assertEquals("foo", feature.getJsonObject("properties").getString("name"));
+        assertEquals("Point", feature.getJsonObject("geometry").getString("type"));
+    }
 }
@@ -3,6 +3,7 @@ package org.openstreetmap.josm.io;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -10,13 +11,19 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.Test;
 import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.GpxTrack;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.xml.sax.SAXException;
 
 /**
@@ -76,4 +83,121 @@ public class GpxReaderTest {
         assertEquals(new Bounds(53.7229357, -7.9135019, 53.9301103, -7.59656),
                 GpxReaderTest.parseGpxData(TestUtils.getRegressionDataFile(15634, "drumlish.gpx")).getMetaBounds());
     }
+
+    /**
+     * Unit test of the streaming mode.
+     * @throws Exception if something goes wrong
+     */
+    @Test
+    public void testStreaming() throws Exception {
+        final GpxData expected = parseGpxData("data_nodist/munich.gpx");
+        final List<GpxTrack> tracks = new ArrayList<>();
+        final GpxData result;
+        try (FileInputStream in = new FileInputStream(new File("data_nodist/munich.gpx"))) {
+            GpxReader reader = new GpxReader(in);
+            reader.setStreamingListener((previous, track) -> {
+                if (previous != null) {
+                    assertTrue(tracks.remove(previous));
+                }
+                tracks.add(track);
+            });
+            assertTrue(reader.parse(false));
+            result = reader.getGpxData();
+        }
+        assertTrue(result.getTracks().isEmpty());
+        assertEquals(903, result.getWaypoints().size());
+        assertEquals(expected.getTracks().size(), tracks.size());
+        assertEquals(expected.getTrackPoints().count(), tracks.stream().flatMap(t -> t.getSegments().stream())
+                .mapToLong(s -> s.getWayPoints().size()).sum());
+    }
+
+    private static GpxReader newSegmentReader(int points) throws IOException {
+        StringBuilder sb = new StringBuilder("<gpx version=\"1.1\"><trk><trkseg>");
+        for (int i = 0; i < points; i++) {
+            sb.append("<trkpt lat=\"0\" lon=\"").append(i / 100_000.0).append("\"/>");
+        }
+        sb.append("</trkseg></trk></gpx>");
+        return new GpxReader(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Unit test of the streaming mode: a long segment is given to the listener before it is completely read.
+     * @throws Exception if something goes wrong
+     */
+    @Test
+    public void testStreamingPartialSegment() throws Exception {
+        final List<Integer> sizes = new ArrayList<>();
+        GpxReader reader = newSegmentReader(2500);
+        reader.setStreamingListener((previous, track) -> {
+            assertEquals(sizes.isEmpty(), previous == null);
+            assertEquals(1, track.getSegments().size());
+            sizes.add(track.getSegments().iterator().next().getWayPoints().size());
+        });
+        assertTrue(reader.parse(false));
+        // the next partial update is delayed by the update interval
+        assertEquals(2500, (int) sizes.get(sizes.size() - 1));
+        assertEquals(1000, (int) sizes.get(0));
+    }
+
+    /**
+     * Unit test of the cancelation through the progress monitor.
+     * @throws Exception if something goes wrong
+     */
+    @Test
+    public void testCanceled() throws Exception {
+        GpxReader reader = newSegmentReader(10);
+        ProgressMonitor monitor = TestUtils.newTestProgressMonitor();
+        monitor.cancel();
+        reader.setProgressMonitor(monitor);
+        try {
+            reader.parse(true);
+            fail("The parsing should have been canceled");
+        } catch (SAXException e) {
+            assertTrue(e.toString(), e instanceof ImportCancelException);
+        }
+    }
+
+    private static List<List<Double>> parseFiltered(double minimumDistance, Bounds bounds, Date start, Date end)
+            throws IOException, SAXException {
+        StringBuilder sb = new StringBuilder("<gpx version=\"1.1\"><trk><trkseg>");
+        for (int i = 0; i <= 10; i++) {
+            sb.append("<trkpt lat=\"0\" lon=\"").append(i / 1000.0).append("\">");
+            if (i != 5) {
+                sb.append("<time>2018-01-01T00:").append(String.format("%02d", i)).append(":00Z</time>");
+            }
+            sb.append("</trkpt>");
+        }
+        sb.append("</trkseg></trk></gpx>");
+        GpxReader reader = new GpxReader(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        reader.setMinimumDistance(minimumDistance);
+        reader.setBounds(bounds);
+        reader.setTimeRange(start, end);
+        assertTrue(reader.parse(false));
+        List<List<Double>> result = new ArrayList<>();
+        for (GpxTrack track : reader.getGpxData().getTracks()) {
+            for (GpxTrackSegment seg : track.getSegments()) {
+                result.add(seg.getWayPoints().stream().map(w -> w.getCoor().lon() * 1000).collect(Collectors.toList()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Unit test of the decimation and filters applied while parsing.
+     * @throws Exception if something goes wrong
+     */
+    @Test
+    public void testFilters() throws Exception {
+        assertEquals(11, parseFiltered(0, null, null, null).get(0).size());
+        // the last point is kept
+        assertEquals("[[0.0, 3.0, 6.0, 9.0, 10.0]]", parseFiltered(250, null, null, null).toString());
+        assertEquals("[[3.0, 4.0, 5.0, 6.0]]", parseFiltered(0, new Bounds(-1, 0.0025, 1, 0.0065), null, null).toString());
+        // the point without time splits the segment
+        Date start = new Date(1514764800000L);
+        assertEquals("[[0.0, 1.0, 2.0, 3.0, 4.0], [6.0, 7.0, 8.0, 9.0, 10.0]]",
+                parseFiltered(0, null, start, null).toString());
+        assertEquals("[[3.0, 4.0]]", parseFiltered(0, new Bounds(-1, 0.0025, 1, 0.0065),
+                start, new Date(start.getTime() + 4 * 60_000)).toString());
+        assertTrue(parseFiltered(0, null, new Date(start.getTime() + 3_600_000), null).isEmpty());
+    }
 }
@@ -0,0 +1,50 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.xml.sax.SAXException;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Tests the {@link GpxWriter}.
+ */
+public class GpxWriterTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Checks that tracks written and read again are unchanged.
+     * @throws IOException if an I/O error occurs
+     * @throws SAXException if a SAX error occurs
+     */
+    @Test
+    public void testTracksRoundTrip() throws IOException, SAXException {
+        GpxData data = GpxReaderTest.parseGpxData("data_nodist/2094047.gpx");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GpxWriter writer = new GpxWriter(out)) {
+            writer.write(data);
+        }
+        GpxReader reader = new GpxReader(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(reader.parse(false));
+        GpxData result = reader.getGpxData();
+        assertEquals(new ArrayList<>(data.getTracks()), new ArrayList<>(result.getTracks()));
+        assertEquals(new ArrayList<>(data.getWaypoints()), new ArrayList<>(result.getWaypoints()));
+    }
+}
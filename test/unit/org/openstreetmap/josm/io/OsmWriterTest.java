@@ -7,21 +7,48 @@ import static org.junit.Assert.assertEquals;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import org.junit.After;
+import org.junit.Rule;
 import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.DownloadPolicy;
-import org.openstreetmap.josm.data.osm.UploadPolicy;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.UploadPolicy;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
  * Unit tests of {@link OsmWriter} class.
  */
 public class OsmWriterTest {
 
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    /**
+     * Reset the preferences.
+     */
+    @After
+    public void tearDown() {
+        OsmWriter.PROP_PARALLEL_THRESHOLD.remove();
+    }
+
     /**
      * Unit test of {@link OsmWriter#byIdComparator}.
      */
@@ -66,4 +93,73 @@ public class OsmWriterTest {
         assertEquals("<?xml version='1.0' encoding='UTF-8'?>" + expected,
                 baos.toString("UTF-8").replaceAll("\r", "").replaceAll("\n", ""));
     }
+
+    /**
+     * Unit test of {@link OsmWriter#formatCoordinate}.
+     */
+    @Test
+    public void testFormatCoordinate() {
+        for (double value : new double[] {0, 1, -1, 0.1, -0.1, 12.3456789, -179.9999999, 180, 90.5, 1e-7, -1e-7, 123456.1234567}) {
+            char[] buffer = new char[32];
+            int length = OsmWriter.formatCoordinate(value, buffer);
+            assertEquals(LatLon.cDdHighPecisionFormatter.format(value), new String(buffer, 0, length));
+        }
+        for (double value : new double[] {-0.0, 1e-8, 0.123456789, 1e6, Double.NaN, Double.POSITIVE_INFINITY}) {
+            assertEquals(-1, OsmWriter.formatCoordinate(value, new char[32]));
+        }
+    }
+
+    /**
+     * Unit test of {@link XmlWriter#encode(String)}.
+     */
+    @Test
+    public void testEncode() {
+        assertEquals("a&lt;b&gt;&amp;&quot;&apos;&#xA;&#xD;&#x9;c", XmlWriter.encode("a<b>&\"'\n\r\tc"));
+        assertEquals("'", XmlWriter.encode("'", true));
+        assertEquals("abc", XmlWriter.encode("abc"));
+        assertEquals(null, XmlWriter.encode(null));
+    }
+
+    /**
+     * Large collections of primitives are serialized concurrently with the same result.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testParallelWrite() throws IOException {
+        DataSet ds = new DataSet();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 1; i <= 5000; i++) {
+            Node n = new Node(new LatLon(i * 1.234567e-3, -i * 7.654321e-3 / 3));
+            n.setOsmId(i, 1);
+            n.put("name", "node <" + i + ">");
+            ds.addPrimitive(n);
+            nodes.add(n);
+        }
+        for (int i = 1; i <= 1000; i++) {
+            Way w = new Way(i, 2);
+            w.setNodes(nodes.subList(i - 1, i + 4));
+            w.put("highway", "residential");
+            ds.addPrimitive(w);
+        }
+        Node newNode = new Node(new LatLon(1, 2));
+        ds.addPrimitive(newNode);
+        Relation r = new Relation(1, 1);
+        r.setMembers(Arrays.asList(new RelationMember("outer", ds.getWays().iterator().next()), new RelationMember("", newNode)));
+        ds.addPrimitive(r);
+
+        OsmWriter.PROP_PARALLEL_THRESHOLD.put(Integer.MAX_VALUE);
+        String sequential = write(ds);
+        OsmWriter.PROP_PARALLEL_THRESHOLD.put(0);
+        assertEquals(sequential, write(ds));
+    }
+
+    private static String write(DataSet ds) throws IOException {
+        StringWriter sw = new StringWriter();
+        try (OsmWriter writer = OsmWriterFactory.createOsmWriter(new PrintWriter(sw), true, OsmWriter.DEFAULT_API_VERSION)) {
+            writer.header();
+            writer.writeContent(ds);
+            writer.footer();
+        }
+        return sw.toString();
+    }
 }
@@ -0,0 +1,71 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link SourceDigestCache} class.
+ */
+public class SourceDigestCacheTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Unit test of {@link SourceDigestCache#getDigest}.
+     * @throws IOException never
+     */
+    @Test
+    public void testGetDigest() throws IOException {
+        byte[] content = "foo".getBytes(StandardCharsets.UTF_8);
+        assertEquals("acbd18db4cc2f85cedef654fccc4a4d8", SourceDigestCache.getDigest(content));
+        assertEquals(SourceDigestCache.getDigest(content), SourceDigestCache.getDigest(new ByteArrayInputStream(content)));
+        assertNotEquals(SourceDigestCache.getDigest(content), SourceDigestCache.getDigest(new byte[0]));
+    }
+
+    /**
+     * Unit test of {@link SourceDigestCache#get} and {@link SourceDigestCache#put}.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testGetPut() throws IOException {
+        SourceDigestCache cache = new SourceDigestCache("test-parsed-source-cache", 1);
+        String source = "resource://foo.xml";
+        cache.remove(source);
+        assertNull(cache.get(source, "digest"));
+
+        byte[] data = {1, 2, 3};
+        cache.put(source, "digest", data);
+        assertArrayEquals(data, cache.get(source, "digest"));
+        assertNull(cache.get(source, "other digest"));
+        assertNull(new SourceDigestCache("test-parsed-source-cache", 2).get(source, "digest"));
+
+        // Truncated file is discarded
+        File file = cache.getCacheFile(source);
+        byte[] content = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(content, content.length - 1));
+        assertNull(cache.get(source, "digest"));
+        assertFalse(file.exists());
+    }
+}
@@ -6,9 +6,19 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -33,7 +43,103 @@ public class PluginHandlerTest {
      */
     @Rule
     @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
-    public JOSMTestRules test = new JOSMTestRules().platform();
+    public JOSMTestRules test = new JOSMTestRules().preferences().platform();
+
+    private static final List<String> EVENTS = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Records the loading of the plugin classes.
+     */
+    private static final class RecordingClassLoader extends PluginClassLoader {
+        RecordingClassLoader() {
+            super(new URL[0], PluginHandlerTest.class.getClassLoader(), null);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith(TestPlugin.class.getName())) {
+                EVENTS.add("load " + name.substring(TestPlugin.class.getName().length()));
+            }
+            return super.loadClass(name, resolve);
+        }
+    }
+
+    /**
+     * Base class of the test plugins, which records their initialization and instantiation.
+     */
+    public static class TestPlugin {
+        TestPlugin(String name) {
+            EVENTS.add("new " + name);
+        }
+    }
+
+    /**
+     * Test plugin without dependency.
+     */
+    public static class TestPluginA extends TestPlugin {
+        static {
+            EVENTS.add("init A");
+        }
+
+        /**
+         * Constructs a new {@code TestPluginA}.
+         * @param info plugin information
+         */
+        public TestPluginA(PluginInformation info) {
+            super("A");
+        }
+    }
+
+    /**
+     * Test plugin requiring A.
+     */
+    public static class TestPluginB extends TestPlugin {
+        static {
+            EVENTS.add("init B");
+        }
+
+        /**
+         * Constructs a new {@code TestPluginB}.
+         * @param info plugin information
+         */
+        public TestPluginB(PluginInformation info) {
+            super("B");
+        }
+    }
+
+    /**
+     * Test plugin requiring B.
+     */
+    public static class TestPluginC extends TestPlugin {
+        static {
+            EVENTS.add("init C");
+        }
+
+        /**
+         * Constructs a new {@code TestPluginC}.
+         * @param info plugin information
+         */
+        public TestPluginC(PluginInformation info) {
+            super("C");
+        }
+    }
+
+    /**
+     * Test plugin without dependency.
+     */
+    public static class TestPluginD extends TestPlugin {
+        static {
+            EVENTS.add("init D");
+        }
+
+        /**
+         * Constructs a new {@code TestPluginD}.
+         * @param info plugin information
+         */
+        public TestPluginD(PluginInformation info) {
+            super("D");
+        }
+    }
 
     /**
      * Unit test of methods {@link DeprecatedPlugin#equals} and {@link DeprecatedPlugin#hashCode}.
@@ -88,6 +194,87 @@ public class PluginHandlerTest {
         assertFalse(plugins.contains("gpsbabelgui"));
     }
 
+    /**
+     * Unit test of {@link PluginHandler#getLoadingTimesInformation}.
+     */
+    @Test
+    public void testGetLoadingTimesInformation() {
+        try {
+            PluginHandler.pluginLoadingTimes.put("foo", 12L);
+            PluginHandler.pluginLoadingTimes.put("bar", 340L);
+            PluginHandler.pluginLoadingTimes.put("baz", 12L);
+            assertEquals(Arrays.asList("bar: 340 ms", "baz: 12 ms", "foo: 12 ms"), PluginHandler.getLoadingTimesInformation());
+        } finally {
+            PluginHandler.pluginLoadingTimes.clear();
+        }
+    }
+
+    private static PluginInformation newTestPlugin(String name, String requires) throws PluginException {
+        String manifest = "Manifest-Version: 1.0\nPlugin-Class: " + TestPlugin.class.getName() + name + '\n';
+        PluginInformation info = new PluginInformation(new ByteArrayInputStream(manifest.getBytes(StandardCharsets.UTF_8)), name, null);
+        info.localrequires = requires;
+        return info;
+    }
+
+    /**
+     * Unit test of {@link PluginHandler#loadPluginClasses}: the classes are loaded in parallel after the classes of the
+     * plugins they require, and they are only initialized when the plugins are instantiated in order.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testLoadPluginClasses() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // the dependent plugins are listed first, the loading must still wait for their dependencies
+            List<PluginInformation> toLoad = Arrays.asList(
+                    newTestPlugin("C", "B"), newTestPlugin("B", "A"), newTestPlugin("A", null), newTestPlugin("D", null));
+            Map<PluginInformation, PluginClassLoader> classLoaders = new HashMap<>();
+            for (PluginInformation info : toLoad) {
+                classLoaders.put(info, new RecordingClassLoader());
+            }
+            Map<PluginInformation, Future<Class<?>>> classes = PluginHandler.loadPluginClasses(toLoad, classLoaders, executor);
+            for (Future<Class<?>> future : classes.values()) {
+                assertNotNull(future.get());
+            }
+            List<String> loaded = new ArrayList<>(EVENTS);
+            assertEquals(loaded.toString(), 4, loaded.size());
+            assertTrue(loaded.toString(), loaded.indexOf("load A") < loaded.indexOf("load B"));
+            assertTrue(loaded.toString(), loaded.indexOf("load B") < loaded.indexOf("load C"));
+
+            EVENTS.clear();
+            for (PluginInformation info : Arrays.asList(toLoad.get(2), toLoad.get(1), toLoad.get(0), toLoad.get(3))) {
+                info.load(classes.get(info).get(), classLoaders.get(info));
+            }
+            assertEquals(Arrays.asList("init A", "new A", "init B", "new B", "init C", "new C", "init D", "new D"), EVENTS);
+        } finally {
+            EVENTS.clear();
+            PluginHandler.pluginLoadingTimes.clear();
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Unit test of {@link PluginHandler#createClassLoaders}.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCreateClassLoaders() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            PluginInformation dummy = new PluginInformation(new File(TestUtils.getTestDataRoot() + "plugin/dummy_plugin.jar"), "dummy_plugin");
+            PluginInformation test = newTestPlugin("A", null);
+            Map<PluginInformation, PluginClassLoader> classLoaders = PluginHandler.createClassLoaders(Arrays.asList(dummy, test), executor);
+            assertEquals(2, classLoaders.size());
+            assertNotNull(classLoaders.get(dummy).findResource(dummy.className.replace('.', '/') + ".class"));
+            assertEquals(0, classLoaders.get(test).getURLs().length);
+            assertTrue(PluginHandler.pluginLoadingTimes.containsKey("dummy_plugin"));
+            assertTrue(PluginHandler.pluginLoadingTimes.containsKey("A"));
+        } finally {
+            PluginHandler.pluginLoadingTimes.clear();
+            executor.shutdown();
+        }
+    }
+
     /**
      * Unit test of {@link PluginInformationAction} class.
      * @throws PluginException if an error occurs
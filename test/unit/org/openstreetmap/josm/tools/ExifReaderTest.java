@@ -3,7 +3,10 @@ package org.openstreetmap.josm.tools;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
@@ -14,6 +17,8 @@ import java.time.ZonedDateTime;
 import java.util.Date;
 import java.util.TimeZone;
 
+import javax.imageio.ImageIO;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -22,6 +27,9 @@ import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 import org.openstreetmap.josm.tools.date.DateUtils;
 
+import com.drew.metadata.Metadata;
+import com.drew.metadata.jpeg.JpegDirectory;
+
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.openstreetmap.josm.data.coor.conversion.DMSCoordinateFormat;
 
@@ -150,4 +158,27 @@ public class ExifReaderTest {
         doTestFile("2017-01-16T18:27:00.000", 14209, "0MbEfj1S--.1.jpg");
         doTestFile("2016-08-13T19:51:13.000", 14209, "7VWFOryj--.1.jpg");
     }
+
+    /**
+     * Test of reading the EXIF and frame segments only
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReadMetadata() throws Exception {
+        Metadata metadata = ExifReader.readMetadata(orientationSampleFile);
+        assertEquals(3264, metadata.getFirstDirectoryOfType(JpegDirectory.class).getInt(JpegDirectory.TAG_IMAGE_WIDTH));
+        assertEquals(ExifReader.readTime(orientationSampleFile), ExifReader.readTime(metadata));
+    }
+
+    /**
+     * Test of reading the thumbnail embedded in the EXIF section
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReadEmbeddedThumbnail() throws Exception {
+        BufferedImage thumb = ImageIO.read(new ByteArrayInputStream(ExifReader.readEmbeddedThumbnail(directionSampleFile)));
+        assertEquals(160, thumb.getWidth());
+        assertEquals(120, thumb.getHeight());
+        assertNull(ExifReader.readEmbeddedThumbnail(new File("data_nodist/exif-example_speed_ele.jpg")));
+    }
 }
@@ -0,0 +1,145 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link StartupProfile} class.
+ */
+public class StartupProfileTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Unit test of {@link StartupProfile#run} and {@link StartupProfile#getReport}.
+     */
+    @Test
+    public void testRun() {
+        int size = StartupProfile.getTimings().size();
+        boolean[] ran = {false};
+        StartupProfile.run("test task", () -> ran[0] = true);
+        assertTrue(ran[0]);
+        List<StartupProfile.TaskTiming> timings = StartupProfile.getTimings();
+        assertEquals(size + 1, timings.size());
+        StartupProfile.TaskTiming timing = timings.get(size);
+        assertEquals("test task", timing.getName());
+        assertEquals(Thread.currentThread().getName(), timing.getThread());
+        assertTrue(timing.getDuration() >= 0);
+        assertTrue(StartupProfile.getReport().stream().anyMatch(l -> l.endsWith("test task")));
+    }
+
+    /**
+     * Unit test of {@link StartupProfile#getLoadedClassNames}.
+     */
+    @Test
+    public void testGetLoadedClassNames() {
+        Set<String> classes = StartupProfile.getLoadedClassNames(StartupProfile.class.getClassLoader());
+        if (Utils.getJavaVersion() > 8) {
+            // the class loader internals are not accessible
+            assertTrue(classes.isEmpty());
+        } else {
+            assertTrue(classes.contains("org/openstreetmap/josm/tools/StartupProfile"));
+            assertFalse(classes.contains("java/lang/Object"));
+        }
+    }
+
+    /**
+     * Unit test of {@link StartupProfile#readClassList}.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testReadClassList() throws IOException {
+        File classList = folder.newFile("classlist");
+        Files.write(classList.toPath(), Arrays.asList("# NOTE: Do not modify this file.", "java/lang/Object id: 0",
+                "org/openstreetmap/josm/tools/StartupProfile", "@lambda-proxy java/lang/Runnable run", ""), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("java/lang/Object", "org/openstreetmap/josm/tools/StartupProfile"),
+                StartupProfile.readClassList(classList));
+    }
+
+    /**
+     * Unit test of {@link StartupProfile#getGeneratedResources}.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testGetGeneratedResources() throws IOException {
+        File cache = folder.newFolder("cache");
+        File dir = new File(cache, "startup");
+        assertTrue(new File(cache, "svg-raster").mkdir());
+        assertTrue(dir.mkdir());
+        assertTrue(new File(cache, "svg-raster/icon.png").createNewFile());
+        assertTrue(new File(dir, StartupProfile.CLASS_LIST_FILE).createNewFile());
+        File old = new File(cache, "old.txt");
+        assertTrue(old.createNewFile());
+        assertTrue(old.setLastModified(1000000000000L));
+        assertEquals(Collections.singletonList("svg-raster/icon.png"), StartupProfile.getGeneratedResources(cache, dir));
+        assertTrue(StartupProfile.getGeneratedResources(new File(cache, "missing"), dir).isEmpty());
+    }
+
+    /**
+     * Unit test of {@link StartupProfile#writeTrainingRun} and {@link StartupProfile#preloadClasses}.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testTrainingRun() throws IOException {
+        File dir = new File(folder.getRoot(), "startup");
+        StartupProfile.writeTrainingRun(dir, getClass().getClassLoader());
+        assertTrue(new File(dir, StartupProfile.TIMINGS_FILE).isFile());
+        assertTrue(new File(dir, StartupProfile.RESOURCES_FILE).isFile());
+        File classList = new File(dir, StartupProfile.CLASS_LIST_FILE);
+        if (Utils.getJavaVersion() > 8 || StartupProfile.getJvmClassList() != null) {
+            // the class list is only written by the JVM itself, never rewritten while the JVM still appends to it
+            assertFalse(classList.exists());
+        } else {
+            assertTrue(StartupProfile.readClassList(classList).contains("org/openstreetmap/josm/tools/StartupProfileTest"));
+        }
+    }
+
+    /**
+     * Unit test of {@link StartupProfile#preloadClasses}.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testPreloadClasses() throws IOException {
+        File dir = folder.newFolder("startup");
+        Files.write(new File(dir, StartupProfile.CLASS_LIST_FILE).toPath(),
+                Arrays.asList("org/openstreetmap/josm/tools/StartupProfileTest", "does/not/Exist"), StandardCharsets.UTF_8);
+        // disabled by default
+        assertEquals(0, StartupProfile.preloadClasses(dir, getClass().getClassLoader()));
+        StartupProfile.PROP_PRELOAD_CLASSES.put(true);
+        try {
+            assertEquals(2, StartupProfile.preloadClasses(dir, getClass().getClassLoader()));
+            assertEquals(0, StartupProfile.preloadClasses(new File(dir, "missing"), getClass().getClassLoader()));
+        } finally {
+            StartupProfile.PROP_PRELOAD_CLASSES.remove();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.awaitility.Awaitility;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.ImageProvider.ImageSizes;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link SvgRasterCache} class.
+ */
+public class SvgRasterCacheTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Unit test of {@link SvgRasterCache#getSourceKey}.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testGetSourceKey() throws IOException {
+        File svg = folder.newFile("test.svg");
+        assertTrue(svg.setLastModified(1000000000000L));
+        String key = SvgRasterCache.getSourceKey(svg.toURI().toURL());
+        assertNotNull(key);
+        assertTrue(svg.setLastModified(2000000000000L));
+        assertNotEquals(key, SvgRasterCache.getSourceKey(svg.toURI().toURL()));
+        assertNull(SvgRasterCache.getSourceKey(new URL("http://www.openstreetmap.org/test.svg")));
+        assertNull(SvgRasterCache.getSourceKey(new File(folder.getRoot(), "missing.svg").toURI().toURL()));
+        assertNotNull(SvgRasterCache.getSourceKey(svg, "icon.svg"));
+    }
+
+    /**
+     * Unit test of {@link SvgRasterCache#put} and {@link SvgRasterCache#get}.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testPutGet() throws IOException {
+        Dimension dim = new Dimension(16, 12);
+        String key = "test:" + System.nanoTime();
+        assertNull(SvgRasterCache.get(key, dim));
+        BufferedImage img = new BufferedImage(dim.width, dim.height, BufferedImage.TYPE_INT_ARGB);
+        img.setRGB(3, 4, 0xff336699);
+        SvgRasterCache.put(key, dim, img);
+        File file = SvgRasterCache.getCacheFile(key, dim);
+        Awaitility.await().atMost(5, SECONDS).until(file::isFile);
+        BufferedImage cached = SvgRasterCache.get(key, dim);
+        assertNotNull(cached);
+        assertEquals(dim.width, cached.getWidth());
+        assertEquals(dim.height, cached.getHeight());
+        assertEquals(0xff336699, cached.getRGB(3, 4));
+        assertNull(SvgRasterCache.get(key, new Dimension(16, 16)));
+        assertNull(SvgRasterCache.get(null, dim));
+
+        // invalid files are discarded
+        Files.write(file.toPath(), new byte[] {1, 2, 3});
+        assertNull(SvgRasterCache.get(key, dim));
+        assertTrue(!file.exists());
+    }
+
+    /**
+     * Unit test of {@link SvgRasterCache#cleanup}.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testCleanup() throws IOException {
+        File[] files = new File[4];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = folder.newFile(i + ".png");
+            Files.write(files[i].toPath(), new byte[100]);
+        }
+        // files[0] is the most recently used, files[3] the least recently used
+        for (int i = 0; i < files.length; i++) {
+            assertTrue(files[i].setLastModified(2000000000000L - i * 1000000L));
+        }
+        SvgRasterCache.cleanup(folder.getRoot(), 400);
+        assertTrue(Arrays.stream(files).allMatch(File::isFile));
+        SvgRasterCache.cleanup(folder.getRoot(), 250);
+        assertTrue(files[0].isFile());
+        assertTrue(files[1].isFile());
+        assertFalse(files[2].exists());
+        assertFalse(files[3].exists());
+    }
+
+    /**
+     * Unit test of {@link ImageResource} rasterization through the cache.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testImageResource() throws IOException {
+        File svg = new File(folder.getRoot(), "audio-fwd.svg");
+        Files.copy(new File("images/audio-fwd.svg").toPath(), svg.toPath());
+        Dimension dim = new Dimension(16, 16);
+        ImageResource resource = new ImageProvider(svg.getAbsolutePath()).getResource();
+        assertNotNull(resource);
+        assertNotNull(resource.getImageIcon(dim));
+        String key = SvgRasterCache.getSourceKey(svg.toURI().toURL());
+        File file = SvgRasterCache.getCacheFile(key, GuiSizesHelper.getDimensionDpiAdjusted(dim));
+        Awaitility.await().atMost(5, SECONDS).until(file::isFile);
+
+        // a new resource reads the rasterized image from the cache
+        ImageResource resource2 = new ImageProvider(svg.getAbsolutePath()).getResource();
+        assertEquals(16, resource2.getImageIcon(dim).getIconWidth());
+        ImageProvider.prerasterize(resource2, ImageSizes.SMALLICON, ImageSizes.LARGEICON).join();
+    }
+
+    /**
+     * Unit test of {@link ImageProvider#prerasterize(java.util.Collection)}.
+     */
+    @Test
+    public void testPrerasterize() {
+        ImageProvider.prerasterize(Arrays.asList(
+                new ImageProvider("audio-fwd").setSize(ImageSizes.SMALLICON),
+                new ImageProvider("does-not-exist").setSize(ImageSizes.SMALLICON))).join();
+    }
+}